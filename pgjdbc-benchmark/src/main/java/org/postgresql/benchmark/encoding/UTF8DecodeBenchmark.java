@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.encoding;
+
+import org.postgresql.core.Encoding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the driver's UTF-8 decoder against {@link String#String(byte[], java.nio.charset.Charset)}
+ * for ASCII and multi-byte text, single threaded and with threads sharing the decoder.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UTF8DecodeBenchmark {
+  @Param({"16", "256", "4096"})
+  public int length;
+
+  @Param({"ascii", "cyrillic", "mixed"})
+  public String content;
+
+  private final Encoding encoding = Encoding.getJVMEncoding("UTF-8");
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() {
+    String unit;
+    if ("ascii".equals(content)) {
+      unit = "abcdefghij";
+    } else if ("cyrillic".equals(content)) {
+      unit = "\u0430\u0431\u0432\u0433\u0434\u0435\u0436\u0437\u0438\u0439";
+    } else {
+      unit = "abc\u00e9\u00e8\u0436 \u20ac1";
+    }
+    StringBuilder sb = new StringBuilder(length);
+    while (sb.length() < length) {
+      sb.append(unit);
+    }
+    sb.setLength(length);
+    bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public String driverDecode() throws IOException {
+    return encoding.decode(bytes);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String driverDecodeShared() throws IOException {
+    return encoding.decode(bytes);
+  }
+
+  @Benchmark
+  public String jdkDecode() {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(UTF8DecodeBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.parser;
+
+import org.postgresql.core.NativeQuery;
+import org.postgresql.core.Parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Parser#parseJdbcSql} on statements of different shapes.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParserBenchmark {
+  @Param({"select", "insert", "escapes", "multi"})
+  public String shape;
+
+  private String sql;
+
+  @Setup
+  public void setUp() {
+    if ("select".equals(shape)) {
+      sql = "SELECT id, name, created_at FROM users WHERE id = ? AND status = 'active'";
+    } else if ("insert".equals(shape)) {
+      sql = "INSERT INTO events(id, kind, payload, created_at) VALUES (?, ?, ?, ?)";
+    } else if ("escapes".equals(shape)) {
+      sql = "SELECT {fn ucase(name)}, $$dollar ? quoted$$, \"quoted ? ident\" FROM t "
+          + "WHERE d > {d '2018-01-01'} /* block ? comment */ AND x = ? -- line ? comment\n";
+    } else {
+      sql = "UPDATE t SET a = ? WHERE b = ?; DELETE FROM t WHERE c = ?; SELECT ?";
+    }
+  }
+
+  @Benchmark
+  public List<NativeQuery> parseJdbcSql() throws SQLException {
+    return Parser.parseJdbcSql(sql, true, true, true, false);
+  }
+
+  @Benchmark
+  public List<NativeQuery> parseJdbcSqlRewriteBatch() throws SQLException {
+    return Parser.parseJdbcSql(sql, true, true, true, true);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(ParserBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
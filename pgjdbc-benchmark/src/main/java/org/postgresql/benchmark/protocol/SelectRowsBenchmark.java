@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.protocol;
+
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.test.fakebackend.FakeScript;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full execute/read cycle against {@link FakeBackend}: the driver sends the query,
+ * receives the rows and the result set is read to the end. This covers protocol
+ * encoding, {@code PGStream} reads and row decoding without the cost of a real server.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx256m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SelectRowsBenchmark {
+  @Param({"1", "100", "10000"})
+  public int rows;
+
+  private FakeBackend backend;
+  private Connection connection;
+  private PreparedStatement ps;
+
+  @Setup
+  public void setUp() throws IOException, SQLException {
+    List<String[]> values = new ArrayList<String[]>(rows);
+    for (int i = 0; i < rows; i++) {
+      values.add(new String[]{Integer.toString(i), "name " + i, "2018-07-14 12:34:56.789012"});
+    }
+    FakeScript script = new FakeScript();
+    script.on("^SELECT", FakeResult.rows(new String[]{"id", "name", "created_at"},
+        new int[]{Oid.INT4, Oid.TEXT, Oid.TIMESTAMP}, values));
+    backend = new FakeBackend(script);
+
+    Properties props = new Properties();
+    props.setProperty("user", "bench");
+    // Rows are decoded from their text form
+    props.setProperty("binaryTransfer", "false");
+    connection = DriverManager.getConnection(backend.getURL() + "&assumeMinServerVersion=9.0",
+        props);
+    ps = connection.prepareStatement("SELECT id, name, created_at FROM users");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException, SQLException {
+    ps.close();
+    connection.close();
+    backend.close();
+  }
+
+  @Benchmark
+  public void executeQuery(Blackhole b) throws SQLException {
+    ResultSet rs = ps.executeQuery();
+    while (rs.next()) {
+      b.consume(rs.getInt(1));
+      b.consume(rs.getString(2));
+    }
+    rs.close();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(SelectRowsBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.resultset;
+
+import org.postgresql.core.BaseStatement;
+import org.postgresql.core.Field;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeScript;
+import org.postgresql.util.ByteConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code PgResultSet} getters on a row that is already in memory, for both the text and
+ * the binary wire format. The connection comes from {@link FakeBackend}, so no database is
+ * needed.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResultSetGetterBenchmark {
+  @Param({"text", "binary"})
+  public String format;
+
+  private FakeBackend backend;
+  private Connection connection;
+  private ResultSet rs;
+
+  @Setup
+  public void setUp() throws IOException, SQLException {
+    backend = new FakeBackend(new FakeScript());
+    Properties props = new Properties();
+    props.setProperty("user", "bench");
+    connection = DriverManager.getConnection(backend.getURL() + "&assumeMinServerVersion=9.0",
+        props);
+
+    boolean binary = "binary".equals(format);
+    Field[] fields = new Field[]{
+        new Field("i", Oid.INT4),
+        new Field("s", Oid.TEXT),
+        new Field("ts", Oid.TIMESTAMP)
+    };
+    byte[][] tuple = new byte[3][];
+    tuple[1] = "a moderately long text value".getBytes(StandardCharsets.UTF_8);
+    if (binary) {
+      for (Field field : fields) {
+        field.setFormat(Field.BINARY_FORMAT);
+      }
+      tuple[0] = new byte[4];
+      ByteConverter.int4(tuple[0], 0, 1234567);
+      tuple[2] = new byte[8];
+      // 2018-07-14 12:34:56.789012 in microseconds since 2000-01-01
+      ByteConverter.int8(tuple[2], 0, 584886896789012L);
+    } else {
+      tuple[0] = "1234567".getBytes(StandardCharsets.UTF_8);
+      tuple[2] = "2018-07-14 12:34:56.789012".getBytes(StandardCharsets.UTF_8);
+    }
+    List<byte[][]> tuples = new ArrayList<byte[][]>();
+    tuples.add(tuple);
+
+    BaseStatement statement = (BaseStatement) connection.createStatement();
+    rs = statement.createDriverResultSet(fields, tuples);
+    rs.next();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException, SQLException {
+    connection.close();
+    backend.close();
+  }
+
+  @Benchmark
+  public int getInt() throws SQLException {
+    return rs.getInt(1);
+  }
+
+  @Benchmark
+  public String getString() throws SQLException {
+    return rs.getString(2);
+  }
+
+  @Benchmark
+  public String getIntAsString() throws SQLException {
+    return rs.getString(1);
+  }
+
+  @Benchmark
+  public Timestamp getTimestamp() throws SQLException {
+    return rs.getTimestamp(3);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(ResultSetGetterBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
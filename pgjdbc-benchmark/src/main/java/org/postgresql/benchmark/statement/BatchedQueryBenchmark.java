@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.statement;
+
+import org.postgresql.core.NativeQuery;
+import org.postgresql.core.Parser;
+import org.postgresql.core.SqlCommand;
+import org.postgresql.core.v3.BatchedQuery;
+import org.postgresql.core.v3.TypeTransferModeRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to produce the multi-values SQL of a rewritten batch
+ * ({@code reWriteBatchedInserts=true}). {@link BatchedQuery} caches the text, so each invocation
+ * derives a fresh query.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BatchedQueryBenchmark {
+  private static final TypeTransferModeRegistry TEXT_ONLY = new TypeTransferModeRegistry() {
+    @Override
+    public boolean useBinaryForSend(int oid) {
+      return false;
+    }
+
+    @Override
+    public boolean useBinaryForReceive(int oid) {
+      return false;
+    }
+  };
+
+  @Param({"2", "16", "128"})
+  public int batchSize;
+
+  @Param({"4", "16"})
+  public int columns;
+
+  private NativeQuery nativeQuery;
+
+  @Setup
+  public void setUp() throws SQLException {
+    StringBuilder sql = new StringBuilder("INSERT INTO t(");
+    for (int i = 0; i < columns; i++) {
+      sql.append(i == 0 ? "" : ", ").append("c").append(i);
+    }
+    sql.append(") VALUES (");
+    for (int i = 0; i < columns; i++) {
+      sql.append(i == 0 ? "?" : ", ?");
+    }
+    sql.append(")");
+    nativeQuery = Parser.parseJdbcSql(sql.toString(), true, true, true, true).get(0);
+  }
+
+  @Benchmark
+  public String getNativeSql() {
+    SqlCommand command = nativeQuery.getCommand();
+    BatchedQuery query = new BatchedQuery(nativeQuery, TEXT_ONLY,
+        command.getBatchRewriteValuesBraceOpenPosition(),
+        command.getBatchRewriteValuesBraceClosePosition(), false);
+    return query.deriveForMultiBatch(batchSize).getNativeSql();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(BatchedQueryBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.util;
+
+import org.postgresql.util.ByteConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the binary wire format conversions in {@link ByteConverter}.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ByteConverterBenchmark {
+  private final byte[] buffer = new byte[8];
+  private long longValue = 0x0102030405060708L;
+  private int intValue = 0x01020304;
+  private double doubleValue = Math.PI;
+
+  @Benchmark
+  public long int8RoundTrip() {
+    ByteConverter.int8(buffer, 0, longValue);
+    return ByteConverter.int8(buffer, 0);
+  }
+
+  @Benchmark
+  public int int4RoundTrip() {
+    ByteConverter.int4(buffer, 0, intValue);
+    return ByteConverter.int4(buffer, 0);
+  }
+
+  @Benchmark
+  public short int2RoundTrip() {
+    ByteConverter.int2(buffer, 0, intValue);
+    return ByteConverter.int2(buffer, 0);
+  }
+
+  @Benchmark
+  public double float8RoundTrip() {
+    ByteConverter.float8(buffer, 0, doubleValue);
+    return ByteConverter.float8(buffer, 0);
+  }
+
+  @Benchmark
+  public float float4RoundTrip() {
+    ByteConverter.float4(buffer, 0, (float) doubleValue);
+    return ByteConverter.float4(buffer, 0);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(ByteConverterBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.benchmark.util;
+
+import org.postgresql.util.CanEstimateSize;
+import org.postgresql.util.LruCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the borrow/put cycle the statement cache performs for every prepared statement.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LruCacheBenchmark {
+  @Param({"16", "256"})
+  public int keys;
+
+  private LruCache<String, Entry> cache;
+  private String[] keyNames;
+
+  private static final class Entry implements CanEstimateSize {
+    private final String key;
+
+    Entry(String key) {
+      this.key = key;
+    }
+
+    @Override
+    public long getSize() {
+      return key.length() * 2L + 64;
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    cache = new LruCache<String, Entry>(keys, 1024 * 1024, true,
+        new LruCache.CreateAction<String, Entry>() {
+          @Override
+          public Entry create(String key) {
+            return new Entry(key);
+          }
+        },
+        LruCache.NOOP_EVICT_ACTION);
+    keyNames = new String[keys];
+    for (int i = 0; i < keys; i++) {
+      keyNames[i] = "SELECT * FROM t WHERE id = ? /* " + i + " */";
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Benchmark
+  public Entry borrowPut(Cursor cursor) throws SQLException {
+    String key = keyNames[cursor.next++ & (keys - 1)];
+    Entry entry = cache.borrow(key);
+    cache.put(key, entry);
+    return entry;
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Entry borrowPutShared(Cursor cursor) throws SQLException {
+    return borrowPut(cursor);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(LruCacheBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
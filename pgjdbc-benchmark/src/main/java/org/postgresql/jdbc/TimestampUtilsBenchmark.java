@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import org.postgresql.core.Provider;
+import org.postgresql.util.ByteConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures text and binary date/time conversions of {@link TimestampUtils}. The benchmark lives in
+ * the driver's package because the constructor is not public.
+ */
+@Fork(value = 1, jvmArgsPrepend = "-Xmx128m")
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimestampUtilsBenchmark {
+  private static final String TIMESTAMP_TEXT = "2018-07-14 12:34:56.789012";
+  private static final String TIMESTAMPTZ_TEXT = "2018-07-14 12:34:56.789012+03";
+
+  private TimestampUtils timestampUtils;
+  private final byte[] timestampBin = new byte[8];
+  private final Timestamp timestamp = Timestamp.valueOf("2018-07-14 12:34:56.789012");
+  private final LocalDateTime localDateTime = LocalDateTime.of(2018, 7, 14, 12, 34, 56, 789012000);
+
+  @Setup
+  public void setUp() {
+    timestampUtils = new TimestampUtils(false, new Provider<TimeZone>() {
+      @Override
+      public TimeZone get() {
+        return TimeZone.getTimeZone("UTC");
+      }
+    });
+    // 2018-07-14 12:34:56.789012 in microseconds since 2000-01-01
+    ByteConverter.int8(timestampBin, 0, 584886896789012L);
+  }
+
+  @Benchmark
+  public Timestamp toTimestamp() throws SQLException {
+    return timestampUtils.toTimestamp(null, TIMESTAMP_TEXT);
+  }
+
+  @Benchmark
+  public Timestamp toTimestampWithZone() throws SQLException {
+    return timestampUtils.toTimestamp(null, TIMESTAMPTZ_TEXT);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Timestamp toTimestampShared() throws SQLException {
+    return timestampUtils.toTimestamp(null, TIMESTAMP_TEXT);
+  }
+
+  @Benchmark
+  public LocalDateTime toLocalDateTime() throws SQLException {
+    return timestampUtils.toLocalDateTime(TIMESTAMP_TEXT);
+  }
+
+  @Benchmark
+  public Timestamp toTimestampBin() throws SQLException {
+    return timestampUtils.toTimestampBin(null, timestampBin, false);
+  }
+
+  @Benchmark
+  public LocalDateTime toLocalDateTimeBin() throws SQLException {
+    return timestampUtils.toLocalDateTimeBin(null, timestampBin);
+  }
+
+  @Benchmark
+  public String timestampToString() {
+    return timestampUtils.toString(null, timestamp);
+  }
+
+  @Benchmark
+  public String localDateTimeToString() {
+    return timestampUtils.toString(localDateTime);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(TimestampUtilsBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
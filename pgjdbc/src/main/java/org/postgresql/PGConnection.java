@@ -14,8 +14,10 @@ import org.postgresql.replication.PGReplicationConnection;
 import org.postgresql.util.PGobject;
 
 import java.sql.Array;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.Future;
 
 /**
  * This interface defines the public PostgreSQL extensions to java.sql.Connection. All Connections
@@ -65,6 +67,38 @@ public interface PGConnection {
    */
   PGNotification[] getNotifications(int timeoutMillis) throws SQLException;
 
+  /**
+   * <p>Delivers the notifications of this connection to the listener as they arrive, so they need
+   * not be polled with {@link #getNotifications(int)}. A thread of the driver waits for them while
+   * the connection is idle, and another one passes them to the listeners in batches. Notifications
+   * received while statements are executed are delivered as well. The channels still have to be
+   * listened to with {@code LISTEN}.</p>
+   *
+   * <p>The listener only receives the notifications on the given channels, or all of them if none
+   * are given. Channel names are compared as the server reports them, so unquoted names are in
+   * lower case. Notifications that no listener wants are dropped, and {@link #getNotifications()}
+   * returns none while listeners are added.</p>
+   *
+   * <p>At most {@link PGProperty#NOTIFICATION_QUEUE_SIZE} notifications wait for delivery. While
+   * the listeners are behind, the driver stops reading them and the server keeps further
+   * notifications in its queue. A connection of its own for listening avoids that the responses to
+   * other statements are received by the thread waiting for notifications and handed over.</p>
+   *
+   * @param listener the listener
+   * @param channels the channels to deliver the notifications of, all if none are given
+   * @throws SQLException if the connection is closed or used by a {@link PGEventLoop}
+   */
+  void addNotificationListener(PGNotificationListener listener, String... channels)
+      throws SQLException;
+
+  /**
+   * Stops delivering notifications to the listener. Once no listeners are left, the driver stops
+   * waiting for notifications and keeps them for {@link #getNotifications()} again.
+   *
+   * @param listener a listener added by {@link #addNotificationListener}
+   */
+  void removeNotificationListener(PGNotificationListener listener);
+
   /**
    * This returns the COPY API for the current connection.
    *
@@ -236,4 +270,27 @@ public interface PGConnection {
    * @return replication API for the current connection
    */
   PGReplicationConnection getReplicationAPI();
+
+  /**
+   * <p>Sends the statement with its current parameters without waiting for the results, so that
+   * several statements can be on the wire at once instead of costing a round trip each. Each
+   * statement is followed by its own Sync, so a failing statement does not affect the others
+   * (PostgreSQL's pipeline mode). This does not hold with autocommit off: the statements then run
+   * in one transaction, and once one of them fails the later ones fail as well, with SQLSTATE
+   * 25P02, until the transaction is rolled back.</p>
+   *
+   * <p>Results are read in the order the statements were sent: by {@link Future#get()} of the
+   * returned handle, when the statement is executed again, or before the connection is used for
+   * anything else. The value of the handle is the one {@link PreparedStatement#execute()} would
+   * return, the results are available from the statement once it is done. Errors are reported as
+   * the cause of the {@link java.util.concurrent.ExecutionException}.</p>
+   *
+   * <p>Statements that cannot be pipelined, for instance with {@code preferQueryMode=simple} or
+   * with {@code autosave}, are executed right away.</p>
+   *
+   * @param statement a statement prepared by this connection
+   * @return handle of the execution
+   * @throws SQLException if the statement cannot be sent
+   */
+  Future<Boolean> executeAsync(PreparedStatement statement) throws SQLException;
 }
@@ -0,0 +1,537 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Executes statements on many connections with a few threads. Each thread of the loop waits
+ * with a {@link Selector} for the responses of all connections it watches, receives them without
+ * blocking, and lets the connection read the results once a response is complete, so the
+ * protocol handling of the connection never waits for the server. The callback of an execution is
+ * then called by the executor of the loop.</p>
+ *
+ * <p>The connections need {@link PGProperty#SOCKET_CHANNEL}. Statements are sent by the calling
+ * thread with {@link PGConnection#executeAsync(PreparedStatement)}, which can block until the
+ * server has read large parameters. While a connection has executions pending in the loop it must
+ * not be used for anything else than waiting for them with {@link Future#get()}, and a statement
+ * must not be executed again before its callback was called. Responses are kept in memory until
+ * they are complete, so the loop suits many connections with small results rather than large
+ * results.</p>
+ *
+ * <p>By default the callbacks are called one after another by a thread of the loop, in the order
+ * the executions complete. As that thread does not receive, callbacks may execute further
+ * statements with {@link #execute(PreparedStatement, Callback)} even if sending them blocks, but
+ * a callback that blocks holds up the callbacks of all connections. An executor with several
+ * threads, see {@link #PGEventLoop(int, Executor)}, calls the callbacks of one connection
+ * concurrently and in any order.</p>
+ */
+public final class PGEventLoop implements Closeable {
+  private static final Logger LOGGER = Logger.getLogger(PGEventLoop.class.getName());
+
+  /**
+   * Number of reads from one connection before the other connections of the thread get a turn.
+   */
+  private static final int MAX_READS = 16;
+
+  /**
+   * Receives the outcome of an execution on a thread of the loop.
+   */
+  public interface Callback {
+    /**
+     * Called once the results of the statement have been read, they are available from the
+     * statement.
+     *
+     * @param statement the executed statement
+     * @param hasResultSet true if the first result is a ResultSet
+     */
+    void onResult(PreparedStatement statement, boolean hasResultSet);
+
+    /**
+     * Called if the execution failed.
+     *
+     * @param statement the executed statement
+     * @param error the failure
+     */
+    void onError(PreparedStatement statement, SQLException error);
+  }
+
+  private final Worker[] workers;
+  private final Executor callbackExecutor;
+  private final ExecutorService ownExecutor;
+  private final ConcurrentMap<QueryExecutor, Watch> watches =
+      new ConcurrentHashMap<QueryExecutor, Watch>();
+  private volatile boolean closed;
+
+  /**
+   * Creates a loop with one thread.
+   *
+   * @throws IOException if no selector can be opened
+   */
+  public PGEventLoop() throws IOException {
+    this(1);
+  }
+
+  /**
+   * @param threads number of threads that watch the connections
+   * @throws IOException if no selector can be opened
+   */
+  public PGEventLoop(int threads) throws IOException {
+    this(threads, null);
+  }
+
+  /**
+   * @param threads number of threads that watch the connections
+   * @param callbackExecutor calls the callbacks, or null for a thread of the loop that calls them
+   *     one after another
+   * @throws IOException if no selector can be opened
+   */
+  public PGEventLoop(int threads, Executor callbackExecutor) throws IOException {
+    if (callbackExecutor == null) {
+      ownExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable task) {
+          Thread thread = new Thread(task, "PostgreSQL-JDBC-EventLoop-Callbacks");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      callbackExecutor = ownExecutor;
+    } else {
+      ownExecutor = null;
+    }
+    this.callbackExecutor = callbackExecutor;
+    workers = new Worker[Math.max(1, threads)];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new Worker(Selector.open());
+    }
+    for (int i = 0; i < workers.length; i++) {
+      Thread thread = new Thread(workers[i], "PostgreSQL-JDBC-EventLoop-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  /**
+   * Sends the statement with its current parameters and calls the callback once its results have
+   * been read. Statements that cannot be pipelined are executed right away, and the callback is
+   * called before this method returns.
+   *
+   * @param statement a statement of a connection that uses {@link PGProperty#SOCKET_CHANNEL}
+   * @param callback receives the outcome
+   * @return handle of the execution, see {@link PGConnection#executeAsync(PreparedStatement)}
+   * @throws SQLException if the statement cannot be sent
+   */
+  public Future<Boolean> execute(PreparedStatement statement, Callback callback)
+      throws SQLException {
+    if (closed) {
+      throw new PSQLException(GT.tr("This event loop has been closed."),
+          PSQLState.OBJECT_NOT_IN_STATE);
+    }
+    BaseConnection connection = statement.getConnection().unwrap(BaseConnection.class);
+    QueryExecutor queryExecutor = connection.getQueryExecutor();
+    Watch watch;
+    queryExecutor.getLock().lock();
+    try {
+      watch = watches.get(queryExecutor);
+      if (watch == null) {
+        watch = new Watch(queryExecutor,
+            workers[(System.identityHashCode(queryExecutor) & Integer.MAX_VALUE) % workers.length]);
+        watch.channel = queryExecutor.startAsyncReceive(watch);
+        if (watch.channel == null) {
+          throw new PSQLException(
+              GT.tr("The connection cannot be used by an event loop, it needs socketChannel=true "
+                  + "and no notification listeners."),
+              PSQLState.OBJECT_NOT_IN_STATE);
+        }
+        watches.put(queryExecutor, watch);
+      }
+      // Keeps the loop from completing executions until this one was added
+      watch.sending++;
+    } finally {
+      queryExecutor.getLock().unlock();
+    }
+
+    Future<Boolean> future = null;
+    boolean added = false;
+    try {
+      future = connection.executeAsync(statement);
+    } finally {
+      queryExecutor.getLock().lock();
+      try {
+        watch.sending--;
+        if (future != null && !future.isDone() && !watch.released) {
+          watch.executions.addLast(new Execution(statement, callback, future));
+          added = true;
+        }
+      } finally {
+        queryExecutor.getLock().unlock();
+      }
+      // Registers a new connection, checks the responses that arrived while the execution was
+      // added, or releases the connection if nothing is pending
+      watch.worker.submit(watch);
+    }
+    if (!added) {
+      new Execution(statement, callback, future).complete();
+    }
+    return future;
+  }
+
+  /**
+   * Stops the threads of the loop. Pending executions are no longer completed by the loop, their
+   * results are read by {@link Future#get()} or by the next use of the connection as usual, and
+   * their callbacks are not called. Callbacks that were handed to the executor already still run.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    for (Worker worker : workers) {
+      worker.selector.wakeup();
+    }
+    if (ownExecutor != null) {
+      ownExecutor.shutdown();
+    }
+    for (Watch watch : watches.values()) {
+      watch.queryExecutor.getLock().lock();
+      try {
+        release(watch);
+      } finally {
+        watch.queryExecutor.getLock().unlock();
+      }
+    }
+  }
+
+  private void release(Watch watch) {
+    if (!watch.released) {
+      watch.released = true;
+      watch.queryExecutor.stopAsyncReceive();
+      watches.remove(watch.queryExecutor, watch);
+    }
+  }
+
+  /**
+   * A connection with pending executions.
+   */
+  private final class Watch implements Runnable {
+    final QueryExecutor queryExecutor;
+    final Worker worker;
+    SocketChannel channel;
+    SelectionKey key;
+
+    /**
+     * Executions in the order they were sent, guarded by the lock of the query executor like the
+     * fields after it.
+     */
+    final ArrayDeque<Execution> executions = new ArrayDeque<Execution>();
+    int sending;
+    boolean released;
+
+    Watch(QueryExecutor queryExecutor, Worker worker) {
+      this.queryExecutor = queryExecutor;
+      this.worker = worker;
+    }
+
+    /**
+     * Called when a thread reading from the connection received complete responses itself.
+     */
+    @Override
+    public void run() {
+      worker.submit(this);
+    }
+  }
+
+  private static final class Execution implements Runnable {
+    final PreparedStatement statement;
+    final Callback callback;
+    final Future<Boolean> future;
+
+    /**
+     * Why the loop could not receive the results, in which case the callback gets it instead of
+     * the outcome of the execution.
+     */
+    SQLException failure;
+
+    Execution(PreparedStatement statement, Callback callback, Future<Boolean> future) {
+      this.statement = statement;
+      this.callback = callback;
+      this.future = future;
+    }
+
+    @Override
+    public void run() {
+      if (failure == null) {
+        complete();
+        return;
+      }
+      try {
+        callback.onError(statement, failure);
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Callback of an event loop failed", e);
+      }
+    }
+
+    /**
+     * Calls the callback. The results have been read already unless the connection failed, so
+     * {@link Future#get()} does not wait.
+     */
+    void complete() {
+      try {
+        boolean hasResultSet;
+        try {
+          hasResultSet = future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          callback.onError(statement, cause instanceof SQLException ? (SQLException) cause
+              : new PSQLException(GT.tr("Unable to execute the statement."),
+                  PSQLState.UNEXPECTED_ERROR, cause));
+          return;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          callback.onError(statement, new PSQLException(
+              GT.tr("Interrupted while reading the results."), PSQLState.UNEXPECTED_ERROR, e));
+          return;
+        }
+        callback.onResult(statement, hasResultSet);
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Callback of an event loop failed", e);
+      }
+    }
+  }
+
+  private final class Worker implements Runnable {
+    final Selector selector;
+    final ConcurrentLinkedQueue<Watch> tasks = new ConcurrentLinkedQueue<Watch>();
+
+    Worker(Selector selector) {
+      this.selector = selector;
+    }
+
+    /**
+     * Lets the thread register the connection if needed and check it for complete responses.
+     */
+    void submit(Watch watch) {
+      tasks.add(watch);
+      selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          selector.select();
+          Watch watch;
+          while (!closed && (watch = tasks.poll()) != null) {
+            try {
+              if (register(watch)) {
+                receive(watch);
+              }
+            } catch (RuntimeException e) {
+              fail(watch, e);
+            }
+          }
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (!closed && keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            watch = (Watch) key.attachment();
+            if (watch != null) {
+              try {
+                receive(watch);
+              } catch (RuntimeException e) {
+                fail(watch, e);
+              }
+            }
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.log(Level.SEVERE, "Event loop failed", e);
+      } finally {
+        try {
+          selector.close();
+        } catch (IOException e) {
+          LOGGER.log(Level.FINE, "Unable to close the selector of an event loop", e);
+        }
+      }
+    }
+
+    /**
+     * Watches the channel of the connection. A channel that was watched before keeps its key, as
+     * a cancelled key cannot be replaced before the next selection.
+     *
+     * @return false if the connection is no longer watched
+     */
+    private boolean register(Watch watch) {
+      if (watch.key != null) {
+        return true;
+      }
+      watch.queryExecutor.getLock().lock();
+      try {
+        if (watch.released) {
+          return false;
+        }
+      } finally {
+        watch.queryExecutor.getLock().unlock();
+      }
+      try {
+        SelectionKey key = watch.channel.keyFor(selector);
+        if (key == null) {
+          key = watch.channel.register(selector, SelectionKey.OP_READ, watch);
+        } else {
+          key.attach(watch);
+          key.interestOps(SelectionKey.OP_READ);
+        }
+        watch.key = key;
+      } catch (IOException e) {
+        complete(watch, e);
+        return false;
+      } catch (CancelledKeyException e) {
+        complete(watch, new EOFException());
+        return false;
+      }
+      return true;
+    }
+
+    private void receive(Watch watch) {
+      IOException failure = null;
+      try {
+        int reads = 0;
+        int count;
+        while ((count = watch.queryExecutor.receiveAsync(false)) > 0) {
+          if (++reads == MAX_READS) {
+            // More might be buffered already, so no readiness tells about it
+            submit(watch);
+            break;
+          }
+        }
+        if (count < 0) {
+          failure = new EOFException();
+        }
+      } catch (IOException e) {
+        failure = e;
+      }
+      complete(watch, failure);
+    }
+
+    /**
+     * Reads the results of the complete responses and hands their executions to the executor. If
+     * receiving failed, the connection is no longer watched and the pending executions read their
+     * results themselves, which fails just as well.
+     */
+    private void complete(Watch watch, IOException failure) {
+      List<Execution> done = new ArrayList<Execution>();
+      boolean released;
+      watch.queryExecutor.getLock().lock();
+      try {
+        if (watch.released) {
+          return;
+        }
+        if (failure == null && watch.sending == 0) {
+          int pending = watch.queryExecutor.readReceivedResults();
+          while (watch.executions.size() > pending) {
+            done.add(watch.executions.removeFirst());
+          }
+        }
+        if (failure != null || watch.executions.isEmpty() && watch.sending == 0) {
+          if (failure != null) {
+            LOGGER.log(Level.FINE, "Receiving failed, the connection is no longer watched",
+                failure);
+          }
+          done.addAll(watch.executions);
+          watch.executions.clear();
+          release(watch);
+        }
+        released = watch.released;
+      } finally {
+        watch.queryExecutor.getLock().unlock();
+      }
+      if (released) {
+        unwatch(watch);
+      }
+      dispatch(done);
+    }
+
+    /**
+     * Stops watching a connection whose handling failed unexpectedly, so the other connections
+     * of the thread are still served. The callbacks of its pending executions get the failure,
+     * the results are left to {@link Future#get()} or the next use of the connection.
+     */
+    private void fail(Watch watch, RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Event loop failed to receive, the connection is no longer watched",
+          e);
+      List<Execution> failed;
+      watch.queryExecutor.getLock().lock();
+      try {
+        if (watch.released) {
+          return;
+        }
+        failed = new ArrayList<Execution>(watch.executions);
+        watch.executions.clear();
+        release(watch);
+      } finally {
+        watch.queryExecutor.getLock().unlock();
+      }
+      unwatch(watch);
+      for (Execution execution : failed) {
+        execution.failure = new PSQLException(GT.tr("Unable to receive the results."),
+            PSQLState.UNEXPECTED_ERROR, e);
+      }
+      dispatch(failed);
+    }
+
+    private void unwatch(Watch watch) {
+      if (watch.key == null) {
+        return;
+      }
+      try {
+        watch.key.interestOps(0);
+        watch.key.attach(null);
+      } catch (CancelledKeyException e) {
+        // The channel has been closed
+      }
+    }
+
+    private void dispatch(List<Execution> executions) {
+      for (Execution execution : executions) {
+        try {
+          callbackExecutor.execute(execution);
+        } catch (RejectedExecutionException e) {
+          LOGGER.log(closed ? Level.FINE : Level.WARNING, "Callback of an event loop not called",
+              e);
+        }
+      }
+    }
+  }
+}
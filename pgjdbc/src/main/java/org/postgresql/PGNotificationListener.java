@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql;
+
+/**
+ * Receives the notifications of a connection as they arrive, see
+ * {@link PGConnection#addNotificationListener(PGNotificationListener, String...)}.
+ */
+public interface PGNotificationListener {
+  /**
+   * Called by a thread of the driver with the notifications that arrived since the previous call,
+   * in the order they were received. The connection is not locked, so the listener may use it,
+   * but while it runs no further notifications are delivered.
+   *
+   * @param notifications one or more notifications on the channels the listener was added for
+   */
+  void onNotifications(PGNotification[] notifications);
+}
@@ -121,6 +121,15 @@ public enum PGProperty {
   DEFAULT_ROW_FETCH_SIZE("defaultRowFetchSize", "0",
       "Positive number of rows that should be fetched from the database when more rows are needed for ResultSet by each fetch iteration"),
 
+  /**
+   * Hand the rows of forward-only result sets to the application as they arrive, in chunks of
+   * {@link java.sql.Statement#getFetchSize()} rows, instead of reading the whole result first. This
+   * does not need {@code autocommit=false} or a server-side portal, and the rest of the result is
+   * read from the connection as {@link java.sql.ResultSet#next()} needs it.
+   */
+  STREAM_RESULTS("streamResults", "false",
+      "Stream rows of forward-only result sets from the connection as they are read, in chunks of fetchSize rows, without requiring autocommit=false"),
+
   /**
    * Use binary format for sending and receiving data if possible.
    */
@@ -145,6 +154,14 @@ public enum PGProperty {
   BINARY_TRANSFER_DISABLE("binaryTransferDisable", "",
       "Comma separated list of types to disable binary transfer. Either OID numbers or names. Overrides values in the driver default set and values set with binaryTransferEnable."),
 
+  /**
+   * Choose the result format of each column of a server-prepared statement from the way the
+   * application reads it. Columns that are only read with {@code getString} are received in text
+   * format, the remaining columns of types with binary transfer are received in binary.
+   */
+  BINARY_TRANSFER_ADAPTIVE("binaryTransferAdaptive", "false",
+      "Receive columns of prepared statements that are only read with getString in text format, other columns of binary transfer types in binary"),
+
   /**
    * Bind String to either {@code unspecified} or {@code varchar}. Default is {@code varchar} for
    * 8.0+ backends.
@@ -292,6 +309,28 @@ public enum PGProperty {
    * Socket read buffer size (SO_RECVBUF). A value of {@code -1}, which is the default, means system
    * default.
    */
+  /**
+   * Initial and smallest size in bytes of the buffers that protocol messages are sent and received
+   * through. The buffers grow with the traffic up to {@link #STREAM_BUFFER_MAX_SIZE}.
+   */
+  STREAM_BUFFER_SIZE("streamBufferSize", "8192",
+      "Initial size in bytes of the buffers that protocol messages are sent and received through"),
+
+  /**
+   * Largest size in bytes the buffers of protocol messages grow to while much data is sent or
+   * received. A single message larger than that still fits, the buffer is trimmed afterwards.
+   */
+  STREAM_BUFFER_MAX_SIZE("streamBufferMaxSize", "65536",
+      "Largest size in bytes the buffers of protocol messages grow to with the traffic"),
+
+  /**
+   * Exchange messages through a {@link java.nio.channels.SocketChannel} and reusable direct
+   * buffers instead of the streams of the socket. Ignored with {@link #SOCKET_FACTORY}, a SOCKS
+   * proxy and for SSL connections.
+   */
+  SOCKET_CHANNEL("socketChannel", "false",
+      "Exchange messages through a java.nio SocketChannel and direct buffers instead of socket streams"),
+
   RECEIVE_BUFFER_SIZE("receiveBufferSize", "-1", "Socket read buffer size"),
 
   /**
@@ -407,6 +446,66 @@ public enum PGProperty {
   REWRITE_BATCHED_INSERTS("reWriteBatchedInserts", "false",
       "Enable optimization to rewrite and collapse compatible INSERT statements that are batched."),
 
+  /**
+   * Execute batches of plain {@code INSERT INTO table (columns) VALUES (?, ...)} statements as
+   * {@code COPY FROM STDIN}.
+   */
+  COPY_BATCHED_INSERTS("copyBatchedInserts", "false",
+      "Send the rows of batched INSERT INTO table (columns) VALUES (?, ...) statements with COPY FROM STDIN."),
+
+  /**
+   * Share the results of parsing SQL with the other connections of the JVM that enable this
+   * property. Server-prepared statements stay specific to each connection.
+   */
+  SHARED_QUERY_CACHE("sharedQueryCache", "false",
+      "Share the results of parsing SQL between the connections of the JVM"),
+
+  /**
+   * Statements, separated by semicolons, that are parsed and described as server-prepared
+   * statements when the connection is opened and after its prepared statements were discarded.
+   */
+  PREPARE_ON_CONNECT("prepareOnConnect", null,
+      "Statements, separated by semicolons, to prepare on the server when the connection is opened"),
+
+  /**
+   * Number of statements, recently server-prepared by other connections to the same database as
+   * the same user, that are prepared together with {@link #PREPARE_ON_CONNECT}.
+   */
+  PREPARE_ON_CONNECT_LEARNED("prepareOnConnectLearned", "0",
+      "Number of statements recently prepared by other connections to prepare when the connection is opened"),
+
+  /**
+   * Read the responses of a batch in a separate thread while the batch is sent, instead of
+   * sending a Sync and reading the responses whenever the receive buffer might be full.
+   */
+  RECEIVE_WHILE_SENDING("receiveWhileSending", "false",
+      "Read the responses to large batches in a separate thread while sending, so batches never need additional Syncs to avoid deadlocks"),
+
+  /**
+   * Number of bytes of responses that the thread of {@link #RECEIVE_WHILE_SENDING} keeps in
+   * memory. Once that much is waiting, the driver sends a Sync and reads the responses before it
+   * sends the rest of the batch.
+   */
+  RECEIVE_WHILE_SENDING_LIMIT("receiveWhileSendingLimit", "16777216",
+      "Bytes of responses kept in memory by receiveWhileSending before the driver reads them with an additional Sync"),
+
+  /**
+   * Number of notifications that may wait for delivery to the notification listeners of a
+   * connection. While that many are waiting, the driver stops reading notifications and the server
+   * keeps them in its queue.
+   */
+  NOTIFICATION_QUEUE_SIZE("notificationQueueSize", "10000",
+      "Number of notifications that may wait for delivery to notification listeners before the driver stops reading more"),
+
+  /**
+   * How the rows of results are kept. With {@code arrays} each row is an array with an array for
+   * each column value. With {@code slabs} the rows are copied as received into large slabs that
+   * the connection reuses, and the getters of result sets read the values from there.
+   */
+  ROW_STORAGE("rowStorage", "arrays",
+      "How result rows are kept: arrays (an array per row and value) or slabs (rows are received into large reused buffers)",
+      false, "arrays", "slabs"),
+
   /**
    * <p>Connection parameter passed in the startup message. This parameter accepts two values; "true"
    * and "database". Passing "true" tells the backend to go into walsender mode, wherein a small set
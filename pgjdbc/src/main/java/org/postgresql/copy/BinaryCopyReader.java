@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.copy;
+
+import org.postgresql.core.Encoding;
+import org.postgresql.jdbc.TimestampUtils;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+/**
+ * Reads the rows of a {@code COPY ... TO STDOUT (FORMAT binary)} operation and decodes their
+ * fields from the binary encoding of their type.
+ *
+ * <pre>
+ * BinaryCopyReader reader =
+ *     copyManager.copyOutBinary("COPY t (id, name) TO STDOUT (FORMAT binary)");
+ * try {
+ *   while (reader.nextRow()) {
+ *     int id = reader.getInt(1);
+ *     String name = reader.getString(2);
+ *   }
+ * } finally {
+ *   reader.cancelCopy();
+ * }
+ * </pre>
+ *
+ * <p>A row is available until the next call to {@link #nextRow()}: the data received from the
+ * backend is kept in a buffer that is reused for the whole operation. The getters have to match
+ * the types of the columns, columns are numbered from 1 like in a ResultSet.</p>
+ */
+public class BinaryCopyReader {
+  private final CopyOut copyOut;
+  private final Encoding encoding;
+  private final TimestampUtils timestampUtils;
+  private byte[] buffer = new byte[8192];
+  private int position;
+  private int limit;
+  /**
+   * Start of the row being read, the data before it is not needed any more.
+   */
+  private int mark;
+  private boolean headerRead;
+  private boolean finished;
+  private int fieldCount;
+  private int[] fieldOffsets = new int[16];
+  private int[] fieldLengths = new int[16];
+  private final byte[] scratch = new byte[8];
+
+  BinaryCopyReader(CopyOut copyOut, Encoding encoding, TimestampUtils timestampUtils)
+      throws SQLException {
+    if (copyOut.getFormat() != 1) {
+      throw new PSQLException(GT.tr("COPY {0} is not in binary format.", "TO STDOUT"),
+          PSQLState.WRONG_OBJECT_TYPE);
+    }
+    this.copyOut = copyOut;
+    this.encoding = encoding;
+    this.timestampUtils = timestampUtils;
+  }
+
+  /**
+   * Moves to the next row.
+   *
+   * @return false once all rows are read, the copy operation is complete then
+   * @throws SQLException if reading fails or the data is not in COPY binary format
+   */
+  public boolean nextRow() throws SQLException {
+    if (finished) {
+      return false;
+    }
+    mark = position;
+    if (!headerRead) {
+      require(BinaryCopyWriter.SIGNATURE.length + 8);
+      for (int i = 0; i < BinaryCopyWriter.SIGNATURE.length; i++) {
+        if (buffer[position + i] != BinaryCopyWriter.SIGNATURE[i]) {
+          throw invalidData();
+        }
+      }
+      // flags are not used by any backend version yet
+      position += BinaryCopyWriter.SIGNATURE.length + 4;
+      int extensionLength = ByteConverter.int4(buffer, position);
+      position += 4;
+      require(extensionLength);
+      position += extensionLength;
+      headerRead = true;
+      mark = position;
+    }
+
+    require(2);
+    int count = ByteConverter.int2(buffer, position);
+    position += 2;
+    if (count == -1) {
+      finished = true;
+      fieldCount = 0;
+      // reads the CopyDone and the command completion
+      while (copyOut.readFromCopy() != null) {
+      }
+      return false;
+    }
+    if (count < 0) {
+      throw invalidData();
+    }
+    if (count > fieldOffsets.length) {
+      fieldOffsets = new int[count];
+      fieldLengths = new int[count];
+    }
+    // require() moves the row to the start of the buffer when more data is needed, so the fields
+    // are recorded relative to the row start first
+    for (int i = 0; i < count; i++) {
+      require(4);
+      int length = ByteConverter.int4(buffer, position);
+      position += 4;
+      if (length > 0) {
+        require(length);
+      } else if (length < -1) {
+        throw invalidData();
+      }
+      fieldOffsets[i] = position - mark;
+      fieldLengths[i] = length;
+      position += Math.max(length, 0);
+    }
+    for (int i = 0; i < count; i++) {
+      fieldOffsets[i] += mark;
+    }
+    fieldCount = count;
+    return true;
+  }
+
+  /**
+   * @return number of fields of the current row
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  /**
+   * @param column column number, starting at 1
+   * @return true if the field is NULL
+   * @throws SQLException if there is no such column
+   */
+  public boolean isNull(int column) throws SQLException {
+    return length(column) == -1;
+  }
+
+  /**
+   * Reads a {@code boolean} field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, false for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public boolean getBoolean(int column) throws SQLException {
+    return fixed(column, 1) && ByteConverter.bool(buffer, offset(column));
+  }
+
+  /**
+   * Reads an {@code int2} field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, 0 for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public short getShort(int column) throws SQLException {
+    return fixed(column, 2) ? ByteConverter.int2(buffer, offset(column)) : 0;
+  }
+
+  /**
+   * Reads an {@code int2} or {@code int4} field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, 0 for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public int getInt(int column) throws SQLException {
+    if (length(column) == 2) {
+      return getShort(column);
+    }
+    return fixed(column, 4) ? ByteConverter.int4(buffer, offset(column)) : 0;
+  }
+
+  /**
+   * Reads an {@code int2}, {@code int4} or {@code int8} field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, 0 for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public long getLong(int column) throws SQLException {
+    int length = length(column);
+    if (length == 2 || length == 4) {
+      return getInt(column);
+    }
+    return fixed(column, 8) ? ByteConverter.int8(buffer, offset(column)) : 0;
+  }
+
+  /**
+   * Reads a {@code float4} field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, 0 for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public float getFloat(int column) throws SQLException {
+    return fixed(column, 4) ? ByteConverter.float4(buffer, offset(column)) : 0;
+  }
+
+  /**
+   * Reads a {@code float4} or {@code float8} field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, 0 for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public double getDouble(int column) throws SQLException {
+    if (length(column) == 4) {
+      return getFloat(column);
+    }
+    return fixed(column, 8) ? ByteConverter.float8(buffer, offset(column)) : 0;
+  }
+
+  /**
+   * Reads a {@code numeric} field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, null for NULL
+   * @throws SQLException if there is no such column or the value is NaN
+   */
+  public BigDecimal getBigDecimal(int column) throws SQLException {
+    int length = length(column);
+    if (length == -1) {
+      return null;
+    }
+    Number value = ByteConverter.numeric(buffer, offset(column), length);
+    if (!(value instanceof BigDecimal)) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "BigDecimal", value),
+          PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+    }
+    return (BigDecimal) value;
+  }
+
+  /**
+   * Reads a {@code text}, {@code varchar} or other character field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, null for NULL
+   * @throws SQLException if there is no such column or the value cannot be decoded
+   */
+  public String getString(int column) throws SQLException {
+    int length = length(column);
+    if (length == -1) {
+      return null;
+    }
+    try {
+      return encoding.decode(buffer, offset(column), length);
+    } catch (IOException e) {
+      throw new PSQLException(
+          GT.tr("Invalid character data was found.  This is most likely caused by stored data "
+              + "containing characters that are invalid for the character set the database was "
+              + "created in.  The most common example of this is storing 8bit data in a SQL_ASCII "
+              + "database."),
+          PSQLState.DATA_ERROR, e);
+    }
+  }
+
+  /**
+   * Reads a {@code bytea} field, or any field in the binary format of its type.
+   *
+   * @param column column number, starting at 1
+   * @return a copy of the value, null for NULL
+   * @throws SQLException if there is no such column
+   */
+  public byte[] getBytes(int column) throws SQLException {
+    int length = length(column);
+    if (length == -1) {
+      return null;
+    }
+    int offset = offset(column);
+    return Arrays.copyOfRange(buffer, offset, offset + length);
+  }
+
+  /**
+   * Reads a {@code date} field, the date is returned in the default time zone like
+   * {@link java.sql.ResultSet#getDate(int)} does.
+   *
+   * @param column column number, starting at 1
+   * @return the value, null for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public Date getDate(int column) throws SQLException {
+    if (!fixed(column, 4)) {
+      return null;
+    }
+    return timestampUtils.toDateBin(null, Arrays.copyOfRange(buffer, offset(column),
+        offset(column) + 4));
+  }
+
+  /**
+   * Reads a {@code timestamp} (without time zone) field, the local time is taken in the default
+   * time zone like {@link java.sql.ResultSet#getTimestamp(int)} does.
+   *
+   * @param column column number, starting at 1
+   * @return the value, null for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public Timestamp getTimestamp(int column) throws SQLException {
+    return getTimestamp(column, null);
+  }
+
+  /**
+   * Reads a {@code timestamp} (without time zone) field.
+   *
+   * @param column column number, starting at 1
+   * @param tz time zone of the local time, null for the default time zone
+   * @return the value, null for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public Timestamp getTimestamp(int column, TimeZone tz) throws SQLException {
+    if (!fixed(column, 8)) {
+      return null;
+    }
+    System.arraycopy(buffer, offset(column), scratch, 0, 8);
+    return timestampUtils.toTimestampBin(tz, scratch, false);
+  }
+
+  /**
+   * Reads a {@code timestamp with time zone} field.
+   *
+   * @param column column number, starting at 1
+   * @return the value, null for NULL
+   * @throws SQLException if there is no such column or the field has another size
+   */
+  public Timestamp getTimestamptz(int column) throws SQLException {
+    if (!fixed(column, 8)) {
+      return null;
+    }
+    System.arraycopy(buffer, offset(column), scratch, 0, 8);
+    return timestampUtils.toTimestampBin(null, scratch, true);
+  }
+
+  /**
+   * Aborts the copy operation if it is still active, does nothing once all rows are read.
+   *
+   * @throws SQLException if cancelling fails
+   */
+  public void cancelCopy() throws SQLException {
+    if (copyOut.isActive()) {
+      copyOut.cancelCopy();
+    }
+  }
+
+  /**
+   * @return number of rows the backend reported, once all rows are read
+   */
+  public long getHandledRowCount() {
+    return copyOut.getHandledRowCount();
+  }
+
+  private int length(int column) throws SQLException {
+    if (column < 1 || column > fieldCount) {
+      throw new PSQLException(
+          GT.tr("The column index is out of range: {0}, number of columns: {1}.", column,
+              fieldCount), PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    return fieldLengths[column - 1];
+  }
+
+  private int offset(int column) {
+    return fieldOffsets[column - 1];
+  }
+
+  /**
+   * @return false for NULL, true if the field has the given size
+   */
+  private boolean fixed(int column, int size) throws SQLException {
+    int length = length(column);
+    if (length == -1) {
+      return false;
+    }
+    if (length != size) {
+      throw new PSQLException(
+          GT.tr("Unsupported binary encoding of {0}.", length + " byte value"),
+          PSQLState.DATA_TYPE_MISMATCH);
+    }
+    return true;
+  }
+
+  /**
+   * Makes sure that the given number of bytes from the position on are in the buffer. The data
+   * before the mark is dropped when more data is read, the data from the mark on moves to the start
+   * of the buffer.
+   */
+  private void require(int length) throws SQLException {
+    while (limit - position < length) {
+      byte[] data = copyOut.readFromCopy();
+      if (data == null) {
+        throw invalidData();
+      }
+      int kept = limit - mark;
+      if (kept + data.length > buffer.length) {
+        byte[] newBuffer = new byte[Math.max(buffer.length * 2, kept + data.length)];
+        System.arraycopy(buffer, mark, newBuffer, 0, kept);
+        buffer = newBuffer;
+      } else {
+        System.arraycopy(buffer, mark, buffer, 0, kept);
+      }
+      System.arraycopy(data, 0, buffer, kept, data.length);
+      position -= mark;
+      mark = 0;
+      limit = kept + data.length;
+    }
+  }
+
+  private PSQLException invalidData() {
+    return new PSQLException(GT.tr("COPY data is not in binary format."), PSQLState.DATA_ERROR);
+  }
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.copy;
+
+import org.postgresql.core.Encoding;
+import org.postgresql.jdbc.TimestampUtils;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.TimeZone;
+
+/**
+ * Writes the rows of a {@code COPY ... FROM STDIN (FORMAT binary)} operation field by field, with
+ * the binary encoding of each type. Rows are collected in a buffer that is reused for the whole
+ * operation and sent whenever it holds at least the buffer size.
+ *
+ * <pre>
+ * BinaryCopyWriter writer =
+ *     copyManager.copyInBinary("COPY t (id, name) FROM STDIN (FORMAT binary)");
+ * try {
+ *   writer.writeInt(1).writeText("one").endRow();
+ *   writer.writeInt(2).writeNull().endRow();
+ *   long rows = writer.endCopy();
+ * } finally {
+ *   writer.cancelCopy();
+ * }
+ * </pre>
+ *
+ * <p>The write methods have to match the types of the columns: the backend does not convert binary
+ * values, an {@code int8} column needs {@link #writeLong(long)} and so on.</p>
+ */
+public class BinaryCopyWriter {
+  static final byte[] SIGNATURE =
+      {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
+
+  private final CopyIn copyIn;
+  private final Encoding encoding;
+  private final TimestampUtils timestampUtils;
+  private final int bufferSize;
+  private final byte[] scratch = new byte[8];
+  private byte[] buffer;
+  private int position;
+  private int rowStart = -1;
+  private int fieldCount;
+
+  BinaryCopyWriter(CopyIn copyIn, Encoding encoding, TimestampUtils timestampUtils,
+      int bufferSize) throws SQLException {
+    if (copyIn.getFormat() != 1) {
+      throw new PSQLException(GT.tr("COPY {0} is not in binary format.", "FROM STDIN"),
+          PSQLState.WRONG_OBJECT_TYPE);
+    }
+    this.copyIn = copyIn;
+    this.encoding = encoding;
+    this.timestampUtils = timestampUtils;
+    this.bufferSize = bufferSize;
+    this.buffer = new byte[bufferSize + 1024];
+    System.arraycopy(SIGNATURE, 0, buffer, 0, SIGNATURE.length);
+    position = SIGNATURE.length;
+    // flags and header extension length
+    ByteConverter.int4(buffer, position, 0);
+    ByteConverter.int4(buffer, position + 4, 0);
+    position += 8;
+  }
+
+  /**
+   * Writes a NULL field.
+   *
+   * @return this writer
+   */
+  public BinaryCopyWriter writeNull() {
+    startField(-1);
+    return this;
+  }
+
+  /**
+   * Writes a {@code boolean} field.
+   *
+   * @param value value
+   * @return this writer
+   */
+  public BinaryCopyWriter writeBoolean(boolean value) {
+    startField(1);
+    ByteConverter.bool(buffer, position, value);
+    position += 1;
+    return this;
+  }
+
+  /**
+   * Writes an {@code int2} field.
+   *
+   * @param value value
+   * @return this writer
+   */
+  public BinaryCopyWriter writeShort(short value) {
+    startField(2);
+    ByteConverter.int2(buffer, position, value);
+    position += 2;
+    return this;
+  }
+
+  /**
+   * Writes an {@code int4} field.
+   *
+   * @param value value
+   * @return this writer
+   */
+  public BinaryCopyWriter writeInt(int value) {
+    startField(4);
+    ByteConverter.int4(buffer, position, value);
+    position += 4;
+    return this;
+  }
+
+  /**
+   * Writes an {@code int8} field.
+   *
+   * @param value value
+   * @return this writer
+   */
+  public BinaryCopyWriter writeLong(long value) {
+    startField(8);
+    ByteConverter.int8(buffer, position, value);
+    position += 8;
+    return this;
+  }
+
+  /**
+   * Writes a {@code float4} field.
+   *
+   * @param value value
+   * @return this writer
+   */
+  public BinaryCopyWriter writeFloat(float value) {
+    startField(4);
+    ByteConverter.float4(buffer, position, value);
+    position += 4;
+    return this;
+  }
+
+  /**
+   * Writes a {@code float8} field.
+   *
+   * @param value value
+   * @return this writer
+   */
+  public BinaryCopyWriter writeDouble(double value) {
+    startField(8);
+    ByteConverter.float8(buffer, position, value);
+    position += 8;
+    return this;
+  }
+
+  /**
+   * Writes a {@code numeric} field.
+   *
+   * @param value value, null writes NULL
+   * @return this writer
+   * @throws SQLException if the value is out of the range numeric can represent
+   */
+  public BinaryCopyWriter writeNumeric(BigDecimal value) throws SQLException {
+    if (value == null) {
+      return writeNull();
+    }
+    byte[] bytes = ByteConverter.numeric(value);
+    if (bytes == null) {
+      throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "numeric", value),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    return writeBytes(bytes);
+  }
+
+  /**
+   * Writes a {@code text}, {@code varchar} or other character field.
+   *
+   * @param value value, null writes NULL
+   * @return this writer
+   * @throws SQLException if the value cannot be encoded in the client encoding
+   */
+  public BinaryCopyWriter writeText(String value) throws SQLException {
+    if (value == null) {
+      return writeNull();
+    }
+    try {
+      return writeBytes(encoding.encode(value));
+    } catch (IOException e) {
+      throw new PSQLException(GT.tr("Unable to translate data into the desired encoding."),
+          PSQLState.DATA_ERROR, e);
+    }
+  }
+
+  /**
+   * Writes a {@code bytea} field, or a field already in the binary format of its type.
+   *
+   * @param value value, null writes NULL
+   * @return this writer
+   */
+  public BinaryCopyWriter writeBytes(byte[] value) {
+    if (value == null) {
+      return writeNull();
+    }
+    return writeBytes(value, 0, value.length);
+  }
+
+  /**
+   * Writes a {@code bytea} field, or a field already in the binary format of its type.
+   *
+   * @param value array holding the value
+   * @param offset offset of the value in the array
+   * @param length length of the value
+   * @return this writer
+   */
+  public BinaryCopyWriter writeBytes(byte[] value, int offset, int length) {
+    startField(length);
+    System.arraycopy(value, offset, buffer, position, length);
+    position += length;
+    return this;
+  }
+
+  /**
+   * Writes a {@code date} field, the date is taken in the default time zone like
+   * {@link java.sql.PreparedStatement#setDate(int, Date)} does.
+   *
+   * @param value value, null writes NULL
+   * @return this writer
+   * @throws SQLException if the value cannot be converted
+   */
+  public BinaryCopyWriter writeDate(Date value) throws SQLException {
+    if (value == null) {
+      return writeNull();
+    }
+    timestampUtils.toBinDate(null, scratch, value);
+    return writeBytes(scratch, 0, 4);
+  }
+
+  /**
+   * Writes a {@code timestamp} (without time zone) field, the local time is taken in the default
+   * time zone like {@link java.sql.PreparedStatement#setTimestamp(int, Timestamp)} does.
+   *
+   * @param value value, null writes NULL
+   * @return this writer
+   */
+  public BinaryCopyWriter writeTimestamp(Timestamp value) {
+    return writeTimestamp(value, null);
+  }
+
+  /**
+   * Writes a {@code timestamp} (without time zone) field.
+   *
+   * @param value value, null writes NULL
+   * @param tz time zone of the local time to write, null for the default time zone
+   * @return this writer
+   */
+  public BinaryCopyWriter writeTimestamp(Timestamp value, TimeZone tz) {
+    if (value == null) {
+      return writeNull();
+    }
+    timestampUtils.toBinTimestamp(tz, scratch, value, false);
+    return writeBytes(scratch, 0, 8);
+  }
+
+  /**
+   * Writes a {@code timestamp with time zone} field.
+   *
+   * @param value value, null writes NULL
+   * @return this writer
+   */
+  public BinaryCopyWriter writeTimestamptz(Timestamp value) {
+    if (value == null) {
+      return writeNull();
+    }
+    timestampUtils.toBinTimestamp(null, scratch, value, true);
+    return writeBytes(scratch, 0, 8);
+  }
+
+  /**
+   * Finishes the current row. Once the buffer holds at least the buffer size it is sent to the
+   * backend.
+   *
+   * @return this writer
+   * @throws SQLException if no field was written, or sending the buffer fails
+   */
+  public BinaryCopyWriter endRow() throws SQLException {
+    if (rowStart < 0) {
+      throw new PSQLException(GT.tr("Cannot end a COPY row without fields."),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    }
+    ByteConverter.int2(buffer, rowStart, fieldCount);
+    rowStart = -1;
+    fieldCount = 0;
+    if (position >= bufferSize) {
+      flush();
+    }
+    return this;
+  }
+
+  /**
+   * Sends the remaining rows and finishes the copy operation successfully.
+   *
+   * @return number of rows copied
+   * @throws SQLException if a row is not finished, or the backend rejects the data
+   */
+  public long endCopy() throws SQLException {
+    if (rowStart >= 0) {
+      throw new PSQLException(GT.tr("The last COPY row is not finished."),
+          PSQLState.OBJECT_NOT_IN_STATE);
+    }
+    ensureCapacity(2);
+    ByteConverter.int2(buffer, position, -1);
+    position += 2;
+    flush();
+    return copyIn.endCopy();
+  }
+
+  /**
+   * Aborts the copy operation if it is still active, does nothing after {@link #endCopy()}.
+   *
+   * @throws SQLException if cancelling fails
+   */
+  public void cancelCopy() throws SQLException {
+    if (copyIn.isActive()) {
+      copyIn.cancelCopy();
+    }
+  }
+
+  private void flush() throws SQLException {
+    if (position > 0) {
+      copyIn.writeToCopy(buffer, 0, position);
+      position = 0;
+    }
+  }
+
+  private void startField(int length) {
+    if (rowStart < 0) {
+      ensureCapacity(2);
+      rowStart = position;
+      position += 2;
+    }
+    ensureCapacity(4 + Math.max(length, 0));
+    ByteConverter.int4(buffer, position, length);
+    position += 4;
+    fieldCount++;
+  }
+
+  /**
+   * Makes room for the given number of bytes. The row being written stays in the buffer as its
+   * field count is filled in at the end, so a long row grows the buffer.
+   */
+  private void ensureCapacity(int length) {
+    if (position + length <= buffer.length) {
+      return;
+    }
+    byte[] newBuffer = new byte[Math.max(buffer.length * 2, position + length)];
+    System.arraycopy(buffer, 0, newBuffer, 0, position);
+    buffer = newBuffer;
+  }
+}
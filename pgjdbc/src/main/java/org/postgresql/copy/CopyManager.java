@@ -17,6 +17,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.sql.SQLException;
 
 /**
@@ -73,6 +75,59 @@ public class CopyManager {
     }
   }
 
+  /**
+   * Starts a {@code COPY ... FROM STDIN (FORMAT binary)} whose rows are written field by field.
+   *
+   * @param sql COPY FROM STDIN statement in binary format
+   * @return writer for the rows
+   * @throws SQLException on database usage issues, or if the COPY is not in binary format
+   */
+  public BinaryCopyWriter copyInBinary(String sql) throws SQLException {
+    return copyInBinary(sql, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Starts a {@code COPY ... FROM STDIN (FORMAT binary)} whose rows are written field by field.
+   *
+   * @param sql COPY FROM STDIN statement in binary format
+   * @param bufferSize number of bytes to buffer and push over network to server at once
+   * @return writer for the rows
+   * @throws SQLException on database usage issues, or if the COPY is not in binary format
+   */
+  public BinaryCopyWriter copyInBinary(String sql, int bufferSize) throws SQLException {
+    CopyIn cp = copyIn(sql);
+    try {
+      BinaryCopyWriter writer =
+          new BinaryCopyWriter(cp, encoding, connection.getTimestampUtils(), bufferSize);
+      cp = null;
+      return writer;
+    } finally {
+      if (cp != null && cp.isActive()) {
+        cp.cancelCopy();
+      }
+    }
+  }
+
+  /**
+   * Starts a {@code COPY ... TO STDOUT (FORMAT binary)} whose rows are read field by field.
+   *
+   * @param sql COPY TO STDOUT statement in binary format
+   * @return reader for the rows
+   * @throws SQLException on database usage issues, or if the COPY is not in binary format
+   */
+  public BinaryCopyReader copyOutBinary(String sql) throws SQLException {
+    CopyOut cp = copyOut(sql);
+    try {
+      BinaryCopyReader reader = new BinaryCopyReader(cp, encoding, connection.getTimestampUtils());
+      cp = null;
+      return reader;
+    } finally {
+      if (cp != null && cp.isActive()) {
+        cp.cancelCopy();
+      }
+    }
+  }
+
   /**
    * Pass results of a COPY TO STDOUT query from database into a Writer.
    *
@@ -109,7 +164,8 @@ public class CopyManager {
   }
 
   /**
-   * Pass results of a COPY TO STDOUT query from database into an OutputStream.
+   * Pass results of a COPY TO STDOUT query from database into an OutputStream. The data of each
+   * message is written as soon as it is received, through one buffer reused for the whole copy.
    *
    * @param sql COPY TO STDOUT statement
    * @param to the stream to write the results to (row by row)
@@ -119,10 +175,12 @@ public class CopyManager {
    */
   public long copyOut(final String sql, OutputStream to) throws SQLException, IOException {
     byte[] buf;
+    ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
     CopyOut cp = copyOut(sql);
     try {
-      while ((buf = cp.readFromCopy()) != null) {
-        to.write(buf);
+      while (cp.readFromCopy(buffer) >= 0) {
+        to.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
       }
       return cp.getHandledRowCount();
     } catch (IOException ioEX) {
@@ -143,6 +201,66 @@ public class CopyManager {
     }
   }
 
+  /**
+   * Pass results of a COPY TO STDOUT query from database into a channel, for example a
+   * {@link java.nio.channels.FileChannel}. The data is moved from the receive buffer of the
+   * connection into a direct buffer and written from there, without an array for each row. The
+   * buffer is written whenever it is full and when the copy ends, use
+   * {@link #copyOut(String, OutputStream)} to receive the data of each message as it arrives.
+   *
+   * @param sql COPY TO STDOUT statement
+   * @param to blocking channel to write the results to
+   * @return number of rows updated for server 8.2 or newer; -1 for older
+   * @throws SQLException on database usage errors
+   * @throws IOException upon channel or database connection failure
+   */
+  public long copyOut(final String sql, WritableByteChannel to) throws SQLException, IOException {
+    byte[] buf;
+    ByteBuffer buffer = ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE);
+    CopyOut cp = copyOut(sql);
+    try {
+      boolean more;
+      do {
+        more = fillFromCopy(cp, buffer);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          to.write(buffer);
+        }
+        buffer.clear();
+      } while (more);
+      return cp.getHandledRowCount();
+    } catch (IOException ioEX) {
+      // if not handled this way the close call will hang, at least in 8.2
+      if (cp.isActive()) {
+        cp.cancelCopy();
+      }
+      try { // read until exhausted or operation cancelled SQLException
+        while ((buf = cp.readFromCopy()) != null) {
+        }
+      } catch (SQLException sqlEx) {
+      } // typically after several kB
+      throw ioEX;
+    } finally { // see to it that we do not leave the connection locked
+      if (cp.isActive()) {
+        cp.cancelCopy();
+      }
+    }
+  }
+
+  /**
+   * Reads copy data into the buffer until it is full or the copy ends.
+   *
+   * @return false if the copy has ended
+   */
+  private static boolean fillFromCopy(CopyOut cp, ByteBuffer buffer) throws SQLException {
+    while (buffer.hasRemaining()) {
+      if (cp.readFromCopy(buffer) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Use COPY FROM STDIN for very fast copying from a Reader into a database table.
    *
@@ -5,6 +5,7 @@
 
 package org.postgresql.copy;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 public interface CopyOut extends CopyOperation {
@@ -26,4 +27,17 @@ public interface CopyOut extends CopyOperation {
    * @throws SQLException if something goes wrong for example socket timeout
    */
   byte[] readFromCopy(boolean block) throws SQLException;
+
+  /**
+   * Blocks until data is received from server on an active copy operation and transfers it into
+   * the given buffer, without allocating an array for each message. At most the remaining space
+   * of the buffer and never more than the rest of the current message is transferred; what does
+   * not fit is returned by the next call.
+   *
+   * @param dst buffer to store the received data in
+   * @return number of bytes transferred, 0 only if {@code dst} has no space left, -1 if server
+   *         completed the copy operation
+   * @throws SQLException if something goes wrong for example socket timeout
+   */
+  int readFromCopy(ByteBuffer dst) throws SQLException;
 }
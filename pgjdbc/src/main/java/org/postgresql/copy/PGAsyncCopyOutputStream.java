@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.copy;
+
+import org.postgresql.PGConnection;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * OutputStream for a COPY FROM STDIN operation that sends the data from a separate thread. Writes
+ * are collected into frames of the frame size, each sent as one CopyData message, so the producer
+ * only copies bytes while the previous frames go over the network. Once the given number of frames
+ * waits to be sent, writes block until the writer thread catches up.
+ *
+ * <p>The writer thread runs while frames wait to be sent. Once it has caught up it flushes the
+ * connection and ends, so an idle stream, or one that is never closed, holds no thread. It also
+ * looks for messages of the backend while it sends, so an error such as a malformed row fails the
+ * next write instead of only {@link #endCopy()}.</p>
+ *
+ * <p>The stream is meant for a single producing thread. The connection must not be used for
+ * anything else until the copy has ended or is cancelled.</p>
+ */
+public class PGAsyncCopyOutputStream extends OutputStream implements CopyIn {
+  private static final Logger LOGGER = Logger.getLogger(PGAsyncCopyOutputStream.class.getName());
+
+  private CopyIn op;
+  private final BlockingQueue<Frame> free;
+  private final BlockingQueue<Frame> pending = new LinkedBlockingQueue<Frame>();
+  private final byte[] singleByteBuffer = new byte[1];
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition writerEnded = lock.newCondition();
+  private boolean writing;
+  private volatile SQLException failure;
+  private volatile boolean cancelled;
+  private Frame current;
+
+  /**
+   * Uses given connection for specified COPY FROM STDIN operation.
+   *
+   * @param connection database connection to use for copying (protocol version 3 required)
+   * @param sql        COPY FROM STDIN statement
+   * @throws SQLException if initializing the operation fails
+   */
+  public PGAsyncCopyOutputStream(PGConnection connection, String sql) throws SQLException {
+    this(connection.getCopyAPI().copyIn(sql));
+  }
+
+  /**
+   * Use given CopyIn operation for writing, with frames of {@code 64 kB} and at most four frames
+   * waiting to be sent.
+   *
+   * @param op COPY FROM STDIN operation
+   */
+  public PGAsyncCopyOutputStream(CopyIn op) {
+    this(op, CopyManager.DEFAULT_BUFFER_SIZE, 4);
+  }
+
+  /**
+   * Use given CopyIn operation for writing.
+   *
+   * @param op            COPY FROM STDIN operation
+   * @param frameSize     number of bytes sent in one CopyData message
+   * @param pendingFrames number of full frames that may wait to be sent before writes block
+   */
+  public PGAsyncCopyOutputStream(CopyIn op, int frameSize, int pendingFrames) {
+    if (frameSize < 1 || pendingFrames < 1) {
+      throw new IllegalArgumentException(
+          "frameSize and pendingFrames must be positive, got " + frameSize + ", " + pendingFrames);
+    }
+    this.op = op;
+    // the current frame is filled while the others wait to be sent, it is briefly in neither
+    // queue when handed over
+    free = new ArrayBlockingQueue<Frame>(pendingFrames + 1);
+    for (int i = 0; i < pendingFrames; i++) {
+      free.add(new Frame(frameSize));
+    }
+    current = new Frame(frameSize);
+  }
+
+  public void write(int b) throws IOException {
+    if (b < 0 || b > 255) {
+      throw new IOException(GT.tr("Cannot write to copy a byte of value {0}", b));
+    }
+    singleByteBuffer[0] = (byte) b;
+    write(singleByteBuffer, 0, 1);
+  }
+
+  public void write(byte[] buf) throws IOException {
+    write(buf, 0, buf.length);
+  }
+
+  public void write(byte[] buf, int off, int siz) throws IOException {
+    checkClosed();
+    try {
+      writeToCopy(buf, off, siz);
+    } catch (SQLException se) {
+      IOException ioe = new IOException("Write to copy failed.");
+      ioe.initCause(se);
+      throw ioe;
+    }
+  }
+
+  private void checkClosed() throws IOException {
+    if (op == null) {
+      throw new IOException(GT.tr("This copy stream is closed."));
+    }
+  }
+
+  public void close() throws IOException {
+    // Don't complain about a double close.
+    if (op == null) {
+      return;
+    }
+
+    try {
+      endCopy();
+    } catch (SQLException se) {
+      IOException ioe = new IOException("Ending write to copy failed.");
+      ioe.initCause(se);
+      throw ioe;
+    }
+    op = null;
+  }
+
+  /**
+   * Hands the collected data to the writer thread, which flushes the connection once it has sent
+   * it. Does not wait for the data to be sent.
+   *
+   * @throws IOException if the copy has failed
+   */
+  public void flush() throws IOException {
+    checkClosed();
+    try {
+      flushCopy();
+    } catch (SQLException e) {
+      IOException ioe = new IOException("Unable to flush stream");
+      ioe.initCause(e);
+      throw ioe;
+    }
+  }
+
+  /**
+   * Collects the data for the writer thread, blocks only if the pending frames have not been sent
+   * yet.
+   *
+   * @throws SQLException if sending earlier data failed or the backend reported an error
+   */
+  public void writeToCopy(byte[] buf, int off, int siz) throws SQLException {
+    checkFailure();
+    while (siz > 0) {
+      int len = Math.min(siz, current.data.length - current.length);
+      System.arraycopy(buf, off, current.data, current.length, len);
+      current.length += len;
+      off += len;
+      siz -= len;
+      if (current.length == current.data.length) {
+        handOver();
+      }
+    }
+  }
+
+  /**
+   * Queues the collected data, the connection is flushed once it is sent. Does not wait for either.
+   *
+   * @throws SQLException if sending earlier data failed or the backend reported an error
+   */
+  public void flushCopy() throws SQLException {
+    checkFailure();
+    if (current.length > 0) {
+      handOver();
+    }
+  }
+
+  /**
+   * Waits until the writer thread has sent all data, then finishes the copy operation.
+   *
+   * @return number of updated rows for server 8.2 or newer (see getHandledRowCount())
+   * @throws SQLException if sending failed, the backend reported an error, or the operation fails
+   */
+  public long endCopy() throws SQLException {
+    try {
+      if (failure == null && current.length > 0) {
+        handOver();
+      }
+    } finally {
+      stopWriter();
+    }
+    if (failure != null && op.isActive()) {
+      try {
+        op.cancelCopy();
+      } catch (SQLException e) {
+        LOGGER.log(Level.FINE, "Cancelling the failed COPY failed", e);
+      }
+    }
+    checkFailure();
+    op.endCopy();
+    return getHandledRowCount();
+  }
+
+  public void cancelCopy() throws SQLException {
+    cancelled = true;
+    stopWriter();
+    if (op.isActive()) {
+      op.cancelCopy();
+    }
+  }
+
+  public int getFormat() {
+    return op.getFormat();
+  }
+
+  public int getFieldFormat(int field) {
+    return op.getFieldFormat(field);
+  }
+
+  public int getFieldCount() {
+    return op.getFieldCount();
+  }
+
+  public boolean isActive() {
+    return op.isActive();
+  }
+
+  public long getHandledRowCount() {
+    return op.getHandledRowCount();
+  }
+
+  /**
+   * @return number of bytes handed to the writer thread that are not sent yet
+   */
+  public int getPendingBytes() {
+    int bytes = 0;
+    for (Frame frame : pending) {
+      bytes += frame.length;
+    }
+    return bytes;
+  }
+
+  private void checkFailure() throws SQLException {
+    SQLException e = failure;
+    if (e != null) {
+      // the error of the backend or the connection, as sent by the writer thread
+      throw e;
+    }
+  }
+
+  /**
+   * Queues the current frame and takes a free one, which waits for the writer thread if all
+   * frames are pending.
+   */
+  private void handOver() throws SQLException {
+    lock.lock();
+    try {
+      pending.add(current);
+      if (!writing) {
+        writing = true;
+        Thread writer = new Thread(new Writer(), "PostgreSQL-JDBC-CopyWriter");
+        writer.setDaemon(true);
+        writer.start();
+      }
+    } finally {
+      lock.unlock();
+    }
+    try {
+      current = free.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // the frame belongs to the writer thread now, so the copy cannot go on
+      current = new Frame(0);
+      failure = new PSQLException(GT.tr("Interrupted while waiting to send COPY data."),
+          PSQLState.OBJECT_NOT_IN_STATE, e);
+    }
+    checkFailure();
+  }
+
+  /**
+   * Waits until the writer thread has sent or, after a failure, dropped the queued frames.
+   */
+  private void stopWriter() {
+    lock.lock();
+    try {
+      while (writing) {
+        writerEnded.awaitUninterruptibly();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static class Frame {
+    final byte[] data;
+    int length;
+
+    Frame(int size) {
+      data = new byte[size];
+    }
+  }
+
+  /**
+   * Sends the queued frames and ends once there are none left.
+   */
+  private class Writer implements Runnable {
+    @Override
+    public void run() {
+      boolean flushed = true;
+      while (true) {
+        Frame frame;
+        lock.lock();
+        try {
+          frame = pending.poll();
+          if (frame == null && flushed) {
+            writing = false;
+            writerEnded.signalAll();
+            return;
+          }
+        } finally {
+          lock.unlock();
+        }
+        try {
+          if (failure != null || cancelled) {
+            // drop the data, the producer learns about the failure when it comes back
+          } else if (frame == null) {
+            // caught up: sends what the connection buffered and looks for an error of the backend
+            op.flushCopy();
+          } else {
+            op.writeToCopy(frame.data, 0, frame.length);
+          }
+        } catch (SQLException e) {
+          LOGGER.log(Level.FINE, "Sending COPY data failed", e);
+          failure = e;
+        }
+        if (frame != null) {
+          frame.length = 0;
+          free.add(frame);
+        }
+        flushed = frame == null;
+      }
+    }
+  }
+}
@@ -12,6 +12,7 @@ import org.postgresql.util.PSQLState;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 /**
@@ -117,6 +118,20 @@ public class PGCopyInputStream extends InputStream implements CopyOut {
     return readFromCopy();
   }
 
+  @Override
+  public int readFromCopy(ByteBuffer dst) throws SQLException {
+    if (buf != null && at < len) {
+      int siz = Math.min(dst.remaining(), len - at);
+      dst.put(buf, at, siz);
+      at += siz;
+      return siz;
+    }
+    if (at < 0) {
+      return -1; // end of the copy already seen by gotBuf()
+    }
+    return op.readFromCopy(dst);
+  }
+
   public void close() throws IOException {
     // Don't complain about a double close.
     if (op == null) {
@@ -0,0 +1,650 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.copy;
+
+import org.postgresql.PGConnection;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+import javax.sql.XAConnection;
+import javax.sql.XADataSource;
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.XAResource;
+import javax.transaction.xa.Xid;
+
+/**
+ * Loads the data of one {@code COPY ... FROM STDIN} over several connections at the same time, so
+ * that the load is not limited by the single backend process of one connection.
+ *
+ * <p>The input is read by the calling thread and cut at row boundaries into chunks, which one
+ * thread per connection sends with its own COPY. At most {@link #setMaxPendingChunks(int)} chunks
+ * exist at any time, they are reused once sent, so the memory used does not depend on the size of
+ * the input. The order of the rows in the table is not preserved.</p>
+ *
+ * <p>Each connection copies in a transaction of its own. With a {@link DataSource} the
+ * transactions are committed one after the other once all COPYs succeeded, so a failing commit
+ * leaves the rows of the connections committed before it in the table. With an
+ * {@link XADataSource} such as {@link org.postgresql.xa.PGXADataSource} the transactions are
+ * prepared first and committed once all of them are prepared (two-phase commit), which needs
+ * {@code max_prepared_transactions} of at least the number of connections on the server.</p>
+ *
+ * <p>The input has to be in the format the COPY statement asks for. CSV input is cut at line ends
+ * outside of double quotes, so it has to use the default {@code QUOTE} and {@code ESCAPE}, and it
+ * must not have a {@code HEADER} as each connection would skip a row.</p>
+ *
+ * <pre>
+ * ParallelCopyLoader loader = new ParallelCopyLoader(dataSource, "COPY t FROM STDIN (FORMAT csv)");
+ * loader.setFormat(ParallelCopyLoader.Format.CSV);
+ * loader.setConnections(8);
+ * long rows = loader.load(new FileInputStream("t.csv"));
+ * </pre>
+ */
+public class ParallelCopyLoader {
+  private static final Logger LOGGER = Logger.getLogger(ParallelCopyLoader.class.getName());
+
+  /**
+   * Format of the input, has to match the format of the COPY statement.
+   */
+  public enum Format {
+    TEXT, CSV, BINARY
+  }
+
+  private static final byte[] BINARY_TRAILER = {(byte) 0xff, (byte) 0xff};
+
+  /**
+   * Queued after the last chunk, once for each connection.
+   */
+  private static final Chunk END = new Chunk(0);
+
+  private final DataSource dataSource;
+  private final XADataSource xaDataSource;
+  private final String sql;
+  private Format format = Format.TEXT;
+  private int connections = 4;
+  private int chunkSize = CopyManager.DEFAULT_BUFFER_SIZE;
+  private int maxPendingChunks;
+
+  /**
+   * Loads with connections of the given data source, see the class documentation for the
+   * transactions.
+   *
+   * @param dataSource source of the connections
+   * @param sql COPY FROM STDIN statement
+   */
+  public ParallelCopyLoader(DataSource dataSource, String sql) {
+    this.dataSource = dataSource;
+    this.xaDataSource = null;
+    this.sql = sql;
+  }
+
+  /**
+   * Loads with connections of the given data source and commits all of them or none with two-phase
+   * commit.
+   *
+   * @param xaDataSource source of the connections
+   * @param sql COPY FROM STDIN statement
+   */
+  public ParallelCopyLoader(XADataSource xaDataSource, String sql) {
+    this.dataSource = null;
+    this.xaDataSource = xaDataSource;
+    this.sql = sql;
+  }
+
+  /**
+   * @param format format of the input, {@link Format#TEXT} by default
+   */
+  public void setFormat(Format format) {
+    this.format = format;
+  }
+
+  /**
+   * @param connections number of connections to copy with, 4 by default
+   */
+  public void setConnections(int connections) {
+    if (connections < 1) {
+      throw new IllegalArgumentException("connections must be positive: " + connections);
+    }
+    this.connections = connections;
+  }
+
+  /**
+   * @param chunkSize number of bytes sent to one connection at a time; a chunk grows for a row
+   *     that does not fit
+   */
+  public void setChunkSize(int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * @param maxPendingChunks number of chunks that are read ahead of the connections, twice the
+   *     number of connections by default
+   */
+  public void setMaxPendingChunks(int maxPendingChunks) {
+    this.maxPendingChunks = maxPendingChunks;
+  }
+
+  /**
+   * Copies the given input into the database and commits it.
+   *
+   * @param in data in the format of the COPY statement
+   * @return number of rows copied
+   * @throws SQLException if a connection cannot be opened, a COPY fails or the commit fails; the
+   *     transactions that were not committed are rolled back
+   * @throws IOException if reading the input fails; all transactions are rolled back
+   */
+  public long load(InputStream in) throws SQLException, IOException {
+    int pending = maxPendingChunks > 0 ? maxPendingChunks : 2 * connections;
+    Load load = new Load(pending, chunkSize);
+    RowSplitter splitter = format == Format.BINARY ? new BinarySplitter()
+        : new LineSplitter(format == Format.CSV);
+    byte[] header = splitter.readHeader(in);
+
+    Worker[] workers = new Worker[connections];
+    Thread[] threads = new Thread[connections];
+    for (int i = 0; i < connections; i++) {
+      workers[i] = new Worker(load, i, header);
+      threads[i] = new Thread(workers[i], "PostgreSQL-JDBC-CopyLoader-" + i);
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+
+    boolean complete = false;
+    try {
+      split(in, splitter, load);
+      complete = true;
+    } catch (IOException e) {
+      load.fail(e);
+    } catch (RuntimeException e) {
+      // the workers cancel their COPY, the exception itself is thrown as is
+      load.fail(e);
+      throw e;
+    } finally {
+      finish(load, workers, threads, complete);
+    }
+
+    Exception failure = load.failure.get();
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure instanceof SQLException) {
+      throw (SQLException) failure;
+    } else if (failure != null) {
+      throw new PSQLException(GT.tr("Parallel COPY failed."), PSQLState.UNEXPECTED_ERROR,
+          failure);
+    }
+    long rows = 0;
+    for (Worker worker : workers) {
+      rows += worker.rows;
+    }
+    return rows;
+  }
+
+  /**
+   * Waits for the workers, then commits if the whole input was read and nothing failed, and
+   * closes the connections.
+   */
+  private void finish(Load load, Worker[] workers, Thread[] threads, boolean complete) {
+    for (int i = 0; i < connections; i++) {
+      load.work.add(END);
+    }
+    boolean interrupted = false;
+    for (Thread thread : threads) {
+      while (thread.isAlive()) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          // the workers stop on their own once they consumed their END
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    boolean commit = complete && load.failure.get() == null;
+    if (commit) {
+      commit(load, workers);
+    }
+    for (Worker worker : workers) {
+      worker.close(!commit || load.failure.get() != null);
+    }
+  }
+
+  private void split(InputStream in, RowSplitter splitter, Load load) throws IOException {
+    Chunk chunk = load.takeFree();
+    if (chunk == null) {
+      return;
+    }
+    // end of the last complete row in the chunk, and number of bytes already looked at
+    int rowEnd = 0;
+    int scanned = 0;
+    while (load.failure.get() == null && !splitter.isFinished()) {
+      if (chunk.length == chunk.data.length) {
+        if (rowEnd == 0) {
+          chunk.data = Arrays.copyOf(chunk.data, chunk.data.length * 2);
+        } else {
+          Chunk next = load.takeFree();
+          if (next == null) {
+            load.free.add(chunk);
+            return;
+          }
+          next.set(chunk.data, rowEnd, chunk.length - rowEnd);
+          chunk.length = rowEnd;
+          load.work.add(chunk);
+          chunk = next;
+          scanned -= rowEnd;
+          rowEnd = 0;
+        }
+      }
+      int read = in.read(chunk.data, chunk.length, chunk.data.length - chunk.length);
+      if (read < 0) {
+        // a last text row may lack its line end, and COPY reports incomplete data itself
+        rowEnd = chunk.length;
+        break;
+      }
+      chunk.length += read;
+      rowEnd = splitter.findRowEnd(chunk.data, rowEnd, scanned, chunk.length);
+      scanned = chunk.length;
+    }
+    if (rowEnd > 0 && load.failure.get() == null) {
+      // data after a binary trailer is ignored, as the backend does
+      chunk.length = rowEnd;
+      load.work.add(chunk);
+    } else {
+      load.free.add(chunk);
+    }
+  }
+
+  private void commit(Load load, Worker[] workers) {
+    try {
+      if (xaDataSource != null) {
+        for (Worker worker : workers) {
+          worker.xaResource.prepare(worker.xid);
+        }
+        // once all are prepared the load is committed, a branch that fails to commit now is left
+        // prepared for recovery rather than rolled back
+        for (Worker worker : workers) {
+          worker.committed = true;
+        }
+        for (Worker worker : workers) {
+          try {
+            worker.xaResource.commit(worker.xid, false);
+          } catch (XAException e) {
+            load.fail(new PSQLException(
+                GT.tr("Committing prepared transaction {0} of a parallel COPY failed.",
+                    worker.xid), PSQLState.TRANSACTION_STATE_INVALID, e));
+          }
+        }
+      } else {
+        for (Worker worker : workers) {
+          worker.connection.commit();
+          worker.committed = true;
+        }
+      }
+    } catch (XAException e) {
+      load.fail(new PSQLException(GT.tr("Committing the parallel COPY failed."),
+          PSQLState.TRANSACTION_STATE_INVALID, e));
+    } catch (SQLException e) {
+      load.fail(e);
+    }
+  }
+
+  /**
+   * State shared by the reading thread and the workers.
+   */
+  private static class Load {
+    final BlockingQueue<Chunk> free;
+    final BlockingQueue<Chunk> work = new LinkedBlockingQueue<Chunk>();
+    final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+    final byte[] globalTransactionId = new byte[16];
+
+    Load(int pending, int chunkSize) {
+      free = new ArrayBlockingQueue<Chunk>(pending);
+      for (int i = 0; i < pending; i++) {
+        free.add(new Chunk(chunkSize));
+      }
+      UUID uuid = UUID.randomUUID();
+      ByteConverter.int8(globalTransactionId, 0, uuid.getMostSignificantBits());
+      ByteConverter.int8(globalTransactionId, 8, uuid.getLeastSignificantBits());
+    }
+
+    void fail(Exception e) {
+      if (!failure.compareAndSet(null, e)) {
+        LOGGER.log(Level.FINE, "Parallel COPY failed after an earlier failure", e);
+      }
+    }
+
+    /**
+     * @return a chunk to fill, or null if the load failed meanwhile
+     */
+    Chunk takeFree() {
+      try {
+        return free.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(new PSQLException(GT.tr("Interrupted while reading the input of a parallel COPY."),
+            PSQLState.OBJECT_NOT_IN_STATE, e));
+        return null;
+      }
+    }
+
+    Chunk takeWork() {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            return work.take();
+          } catch (InterruptedException e) {
+            // the reading thread always queues an END, so this does not wait forever
+            interrupted = true;
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  private static class Chunk {
+    byte[] data;
+    int length;
+
+    Chunk(int size) {
+      data = new byte[size];
+    }
+
+    void set(byte[] source, int offset, int count) {
+      if (data.length < count) {
+        data = new byte[count];
+      }
+      System.arraycopy(source, offset, data, 0, count);
+      length = count;
+    }
+  }
+
+  /**
+   * Copies the chunks it takes from the queue with one connection.
+   */
+  private class Worker implements Runnable {
+    private final Load load;
+    private final int branch;
+    private final byte[] header;
+    Connection connection;
+    XAConnection xaConnection;
+    XAResource xaResource;
+    Xid xid;
+    boolean committed;
+    long rows;
+
+    Worker(Load load, int branch, byte[] header) {
+      this.load = load;
+      this.branch = branch;
+      this.header = header;
+    }
+
+    @Override
+    public void run() {
+      boolean ended = false;
+      CopyIn copyIn = null;
+      try {
+        open();
+        copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+        if (header != null) {
+          copyIn.writeToCopy(header, 0, header.length);
+        }
+        while (true) {
+          Chunk chunk = load.takeWork();
+          if (chunk == END) {
+            ended = true;
+            break;
+          }
+          try {
+            if (load.failure.get() == null) {
+              copyIn.writeToCopy(chunk.data, 0, chunk.length);
+            }
+          } finally {
+            chunk.length = 0;
+            load.free.add(chunk);
+          }
+        }
+        if (load.failure.get() == null) {
+          if (header != null) {
+            copyIn.writeToCopy(BINARY_TRAILER, 0, BINARY_TRAILER.length);
+          }
+          rows = copyIn.endCopy();
+          if (xaResource != null) {
+            xaResource.end(xid, XAResource.TMSUCCESS);
+          }
+        }
+      } catch (Exception e) {
+        load.fail(e);
+      } finally {
+        if (copyIn != null && copyIn.isActive()) {
+          try {
+            copyIn.cancelCopy();
+          } catch (SQLException e) {
+            LOGGER.log(Level.FINE, "Cancelling a COPY of a failed parallel COPY failed", e);
+          }
+        }
+        while (!ended) {
+          Chunk chunk = load.takeWork();
+          if (chunk == END) {
+            ended = true;
+          } else {
+            chunk.length = 0;
+            load.free.add(chunk);
+          }
+        }
+      }
+    }
+
+    private void open() throws SQLException, XAException {
+      if (xaDataSource != null) {
+        xaConnection = xaDataSource.getXAConnection();
+        xaResource = xaConnection.getXAResource();
+        connection = xaConnection.getConnection();
+        Xid branchXid = new LoaderXid(load.globalTransactionId, branch);
+        xaResource.start(branchXid, XAResource.TMNOFLAGS);
+        xid = branchXid;
+      } else {
+        connection = dataSource.getConnection();
+        connection.setAutoCommit(false);
+      }
+    }
+
+    /**
+     * Rolls back what was not committed and closes the connection.
+     */
+    void close(boolean rollback) {
+      try {
+        if (rollback && !committed) {
+          if (xid != null) {
+            xaResource.rollback(xid);
+          } else if (connection != null) {
+            connection.rollback();
+          }
+        }
+      } catch (Exception e) {
+        LOGGER.log(Level.FINE, "Rolling back a failed parallel COPY failed", e);
+      }
+      try {
+        if (xaConnection != null) {
+          xaConnection.close();
+        } else if (connection != null) {
+          connection.close();
+        }
+      } catch (SQLException e) {
+        LOGGER.log(Level.FINE, "Closing a connection of a parallel COPY failed", e);
+      }
+    }
+  }
+
+  /**
+   * Cuts the input at row boundaries.
+   */
+  private abstract static class RowSplitter {
+    /**
+     * Reads what has to precede the rows of each connection.
+     *
+     * @param in input
+     * @return the header, or null if there is none
+     * @throws IOException if reading fails
+     */
+    byte[] readHeader(InputStream in) throws IOException {
+      return null;
+    }
+
+    /**
+     * @param data data of the chunk
+     * @param rowEnd end of the last complete row found so far
+     * @param scanned number of bytes looked at so far
+     * @param length number of bytes in the chunk
+     * @return end of the last complete row
+     */
+    abstract int findRowEnd(byte[] data, int rowEnd, int scanned, int length);
+
+    boolean isFinished() {
+      return false;
+    }
+  }
+
+  /**
+   * Rows of the text and CSV formats end with a line end: in CSV outside of quotes only, in text
+   * unless it is escaped with a backslash.
+   */
+  private static class LineSplitter extends RowSplitter {
+    private final boolean csv;
+    private boolean quoted;
+    private boolean escaped;
+
+    LineSplitter(boolean csv) {
+      this.csv = csv;
+    }
+
+    @Override
+    int findRowEnd(byte[] data, int rowEnd, int scanned, int length) {
+      for (int i = scanned; i < length; i++) {
+        byte b = data[i];
+        if (escaped) {
+          escaped = false;
+        } else if (b == '\n' && !quoted) {
+          rowEnd = i + 1;
+        } else if (csv && b == '"') {
+          // an escaped quote toggles twice
+          quoted = !quoted;
+        } else if (!csv && b == '\\') {
+          escaped = true;
+        }
+      }
+      return rowEnd;
+    }
+  }
+
+  /**
+   * Rows of the binary format are a field count followed by length prefixed fields.
+   */
+  private static class BinarySplitter extends RowSplitter {
+    private boolean finished;
+
+    @Override
+    byte[] readHeader(InputStream in) throws IOException {
+      DataInputStream dataIn = new DataInputStream(in);
+      byte[] header = new byte[BinaryCopyWriter.SIGNATURE.length + 8];
+      dataIn.readFully(header);
+      for (int i = 0; i < BinaryCopyWriter.SIGNATURE.length; i++) {
+        if (header[i] != BinaryCopyWriter.SIGNATURE[i]) {
+          throw new IOException(GT.tr("COPY data is not in binary format."));
+        }
+      }
+      int extensionLength = ByteConverter.int4(header, header.length - 4);
+      if (extensionLength > 0) {
+        header = Arrays.copyOf(header, header.length + extensionLength);
+        dataIn.readFully(header, header.length - extensionLength, extensionLength);
+      }
+      return header;
+    }
+
+    @Override
+    int findRowEnd(byte[] data, int rowEnd, int scanned, int length) {
+      while (length - rowEnd >= 2) {
+        int fields = ByteConverter.int2(data, rowEnd);
+        if (fields == -1) {
+          finished = true;
+          break;
+        }
+        int pos = rowEnd + 2;
+        for (int i = 0; i < fields && pos <= length; i++) {
+          if (length - pos < 4) {
+            return rowEnd;
+          }
+          pos += 4 + Math.max(ByteConverter.int4(data, pos), 0);
+        }
+        if (pos > length) {
+          break;
+        }
+        rowEnd = pos;
+      }
+      return rowEnd;
+    }
+
+    @Override
+    boolean isFinished() {
+      return finished;
+    }
+  }
+
+  /**
+   * Branch of the transaction of one load, for the two-phase commit.
+   */
+  private static class LoaderXid implements Xid {
+    private static final int FORMAT_ID = 0x5043504c;
+    private final byte[] globalTransactionId;
+    private final byte[] branchQualifier;
+
+    LoaderXid(byte[] globalTransactionId, int branch) {
+      this.globalTransactionId = globalTransactionId;
+      branchQualifier = new byte[4];
+      ByteConverter.int4(branchQualifier, 0, branch);
+    }
+
+    @Override
+    public int getFormatId() {
+      return FORMAT_ID;
+    }
+
+    @Override
+    public byte[] getGlobalTransactionId() {
+      return globalTransactionId;
+    }
+
+    @Override
+    public byte[] getBranchQualifier() {
+      return branchQualifier;
+    }
+  }
+}
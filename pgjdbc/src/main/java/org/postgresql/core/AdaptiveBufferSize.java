@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+/**
+ * Size of a buffer that follows the amount of data passing through it, see
+ * {@link org.postgresql.PGProperty#STREAM_BUFFER_SIZE}. The size doubles when a few fills or
+ * flushes in a row use at least three quarters of the buffer, and halves when many in a row use
+ * less than a quarter of it. It stays between the initial size and the maximum size.
+ *
+ * <p>A use counts as full from three quarters on because reads return what the socket has at
+ * that moment, which rarely fills the buffer to the last byte even during a bulk transfer.</p>
+ */
+class AdaptiveBufferSize {
+  /**
+   * Number of consecutive full uses of the buffer, at least three quarters of it, after which it
+   * grows.
+   */
+  private static final int GROW_AFTER = 4;
+
+  /**
+   * Number of consecutive small uses of the buffer after which it shrinks. Larger than
+   * {@link #GROW_AFTER}, so that a few short messages between bulk transfers keep the size.
+   */
+  private static final int SHRINK_AFTER = 64;
+
+  private int minSize;
+  private int maxSize;
+  private int size;
+  private int fullUses;
+  private int smallUses;
+
+  AdaptiveBufferSize(int minSize, int maxSize) {
+    setLimits(minSize, maxSize);
+  }
+
+  /**
+   * @param minSize initial and smallest size
+   * @param maxSize largest size, a value below minSize disables growing
+   */
+  void setLimits(int minSize, int maxSize) {
+    this.minSize = minSize;
+    this.maxSize = Math.max(minSize, maxSize);
+    this.size = minSize;
+    fullUses = 0;
+    smallUses = 0;
+  }
+
+  /**
+   * @return the size the buffer should have
+   */
+  int get() {
+    return size;
+  }
+
+  /**
+   * Records one fill or flush of the buffer.
+   *
+   * @param bytes number of bytes read into the buffer or written between two flushes
+   */
+  void record(int bytes) {
+    if (bytes >= size - size / 4) { // three quarters or more
+      smallUses = 0;
+      if (++fullUses >= GROW_AFTER && size < maxSize) {
+        size = (int) Math.min(maxSize, 2L * size);
+        fullUses = 0;
+      }
+    } else if (bytes < size / 4) {
+      fullUses = 0;
+      if (++smallUses >= SHRINK_AFTER && size > minSize) {
+        size = Math.max(minSize, size / 2);
+        smallUses = 0;
+      }
+    } else {
+      fullUses = 0;
+      smallUses = 0;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffered output stream whose buffer follows the amount of data written between two flushes, so
+ * that a batch of messages usually goes out with one write. Arrays that do not fit in the buffer
+ * are written directly.
+ */
+class AdaptiveBufferedOutputStream extends OutputStream {
+  private final OutputStream out;
+  private final AdaptiveBufferSize adaptiveSize;
+  private byte[] buf;
+  private int count;
+
+  /**
+   * Bytes written since the last flush, including the ones already written to the stream.
+   */
+  private long written;
+
+  AdaptiveBufferedOutputStream(OutputStream out, int bufferSize, int maxBufferSize) {
+    this.out = out;
+    this.adaptiveSize = new AdaptiveBufferSize(bufferSize, maxBufferSize);
+    this.buf = new byte[adaptiveSize.get()];
+  }
+
+  /**
+   * Changes the limits of the buffer size. The buffer is resized at the next flush.
+   *
+   * @param bufferSize the initial and smallest size of the buffer
+   * @param maxBufferSize the largest size the buffer grows to
+   */
+  void setBufferSizes(int bufferSize, int maxBufferSize) {
+    adaptiveSize.setLimits(bufferSize, maxBufferSize);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == buf.length) {
+      drain();
+    }
+    buf[count++] = (byte) b;
+    written++;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (len > buf.length - count) {
+      drain();
+      if (len >= buf.length) {
+        out.write(b, off, len);
+        written += len;
+        return;
+      }
+    }
+    System.arraycopy(b, off, buf, count, len);
+    count += len;
+    written += len;
+  }
+
+  private void drain() throws IOException {
+    if (count > 0) {
+      out.write(buf, 0, count);
+      count = 0;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    drain();
+    out.flush();
+    if (written > 0) {
+      adaptiveSize.record((int) Math.min(Integer.MAX_VALUE, written));
+      written = 0;
+      if (buf.length != adaptiveSize.get()) {
+        buf = new byte[adaptiveSize.get()];
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,617 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.postgresql.util.GT;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Input stream of a socket that can be read by a separate thread while the driver sends, see
+ * {@link PGStream#startReceiving(int)}. Everything that thread receives is kept in memory until
+ * it is read, up to a limit, so the server does not block on sending its responses and cannot stop
+ * reading the messages that are still being sent. Data received by the thread is always read
+ * before the socket is read directly again.
+ *
+ * <p>The input can be pumped by an event loop or a notification reader instead, see
+ * {@link PGStream#startPumping(Runnable, boolean)}. Whoever reads the input then counts the
+ * complete ReadyForQuery messages, so the loop knows which responses can be read without
+ * blocking.</p>
+ *
+ * <p>The stream of a connection is only wrapped once one of these is first needed, other
+ * connections read the socket without it.</p>
+ */
+class BackgroundReceiveInputStream extends InputStream {
+  private static final int CHUNK_SIZE = 16384;
+
+  /**
+   * Longest wait of a pump for data on a socket without a channel, as its read cannot be woken up
+   * once pumping stops.
+   */
+  private static final int PUMP_WAIT_MILLIS = 500;
+
+  private final InputStream in;
+  private final Socket socket;
+  private final ArrayDeque<byte[]> chunks = new ArrayDeque<byte[]>();
+  private int chunkIndex;
+
+  /**
+   * Guards the fields of this stream. A reader waiting for the receiver thread awaits its
+   * condition, which does not pin the carrier of a virtual thread like a monitor would.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition received = lock.newCondition();
+  private final Condition drained = lock.newCondition();
+  private int queuedBytes;
+  private int receiveLimit;
+
+  /**
+   * Whether the receiver thread owns the socket input. It stays true after
+   * {@link #stopReceiving()} until the read the thread is blocked in returns.
+   */
+  private boolean receiving;
+  private boolean stopping;
+  private IOException error;
+
+  /**
+   * Held while the input is read when it is pumped, so the data read by the event loop and by the
+   * connection is queued in the order it was received.
+   */
+  private final ReentrantLock readLock = new ReentrantLock();
+  private final MessageScanner scanner = new MessageScanner();
+  private boolean pumping;
+  private Runnable responseListener;
+  private byte[] pumpBuffer;
+
+  /**
+   * Whether a pump reads the input. It may still do so after {@link #stopPumping()}, so the
+   * connection reads after it.
+   */
+  private boolean pumpReading;
+
+  /**
+   * Timeout of reads as set by the connection, or -1 while it is that of the socket. While a pump
+   * waits on a socket without a channel, the socket has a shorter timeout.
+   */
+  private int readTimeout = -1;
+
+  BackgroundReceiveInputStream(InputStream in, Socket socket) {
+    this.in = in;
+    this.socket = socket;
+  }
+
+  /**
+   * @return true if the receiver thread reads the socket and is not asked to stop
+   */
+  boolean isReceiving() {
+    lock.lock();
+    try {
+      return receiving && !stopping;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return true if the receiver thread stopped reading, as the data it queued reached its limit
+   */
+  boolean isReceiveLimitReached() {
+    lock.lock();
+    try {
+      return receiving && queuedBytes >= receiveLimit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Starts a thread that reads the socket until {@link #stopReceiving()} is called. A thread that
+   * was asked to stop but still waits for data keeps reading instead.
+   *
+   * @param limit number of bytes the thread queues at most, it waits for them to be read before it
+   *     reads more
+   */
+  void startReceiving(int limit) {
+    lock.lock();
+    try {
+      stopping = false;
+      receiveLimit = limit;
+      if (receiving || pumping) {
+        return;
+      }
+      receiving = true;
+      Thread receiver = new Thread(new Receiver(), "PostgreSQL-JDBC-Receiver");
+      receiver.setDaemon(true);
+      receiver.start();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Lets the receiver thread end once its current read returns. It must be called before the
+   * message that the next response answers is flushed, otherwise the thread waits for the one
+   * after it.
+   */
+  void stopReceiving() {
+    lock.lock();
+    try {
+      stopping = true;
+      drained.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Lets {@link #pump(boolean)} read the input. The bytes that were received but not read yet must
+   * start at a message boundary.
+   *
+   * @param unread bytes that were received but not read from the buffer above this stream
+   * @param off offset of the unread bytes
+   * @param len number of unread bytes
+   * @param responseListener called when a read by the connection received complete responses, or
+   *     null
+   * @param blocking whether the input is pumped by a thread that waits for data, otherwise it has
+   *     to be a socket channel
+   * @return false if the input cannot be pumped that way, or a receiver thread or another pump
+   *     still reads it
+   */
+  boolean startPumping(byte[] unread, int off, int len, Runnable responseListener,
+      boolean blocking) {
+    lock.lock();
+    try {
+      if ((!blocking && !(in instanceof ChannelInputStream)) || receiving || pumping) {
+        return false;
+      }
+      scanner.reset();
+      scanner.scan(unread, off, len);
+      int index = chunkIndex;
+      for (byte[] chunk : chunks) {
+        scanner.scan(chunk, index, chunk.length - index);
+        index = 0;
+      }
+      this.responseListener = responseListener;
+      pumping = true;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Ends pumping. A pump that waits for data on a socket channel is woken up, on other sockets it
+   * returns once its wait ends.
+   */
+  void stopPumping() {
+    lock.lock();
+    try {
+      pumping = false;
+      responseListener = null;
+      pumpBuffer = null;
+      if (pumpReading && in instanceof ChannelInputStream) {
+        ((ChannelInputStream) in).wakeup(true);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  boolean isPumping() {
+    lock.lock();
+    try {
+      return pumping;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of complete ReadyForQuery messages received since pumping started
+   */
+  long getPumpedResponses() {
+    lock.lock();
+    try {
+      return scanner.responses;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sets the timeout of reads, see {@link Socket#setSoTimeout(int)}.
+   *
+   * @param millis the timeout, 0 for none
+   * @throws IOException if the timeout cannot be set
+   */
+  void setReadTimeout(int millis) throws IOException {
+    lock.lock();
+    try {
+      readTimeout = millis;
+      // A pump that waits on a shorter timeout sets this one once it is done
+      if (!pumpReading || in instanceof ChannelInputStream) {
+        socket.setSoTimeout(millis);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getReadTimeout() throws IOException {
+    lock.lock();
+    try {
+      return readTimeout >= 0 ? readTimeout : socket.getSoTimeout();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Queues what can be received. Without waiting it does nothing if the connection reads the
+   * input at the moment, it counts the responses itself. Waiting, it blocks until data arrives
+   * or pumping stops, and the connection waits for the data with it.
+   *
+   * @param wait whether to wait for data, otherwise the input has to be a socket channel
+   * @return the number of bytes received, 0 if the socket timed out or pumping stopped, -1 at the
+   *     end of the stream
+   * @throws IOException if the input cannot be read
+   */
+  int pump(boolean wait) throws IOException {
+    if (wait) {
+      readLock.lock();
+    } else if (!readLock.tryLock()) {
+      return 0;
+    }
+    try {
+      byte[] buf;
+      boolean shortWait = wait && !(in instanceof ChannelInputStream);
+      lock.lock();
+      try {
+        if (!pumping) {
+          return 0;
+        }
+        if (pumpBuffer == null) {
+          pumpBuffer = new byte[CHUNK_SIZE];
+        }
+        buf = pumpBuffer;
+        if (shortWait) {
+          if (readTimeout < 0) {
+            readTimeout = socket.getSoTimeout();
+          }
+          socket.setSoTimeout(
+              readTimeout > 0 ? Math.min(readTimeout, PUMP_WAIT_MILLIS) : PUMP_WAIT_MILLIS);
+        }
+        pumpReading = true;
+      } finally {
+        lock.unlock();
+      }
+      int count;
+      try {
+        if (!wait) {
+          count = ((ChannelInputStream) in).readNow(buf, 0, buf.length);
+        } else {
+          try {
+            count = in.read(buf, 0, buf.length);
+          } catch (SocketTimeoutException e) {
+            count = 0;
+          }
+        }
+      } finally {
+        lock.lock();
+        try {
+          pumpReading = false;
+          if (in instanceof ChannelInputStream) {
+            ((ChannelInputStream) in).wakeup(false);
+          }
+          if (shortWait) {
+            socket.setSoTimeout(readTimeout);
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+      if (count > 0) {
+        lock.lock();
+        try {
+          byte[] chunk = Arrays.copyOf(buf, count);
+          chunks.addLast(chunk);
+          queuedBytes += count;
+          scanner.scan(chunk, 0, count);
+          received.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+      return count;
+    } finally {
+      readLock.unlock();
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    boolean pumped;
+    lock.lock();
+    try {
+      awaitChunk();
+      if (!chunks.isEmpty()) {
+        return readChunks(b, off, len);
+      }
+      if (error != null) {
+        IOException e = error;
+        error = null;
+        throw e;
+      }
+      // A pump that still reads after pumping stopped may receive the data first
+      pumped = pumping || pumpReading;
+    } finally {
+      lock.unlock();
+    }
+    return pumped ? readPumped(b, off, len) : in.read(b, off, len);
+  }
+
+  private int readChunks(byte[] b, int off, int len) {
+    int read = 0;
+    while (read < len && !chunks.isEmpty()) {
+      byte[] chunk = chunks.peekFirst();
+      int count = Math.min(len - read, chunk.length - chunkIndex);
+      System.arraycopy(chunk, chunkIndex, b, off + read, count);
+      read += count;
+      chunkIndex += count;
+      if (chunkIndex == chunk.length) {
+        chunks.removeFirst();
+        chunkIndex = 0;
+      }
+    }
+    queuedBytes -= read;
+    drained.signalAll();
+    return read;
+  }
+
+  /**
+   * Reads the input while it is pumped, waiting for data instead of the event loop. A pump that
+   * waits for data holds the read lock until it arrives, so the lock is awaited for at most the
+   * timeout of the socket.
+   */
+  private int readPumped(byte[] b, int off, int len) throws IOException {
+    Runnable listener;
+    int count;
+    lockRead();
+    try {
+      lock.lock();
+      try {
+        if (!chunks.isEmpty()) {
+          return readChunks(b, off, len);
+        }
+      } finally {
+        lock.unlock();
+      }
+      count = in.read(b, off, len);
+      lock.lock();
+      try {
+        if (!pumping || count <= 0) {
+          return count;
+        }
+        long responses = scanner.responses;
+        scanner.scan(b, off, count);
+        if (scanner.responses == responses) {
+          return count;
+        }
+        listener = responseListener;
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      readLock.unlock();
+    }
+    if (listener != null) {
+      listener.run();
+    }
+    return count;
+  }
+
+  private void lockRead() throws IOException {
+    int timeout = getReadTimeout();
+    if (timeout <= 0) {
+      readLock.lock();
+      return;
+    }
+    try {
+      if (!readLock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+        throw new SocketTimeoutException("Read timed out");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(GT.tr("Interrupted while waiting for the backend."));
+    }
+  }
+
+  /**
+   * Waits until the receiver thread has data or ended, at most for the timeout of the socket.
+   */
+  private void awaitChunk() throws IOException {
+    if (!receiving || !chunks.isEmpty()) {
+      return;
+    }
+    int timeout = getReadTimeout();
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    while (receiving && chunks.isEmpty()) {
+      try {
+        if (timeout > 0) {
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            throw new SocketTimeoutException("Read timed out");
+          }
+          received.awaitNanos(remaining);
+        } else {
+          received.await();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(GT.tr("Interrupted while waiting for the backend."));
+      }
+    }
+  }
+
+  @Override
+  public int available() throws IOException {
+    lock.lock();
+    try {
+      if (!chunks.isEmpty()) {
+        return chunks.peekFirst().length - chunkIndex;
+      }
+      // The event loop reads the buffer of a pumped input without holding the lock of this stream
+      return receiving || pumping ? 0 : in.available();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    stopReceiving();
+    in.close();
+  }
+
+  private class Receiver implements Runnable {
+    @Override
+    public void run() {
+      byte[] buf = new byte[CHUNK_SIZE];
+      while (awaitRoom()) {
+        int count;
+        IOException failure = null;
+        try {
+          count = in.read(buf, 0, buf.length);
+        } catch (SocketTimeoutException e) {
+          // Only a thread waiting for data times out, see awaitChunk
+          count = 0;
+        } catch (IOException e) {
+          failure = e;
+          count = -1;
+        }
+        lock.lock();
+        try {
+          if (count > 0) {
+            queuedBytes += count;
+            if (count == buf.length) {
+              chunks.addLast(buf);
+              buf = new byte[CHUNK_SIZE];
+            } else {
+              chunks.addLast(Arrays.copyOf(buf, count));
+            }
+          }
+          if (failure != null) {
+            error = failure;
+          }
+          if (count < 0 || stopping) {
+            receiving = false;
+          }
+          received.signalAll();
+          if (!receiving) {
+            return;
+          }
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    /**
+     * Waits until the queued data is below the limit, or ends the thread if it is asked to stop
+     * meanwhile.
+     *
+     * @return false if the thread ended
+     */
+    private boolean awaitRoom() {
+      lock.lock();
+      try {
+        while (queuedBytes >= receiveLimit && !stopping) {
+          drained.awaitUninterruptibly();
+        }
+        if (queuedBytes >= receiveLimit) {
+          receiving = false;
+          received.signalAll();
+          return false;
+        }
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Follows the framing of backend messages across reads and counts the complete ReadyForQuery
+   * messages, each of which ends the response to a Sync or a simple query.
+   */
+  private static class MessageScanner {
+    private int headerRead;
+    private int type;
+    private int length;
+    private int bodyRemaining;
+    long responses;
+
+    void reset() {
+      headerRead = 0;
+      bodyRemaining = 0;
+      responses = 0;
+    }
+
+    void scan(byte[] b, int off, int len) {
+      int end = off + len;
+      while (off < end) {
+        if (bodyRemaining > 0) {
+          int count = Math.min(bodyRemaining, end - off);
+          off += count;
+          bodyRemaining -= count;
+          if (bodyRemaining == 0) {
+            endMessage();
+          }
+          continue;
+        }
+        int c = b[off++] & 0xFF;
+        if (headerRead == 0) {
+          type = c;
+          length = 0;
+        } else {
+          length = (length << 8) | c;
+        }
+        if (++headerRead == 5) {
+          headerRead = 0;
+          bodyRemaining = length - 4;
+          if (bodyRemaining <= 0) {
+            bodyRemaining = 0;
+            endMessage();
+          }
+        }
+      }
+    }
+
+    private void endMessage() {
+      if (type == 'Z') {
+        responses++;
+      }
+    }
+  }
+}
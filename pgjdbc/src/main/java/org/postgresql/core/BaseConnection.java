@@ -9,6 +9,7 @@ import org.postgresql.PGConnection;
 import org.postgresql.jdbc.FieldMetadata;
 import org.postgresql.jdbc.TimestampUtils;
 import org.postgresql.util.LruCache;
+import org.postgresql.util.SegmentedCache;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
@@ -162,6 +163,15 @@ public interface BaseConnection extends PGConnection, Connection {
    */
   boolean binaryTransferSend(int oid);
 
+  /**
+   * Returns true if result sets should record which getters read their columns, so that the result
+   * format of prepared statements can follow it.
+   *
+   * @return true if binaryTransferAdaptive is enabled
+   * @see org.postgresql.PGProperty#BINARY_TRANSFER_ADAPTIVE
+   */
+  boolean isBinaryTransferAdaptive();
+
   /**
    * Return whether to disable column name sanitation.
    *
@@ -187,9 +197,19 @@ public interface BaseConnection extends PGConnection, Connection {
    * Return metadata cache for given connection.
    *
    * @return metadata cache
+   * @deprecated the cache is a {@link SegmentedCache}, use
+   *     {@link #getFieldMetadataSegmentedCache()}; the returned cache forwards to it
    */
+  @Deprecated
   LruCache<FieldMetadata.Key, FieldMetadata> getFieldMetadataCache();
 
+  /**
+   * Return metadata cache for given connection.
+   *
+   * @return metadata cache
+   */
+  SegmentedCache<FieldMetadata.Key, FieldMetadata> getFieldMetadataSegmentedCache();
+
   CachedQuery createQuery(String sql, boolean escapeProcessing, boolean isParameterized,
       String... columnNames)
       throws SQLException;
@@ -27,6 +27,31 @@ class CachedQueryCreateAction implements LruCache.CreateAction<Object, CachedQue
     assert key instanceof String || key instanceof BaseQueryKey
         : "Query key should be String or BaseQueryKey. Given " + key.getClass() + ", sql: "
         + String.valueOf(key);
+    boolean isParameterized = key instanceof String || ((BaseQueryKey) key).isParameterized;
+    boolean splitStatements = isParameterized || queryExecutor.getPreferQueryMode().compareTo(PreferQueryMode.EXTENDED) >= 0;
+
+    SharedQueryCache.ParsedQuery parsedQuery;
+    if (queryExecutor.isSharedQueryCacheEnabled()) {
+      SharedQueryCache.Key sharedKey = new SharedQueryCache.Key(key,
+          queryExecutor.getStandardConformingStrings(), splitStatements,
+          queryExecutor.isReWriteBatchedInsertsEnabled(), queryExecutor.getServerVersionNum(),
+          queryExecutor.getProtocolVersion());
+      parsedQuery = SharedQueryCache.get(sharedKey);
+      if (parsedQuery == null) {
+        parsedQuery = parse(key, sharedKey, isParameterized, splitStatements);
+        SharedQueryCache.put(sharedKey, parsedQuery);
+      }
+    } else {
+      parsedQuery = parse(key, null, isParameterized, splitStatements);
+    }
+
+    // the native queries may be shared, the server-prepared state lives in the wrapper
+    Query query = queryExecutor.wrap(parsedQuery.queries);
+    return new CachedQuery(key, query, parsedQuery.isFunction);
+  }
+
+  private SharedQueryCache.ParsedQuery parse(Object key, SharedQueryCache.Key sharedKey,
+      boolean isParameterized, boolean splitStatements) throws SQLException {
     BaseQueryKey queryKey;
     String parsedSql;
     if (key instanceof BaseQueryKey) {
@@ -50,8 +75,6 @@ class CachedQueryCreateAction implements LruCache.CreateAction<Object, CachedQue
     } else {
       isFunction = false;
     }
-    boolean isParameterized = key instanceof String || queryKey.isParameterized;
-    boolean splitStatements = isParameterized || queryExecutor.getPreferQueryMode().compareTo(PreferQueryMode.EXTENDED) >= 0;
 
     String[] returningColumns;
     if (key instanceof QueryWithReturningColumnsKey) {
@@ -63,8 +86,6 @@ class CachedQueryCreateAction implements LruCache.CreateAction<Object, CachedQue
     List<NativeQuery> queries = Parser.parseJdbcSql(parsedSql,
         queryExecutor.getStandardConformingStrings(), isParameterized, splitStatements,
         queryExecutor.isReWriteBatchedInsertsEnabled(), returningColumns);
-
-    Query query = queryExecutor.wrap(queries);
-    return new CachedQuery(key, query, isFunction);
+    return new SharedQueryCache.ParsedQuery(sharedKey, queries, isFunction);
   }
 }
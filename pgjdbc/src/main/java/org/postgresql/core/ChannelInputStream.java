@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a non-blocking {@link SocketChannel} into a reusable direct buffer, so one system call
+ * receives as many messages as fit in the buffer without a copy on the Java heap. Waits for data
+ * honour the timeout of the socket like the input stream of a socket does.
+ */
+class ChannelInputStream extends InputStream {
+  private final SocketChannel channel;
+  private final Selector selector;
+  private final ByteBuffer buffer;
+  private volatile boolean woken;
+
+  ChannelInputStream(SocketChannel channel, int bufferSize) throws IOException {
+    this.channel = channel;
+    this.selector = Selector.open();
+    channel.register(selector, SelectionKey.OP_READ);
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    buffer.flip();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!buffer.hasRemaining() && fill() < 0) {
+      return -1;
+    }
+    return buffer.get() & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!buffer.hasRemaining() && fill() < 0) {
+      return -1;
+    }
+    int count = Math.min(len, buffer.remaining());
+    buffer.get(b, off, count);
+    return count;
+  }
+
+  /**
+   * Reads what was received without waiting for more.
+   *
+   * @return the number of bytes read, 0 if nothing was received, -1 at the end of the stream
+   * @throws IOException if the channel cannot be read
+   */
+  int readNow(byte[] b, int off, int len) throws IOException {
+    if (!buffer.hasRemaining()) {
+      buffer.clear();
+      int count;
+      try {
+        count = channel.read(buffer);
+      } finally {
+        buffer.flip();
+      }
+      if (count <= 0) {
+        return count;
+      }
+    }
+    int count = Math.min(len, buffer.remaining());
+    buffer.get(b, off, count);
+    return count;
+  }
+
+  /**
+   * Lets a read that waits for data return 0, see {@link BackgroundReceiveInputStream#pump}.
+   *
+   * @param wake whether to wake the read, otherwise a wakeup that the read missed is dropped
+   */
+  void wakeup(boolean wake) {
+    woken = wake;
+    if (wake) {
+      selector.wakeup();
+    }
+  }
+
+  private int fill() throws IOException {
+    buffer.clear();
+    try {
+      long deadline = 0;
+      while (true) {
+        int count = channel.read(buffer);
+        if (count != 0) {
+          return count;
+        }
+        int timeout = channel.socket().getSoTimeout();
+        if (timeout > 0) {
+          long now = System.nanoTime();
+          if (deadline == 0) {
+            deadline = now + TimeUnit.MILLISECONDS.toNanos(timeout);
+          } else if (now - deadline >= 0) {
+            throw new SocketTimeoutException("Read timed out");
+          }
+          selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - now)));
+        } else {
+          selector.select();
+        }
+        selector.selectedKeys().clear();
+        if (woken) {
+          woken = false;
+          return 0;
+        }
+      }
+    } catch (ClosedSelectorException e) {
+      // The stream was closed while a notification reader waited for data
+      throw new ClosedChannelException();
+    } finally {
+      buffer.flip();
+    }
+  }
+
+  @Override
+  public int available() {
+    return buffer.remaining();
+  }
+
+  @Override
+  public void close() throws IOException {
+    selector.close();
+    channel.close();
+  }
+}
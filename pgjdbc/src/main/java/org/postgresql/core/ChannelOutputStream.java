@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Collects messages in a reusable direct buffer and writes it to a non-blocking
+ * {@link SocketChannel} on flush. Arrays that do not fit in the buffer, such as large parameter
+ * values of a Bind, are written together with the buffered bytes in one gathering write instead of
+ * being copied into the buffer.
+ */
+class ChannelOutputStream extends OutputStream {
+  private final SocketChannel channel;
+  private final Selector selector;
+  private final ByteBuffer buffer;
+  private final ByteBuffer[] gather = new ByteBuffer[2];
+
+  ChannelOutputStream(SocketChannel channel, int bufferSize) throws IOException {
+    this.channel = channel;
+    this.selector = Selector.open();
+    channel.register(selector, SelectionKey.OP_WRITE);
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (!buffer.hasRemaining()) {
+      flush();
+    }
+    buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (len <= buffer.remaining()) {
+      buffer.put(b, off, len);
+      return;
+    }
+    if (len < buffer.capacity()) {
+      flush();
+      buffer.put(b, off, len);
+      return;
+    }
+    buffer.flip();
+    gather[0] = buffer;
+    gather[1] = ByteBuffer.wrap(b, off, len);
+    try {
+      while (gather[1].hasRemaining()) {
+        if (channel.write(gather) == 0) {
+          awaitWritable();
+        }
+      }
+    } finally {
+      gather[1] = null;
+      buffer.clear();
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    buffer.flip();
+    try {
+      while (buffer.hasRemaining()) {
+        if (channel.write(buffer) == 0) {
+          awaitWritable();
+        }
+      }
+    } finally {
+      buffer.clear();
+    }
+  }
+
+  private void awaitWritable() throws IOException {
+    selector.select();
+    selector.selectedKeys().clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      selector.close();
+    }
+  }
+}
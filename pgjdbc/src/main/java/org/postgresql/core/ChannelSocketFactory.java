@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.postgresql.PGProperty;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+import javax.net.SocketFactory;
+
+/**
+ * Creates sockets that belong to a {@link SocketChannel}, see
+ * {@link PGProperty#SOCKET_CHANNEL}. The sockets are blocking until
+ * {@link PGStream#useSocketChannel()} switches the stream to the channel.
+ */
+class ChannelSocketFactory extends SocketFactory {
+  @Override
+  public Socket createSocket() throws IOException {
+    return SocketChannel.open().socket();
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    return connect(new InetSocketAddress(host, port), null);
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+      throws IOException {
+    return connect(new InetSocketAddress(host, port), new InetSocketAddress(localHost, localPort));
+  }
+
+  @Override
+  public Socket createSocket(InetAddress host, int port) throws IOException {
+    return connect(new InetSocketAddress(host, port), null);
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+      int localPort) throws IOException {
+    return connect(new InetSocketAddress(address, port),
+        new InetSocketAddress(localAddress, localPort));
+  }
+
+  private Socket connect(InetSocketAddress address, InetSocketAddress localAddress)
+      throws IOException {
+    Socket socket = createSocket();
+    try {
+      if (localAddress != null) {
+        socket.bind(localAddress);
+      }
+      socket.connect(address);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+    return socket;
+  }
+}
@@ -26,6 +26,10 @@ public class Encoding {
 
   private static final Encoding DEFAULT_ENCODING = new Encoding();
   private static final Encoding UTF8_ENCODING = new Encoding("UTF-8");
+  /*
+   * The custom UTF-8 decoder is stateless, so all connections share one instance.
+   */
+  private static final Encoding UTF8_DECODER_ENCODING = new UTF8Encoding("UTF-8");
 
   /*
    * Preferred JVM encodings for backend encodings.
@@ -122,7 +126,7 @@ public class Encoding {
    */
   public static Encoding getJVMEncoding(String jvmEncoding) {
     if ("UTF-8".equals(jvmEncoding)) {
-      return new UTF8Encoding(jvmEncoding);
+      return UTF8_DECODER_ENCODING;
     }
     if (Charset.isSupported(jvmEncoding)) {
       return new Encoding(jvmEncoding);
@@ -14,6 +14,10 @@ public class Field {
   public static final int TEXT_FORMAT = 0;
   public static final int BINARY_FORMAT = 1;
 
+  // How the application has read the values of this field, see addReadUsage
+  public static final int READ_AS_TEXT = 1;
+  public static final int READ_AS_VALUE = 2;
+
   private final int length; // Internal Length of this field
   private final int oid; // OID of the type
   private final int mod; // type modifier of this field
@@ -35,6 +39,8 @@ public class Field {
   private int sqlType;
   private String pgType = NOT_YET_LOADED;
 
+  private int readUsage;
+
   // New string to avoid clashes with other strings
   private static final String NOT_YET_LOADED = new String("pgType is not yet loaded");
 
@@ -141,6 +147,44 @@ public class Field {
     this.metadata = metadata;
   }
 
+  /**
+   * Records how a value of this field was read: {@link #READ_AS_TEXT} for {@code getString} and
+   * {@link #READ_AS_VALUE} for the typed getters. Used to pick the result format when
+   * binaryTransferAdaptive is enabled.
+   *
+   * @param usage READ_AS_TEXT or READ_AS_VALUE
+   */
+  public void addReadUsage(int usage) {
+    // avoid writing to the shared field once the bit is there
+    if ((readUsage & usage) != usage) {
+      readUsage |= usage;
+    }
+  }
+
+  /**
+   * @return the combination of READ_AS_TEXT and READ_AS_VALUE seen so far, 0 if never read
+   */
+  public int getReadUsage() {
+    return readUsage;
+  }
+
+  /**
+   * Returns a copy of this field with the given format. Result sets keep the field instances they
+   * were created with, so the format of a field that has been handed out must not be changed.
+   *
+   * @param format the format of the copy (text=0, binary=1)
+   * @return copy of this field
+   */
+  public Field withFormat(int format) {
+    Field field = new Field(columnLabel, oid, length, mod, tableOid, positionInTable);
+    field.format = format;
+    field.metadata = metadata;
+    field.sqlType = sqlType;
+    field.pgType = pgType;
+    field.readUsage = readUsage;
+    return field;
+  }
+
   public String toString() {
     return "Field(" + (columnLabel != null ? columnLabel : "")
         + "," + Oid.toString(oid)
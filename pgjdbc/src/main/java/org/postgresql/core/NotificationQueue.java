@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.postgresql.PGNotification;
+
+/**
+ * Takes the notifications a connection receives, see
+ * {@link QueryExecutor#setNotificationQueue(NotificationQueue)}.
+ */
+public interface NotificationQueue {
+  /**
+   * Takes notifications as far as there is room. It is called while the lock of the connection is
+   * held, so it must neither block nor use the connection.
+   *
+   * @param notifications the notifications in the order they were received
+   * @return the number of notifications taken from the start of the array, the connection keeps
+   *     the others
+   */
+  int offer(PGNotification[] notifications);
+}
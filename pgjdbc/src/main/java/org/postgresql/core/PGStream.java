@@ -10,7 +10,6 @@ import org.postgresql.util.HostSpec;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 
-import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.FilterOutputStream;
@@ -22,6 +21,8 @@ import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.sql.SQLException;
 import javax.net.SocketFactory;
 
@@ -33,6 +34,12 @@ import javax.net.SocketFactory;
  * at a time is accessing a particular PGStream instance.</p>
  */
 public class PGStream implements Closeable, Flushable {
+  /**
+   * Shared value for zero-length (but not NULL) columns. Tuple values are never modified in place,
+   * so there is no need to allocate a fresh empty array for every empty string.
+   */
+  private static final byte[] EMPTY_VALUE = new byte[0];
+
   private final SocketFactory socketFactory;
   private final HostSpec hostSpec;
 
@@ -40,10 +47,21 @@ public class PGStream implements Closeable, Flushable {
   private final byte[] _int2buf;
 
   private Socket connection;
+  private InputStream socketInput;
+  /**
+   * Wraps the input of the socket once it is received in the background or pumped, null before.
+   */
+  private BackgroundReceiveInputStream receiveStream;
   private VisibleBufferedInputStream pg_input;
   private OutputStream pg_output;
   private byte[] streamBuffer;
 
+  /**
+   * Initial and largest size of the send and receive buffers, see {@link #setBufferSizes}.
+   */
+  private int bufferSize = 8192;
+  private int maxBufferSize = 65536;
+
   private Encoding encoding;
   private Writer encodingWriter;
 
@@ -110,12 +128,23 @@ public class PGStream implements Closeable, Flushable {
    * @throws IOException if something wrong happens
    */
   public boolean hasMessagePending() throws IOException {
+    return awaitMessage(1);
+  }
+
+  /**
+   * Waits until a backend message begins arriving, or the timeout elapses.
+   *
+   * @param timeoutMillis how long to wait at most, must be positive
+   * @return true if there is a pending backend message
+   * @throws IOException if something wrong happens
+   */
+  public boolean awaitMessage(int timeoutMillis) throws IOException {
     if (pg_input.available() > 0) {
       return true;
     }
     // In certain cases, available returns 0, yet there are bytes
     int soTimeout = getNetworkTimeout();
-    setNetworkTimeout(1);
+    setNetworkTimeout(timeoutMillis);
     try {
       return pg_input.peek() != -1;
     } catch (SocketTimeoutException e) {
@@ -141,12 +170,172 @@ public class PGStream implements Closeable, Flushable {
     connection.setTcpNoDelay(true);
 
     // Buffer sizes submitted by Sverre H Huseby <sverrehu@online.no>
-    pg_input = new VisibleBufferedInputStream(connection.getInputStream(), 8192);
-    pg_output = new BufferedOutputStream(connection.getOutputStream(), 8192);
+    setStreams(connection.getInputStream(),
+        new AdaptiveBufferedOutputStream(connection.getOutputStream(), bufferSize, maxBufferSize));
+  }
+
+  /**
+   * Changes the sizes of the buffers that messages are sent and received through. They start at
+   * the initial size, grow towards the amount of data that is sent between flushes and received
+   * at once up to the maximum size, and shrink back once the traffic decreases. A receive buffer
+   * that had to grow further for a single large message is trimmed once it was read. The direct
+   * buffers of {@link #useSocketChannel()} are allocated once with the maximum size, so call this
+   * before it.
+   *
+   * @param bufferSize initial and smallest size of the buffers
+   * @param maxBufferSize largest size of the buffers
+   */
+  public void setBufferSizes(int bufferSize, int maxBufferSize) {
+    this.bufferSize = bufferSize;
+    this.maxBufferSize = Math.max(bufferSize, maxBufferSize);
+    pg_input.setBufferSizes(bufferSize, maxBufferSize);
+    if (pg_output instanceof AdaptiveBufferedOutputStream) {
+      ((AdaptiveBufferedOutputStream) pg_output).setBufferSizes(bufferSize, maxBufferSize);
+    }
+  }
+
+  /**
+   * Exchanges messages through the {@link SocketChannel} of the socket and reusable direct buffers
+   * instead of the streams of the socket. The channel is made non-blocking, so it must not be
+   * wrapped by another socket afterwards, and nothing must have been received that was not read.
+   *
+   * @return false if the socket has no channel, for instance as it is an SSL socket
+   * @throws IOException if something goes wrong
+   */
+  public boolean useSocketChannel() throws IOException {
+    SocketChannel channel = connection.getChannel();
+    if (channel == null) {
+      return false;
+    }
+    flush();
+    channel.configureBlocking(false);
+    setStreams(new ChannelInputStream(channel, maxBufferSize),
+        new ChannelOutputStream(channel, maxBufferSize));
+    return true;
+  }
+
+  private void setStreams(InputStream in, OutputStream out) throws IOException {
+    socketInput = in;
+    receiveStream = null;
+    pg_input = new VisibleBufferedInputStream(in, bufferSize, maxBufferSize);
+    pg_output = out;
 
     if (encoding != null) {
-      setEncoding(encoding);
+      // The writer must write to the new stream
+      Encoding current = encoding;
+      encoding = null;
+      setEncoding(current);
+    }
+  }
+
+  /**
+   * Wraps the input of the socket so it can be received in the background or pumped. Reads go
+   * through the wrapper from then on, data that is buffered already is read first.
+   */
+  private BackgroundReceiveInputStream getReceiveStream() {
+    if (receiveStream == null) {
+      receiveStream = new BackgroundReceiveInputStream(socketInput, connection);
+      pg_input.setWrapped(receiveStream);
     }
+    return receiveStream;
+  }
+
+  /**
+   * <p>Starts reading from the server in a separate thread that keeps what it receives in memory
+   * until it is read. While the thread runs the driver can send messages without waiting for
+   * their responses, as the server does not block on a full receive buffer until the thread
+   * queued the given number of bytes, see {@link #isReceiveLimitReached()}.</p>
+   *
+   * <p>The thread reads until {@link #stopReceiving()} is called and the next data arrives. Reads
+   * on this stream return the data the thread received first.</p>
+   *
+   * @param limit number of bytes the thread keeps in memory at most
+   */
+  public void startReceiving(int limit) {
+    getReceiveStream().startReceiving(limit);
+  }
+
+  /**
+   * Ends the thread started by {@link #startReceiving(int)} once it received the next data. Call
+   * it before flushing the message the next response answers, such as a Sync.
+   */
+  public void stopReceiving() {
+    if (receiveStream != null) {
+      receiveStream.stopReceiving();
+    }
+  }
+
+  /**
+   * @return true if a thread started by {@link #startReceiving(int)} reads from the server
+   */
+  public boolean isReceiving() {
+    return receiveStream != null && receiveStream.isReceiving();
+  }
+
+  /**
+   * @return true if the thread started by {@link #startReceiving(int)} waits for its data to be
+   *         read, so the responses have to be read before more is sent
+   */
+  public boolean isReceiveLimitReached() {
+    return receiveStream != null && receiveStream.isReceiveLimitReached();
+  }
+
+  /**
+   * <p>Lets an event loop receive the data of this stream with {@link #pump(boolean)} whenever its
+   * channel is readable, see {@link #useSocketChannel()}. The data is kept in memory until it is
+   * read, and the complete responses in it are counted, so the loop can read a response once it
+   * is complete without ever blocking.</p>
+   *
+   * <p>A blocking pump works with any socket instead: a thread waits for the data, for instance
+   * for notifications while the connection is idle.</p>
+   *
+   * <p>Call it between messages, when nothing that was read is left unprocessed. Reads on this
+   * stream keep working while it is pumped, they wait for the data themselves.</p>
+   *
+   * @param responseListener called by a thread that read from the stream and received complete
+   *        responses that way, as no event tells the loop about them; may be null
+   * @param blocking whether the pump waits for data, otherwise a socket channel is needed
+   * @return false if the stream does not use a socket channel but has to, or it is pumped already
+   */
+  public boolean startPumping(Runnable responseListener, boolean blocking) {
+    return getReceiveStream().startPumping(pg_input.getBuffer(), pg_input.getIndex(),
+        pg_input.getBufferedCount(), responseListener, blocking);
+  }
+
+  /**
+   * Receives what arrived, see {@link #startPumping(Runnable, boolean)}.
+   *
+   * @param wait whether to wait until data arrives or the socket times out
+   * @return the number of bytes received, -1 at the end of the stream
+   * @throws IOException if the stream cannot be read
+   */
+  public int pump(boolean wait) throws IOException {
+    return receiveStream == null ? 0 : receiveStream.pump(wait);
+  }
+
+  /**
+   * Ends {@link #startPumping(Runnable, boolean)}. Data received until then is read before the
+   * socket.
+   */
+  public void stopPumping() {
+    if (receiveStream != null) {
+      receiveStream.stopPumping();
+    }
+  }
+
+  /**
+   * @return true between {@link #startPumping(Runnable, boolean)} and {@link #stopPumping()}
+   */
+  public boolean isPumping() {
+    return receiveStream != null && receiveStream.isPumping();
+  }
+
+  /**
+   * @return the number of complete ReadyForQuery messages received since
+   *         {@link #startPumping(Runnable, boolean)}, whether read already or not
+   */
+  public long getPumpedResponses() {
+    return receiveStream == null ? 0 : receiveStream.getPumpedResponses();
   }
 
   public Encoding getEncoding() {
@@ -408,9 +597,13 @@ public class PGStream implements Closeable, Flushable {
    * @throws IOException if a data I/O error occurs
    */
   public byte[][] receiveTupleV3() throws IOException, OutOfMemoryError {
-    // TODO: use l_msgSize
     int l_msgSize = receiveInteger4();
     int l_nf = receiveInteger2();
+    // Message length includes the length field itself and the column count
+    int l_dataSize = l_msgSize - 4 - 2;
+    if (pg_input.fitsBuffer(l_dataSize)) {
+      return receiveBufferedTupleV3(l_nf, l_dataSize);
+    }
     byte[][] answer = new byte[l_nf][];
 
     OutOfMemoryError oom = null;
@@ -434,6 +627,111 @@ public class PGStream implements Closeable, Flushable {
     return answer;
   }
 
+  /**
+   * Read a tuple from the back end into the slabs of the given rows, see
+   * {@link org.postgresql.PGProperty#ROW_STORAGE}. Nothing is allocated for the tuple itself.
+   *
+   * @param rows rows to add the tuple to
+   * @return the number of bytes of the tuple
+   * @throws IOException if a data I/O error occurs
+   */
+  public int receiveTupleV3(SlabRows rows) throws IOException, OutOfMemoryError {
+    // Message length includes the length field itself, the payload starts at the column count
+    int l_length = receiveInteger4() - 4;
+    if (l_length < 2) {
+      throw new IOException("DataRow message is shorter than its column count");
+    }
+    int offset;
+    try {
+      offset = rows.addRow(l_length);
+    } catch (OutOfMemoryError oome) {
+      skip(l_length);
+      throw oome;
+    }
+    byte[] slab = rows.getSlab(rows.size() - 1);
+    receive(slab, offset, l_length);
+
+    int end = offset + l_length;
+    int l_nf = (slab[offset] & 0xFF) << 8 | slab[offset + 1] & 0xFF;
+    int pos = offset + 2;
+    for (int i = 0; i < l_nf; ++i) {
+      if (pos + 4 > end) {
+        throw new IOException("DataRow message is shorter than its column count implies");
+      }
+      int l_size = (slab[pos] & 0xFF) << 24 | (slab[pos + 1] & 0xFF) << 16
+          | (slab[pos + 2] & 0xFF) << 8 | slab[pos + 3] & 0xFF;
+      pos += 4;
+      if (l_size == -1) {
+        continue;
+      }
+      if (l_size < 0 || pos + l_size > end) {
+        throw new IOException("DataRow column length " + l_size + " exceeds message length");
+      }
+      pos += l_size;
+    }
+    return l_length;
+  }
+
+  /**
+   * Reads the remainder of a DataRow message that is known to fit in the receive buffer. The whole
+   * row is made available in the buffer with a single fill, and the column values are copied out of
+   * it directly, so there is no per-column round trip through the buffered stream. Empty values share
+   * a single zero-length array.
+   *
+   * <p>This only saves the reads per column. The row still costs one array for the tuple and one
+   * for each column that is not NULL or empty, {@link #receiveTupleV3(SlabRows)} avoids those.</p>
+   *
+   * @param l_nf number of columns in the row
+   * @param l_dataSize number of bytes that follow the column count in the message
+   * @return tuple from the back end
+   * @throws IOException if a data I/O error occurs
+   */
+  private byte[][] receiveBufferedTupleV3(int l_nf, int l_dataSize)
+      throws IOException, OutOfMemoryError {
+    if (!pg_input.ensureBytes(l_dataSize)) {
+      throw new EOFException();
+    }
+    byte[] buf = pg_input.getBuffer();
+    int pos = pg_input.getIndex();
+    int end = pos + l_dataSize;
+    byte[][] answer = new byte[l_nf][];
+
+    OutOfMemoryError oom = null;
+    for (int i = 0; i < l_nf; ++i) {
+      if (pos + 4 > end) {
+        throw new IOException("DataRow message is shorter than its column count implies");
+      }
+      int l_size = (buf[pos] & 0xFF) << 24 | (buf[pos + 1] & 0xFF) << 16
+          | (buf[pos + 2] & 0xFF) << 8 | buf[pos + 3] & 0xFF;
+      pos += 4;
+      if (l_size == -1) {
+        continue;
+      }
+      if (l_size < 0 || pos + l_size > end) {
+        throw new IOException("DataRow column length " + l_size + " exceeds message length");
+      }
+      if (l_size == 0) {
+        answer[i] = EMPTY_VALUE;
+        continue;
+      }
+      try {
+        byte[] value = new byte[l_size];
+        System.arraycopy(buf, pos, value, 0, l_size);
+        answer[i] = value;
+      } catch (OutOfMemoryError oome) {
+        oom = oome;
+      }
+      pos += l_size;
+    }
+    pg_input.skip(l_dataSize);
+
+    if (oom != null) {
+      throw oom;
+    }
+
+    return answer;
+  }
+
   /**
    * Reads in a given number of bytes from the backend.
    *
@@ -467,6 +765,29 @@ public class PGStream implements Closeable, Flushable {
     }
   }
 
+  /**
+   * Reads bytes from the backend straight from the receive buffer into the given buffer, without
+   * an intermediate array. Blocks until at least one byte is available.
+   *
+   * @param dst buffer to store the bytes in
+   * @param max maximum number of bytes to read
+   * @return number of bytes read, at most {@code max} and the remaining space of {@code dst}
+   * @throws IOException if a data I/O error occurs
+   */
+  public int receive(ByteBuffer dst, int max) throws IOException {
+    int siz = Math.min(max, dst.remaining());
+    if (siz <= 0) {
+      return 0;
+    }
+    if (!pg_input.ensureBytes(1)) {
+      throw new EOFException();
+    }
+    siz = Math.min(siz, pg_input.available());
+    dst.put(pg_input.getBuffer(), pg_input.getIndex(), siz);
+    pg_input.skip(siz);
+    return siz;
+  }
+
   public void skip(int size) throws IOException {
     long s = 0;
     while (s < size) {
@@ -484,8 +805,10 @@ public class PGStream implements Closeable, Flushable {
    */
   public void sendStream(InputStream inStream, int remaining) throws IOException {
     int expectedLength = remaining;
-    if (streamBuffer == null) {
-      streamBuffer = new byte[8192];
+    // Large streams are copied in chunks of the largest buffer size
+    int size = Math.max(bufferSize, Math.min(remaining, maxBufferSize));
+    if (streamBuffer == null || streamBuffer.length < size) {
+      streamBuffer = new byte[size];
     }
 
     while (remaining > 0) {
@@ -511,6 +834,11 @@ public class PGStream implements Closeable, Flushable {
       send(streamBuffer, readCount);
       remaining -= readCount;
     }
+
+    if (streamBuffer.length > bufferSize) {
+      // Do not keep the memory of a large one-off stream
+      streamBuffer = null;
+    }
   }
 
 
@@ -559,10 +887,15 @@ public class PGStream implements Closeable, Flushable {
   }
 
   public void setNetworkTimeout(int milliseconds) throws IOException {
-    connection.setSoTimeout(milliseconds);
+    if (receiveStream != null) {
+      // A pump might wait with a shorter timeout
+      receiveStream.setReadTimeout(milliseconds);
+    } else {
+      connection.setSoTimeout(milliseconds);
+    }
   }
 
   public int getNetworkTimeout() throws IOException {
-    return connection.getSoTimeout();
+    return receiveStream != null ? receiveStream.getReadTimeout() : connection.getSoTimeout();
   }
 }
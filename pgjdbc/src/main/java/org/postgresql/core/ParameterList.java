@@ -181,6 +181,17 @@ public interface ParameterList {
    */
   String toString(int index, boolean standardConformingStrings);
 
+  /**
+   * Return the value of a particular parameter in the text format of its type, as the backend
+   * would print it. Unlike {@link #toString(int, boolean)} the value is neither quoted nor cast.
+   *
+   * @param index the 1-based parameter index.
+   * @return the text value, or null if the parameter is bound to NULL.
+   * @throws SQLException if the parameter is not bound, or its value is only available in a form
+   *         that cannot be converted to text (such as a stream)
+   */
+  String getTextValue(int index) throws SQLException;
+
   /**
    * Use this operation to append more parameters to the current list.
    * @param list of parameters to append with.
@@ -551,6 +551,71 @@ public class Parser {
     return offset;
   }
 
+  /**
+   * Splits SQL text at the semicolons that separate statements. Semicolons in quotes, comments and
+   * parentheses are skipped. The statements are trimmed and empty ones are left out.
+   *
+   * @param sql                       SQL text
+   * @param standardConformingStrings standard conforming strings
+   * @return the statements in the order of the text
+   */
+  public static List<String> splitStatements(String sql, boolean standardConformingStrings) {
+    char[] aChars = sql.toCharArray();
+    List<String> statements = new ArrayList<String>();
+    int fragmentStart = 0;
+    int inParen = 0;
+    for (int i = 0; i < aChars.length; ++i) {
+      switch (aChars[i]) {
+        case '\'': // single-quotes
+          i = Parser.parseSingleQuotes(aChars, i, standardConformingStrings);
+          break;
+
+        case '"': // double-quotes
+          i = Parser.parseDoubleQuotes(aChars, i);
+          break;
+
+        case '-': // possibly -- style comment
+          i = Parser.parseLineComment(aChars, i);
+          break;
+
+        case '/': // possibly /* */ style comment
+          i = Parser.parseBlockComment(aChars, i);
+          break;
+
+        case '$': // possibly dollar quote start
+          i = Parser.parseDollarQuotes(aChars, i);
+          break;
+
+        case '(':
+          inParen++;
+          break;
+
+        case ')':
+          inParen--;
+          break;
+
+        case ';':
+          if (inParen == 0) {
+            addStatement(statements, sql.substring(fragmentStart, i));
+            fragmentStart = i + 1;
+          }
+          break;
+
+        default:
+          break;
+      }
+    }
+    addStatement(statements, sql.substring(fragmentStart));
+    return statements;
+  }
+
+  private static void addStatement(List<String> statements, String statement) {
+    statement = statement.trim();
+    if (!statement.isEmpty()) {
+      statements.add(statement);
+    }
+  }
+
   /**
    * Parse string to check presence of DELETE keyword regardless of case. The initial character is
    * assumed to have been matched.
@@ -15,11 +15,13 @@ import org.postgresql.jdbc.PreferQueryMode;
 import org.postgresql.util.HostSpec;
 
 import java.io.IOException;
+import java.nio.channels.SocketChannel;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.util.List;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * <p>Abstracts the protocol-specific details of executing a query.</p>
@@ -118,6 +120,14 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   int QUERY_EXECUTE_AS_SIMPLE = 1024;
 
+  /**
+   * Flag for query execution that indicates rows can be handed to the ResultHandler in chunks of
+   * {@code fetchSize} rows as they arrive. The rest of the result stays on the wire until it is
+   * fetched through the cursor passed to the handler, so no named portal and no extra Execute
+   * round trips are needed. Only honoured for a single extended-protocol query that returns rows.
+   */
+  int QUERY_STREAM_RESULTS = 2048;
+
   /**
    * Execute a Query, passing results to a provided ResultHandler.
    *
@@ -156,6 +166,129 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
   void execute(Query[] queries, ParameterList[] parameterLists, BatchResultHandler handler, int maxRows,
       int fetchSize, int flags) throws SQLException;
 
+  /**
+   * Sends a Query followed by its own Sync without waiting for the results, so several queries can
+   * be on the wire at once. The results are read in the order the queries were sent, either by
+   * {@link #awaitPipelined(ResultHandler)} or before the connection is used for anything else, and
+   * passed to the handler. {@link ResultHandler#handleCompletion()} is left to the caller.
+   *
+   * @param query the query to execute
+   * @param parameters the parameters for the query
+   * @param handler a ResultHandler responsible for handling results generated by this query
+   * @param maxRows the maximum number of rows to retrieve
+   * @param flags a combination of QUERY_* flags indicating how to handle the query.
+   * @return false if the query cannot be pipelined with these flags, nothing has been sent then
+   * @throws SQLException if the query cannot be sent
+   */
+  boolean executePipelined(Query query, ParameterList parameters, ResultHandler handler,
+      int maxRows, int flags) throws SQLException;
+
+  /**
+   * Reads the results of pipelined queries up to the one sent with the given handler. Returns at
+   * once if its results have been read already.
+   *
+   * @param handler handler passed to {@link #executePipelined}
+   * @throws SQLException if the connection cannot be used
+   */
+  void awaitPipelined(ResultHandler handler) throws SQLException;
+
+  /**
+   * Same as {@link #awaitPipelined(ResultHandler)}, but gives up once the timeout elapsed. The
+   * timeout bounds the wait for the connection and for each response to begin arriving, a response
+   * that is arriving is read to its end.
+   *
+   * @param handler handler passed to {@link #executePipelined}
+   * @param timeoutNanos how long to wait at most
+   * @return false if the timeout elapsed before the results were read
+   * @throws SQLException if the connection cannot be used
+   * @throws InterruptedException if interrupted while waiting for the connection
+   */
+  boolean awaitPipelined(ResultHandler handler, long timeoutNanos)
+      throws SQLException, InterruptedException;
+
+  /**
+   * Returns the lock that the methods of this executor hold while they use the connection. Hold it
+   * to make several calls without other threads using the connection in between.
+   *
+   * @return the lock of the connection
+   */
+  ReentrantLock getLock();
+
+  /**
+   * Lets an event loop receive the responses of this connection whenever its socket channel is
+   * readable, see {@link PGStream#startPumping(Runnable, boolean)}. Until
+   * {@link #stopAsyncReceive()} the loop calls {@link #receiveAsync(boolean)} without waiting and
+   * {@link #readReceivedResults()}.
+   *
+   * @param responseListener called when the connection itself received complete responses
+   * @return the channel to watch, null if the connection does not use a socket channel
+   */
+  SocketChannel startAsyncReceive(Runnable responseListener);
+
+  /**
+   * Receives what arrived. Unlike the other methods it does not wait for the lock of the
+   * connection.
+   *
+   * @param wait whether to wait until data arrives, as a notification reader does; an event loop
+   *     never waits
+   * @return the number of bytes received, 0 if nothing arrived, -1 at the end of the stream
+   * @throws IOException if the connection cannot be read
+   */
+  int receiveAsync(boolean wait) throws IOException;
+
+  /**
+   * Reads the results of the pipelined queries whose responses were received completely by
+   * {@link #receiveAsync(boolean)}, which never blocks.
+   *
+   * @return the number of pipelined queries whose results have not been read
+   */
+  int readReceivedResults();
+
+  /**
+   * Ends {@link #startAsyncReceive(Runnable)}.
+   */
+  void stopAsyncReceive();
+
+  /**
+   * Lets a thread wait for notifications while the connection is idle. Until
+   * {@link #stopNotificationReceive()} the thread calls {@link #receiveAsync(boolean)} waiting for
+   * data, and {@link #processNotifies()} whenever some arrived. Other threads keep using the
+   * connection meanwhile, the data received for them is passed on.
+   *
+   * @return false if the connection is received asynchronously already, for instance by an event
+   *     loop
+   */
+  boolean startNotificationReceive();
+
+  /**
+   * Ends {@link #startNotificationReceive()}. The thread must not wait in
+   * {@link #receiveAsync(boolean)} anymore.
+   */
+  void stopNotificationReceive();
+
+  /**
+   * Offers the notifications received from now on to the queue instead of keeping them for
+   * {@link #getNotifications()}, starting with those that were kept until now. Once the queue
+   * did not take a notification, the connection keeps that one and all that arrive after it until
+   * this is called again. {@link #getNotifications()} returns none while a queue is set.
+   *
+   * @param queue the queue, or null to keep the notifications again
+   */
+  void setNotificationQueue(NotificationQueue queue);
+
+  /**
+   * Parses and describes queries as named server-prepared statements without executing them. All
+   * of them are sent before the results are read, and a BEGIN is never sent. If a query fails,
+   * the queries after it are not prepared.
+   *
+   * @param queries the queries to prepare
+   * @param parameterLists the parameters of each query, only their types are used
+   * @param handler a ResultHandler that receives the errors
+   * @throws SQLException if preparing the queries fails
+   */
+  void prepareQueries(Query[] queries, ParameterList[] parameterLists, ResultHandler handler)
+      throws SQLException;
+
   /**
    * Fetch additional rows from a cursor.
    *
@@ -180,6 +313,16 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
 
   boolean isReWriteBatchedInsertsEnabled();
 
+  /**
+   * @return true if batches of plain INSERT statements should be sent with COPY FROM STDIN
+   */
+  boolean isCopyBatchedInsertsEnabled();
+
+  /**
+   * @return true if the results of parsing SQL are shared with the other connections of the JVM
+   */
+  boolean isSharedQueryCacheEnabled();
+
   CachedQuery createQuery(String sql, boolean escapeProcessing, boolean isParameterized,
       String... columnNames)
       throws SQLException;
@@ -442,6 +585,12 @@ public interface QueryExecutor extends TypeTransferModeRegistry {
    */
   void setFlushCacheOnDeallocate(boolean flushCacheOnDeallocate);
 
+  /**
+   * @return a number that changes each time the server-prepared statements of the connection are
+   *     discarded, for instance by {@code DEALLOCATE ALL} or {@code DISCARD ALL}
+   */
+  int getDeallocateEpoch();
+
   /**
    * @return the ReplicationProtocol instance for this connection.
    */
@@ -13,6 +13,7 @@ import org.postgresql.util.HostSpec;
 import org.postgresql.util.LruCache;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
+import org.postgresql.util.SegmentedCache;
 import org.postgresql.util.ServerErrorMessage;
 
 import java.io.IOException;
@@ -20,6 +21,8 @@ import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,6 +30,14 @@ public abstract class QueryExecutorBase implements QueryExecutor {
 
   private static final Logger LOGGER = Logger.getLogger(QueryExecutorBase.class.getName());
   protected final PGStream pgStream;
+
+  /**
+   * Held by the methods that use the connection or its state. It is not a monitor, so threads
+   * that block on the socket while holding it do not pin the carrier of a virtual thread.
+   */
+  protected final ReentrantLock lock = new ReentrantLock();
+  protected final Condition lockCondition = lock.newCondition();
+
   private final String user;
   private final String database;
   private final int cancelSignalTimeout;
@@ -38,6 +49,8 @@ public abstract class QueryExecutorBase implements QueryExecutor {
   private int serverVersionNum = 0;
   private TransactionState transactionState;
   private final boolean reWriteBatchedInserts;
+  private final boolean copyBatchedInserts;
+  private final boolean sharedQueryCache;
   private final boolean columnSanitiserDisabled;
   private final PreferQueryMode preferQueryMode;
   private AutoSave autoSave;
@@ -48,8 +61,9 @@ public abstract class QueryExecutorBase implements QueryExecutor {
 
   private SQLWarning warnings;
   private final ArrayList<PGNotification> notifications = new ArrayList<PGNotification>();
+  private NotificationQueue notificationQueue;
 
-  private final LruCache<Object, CachedQuery> statementCache;
+  private final SegmentedCache<Object, CachedQuery> statementCache;
   private final CachedQueryCreateAction cachedQueryCreateAction;
 
   protected QueryExecutorBase(PGStream pgStream, String user,
@@ -59,15 +73,16 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     this.database = database;
     this.cancelSignalTimeout = cancelSignalTimeout;
     this.reWriteBatchedInserts = PGProperty.REWRITE_BATCHED_INSERTS.getBoolean(info);
+    this.copyBatchedInserts = PGProperty.COPY_BATCHED_INSERTS.getBoolean(info);
+    this.sharedQueryCache = PGProperty.SHARED_QUERY_CACHE.getBoolean(info);
     this.columnSanitiserDisabled = PGProperty.DISABLE_COLUMN_SANITISER.getBoolean(info);
     String preferMode = PGProperty.PREFER_QUERY_MODE.get(info);
     this.preferQueryMode = PreferQueryMode.of(preferMode);
     this.autoSave = AutoSave.of(PGProperty.AUTOSAVE.get(info));
     this.cachedQueryCreateAction = new CachedQueryCreateAction(this);
-    statementCache = new LruCache<Object, CachedQuery>(
+    statementCache = new SegmentedCache<Object, CachedQuery>(
         Math.max(0, PGProperty.PREPARED_STATEMENT_CACHE_QUERIES.getInt(info)),
         Math.max(0, PGProperty.PREPARED_STATEMENT_CACHE_SIZE_MIB.getInt(info) * 1024 * 1024),
-        false,
         cachedQueryCreateAction,
         new LruCache.EvictAction<CachedQuery>() {
           @Override
@@ -187,30 +202,78 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     }
   }
 
-  public synchronized void addWarning(SQLWarning newWarning) {
-    if (warnings == null) {
-      warnings = newWarning;
-    } else {
-      warnings.setNextWarning(newWarning);
+  @Override
+  public ReentrantLock getLock() {
+    return lock;
+  }
+
+  public void addWarning(SQLWarning newWarning) {
+    lock.lock();
+    try {
+      if (warnings == null) {
+        warnings = newWarning;
+      } else {
+        warnings.setNextWarning(newWarning);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
-  public synchronized void addNotification(PGNotification notification) {
-    notifications.add(notification);
+  public void addNotification(PGNotification notification) {
+    lock.lock();
+    try {
+      // Kept notifications are offered first, so the order stays the same
+      if (notificationQueue == null || !notifications.isEmpty()
+          || notificationQueue.offer(new PGNotification[]{notification}) == 0) {
+        notifications.add(notification);
+      }
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized PGNotification[] getNotifications() throws SQLException {
-    PGNotification[] array = notifications.toArray(new PGNotification[notifications.size()]);
-    notifications.clear();
-    return array;
+  public void setNotificationQueue(NotificationQueue queue) {
+    lock.lock();
+    try {
+      notificationQueue = queue;
+      if (queue != null && !notifications.isEmpty()) {
+        int taken =
+            queue.offer(notifications.toArray(new PGNotification[notifications.size()]));
+        notifications.subList(0, taken).clear();
+      }
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized SQLWarning getWarnings() {
-    SQLWarning chain = warnings;
-    warnings = null;
-    return chain;
+  public PGNotification[] getNotifications() throws SQLException {
+    lock.lock();
+    try {
+      if (notificationQueue != null) {
+        // Kept for the queue, until it has room again
+        return new PGNotification[0];
+      }
+      PGNotification[] array = notifications.toArray(new PGNotification[notifications.size()]);
+      notifications.clear();
+      return array;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public SQLWarning getWarnings() {
+    lock.lock();
+    try {
+      SQLWarning chain = warnings;
+      warnings = null;
+      return chain;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -234,22 +297,50 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     this.serverVersionNum = serverVersionNum;
   }
 
-  public synchronized void setTransactionState(TransactionState state) {
-    transactionState = state;
+  public void setTransactionState(TransactionState state) {
+    lock.lock();
+    try {
+      transactionState = state;
+    } finally {
+      lock.unlock();
+    }
   }
 
-  public synchronized void setStandardConformingStrings(boolean value) {
-    standardConformingStrings = value;
+  public void setStandardConformingStrings(boolean value) {
+    lock.lock();
+    try {
+      standardConformingStrings = value;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized boolean getStandardConformingStrings() {
-    return standardConformingStrings;
+  public boolean getStandardConformingStrings() {
+    lock.lock();
+    try {
+      return standardConformingStrings;
+    } finally {
+      lock.unlock();
+    }
   }
 
   @Override
-  public synchronized TransactionState getTransactionState() {
-    return transactionState;
+  public TransactionState getTransactionState() {
+    return getLastTransactionState();
+  }
+
+  /**
+   * @return the transaction state reported by the last ReadyForQuery that was read, without
+   *     reading the results that are still pending
+   */
+  protected TransactionState getLastTransactionState() {
+    lock.lock();
+    try {
+      return transactionState;
+    } finally {
+      lock.unlock();
+    }
   }
 
   public void setEncoding(Encoding encoding) throws IOException {
@@ -266,6 +357,16 @@ public abstract class QueryExecutorBase implements QueryExecutor {
     return this.reWriteBatchedInserts;
   }
 
+  @Override
+  public boolean isCopyBatchedInsertsEnabled() {
+    return this.copyBatchedInserts;
+  }
+
+  @Override
+  public boolean isSharedQueryCacheEnabled() {
+    return this.sharedQueryCache;
+  }
+
   @Override
   public final CachedQuery borrowQuery(String sql) throws SQLException {
     return statementCache.borrow(sql);
@@ -370,7 +471,7 @@ public abstract class QueryExecutorBase implements QueryExecutor {
 
   @Override
   public boolean willHealOnRetry(SQLException e) {
-    if (autoSave == AutoSave.NEVER && getTransactionState() == TransactionState.FAILED) {
+    if (autoSave == AutoSave.NEVER && getLastTransactionState() == TransactionState.FAILED) {
       // If autorollback is not activated, then every statement will fail with
       // 'transaction is aborted', etc, etc
       return false;
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.postgresql.util.CanEstimateSize;
+import org.postgresql.util.SegmentedCache;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of parsing SQL that are shared by all the connections of the JVM that enable
+ * {@link org.postgresql.PGProperty#SHARED_QUERY_CACHE}. Only the immutable {@link NativeQuery}
+ * objects are shared, each connection wraps them into its own {@link Query} that keeps the
+ * server-prepared state.
+ */
+final class SharedQueryCache {
+  private static final int MAX_ENTRIES = 4096;
+  private static final long MAX_BYTES = 32 * 1024 * 1024;
+
+  private static final SegmentedCache<Key, ParsedQuery> CACHE =
+      new SegmentedCache<Key, ParsedQuery>(MAX_ENTRIES, MAX_BYTES);
+
+  private SharedQueryCache() {
+  }
+
+  static ParsedQuery get(Key key) {
+    return CACHE.get(key);
+  }
+
+  static void put(Key key, ParsedQuery parsedQuery) {
+    CACHE.put(key, parsedQuery);
+  }
+
+  /**
+   * The query key of a connection together with everything else the parse result depends on.
+   */
+  static final class Key {
+    private final Object queryKey;
+    private final boolean standardConformingStrings;
+    private final boolean splitStatements;
+    private final boolean reWriteBatchedInserts;
+    private final int serverVersionNum;
+    private final int protocolVersion;
+
+    Key(Object queryKey, boolean standardConformingStrings, boolean splitStatements,
+        boolean reWriteBatchedInserts, int serverVersionNum, int protocolVersion) {
+      this.queryKey = queryKey;
+      this.standardConformingStrings = standardConformingStrings;
+      this.splitStatements = splitStatements;
+      this.reWriteBatchedInserts = reWriteBatchedInserts;
+      this.serverVersionNum = serverVersionNum;
+      this.protocolVersion = protocolVersion;
+    }
+
+    long getSize() {
+      return queryKey instanceof BaseQueryKey
+          ? ((BaseQueryKey) queryKey).getSize() : ((String) queryKey).length() * 2L;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return standardConformingStrings == key.standardConformingStrings
+          && splitStatements == key.splitStatements
+          && reWriteBatchedInserts == key.reWriteBatchedInserts
+          && serverVersionNum == key.serverVersionNum
+          && protocolVersion == key.protocolVersion
+          && queryKey.equals(key.queryKey);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = queryKey.hashCode();
+      result = 31 * result + (standardConformingStrings ? 1 : 0);
+      result = 31 * result + (splitStatements ? 1 : 0);
+      result = 31 * result + (reWriteBatchedInserts ? 1 : 0);
+      result = 31 * result + serverVersionNum;
+      result = 31 * result + protocolVersion;
+      return result;
+    }
+  }
+
+  /**
+   * The statements of a query as parsed, and whether it is a function call. The key is only used
+   * to estimate the size and may be null for results that are not shared.
+   */
+  static final class ParsedQuery implements CanEstimateSize {
+    final List<NativeQuery> queries;
+    final boolean isFunction;
+    private final long size;
+
+    ParsedQuery(Key key, List<NativeQuery> queries, boolean isFunction) {
+      this.queries = Collections.unmodifiableList(queries);
+      this.isFunction = isFunction;
+      long size = (key == null ? 0 : key.getSize()) + 16;
+      for (NativeQuery query : queries) {
+        size += query.nativeSql.length() * 2L + query.bindPositions.length * 4L + 32;
+      }
+      this.size = size;
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+  }
+}
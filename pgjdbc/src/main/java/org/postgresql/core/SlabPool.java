@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import java.util.ArrayDeque;
+
+/**
+ * Slabs that {@link SlabRows} keep rows in. Slabs released by closed result sets are kept for the
+ * next ones, up to a limit, so a connection that reads many rows reuses the same few slabs.
+ */
+public class SlabPool {
+  /**
+   * Size of the slabs, rows that do not fit in one get an array of their own.
+   */
+  public static final int DEFAULT_SLAB_SIZE = 64 * 1024;
+
+  /**
+   * Number of released slabs that are kept for reuse.
+   */
+  public static final int DEFAULT_MAX_IDLE = 16;
+
+  private final int slabSize;
+  private final int maxIdle;
+  private final ArrayDeque<byte[]> idle = new ArrayDeque<byte[]>();
+
+  public SlabPool() {
+    this(DEFAULT_SLAB_SIZE, DEFAULT_MAX_IDLE);
+  }
+
+  public SlabPool(int slabSize, int maxIdle) {
+    this.slabSize = slabSize;
+    this.maxIdle = maxIdle;
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  /**
+   * @return a released slab, or a new one if there is none
+   */
+  public synchronized byte[] take() {
+    byte[] slab = idle.pollFirst();
+    return slab != null ? slab : new byte[slabSize];
+  }
+
+  /**
+   * Keeps a slab for reuse. The caller must no longer use it.
+   *
+   * @param slab slab returned by {@link #take()}
+   */
+  public synchronized void release(byte[] slab) {
+    if (slab.length == slabSize && idle.size() < maxIdle) {
+      idle.addFirst(slab);
+    }
+  }
+
+  /**
+   * @return the number of slabs kept for reuse
+   */
+  public synchronized int getIdleCount() {
+    return idle.size();
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import org.postgresql.util.ByteConverter;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Result rows kept as their DataRow payloads in slabs taken from a {@link SlabPool}, see
+ * {@link org.postgresql.PGProperty#ROW_STORAGE}. Each row is indexed by the slab and the offset
+ * its payload starts at, so receiving a row allocates nothing unless a slab fills up.
+ *
+ * <p>Result sets read the values in place through {@link #locate(int, int[], int[])}.
+ * {@link #get(int)} copies the values of a row into arrays of their own for everything that needs
+ * the usual tuple, and rows that are set or added as tuples are kept as they are.</p>
+ *
+ * <p>{@link #release()} returns the slabs to the pool once the rows are no longer needed.</p>
+ */
+public class SlabRows extends AbstractList<byte[][]> implements RandomAccess {
+  private final SlabPool pool;
+  private final List<byte[]> slabs = new ArrayList<byte[]>();
+  private byte[] slab;
+  private int slabUsed;
+
+  private byte[][] rowSlabs = new byte[16][];
+  private int[] rowOffsets = new int[16];
+  /**
+   * Rows that were added as tuples, created on the first one.
+   */
+  private byte[][][] rowTuples;
+  private int size;
+
+  public SlabRows(SlabPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Adds a row and reserves room for its payload, which the caller then writes into the slab of
+   * the row at the returned offset. The payload is the DataRow message without its type and length:
+   * the column count followed by the length and the bytes of each column.
+   *
+   * @param length length of the payload
+   * @return the offset of the payload in {@link #getSlab(int)}
+   */
+  public int addRow(int length) {
+    byte[] target;
+    int offset;
+    if (length > pool.getSlabSize()) {
+      target = new byte[length];
+      offset = 0;
+    } else {
+      if (slab == null || slab.length - slabUsed < length) {
+        slab = pool.take();
+        slabs.add(slab);
+        slabUsed = 0;
+      }
+      target = slab;
+      offset = slabUsed;
+      slabUsed += length;
+    }
+    insert(size, target, offset, null);
+    return offset;
+  }
+
+  /**
+   * @param row index of the row
+   * @return the slab that keeps the row, or null if it was added as a tuple
+   */
+  public byte[] getSlab(int row) {
+    checkIndex(row);
+    return rowSlabs[row];
+  }
+
+  /**
+   * Finds the values of a row in its slab.
+   *
+   * @param row index of the row
+   * @param offsets receives the offset of each value in {@link #getSlab(int)}
+   * @param lengths receives the length of each value, -1 for NULL
+   * @return false if the row was added as a tuple or has more columns than the arrays have room for
+   */
+  public boolean locate(int row, int[] offsets, int[] lengths) {
+    checkIndex(row);
+    byte[] rowSlab = rowSlabs[row];
+    if (rowSlab == null) {
+      return false;
+    }
+    int pos = rowOffsets[row];
+    int columns = ByteConverter.int2(rowSlab, pos);
+    if (columns > offsets.length || columns > lengths.length) {
+      return false;
+    }
+    pos += 2;
+    for (int i = 0; i < columns; i++) {
+      int length = ByteConverter.int4(rowSlab, pos);
+      pos += 4;
+      offsets[i] = pos;
+      lengths[i] = length;
+      if (length > 0) {
+        pos += length;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the slabs to the pool and removes all rows.
+   */
+  public void release() {
+    for (byte[] released : slabs) {
+      pool.release(released);
+    }
+    slabs.clear();
+    slab = null;
+    slabUsed = 0;
+    Arrays.fill(rowSlabs, 0, size, null);
+    if (rowTuples != null) {
+      Arrays.fill(rowTuples, 0, size, null);
+    }
+    size = 0;
+  }
+
+  @Override
+  public byte[][] get(int index) {
+    checkIndex(index);
+    byte[] rowSlab = rowSlabs[index];
+    if (rowSlab == null) {
+      return rowTuples == null ? null : rowTuples[index];
+    }
+    int pos = rowOffsets[index];
+    byte[][] tuple = new byte[ByteConverter.int2(rowSlab, pos)][];
+    pos += 2;
+    for (int i = 0; i < tuple.length; i++) {
+      int length = ByteConverter.int4(rowSlab, pos);
+      pos += 4;
+      if (length >= 0) {
+        tuple[i] = Arrays.copyOfRange(rowSlab, pos, pos + length);
+        pos += length;
+      }
+    }
+    return tuple;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public byte[][] set(int index, byte[][] tuple) {
+    byte[][] previous = get(index);
+    rowSlabs[index] = null;
+    tuples()[index] = tuple;
+    return previous;
+  }
+
+  @Override
+  public void add(int index, byte[][] tuple) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    insert(index, null, 0, tuple);
+  }
+
+  @Override
+  public byte[][] remove(int index) {
+    byte[][] previous = get(index);
+    int moved = size - index - 1;
+    System.arraycopy(rowSlabs, index + 1, rowSlabs, index, moved);
+    System.arraycopy(rowOffsets, index + 1, rowOffsets, index, moved);
+    if (rowTuples != null) {
+      System.arraycopy(rowTuples, index + 1, rowTuples, index, moved);
+      rowTuples[size - 1] = null;
+    }
+    rowSlabs[--size] = null;
+    modCount++;
+    return previous;
+  }
+
+  private void insert(int index, byte[] rowSlab, int offset, byte[][] tuple) {
+    if (size == rowSlabs.length) {
+      int capacity = size * 2;
+      rowSlabs = Arrays.copyOf(rowSlabs, capacity);
+      rowOffsets = Arrays.copyOf(rowOffsets, capacity);
+      if (rowTuples != null) {
+        rowTuples = Arrays.copyOf(rowTuples, capacity);
+      }
+    }
+    int moved = size - index;
+    System.arraycopy(rowSlabs, index, rowSlabs, index + 1, moved);
+    System.arraycopy(rowOffsets, index, rowOffsets, index + 1, moved);
+    if (rowTuples != null) {
+      System.arraycopy(rowTuples, index, rowTuples, index + 1, moved);
+      rowTuples[index] = null;
+    }
+    rowSlabs[index] = rowSlab;
+    rowOffsets[index] = offset;
+    if (tuple != null) {
+      tuples()[index] = tuple;
+    }
+    size++;
+    modCount++;
+  }
+
+  private byte[][][] tuples() {
+    if (rowTuples == null) {
+      rowTuples = new byte[rowSlabs.length][][];
+    }
+    return rowTuples;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+}
@@ -33,6 +33,12 @@ public class SocketFactoryFactory {
     // Socket factory
     String socketFactoryClassName = PGProperty.SOCKET_FACTORY.get(info);
     if (socketFactoryClassName == null) {
+      // Channels cannot connect through a SOCKS proxy
+      String socksProxy = System.getProperty("socksProxyHost");
+      if (PGProperty.SOCKET_CHANNEL.getBoolean(info)
+          && (socksProxy == null || socksProxy.trim().isEmpty())) {
+        return new ChannelSocketFactory();
+      }
       return SocketFactory.getDefault();
     }
     try {
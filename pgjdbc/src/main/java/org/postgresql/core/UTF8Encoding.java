@@ -8,6 +8,7 @@ package org.postgresql.core;
 import org.postgresql.util.GT;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 class UTF8Encoding extends Encoding {
   private static final int MIN_2_BYTES = 0x80;
@@ -15,7 +16,24 @@ class UTF8Encoding extends Encoding {
   private static final int MIN_4_BYTES = 0x10000;
   private static final int MAX_CODE_POINT = 0x10ffff;
 
-  private char[] decoderArray = new char[1024];
+  private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+  /**
+   * Largest scratch array kept for reuse. Longer values get a one-off array, so a single huge value
+   * does not pin memory in every thread that decoded one.
+   */
+  private static final int MAX_RETAINED_DECODER_ARRAY = 32768;
+
+  /**
+   * Scratch array for non-ASCII values. It is confined to the decoding thread, so one instance can
+   * be shared by any number of connections and threads without locking.
+   */
+  private static final ThreadLocal<char[]> DECODER_ARRAY = new ThreadLocal<char[]>() {
+    @Override
+    protected char[] initialValue() {
+      return new char[1024];
+    }
+  };
 
   UTF8Encoding(String jvmEncoding) {
     super(jvmEncoding);
@@ -67,12 +85,27 @@ class UTF8Encoding extends Encoding {
             actualLen, expectedLen, ch));
   }
 
+  private static char[] getDecoderArray(int length) {
+    char[] cdata = DECODER_ARRAY.get();
+    if (cdata.length < length) {
+      cdata = new char[length];
+      if (length <= MAX_RETAINED_DECODER_ARRAY) {
+        DECODER_ARRAY.set(cdata);
+      }
+    }
+    return cdata;
+  }
+
   /**
    * Custom byte[] -> String conversion routine for UTF-8 only. This is about twice as fast as using
    * the String(byte[],int,int,String) ctor, at least under JDK 1.4.2. The extra checks for illegal
    * representations add about 10-15% overhead, but they seem worth it given the number of SQL_ASCII
    * databases out there.
    *
+   * <p>Pure ASCII input, the common case for identifiers, numbers and dates, is detected up front
+   * and turned into a string without validation or a scratch array. The method holds no lock, so it
+   * can decode straight from a slice of a connection's receive buffer on any thread.</p>
+   *
    * @param data the array containing UTF8-encoded data
    * @param offset the offset of the first byte in {@code data} to decode from
    * @param length the number of bytes to decode
@@ -80,15 +113,23 @@ class UTF8Encoding extends Encoding {
    * @throws IOException if something goes wrong
    */
   @Override
-  public synchronized String decode(byte[] data, int offset, int length) throws IOException {
-    char[] cdata = decoderArray;
-    if (cdata.length < length) {
-      cdata = decoderArray = new char[length];
+  public String decode(byte[] data, int offset, int length) throws IOException {
+    int in = offset;
+    int end = length + offset;
+
+    while (in < end && data[in] >= 0) {
+      in++;
+    }
+    if (in == end) {
+      // ASCII is a subset of ISO-8859-1, which the JDK decodes with a plain copy
+      return new String(data, offset, length, ISO_8859_1);
     }
 
-    int in = offset;
+    char[] cdata = getDecoderArray(length);
     int out = 0;
-    int end = length + offset;
+    for (int i = offset; i < in; i++) {
+      cdata[out++] = (char) data[i];
+    }
 
     try {
       while (in < end) {
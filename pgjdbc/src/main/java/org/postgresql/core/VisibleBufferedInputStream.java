@@ -32,7 +32,7 @@ public class VisibleBufferedInputStream extends InputStream {
   /**
    * The wrapped input stream.
    */
-  private final InputStream wrapped;
+  private InputStream wrapped;
 
   /**
    * The buffer.
@@ -49,6 +49,11 @@ public class VisibleBufferedInputStream extends InputStream {
    */
   private int endIndex;
 
+  /**
+   * The size the buffer returns to once a message that needed a larger buffer was read.
+   */
+  private final AdaptiveBufferSize adaptiveSize;
+
   /**
    * Creates a new buffer around the given stream.
    *
@@ -56,8 +61,42 @@ public class VisibleBufferedInputStream extends InputStream {
    * @param bufferSize The initial size of the buffer.
    */
   public VisibleBufferedInputStream(InputStream in, int bufferSize) {
+    this(in, bufferSize, bufferSize);
+  }
+
+  /**
+   * Creates a new buffer around the given stream that grows while data arrives faster than it is
+   * read, up to the given maximum, and shrinks back once less data arrives. A buffer that had to
+   * grow further for a single large message is trimmed once the message was read.
+   *
+   * @param in The stream to buffer.
+   * @param bufferSize The initial and smallest size of the buffer.
+   * @param maxBufferSize The largest size the buffer grows to for the amount of data received.
+   */
+  public VisibleBufferedInputStream(InputStream in, int bufferSize, int maxBufferSize) {
     wrapped = in;
-    buffer = new byte[bufferSize < MINIMUM_READ ? MINIMUM_READ : bufferSize];
+    adaptiveSize = new AdaptiveBufferSize(Math.max(MINIMUM_READ, bufferSize), maxBufferSize);
+    buffer = new byte[adaptiveSize.get()];
+  }
+
+  /**
+   * Reads from another stream once the buffered data is read, which has to continue where the
+   * current stream stopped.
+   *
+   * @param in The stream to read from.
+   */
+  void setWrapped(InputStream in) {
+    wrapped = in;
+  }
+
+  /**
+   * Changes the limits of the buffer size. The buffer is resized the next time it is filled.
+   *
+   * @param bufferSize The initial and smallest size of the buffer.
+   * @param maxBufferSize The largest size the buffer grows to for the amount of data received.
+   */
+  void setBufferSizes(int bufferSize, int maxBufferSize) {
+    adaptiveSize.setLimits(Math.max(MINIMUM_READ, bufferSize), maxBufferSize);
   }
 
   /**
@@ -114,6 +153,17 @@ public class VisibleBufferedInputStream extends InputStream {
     return true;
   }
 
+  /**
+   * Tells whether {@link #ensureBytes} can make the given amount of bytes available without having
+   * to grow the buffer.
+   *
+   * @param n The amount of bytes
+   * @return true if n bytes fit in the current buffer
+   */
+  public boolean fitsBuffer(int n) {
+    return n + MINIMUM_READ < buffer.length;
+  }
+
   /**
    * Reads more bytes into the buffer.
    *
@@ -126,6 +176,11 @@ public class VisibleBufferedInputStream extends InputStream {
       index = 0;
       endIndex = 0;
     }
+    int size = adaptiveSize.get();
+    if (buffer.length != size && endIndex - index + wanted + MINIMUM_READ <= size) {
+      // Follow the adaptive size, or trim a buffer grown for one large message
+      resize(size);
+    }
     int canFit = buffer.length - endIndex;
     if (canFit < wanted) {
       // would the wanted bytes fit if we compacted the buffer
@@ -141,6 +196,7 @@ public class VisibleBufferedInputStream extends InputStream {
     if (read < 0) {
       return false;
     }
+    adaptiveSize.record(read);
     endIndex += read;
     return true;
   }
@@ -149,7 +205,14 @@ public class VisibleBufferedInputStream extends InputStream {
    * Doubles the size of the buffer.
    */
   private void doubleBuffer() {
-    byte[] buf = new byte[buffer.length * 2];
+    resize(buffer.length * 2);
+  }
+
+  /**
+   * Replaces the buffer with one of the given size that is large enough for the unread bytes.
+   */
+  private void resize(int size) {
+    byte[] buf = new byte[size];
     moveBufferTo(buf);
     buffer = buf;
   }
@@ -246,6 +309,13 @@ public class VisibleBufferedInputStream extends InputStream {
     return avail > 0 ? avail : wrapped.available();
   }
 
+  /**
+   * @return the number of bytes in the buffer that were not read yet
+   */
+  int getBufferedCount() {
+    return endIndex - index;
+  }
+
   /**
    * {@inheritDoc}
    */
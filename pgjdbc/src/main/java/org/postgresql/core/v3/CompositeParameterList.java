@@ -126,6 +126,11 @@ class CompositeParameterList implements V3ParameterList {
     }
   }
 
+  public String getTextValue(int index) throws SQLException {
+    int sub = findSubParam(index);
+    return subparams[sub].getTextValue(index - offsets[sub]);
+  }
+
   public ParameterList copy() {
     SimpleParameterList[] copySub = new SimpleParameterList[subparams.length];
     for (int sub = 0; sub < subparams.length; ++sub) {
@@ -90,9 +90,23 @@ public class ConnectionFactoryImpl extends ConnectionFactory {
 
     PGStream newStream = new PGStream(socketFactory, hostSpec, connectTimeout);
 
+    // Sizes of the buffers of the stream, applied before SSL or a channel replace its streams
+    int streamBufferSize = PGProperty.STREAM_BUFFER_SIZE.getInt(info);
+    if (streamBufferSize > 0) {
+      newStream.setBufferSizes(streamBufferSize,
+          PGProperty.STREAM_BUFFER_MAX_SIZE.getInt(info));
+    } else {
+      LOGGER.log(Level.WARNING, "Ignore invalid value for streamBufferSize: {0}", streamBufferSize);
+    }
+
     // Construct and send an ssl startup packet if requested.
     newStream = enableSSL(newStream, sslMode, info, connectTimeout);
 
+    // The channel is only used once it is known that no SSL socket wraps it
+    if (PGProperty.SOCKET_CHANNEL.getBoolean(info) && !newStream.useSocketChannel()) {
+      LOGGER.log(Level.FINE, "The socket has no channel, socketChannel is ignored");
+    }
+
     // Set the socket timeout if the "socketTimeout" property has been set.
     int socketTimeout = PGProperty.SOCKET_TIMEOUT.getInt(info);
     if (socketTimeout > 0) {
@@ -8,12 +8,15 @@ package org.postgresql.core.v3;
 import org.postgresql.copy.CopyDual;
 import org.postgresql.util.PSQLException;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Queue;
 
 public class CopyDualImpl extends CopyOperationImpl implements CopyDual {
   private Queue<byte[]> received = new LinkedList<byte[]>();
+  private int receivedOffset;
 
   public void writeToCopy(byte[] data, int off, int siz) throws SQLException {
     queryExecutor.writeToCopy(this, data, off, siz);
@@ -32,7 +35,7 @@ public class CopyDualImpl extends CopyOperationImpl implements CopyDual {
       queryExecutor.readFromCopy(this, true);
     }
 
-    return received.poll();
+    return pollReceived();
   }
 
   @Override
@@ -41,7 +44,38 @@ public class CopyDualImpl extends CopyOperationImpl implements CopyDual {
       queryExecutor.readFromCopy(this, block);
     }
 
-    return received.poll();
+    return pollReceived();
+  }
+
+  @Override
+  public int readFromCopy(ByteBuffer dst) throws SQLException {
+    if (!dst.hasRemaining()) {
+      return 0;
+    }
+    byte[] data;
+    while ((data = received.peek()) == null || receivedOffset == data.length) {
+      if (data != null) {
+        pollReceived();
+        continue;
+      }
+      queryExecutor.readFromCopy(this, true);
+      if (received.isEmpty()) {
+        return -1;
+      }
+    }
+    int len = Math.min(dst.remaining(), data.length - receivedOffset);
+    dst.put(data, receivedOffset, len);
+    receivedOffset += len;
+    return len;
+  }
+
+  private byte[] pollReceived() {
+    byte[] data = received.poll();
+    if (data != null && receivedOffset > 0) {
+      data = Arrays.copyOfRange(data, receivedOffset, data.length);
+    }
+    receivedOffset = 0;
+    return data;
   }
 
   @Override
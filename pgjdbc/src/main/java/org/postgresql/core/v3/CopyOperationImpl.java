@@ -41,8 +41,11 @@ public abstract class CopyOperationImpl implements CopyOperation {
   }
 
   public boolean isActive() {
-    synchronized (queryExecutor) {
+    queryExecutor.getLock().lock();
+    try {
       return queryExecutor.hasLock(this);
+    } finally {
+      queryExecutor.getLock().unlock();
     }
   }
 
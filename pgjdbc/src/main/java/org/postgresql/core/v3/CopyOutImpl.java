@@ -7,6 +7,7 @@ package org.postgresql.core.v3;
 
 import org.postgresql.copy.CopyOut;
 
+import java.nio.ByteBuffer;
 import java.sql.SQLException;
 
 /**
@@ -25,6 +26,15 @@ import java.sql.SQLException;
  */
 public class CopyOutImpl extends CopyOperationImpl implements CopyOut {
   private byte[] currentDataRow;
+  /**
+   * Set while {@link #readFromCopy(ByteBuffer)} waits for a message, the payload of a CopyData
+   * message is then left in the stream.
+   */
+  boolean receiveInPlace;
+  /**
+   * Bytes of the current CopyData message that are still in the stream.
+   */
+  int pendingDataLength;
 
   public byte[] readFromCopy() throws SQLException {
     return readFromCopy(true);
@@ -37,6 +47,11 @@ public class CopyOutImpl extends CopyOperationImpl implements CopyOut {
     return currentDataRow;
   }
 
+  @Override
+  public int readFromCopy(ByteBuffer dst) throws SQLException {
+    return queryExecutor.readFromCopy(this, dst);
+  }
+
   protected void handleCopydata(byte[] data) {
     currentDataRow = data;
   }
@@ -28,6 +28,8 @@ import org.postgresql.core.ResultCursor;
 import org.postgresql.core.ResultHandler;
 import org.postgresql.core.ResultHandlerBase;
 import org.postgresql.core.ResultHandlerDelegate;
+import org.postgresql.core.SlabPool;
+import org.postgresql.core.SlabRows;
 import org.postgresql.core.SqlCommand;
 import org.postgresql.core.SqlCommandType;
 import org.postgresql.core.TransactionState;
@@ -49,19 +51,24 @@ import java.lang.ref.ReferenceQueue;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -129,6 +136,11 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     super(pgStream, user, database, cancelSignalTimeout, info);
 
     this.allowEncodingChanges = PGProperty.ALLOW_ENCODING_CHANGES.getBoolean(info);
+    this.binaryTransferAdaptive = PGProperty.BINARY_TRANSFER_ADAPTIVE.getBoolean(info);
+    this.receiveWhileSending = PGProperty.RECEIVE_WHILE_SENDING.getBoolean(info);
+    this.receiveWhileSendingLimit =
+        Math.max(1, PGProperty.RECEIVE_WHILE_SENDING_LIMIT.getInt(info));
+    this.slabPool = "slabs".equals(PGProperty.ROW_STORAGE.get(info)) ? new SlabPool() : null;
     this.replicationProtocol = new V3ReplicationProtocol(this, pgStream);
     readStartupMessages();
   }
@@ -139,14 +151,14 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   }
 
   /**
-   * <p>Supplement to synchronization of public methods on current QueryExecutor.</p>
+   * <p>Supplement to the {@link #getLock() lock} that public methods of the QueryExecutor hold.</p>
    *
    * <p>Necessary for keeping the connection intact between calls to public methods sharing a state
    * such as COPY subprotocol. waitOnLock() must be called at beginning of each connection access
    * point.</p>
    *
-   * <p>Public methods sharing that state must then be synchronized among themselves. Normal method
-   * synchronization typically suffices for that.</p>
+   * <p>Public methods sharing that state must then hold the lock of the QueryExecutor, which
+   * typically suffices for that.</p>
    *
    * <p>See notes on related methods as well as currentCopy() below.</p>
    */
@@ -180,17 +192,50 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           PSQLState.OBJECT_NOT_IN_STATE);
     }
     lockedFor = null;
-    this.notify();
+    lockCondition.signal();
   }
 
   /**
-   * Wait until our lock is released. Execution of a single synchronized method can then continue
-   * without further ado. Must be called at beginning of each synchronized public method.
+   * Wait until our lock is released. Execution of a single method holding the lock can then
+   * continue without further ado. Must be called at beginning of each public method that uses the
+   * connection.
    */
   private void waitOnLock() throws PSQLException {
+    waitForUnlock();
+    finishActiveStream();
+    readPipelinedResults(null);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * <p>A BEGIN may have been sent along with a query whose results are not read yet, a streamed
+   * result or a pipelined query. Those results are read first, as the state is only known from the
+   * ReadyForQuery after them. A COPY in progress is not interrupted.</p>
+   */
+  @Override
+  public TransactionState getTransactionState() {
+    lock.lock();
+    try {
+      if (lockedFor == null) {
+        try {
+          finishActiveStream();
+        } catch (PSQLException e) {
+          // The connection was aborted, using it reports that
+          LOGGER.log(Level.FINE, "Unable to finish the streamed result", e);
+        }
+        readPipelinedResults(null);
+      }
+      return getLastTransactionState();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void waitForUnlock() throws PSQLException {
     while (lockedFor != null) {
       try {
-        this.wait();
+        lockCondition.await();
       } catch (InterruptedException ie) {
         Thread.currentThread().interrupt();
         throw new PSQLException(
@@ -269,83 +314,101 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     }
   }
 
-  public synchronized void execute(Query query, ParameterList parameters, ResultHandler handler,
+  public void execute(Query query, ParameterList parameters, ResultHandler handler,
       int maxRows, int fetchSize, int flags) throws SQLException {
-    waitOnLock();
-    if (LOGGER.isLoggable(Level.FINEST)) {
-      LOGGER.log(Level.FINEST, "  simple execute, handler={0}, maxRows={1}, fetchSize={2}, flags={3}",
-          new Object[]{handler, maxRows, fetchSize, flags});
-    }
+    lock.lock();
+    try {
+      waitOnLock();
+      if (LOGGER.isLoggable(Level.FINEST)) {
+        LOGGER.log(Level.FINEST, "  simple execute, handler={0}, maxRows={1}, fetchSize={2}, flags={3}",
+            new Object[]{handler, maxRows, fetchSize, flags});
+      }
 
-    if (parameters == null) {
-      parameters = SimpleQuery.NO_PARAMETERS;
-    }
+      if (parameters == null) {
+        parameters = SimpleQuery.NO_PARAMETERS;
+      }
 
-    flags = updateQueryMode(flags);
+      flags = updateQueryMode(flags);
 
-    boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
+      boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
+      int streamFetchSize = fetchSize > 0 && canStreamResults(query, flags) ? fetchSize : 0;
 
-    ((V3ParameterList) parameters).convertFunctionOutParameters();
+      ((V3ParameterList) parameters).convertFunctionOutParameters();
 
-    // Check parameters are all set..
-    if (!describeOnly) {
-      ((V3ParameterList) parameters).checkAllParametersSet();
-    }
+      // Check parameters are all set..
+      if (!describeOnly) {
+        ((V3ParameterList) parameters).checkAllParametersSet();
+      }
 
-    boolean autosave = false;
-    try {
+      boolean autosave = false;
       try {
-        handler = sendQueryPreamble(handler, flags);
-        autosave = sendAutomaticSavepoint(query, flags);
-        sendQuery(query, (V3ParameterList) parameters, maxRows, fetchSize, flags,
-            handler, null);
-        if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) != 0) {
-          // Sync message is not required for 'Q' execution as 'Q' ends with ReadyForQuery message
-          // on its own
-        } else {
+        try {
+          handler = sendQueryPreamble(handler, flags);
+          autosave = sendAutomaticSavepoint(query, flags);
+          sendQuery(query, (V3ParameterList) parameters, maxRows, fetchSize, flags,
+              handler, null);
+          if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) != 0) {
+            // Sync message is not required for 'Q' execution as 'Q' ends with ReadyForQuery message
+            // on its own
+          } else {
+            sendSync();
+          }
+          processResults(handler, flags, streamFetchSize);
+          estimatedReceiveBufferBytes = 0;
+        } catch (PGBindException se) {
+          // There are three causes of this error, an
+          // invalid total Bind message length, a
+          // BinaryStream that cannot provide the amount
+          // of data claimed by the length argument, and
+          // a BinaryStream that throws an Exception
+          // when reading.
+          //
+          // We simply do not send the Execute message
+          // so we can just continue on as if nothing
+          // has happened. Perhaps we need to
+          // introduce an error here to force the
+          // caller to rollback if there is a
+          // transaction in progress?
+          //
           sendSync();
+          processResults(handler, flags);
+          estimatedReceiveBufferBytes = 0;
+          handler.handleError(
+              new PSQLException(GT.tr("Unable to bind parameter values for statement."),
+                  PSQLState.INVALID_PARAMETER_VALUE, se.getIOException()));
         }
-        processResults(handler, flags);
-        estimatedReceiveBufferBytes = 0;
-      } catch (PGBindException se) {
-        // There are three causes of this error, an
-        // invalid total Bind message length, a
-        // BinaryStream that cannot provide the amount
-        // of data claimed by the length argument, and
-        // a BinaryStream that throws an Exception
-        // when reading.
-        //
-        // We simply do not send the Execute message
-        // so we can just continue on as if nothing
-        // has happened. Perhaps we need to
-        // introduce an error here to force the
-        // caller to rollback if there is a
-        // transaction in progress?
-        //
-        sendSync();
-        processResults(handler, flags);
-        estimatedReceiveBufferBytes = 0;
-        handler
-            .handleError(new PSQLException(GT.tr("Unable to bind parameter values for statement."),
-                PSQLState.INVALID_PARAMETER_VALUE, se.getIOException()));
+      } catch (IOException e) {
+        abort();
+        handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
       }
-    } catch (IOException e) {
-      abort();
-      handler.handleError(
-          new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
-              PSQLState.CONNECTION_FAILURE, e));
-    }
 
-    try {
-      handler.handleCompletion();
-    } catch (SQLException e) {
-      rollbackIfRequired(autosave, e);
+      try {
+        handler.handleCompletion();
+      } catch (SQLException e) {
+        rollbackIfRequired(autosave, e);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
+  /**
+   * Streaming hands the result set a cursor before ReadyForQuery arrives, so it is only done when
+   * nothing else in the same round trip produces results the statement still has to see.
+   */
+  private boolean canStreamResults(Query query, int flags) {
+    return (flags & QUERY_STREAM_RESULTS) != 0
+        && (flags & (QUERY_EXECUTE_AS_SIMPLE | QUERY_DESCRIBE_ONLY | QUERY_NO_RESULTS
+            | QUERY_BOTH_ROWS_AND_STATUS | QUERY_FORWARD_CURSOR)) == 0
+        && query.getSubqueries() == null
+        && getAutoSave() == AutoSave.NEVER;
+  }
+
   private boolean sendAutomaticSavepoint(Query query, int flags) throws IOException {
     if (((flags & QueryExecutor.QUERY_SUPPRESS_BEGIN) == 0
-        || getTransactionState() == TransactionState.OPEN)
+        || getLastTransactionState() == TransactionState.OPEN)
         && query != restoreToAutoSave
         && getAutoSave() != AutoSave.NEVER
         // If query has no resulting fields, it cannot fail with 'cached plan must not change result type'
@@ -366,7 +429,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
   private void rollbackIfRequired(boolean autosave, SQLException e) throws SQLException {
     if (autosave
-        && getTransactionState() == TransactionState.FAILED
+        && getLastTransactionState() == TransactionState.FAILED
         && (getAutoSave() == AutoSave.ALWAYS || willHealOnRetry(e))) {
       try {
         // ROLLBACK and AUTOSAVE are executed as simple always to overcome "statement no longer exists S_xx"
@@ -420,6 +483,13 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   //
   // See github issue #194 and #195 .
   //
+  // With receiveWhileSending, the pgStream starts a thread that reads from the server
+  // instead once the estimate reaches MAX_BUFFERED_RECV_BYTES. The thread keeps the
+  // responses in memory until processResults reads them, so the server never blocks
+  // on write and no Sync is forced, whatever the size of the results. The estimate only
+  // decides when to start the thread, so batches with small responses do without it.
+  // sendSync stops the thread: after a Sync, the driver reads until ReadyForQuery.
+  //
   // Assume 64k server->client buffering, which is extremely conservative. A typical
   // system will have 200kb or more of buffers for its receive buffers, and the sending
   // system will typically have the same on the send side, giving us 400kb or to work
@@ -430,71 +500,404 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   private static final int MAX_BUFFERED_RECV_BYTES = 64000;
   private static final int NODATA_QUERY_RESPONSE_SIZE_BYTES = 250;
 
-  public synchronized void execute(Query[] queries, ParameterList[] parameterLists,
+  public void execute(Query[] queries, ParameterList[] parameterLists,
       BatchResultHandler batchHandler, int maxRows, int fetchSize, int flags) throws SQLException {
-    waitOnLock();
-    if (LOGGER.isLoggable(Level.FINEST)) {
-      LOGGER.log(Level.FINEST, "  batch execute {0} queries, handler={1}, maxRows={2}, fetchSize={3}, flags={4}",
-          new Object[]{queries.length, batchHandler, maxRows, fetchSize, flags});
-    }
+    lock.lock();
+    try {
+      waitOnLock();
+      if (LOGGER.isLoggable(Level.FINEST)) {
+        LOGGER.log(Level.FINEST, "  batch execute {0} queries, handler={1}, maxRows={2}, fetchSize={3}, flags={4}",
+            new Object[]{queries.length, batchHandler, maxRows, fetchSize, flags});
+      }
 
-    flags = updateQueryMode(flags);
+      flags = updateQueryMode(flags);
 
-    boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
-    // Check parameters and resolve OIDs.
-    if (!describeOnly) {
-      for (ParameterList parameterList : parameterLists) {
-        if (parameterList != null) {
-          ((V3ParameterList) parameterList).checkAllParametersSet();
+      boolean describeOnly = (QUERY_DESCRIBE_ONLY & flags) != 0;
+      // Check parameters and resolve OIDs.
+      if (!describeOnly) {
+        for (ParameterList parameterList : parameterLists) {
+          if (parameterList != null) {
+            ((V3ParameterList) parameterList).checkAllParametersSet();
+          }
         }
       }
+
+      boolean autosave = false;
+      ResultHandler handler = batchHandler;
+      try {
+        handler = sendQueryPreamble(batchHandler, flags);
+        if (queries.length > 1
+            && (flags & (QUERY_ONESHOT | QUERY_DESCRIBE_ONLY | QUERY_EXECUTE_AS_SIMPLE)) == 0) {
+          // The savepoint has to precede the describe, which fails just like the executions
+          autosave = sendAutomaticSavepoint(queries[0], flags);
+          describeBatch(queries, parameterLists, handler, flags);
+        }
+        estimatedReceiveBufferBytes = 0;
+
+        if (handler.getException() == null) {
+          if (!autosave) {
+            // Once described, the statements might return rows and need a savepoint
+            autosave = sendAutomaticSavepoint(queries[0], flags);
+          }
+          for (int i = 0; i < queries.length; ++i) {
+            Query query = queries[i];
+            V3ParameterList parameters = (V3ParameterList) parameterLists[i];
+            if (parameters == null) {
+              parameters = SimpleQuery.NO_PARAMETERS;
+            }
+
+            sendQuery(query, parameters, maxRows, fetchSize, flags, handler, batchHandler);
+
+            if (handler.getException() != null) {
+              break;
+            }
+          }
+        }
+
+        if (handler.getException() == null) {
+          if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) != 0) {
+            // Sync message is not required for 'Q' execution as 'Q' ends with ReadyForQuery message
+            // on its own
+          } else {
+            sendSync();
+          }
+          processResults(handler, flags);
+          estimatedReceiveBufferBytes = 0;
+        }
+      } catch (IOException e) {
+        abort();
+        handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
+      }
+
+      try {
+        handler.handleCompletion();
+      } catch (SQLException e) {
+        rollbackIfRequired(autosave, e);
+      }
+    } finally {
+      lock.unlock();
     }
+  }
 
-    boolean autosave = false;
-    ResultHandler handler = batchHandler;
+  @Override
+  public boolean executePipelined(Query query, ParameterList parameters,
+      ResultHandler handler, int maxRows, int flags) throws SQLException {
+    lock.lock();
     try {
-      handler = sendQueryPreamble(batchHandler, flags);
-      autosave = sendAutomaticSavepoint(queries[0], flags);
-      estimatedReceiveBufferBytes = 0;
+      waitForUnlock();
+      finishActiveStream();
 
-      for (int i = 0; i < queries.length; ++i) {
-        Query query = queries[i];
-        V3ParameterList parameters = (V3ParameterList) parameterLists[i];
-        if (parameters == null) {
-          parameters = SimpleQuery.NO_PARAMETERS;
-        }
+      flags = updateQueryMode(flags);
+      if ((flags & (QUERY_EXECUTE_AS_SIMPLE | QUERY_DESCRIBE_ONLY | QUERY_STREAM_RESULTS
+          | QUERY_FORWARD_CURSOR)) != 0 || getAutoSave() != AutoSave.NEVER) {
+        return false;
+      }
+      if (LOGGER.isLoggable(Level.FINEST)) {
+        LOGGER.log(Level.FINEST, "  pipelined execute, handler={0}, maxRows={1}, flags={2}",
+            new Object[]{handler, maxRows, flags});
+      }
 
-        sendQuery(query, parameters, maxRows, fetchSize, flags, handler, batchHandler);
+      if (parameters == null) {
+        parameters = SimpleQuery.NO_PARAMETERS;
+      }
+      V3ParameterList v3Parameters = (V3ParameterList) parameters;
+      v3Parameters.convertFunctionOutParameters();
+      v3Parameters.checkAllParametersSet();
+
+      int responseSize = estimateResponseSize(query);
+      // An event loop receives all responses as they arrive, see startAsyncReceive. A
+      // notification reader stops receiving while its listeners are behind, so it does not count.
+      if (!pipelinedQueries.isEmpty() && !eventLoopReceive
+          && pipelineReceiveBufferBytes + responseSize >= MAX_BUFFERED_RECV_BYTES) {
+        LOGGER.log(Level.FINEST, "Reading pipelined results, receive buffer might be full");
+        readPipelinedResults(null);
+      }
+      if (!pipelinedQueries.isEmpty()) {
+        // The transaction state is only updated once the earlier results are read. If a BEGIN
+        // is needed, the first query of the pipeline has sent it.
+        flags |= QUERY_SUPPRESS_BEGIN;
+      }
+      // The fields of the query might change before the results are read
+      flags |= QUERY_FORCE_DESCRIBE_PORTAL;
 
-        if (handler.getException() != null) {
-          break;
+      PipelinedQuery pipelined = new PipelinedQuery(handler, flags);
+      pipelined.countFrom(this, -1);
+      try {
+        pipelined.handler = sendQueryPreamble(handler, flags);
+        try {
+          Query[] subqueries = query.getSubqueries();
+          if (subqueries == null) {
+            sendOneQuery((SimpleQuery) query, (SimpleParameterList) parameters, maxRows, 0, flags);
+          } else {
+            SimpleParameterList[] subparams = v3Parameters.getSubparams();
+            for (int i = 0; i < subqueries.length; ++i) {
+              SimpleParameterList subparam =
+                  subparams == null ? SimpleQuery.NO_PARAMETERS : subparams[i];
+              sendOneQuery((SimpleQuery) subqueries[i], subparam, maxRows, 0, flags);
+            }
+          }
+        } catch (PGBindException se) {
+          // The Execute is not sent, see execute(Query, ...)
+          pipelined.handler.handleError(
+              new PSQLException(GT.tr("Unable to bind parameter values for statement."),
+                  PSQLState.INVALID_PARAMETER_VALUE, se.getIOException()));
         }
+        sendSync();
+      } catch (IOException e) {
+        abort();
+        handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
+        return true;
       }
+      pipelined.countFrom(this, 1);
+      pipelinedQueries.add(pipelined);
+      pipelineReceiveBufferBytes += responseSize;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
 
-      if (handler.getException() == null) {
-        if ((flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) != 0) {
-          // Sync message is not required for 'Q' execution as 'Q' ends with ReadyForQuery message
-          // on its own
-        } else {
-          sendSync();
+  @Override
+  public void awaitPipelined(ResultHandler handler) throws SQLException {
+    lock.lock();
+    try {
+      waitForUnlock();
+      readPipelinedResults(handler);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean awaitPipelined(ResultHandler handler, long timeoutNanos)
+      throws SQLException, InterruptedException {
+    long deadline = System.nanoTime() + timeoutNanos;
+    if (!lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+      return false;
+    }
+    try {
+      while (lockedFor != null) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
         }
-        processResults(handler, flags);
-        estimatedReceiveBufferBytes = 0;
+        lockCondition.awaitNanos(remaining);
+      }
+      while (isPipelined(handler)) {
+        if (!awaitResponse(deadline - System.nanoTime())) {
+          return false;
+        }
+        readPipelinedResults(pipelinedQueries.peekFirst().owner);
       }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits for the next response to begin arriving.
+   *
+   * @param timeoutNanos how long to wait at most, the check is made once if it already elapsed
+   * @return false if nothing arrived in time
+   */
+  private boolean awaitResponse(long timeoutNanos) {
+    long millis = TimeUnit.NANOSECONDS.toMillis(timeoutNanos + 999999);
+    try {
+      return pgStream.awaitMessage((int) Math.max(1, Math.min(Integer.MAX_VALUE, millis)));
     } catch (IOException e) {
-      abort();
-      handler.handleError(
-          new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
-              PSQLState.CONNECTION_FAILURE, e));
+      // Reported when the results are read
+      return true;
+    }
+  }
+
+  @Override
+  public SocketChannel startAsyncReceive(Runnable responseListener) {
+    lock.lock();
+    try {
+      if (!pgStream.startPumping(responseListener, false)) {
+        return null;
+      }
+      asyncReceiveBase = readyForQueryCount;
+      eventLoopReceive = true;
+      return pgStream.getSocket().getChannel();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int receiveAsync(boolean wait) throws IOException {
+    return pgStream.pump(wait);
+  }
+
+  @Override
+  public int readReceivedResults() {
+    lock.lock();
+    try {
+      // Every pipelined query ends with a ReadyForQuery, and synchronous operations read all of
+      // theirs before they release the connection. So if more ReadyForQuery messages were received
+      // than read, the first pipelined response is complete.
+      while (!pipelinedQueries.isEmpty() && lockedFor == null
+          && readyForQueryCount - asyncReceiveBase < pgStream.getPumpedResponses()) {
+        readPipelinedResults(pipelinedQueries.peekFirst().owner);
+      }
+      return pipelinedQueries.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void stopAsyncReceive() {
+    lock.lock();
+    try {
+      pgStream.stopPumping();
+      eventLoopReceive = false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean startNotificationReceive() {
+    lock.lock();
+    try {
+      return pgStream.startPumping(null, true);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void stopNotificationReceive() {
+    lock.lock();
+    try {
+      pgStream.stopPumping();
+    } finally {
+      lock.unlock();
     }
+  }
 
+  @Override
+  public void prepareQueries(Query[] queries, ParameterList[] parameterLists,
+      ResultHandler handler) throws SQLException {
+    lock.lock();
     try {
+      waitOnLock();
+      int flags = updateQueryMode(QUERY_DESCRIBE_ONLY | QUERY_SUPPRESS_BEGIN);
+      if ((flags & QUERY_EXECUTE_AS_SIMPLE) != 0) {
+        // Nothing is prepared in simple query mode
+        return;
+      }
+      if (LOGGER.isLoggable(Level.FINEST)) {
+        LOGGER.log(Level.FINEST, "  prepare {0} queries, handler={1}",
+            new Object[]{queries.length, handler});
+      }
+
+      try {
+        handler = sendQueryPreamble(handler, flags);
+        estimatedReceiveBufferBytes = 0;
+        for (int i = 0; i < queries.length; ++i) {
+          V3ParameterList parameters = (V3ParameterList) parameterLists[i];
+          if (parameters == null) {
+            parameters = SimpleQuery.NO_PARAMETERS;
+          }
+          sendQuery(queries[i], parameters, 0, 0, flags, handler, null);
+          if (handler.getException() != null) {
+            break;
+          }
+        }
+        if (handler.getException() == null) {
+          sendSync();
+          processResults(handler, flags);
+          estimatedReceiveBufferBytes = 0;
+        }
+      } catch (IOException e) {
+        abort();
+        handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
+      }
+
       handler.handleCompletion();
-    } catch (SQLException e) {
-      rollbackIfRequired(autosave, e);
+    } finally {
+      lock.unlock();
     }
   }
 
+  /**
+   * Reads the results of pipelined queries in the order they were sent.
+   *
+   * @param handler the handler of the last query to read results for, null for all of them
+   */
+  private void readPipelinedResults(ResultHandler handler) {
+    if (handler != null && !isPipelined(handler)) {
+      return;
+    }
+    while (!pipelinedQueries.isEmpty()) {
+      PipelinedQuery pipelined = pipelinedQueries.removeFirst();
+      try {
+        processResults(pipelined.handler, pipelined.flags);
+      } catch (IOException e) {
+        abort();
+        PSQLException error =
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e);
+        pipelined.handler.handleError(error);
+        for (PipelinedQuery remaining : pipelinedQueries) {
+          remaining.handler.handleError(error);
+        }
+        pipelinedQueries.clear();
+      }
+      if (pipelined.owner == handler) {
+        break;
+      }
+    }
+    if (pipelinedQueries.isEmpty()) {
+      pipelineReceiveBufferBytes = 0;
+    }
+  }
+
+  private boolean isPipelined(ResultHandler handler) {
+    for (PipelinedQuery pipelined : pipelinedQueries) {
+      if (pipelined.owner == handler) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Estimates the response size of a query the same way as
+   * {@link #flushIfDeadlockRisk(Query, boolean, ResultHandler, BatchResultHandler, int)}, a
+   * result of unknown size counts as a full receive buffer.
+   */
+  private static int estimateResponseSize(Query query) {
+    Query[] subqueries = query.getSubqueries();
+    if (subqueries == null) {
+      return estimateResponseSize((SimpleQuery) query);
+    }
+    long size = 0;
+    for (Query subquery : subqueries) {
+      size += estimateResponseSize((SimpleQuery) subquery);
+    }
+    return (int) Math.min(size, MAX_BUFFERED_RECV_BYTES);
+  }
+
+  private static int estimateResponseSize(SimpleQuery query) {
+    if (!query.isStatementDescribed()) {
+      return NODATA_QUERY_RESPONSE_SIZE_BYTES;
+    }
+    int maxResultRowSize = query.getMaxResultRowSize();
+    return NODATA_QUERY_RESPONSE_SIZE_BYTES
+        + (maxResultRowSize >= 0 ? maxResultRowSize : MAX_BUFFERED_RECV_BYTES);
+  }
+
   private ResultHandler sendQueryPreamble(final ResultHandler delegateHandler, int flags)
       throws IOException {
     // First, send CloseStatements for finalized SimpleQueries that had statement names assigned.
@@ -503,7 +906,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     // Send BEGIN on first statement in transaction.
     if ((flags & QueryExecutor.QUERY_SUPPRESS_BEGIN) != 0
-        || getTransactionState() != TransactionState.IDLE) {
+        || getLastTransactionState() != TransactionState.IDLE) {
       return delegateHandler;
     }
 
@@ -547,24 +950,29 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   // Fastpath
   //
 
-  public synchronized byte[] fastpathCall(int fnid, ParameterList parameters, boolean suppressBegin)
+  public byte[] fastpathCall(int fnid, ParameterList parameters, boolean suppressBegin)
       throws SQLException {
-    waitOnLock();
-    if (!suppressBegin) {
-      doSubprotocolBegin();
-    }
+    lock.lock();
     try {
-      sendFastpathCall(fnid, (SimpleParameterList) parameters);
-      return receiveFastpathResult();
-    } catch (IOException ioe) {
-      abort();
-      throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
-          PSQLState.CONNECTION_FAILURE, ioe);
+      waitOnLock();
+      if (!suppressBegin) {
+        doSubprotocolBegin();
+      }
+      try {
+        sendFastpathCall(fnid, (SimpleParameterList) parameters);
+        return receiveFastpathResult();
+      } catch (IOException ioe) {
+        abort();
+        throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
   public void doSubprotocolBegin() throws SQLException {
-    if (getTransactionState() == TransactionState.IDLE) {
+    if (getLastTransactionState() == TransactionState.IDLE) {
 
       LOGGER.log(Level.FINEST, "Issuing BEGIN before fastpath or copy call.");
 
@@ -657,8 +1065,13 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   }
 
   // Just for API compatibility with previous versions.
-  public synchronized void processNotifies() throws SQLException {
-    processNotifies(-1);
+  public void processNotifies() throws SQLException {
+    lock.lock();
+    try {
+      processNotifies(-1);
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -666,74 +1079,79 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    *                      when =0, block forever
    *                      when &lt; 0, don't block
    */
-  public synchronized void processNotifies(int timeoutMillis) throws SQLException {
-    waitOnLock();
-    // Asynchronous notifies only arrive when we are not in a transaction
-    if (getTransactionState() != TransactionState.IDLE) {
-      return;
-    }
-
-    if (hasNotifications()) {
-      // No need to timeout when there are already notifications. We just check for more in this case.
-      timeoutMillis = -1;
-    }
+  public void processNotifies(int timeoutMillis) throws SQLException {
+    lock.lock();
+    try {
+      waitOnLock();
+      // Asynchronous notifies only arrive when we are not in a transaction
+      if (getLastTransactionState() != TransactionState.IDLE) {
+        return;
+      }
 
-    boolean useTimeout = timeoutMillis > 0;
-    long startTime = 0;
-    int oldTimeout = 0;
-    if (useTimeout) {
-      startTime = System.currentTimeMillis();
-      try {
-        oldTimeout = pgStream.getSocket().getSoTimeout();
-      } catch (SocketException e) {
-        throw new PSQLException(GT.tr("An error occurred while trying to get the socket "
-          + "timeout."), PSQLState.CONNECTION_FAILURE, e);
+      if (hasNotifications()) {
+        // No need to timeout when there are already notifications. We just check for more in this case.
+        timeoutMillis = -1;
       }
-    }
 
-    try {
-      while (timeoutMillis >= 0 || pgStream.hasMessagePending()) {
-        if (useTimeout && timeoutMillis >= 0) {
-          setSocketTimeout(timeoutMillis);
-        }
-        int c = pgStream.receiveChar();
-        if (useTimeout && timeoutMillis >= 0) {
-          setSocketTimeout(0); // Don't timeout after first char
+      boolean useTimeout = timeoutMillis > 0;
+      long startTime = 0;
+      int oldTimeout = 0;
+      if (useTimeout) {
+        startTime = System.currentTimeMillis();
+        try {
+          oldTimeout = pgStream.getSocket().getSoTimeout();
+        } catch (SocketException e) {
+          throw new PSQLException(GT.tr("An error occurred while trying to get the socket "
+            + "timeout."), PSQLState.CONNECTION_FAILURE, e);
         }
-        switch (c) {
-          case 'A': // Asynchronous Notify
-            receiveAsyncNotify();
-            timeoutMillis = -1;
-            continue;
-          case 'E':
-            // Error Response (response to pretty much everything; backend then skips until Sync)
-            throw receiveErrorResponse();
-          case 'N': // Notice Response (warnings / info)
-            SQLWarning warning = receiveNoticeResponse();
-            addWarning(warning);
-            if (useTimeout) {
-              long newTimeMillis = System.currentTimeMillis();
-              timeoutMillis += startTime - newTimeMillis; // Overflows after 49 days, ignore that
-              startTime = newTimeMillis;
-              if (timeoutMillis == 0) {
-                timeoutMillis = -1; // Don't accidentially wait forever
+      }
+
+      try {
+        while (timeoutMillis >= 0 || pgStream.hasMessagePending()) {
+          if (useTimeout && timeoutMillis >= 0) {
+            setSocketTimeout(timeoutMillis);
+          }
+          int c = pgStream.receiveChar();
+          if (useTimeout && timeoutMillis >= 0) {
+            setSocketTimeout(0); // Don't timeout after first char
+          }
+          switch (c) {
+            case 'A': // Asynchronous Notify
+              receiveAsyncNotify();
+              timeoutMillis = -1;
+              continue;
+            case 'E':
+              // Error Response (response to pretty much everything; backend then skips until Sync)
+              throw receiveErrorResponse();
+            case 'N': // Notice Response (warnings / info)
+              SQLWarning warning = receiveNoticeResponse();
+              addWarning(warning);
+              if (useTimeout) {
+                long newTimeMillis = System.currentTimeMillis();
+                timeoutMillis += startTime - newTimeMillis; // Overflows after 49 days, ignore that
+                startTime = newTimeMillis;
+                if (timeoutMillis == 0) {
+                  timeoutMillis = -1; // Don't accidentially wait forever
+                }
               }
-            }
-            break;
-          default:
-            throw new PSQLException(GT.tr("Unknown Response Type {0}.", (char) c),
-                PSQLState.CONNECTION_FAILURE);
+              break;
+            default:
+              throw new PSQLException(GT.tr("Unknown Response Type {0}.", (char) c),
+                  PSQLState.CONNECTION_FAILURE);
+          }
+        }
+      } catch (SocketTimeoutException ioe) {
+        // No notifications this time...
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      } finally {
+        if (useTimeout) {
+          setSocketTimeout(oldTimeout);
         }
       }
-    } catch (SocketTimeoutException ioe) {
-      // No notifications this time...
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
-          PSQLState.CONNECTION_FAILURE, ioe);
-    } finally {
-      if (useTimeout) {
-        setSocketTimeout(oldTimeout);
-      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -822,28 +1240,33 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @return CopyIn or CopyOut operation object
    * @throws SQLException on failure
    */
-  public synchronized CopyOperation startCopy(String sql, boolean suppressBegin)
+  public CopyOperation startCopy(String sql, boolean suppressBegin)
       throws SQLException {
-    waitOnLock();
-    if (!suppressBegin) {
-      doSubprotocolBegin();
-    }
-    byte[] buf = Utils.encodeUTF8(sql);
-
+    lock.lock();
     try {
-      LOGGER.log(Level.FINEST, " FE=> Query(CopyStart)");
+      waitOnLock();
+      if (!suppressBegin) {
+        doSubprotocolBegin();
+      }
+      byte[] buf = Utils.encodeUTF8(sql);
+
+      try {
+        LOGGER.log(Level.FINEST, " FE=> Query(CopyStart)");
 
-      pgStream.sendChar('Q');
-      pgStream.sendInteger4(buf.length + 4 + 1);
-      pgStream.send(buf);
-      pgStream.sendChar(0);
-      pgStream.flush();
+        pgStream.sendChar('Q');
+        pgStream.sendInteger4(buf.length + 4 + 1);
+        pgStream.send(buf);
+        pgStream.sendChar(0);
+        pgStream.flush();
 
-      return processCopyResults(null, true);
-      // expect a CopyInResponse or CopyOutResponse to our query above
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when starting copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+        return processCopyResults(null, true);
+        // expect a CopyInResponse or CopyOutResponse to our query above
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when starting copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -855,18 +1278,23 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @throws SQLException on locking failure
    * @throws IOException on database connection failure
    */
-  private synchronized void initCopy(CopyOperationImpl op) throws SQLException, IOException {
-    pgStream.receiveInteger4(); // length not used
-    int rowFormat = pgStream.receiveChar();
-    int numFields = pgStream.receiveInteger2();
-    int[] fieldFormats = new int[numFields];
+  private void initCopy(CopyOperationImpl op) throws SQLException, IOException {
+    lock.lock();
+    try {
+      pgStream.receiveInteger4(); // length not used
+      int rowFormat = pgStream.receiveChar();
+      int numFields = pgStream.receiveInteger2();
+      int[] fieldFormats = new int[numFields];
 
-    for (int i = 0; i < numFields; i++) {
-      fieldFormats[i] = pgStream.receiveInteger2();
-    }
+      for (int i = 0; i < numFields; i++) {
+        fieldFormats[i] = pgStream.receiveInteger2();
+      }
 
-    lock(op);
-    op.init(this, rowFormat, fieldFormats);
+      lock(op);
+      op.init(this, rowFormat, fieldFormats);
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
@@ -886,7 +1314,8 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
     try {
       if (op instanceof CopyIn) {
-        synchronized (this) {
+        lock.lock();
+        try {
           LOGGER.log(Level.FINEST, "FE => CopyFail");
           final byte[] msg = Utils.encodeUTF8("Copy cancel requested");
           pgStream.sendChar('f'); // CopyFail
@@ -910,8 +1339,20 @@ public class QueryExecutorImpl extends QueryExecutorBase {
               error = se;
             }
           } while (hasLock(op));
+        } finally {
+          lock.unlock();
         }
       } else if (op instanceof CopyOut) {
+        if (op instanceof CopyOutImpl) {
+          lock.lock();
+          try {
+            // keep the stream at a message boundary for whoever reads next
+            pgStream.skip(((CopyOutImpl) op).pendingDataLength);
+            ((CopyOutImpl) op).pendingDataLength = 0;
+          } finally {
+            lock.unlock();
+          }
+        }
         sendQueryCancel();
       }
 
@@ -923,10 +1364,13 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       // future operations, rather than failing due to the
       // broken connection, will simply hang waiting for this
       // lock.
-      synchronized (this) {
+      lock.lock();
+      try {
         if (hasLock(op)) {
           unlock(op);
         }
+      } finally {
+        lock.unlock();
       }
     }
 
@@ -949,25 +1393,30 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @return number of rows updated for server versions 8.2 or newer
    * @throws SQLException on failure
    */
-  public synchronized long endCopy(CopyOperationImpl op) throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to end inactive copy"), PSQLState.OBJECT_NOT_IN_STATE);
-    }
-
+  public long endCopy(CopyOperationImpl op) throws SQLException {
+    lock.lock();
     try {
-      LOGGER.log(Level.FINEST, " FE=> CopyDone");
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to end inactive copy"), PSQLState.OBJECT_NOT_IN_STATE);
+      }
 
-      pgStream.sendChar('c'); // CopyDone
-      pgStream.sendInteger4(4);
-      pgStream.flush();
+      try {
+        LOGGER.log(Level.FINEST, " FE=> CopyDone");
 
-      do {
-        processCopyResults(op, true);
-      } while (hasLock(op));
-      return op.getHandledRowCount();
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when ending copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+        pgStream.sendChar('c'); // CopyDone
+        pgStream.sendInteger4(4);
+        pgStream.flush();
+
+        do {
+          processCopyResults(op, true);
+        } while (hasLock(op));
+        return op.getHandledRowCount();
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when ending copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -981,39 +1430,49 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @param siz number of bytes to send (usually data.length)
    * @throws SQLException on failure
    */
-  public synchronized void writeToCopy(CopyOperationImpl op, byte[] data, int off, int siz)
+  public void writeToCopy(CopyOperationImpl op, byte[] data, int off, int siz)
       throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
-          PSQLState.OBJECT_NOT_IN_STATE);
-    }
+    lock.lock();
+    try {
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
+            PSQLState.OBJECT_NOT_IN_STATE);
+      }
 
-    LOGGER.log(Level.FINEST, " FE=> CopyData({0})", siz);
+      LOGGER.log(Level.FINEST, " FE=> CopyData({0})", siz);
 
-    try {
-      pgStream.sendChar('d');
-      pgStream.sendInteger4(siz + 4);
-      pgStream.send(data, off, siz);
+      try {
+        pgStream.sendChar('d');
+        pgStream.sendInteger4(siz + 4);
+        pgStream.send(data, off, siz);
 
-      processCopyResults(op, false); // collect any pending notifications without blocking
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+        processCopyResults(op, false); // collect any pending notifications without blocking
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
-  public synchronized void flushCopy(CopyOperationImpl op) throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
-          PSQLState.OBJECT_NOT_IN_STATE);
-    }
-
+  public void flushCopy(CopyOperationImpl op) throws SQLException {
+    lock.lock();
     try {
-      pgStream.flush();
-      processCopyResults(op, false); // collect any pending notifications without blocking
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to write to an inactive copy operation"),
+            PSQLState.OBJECT_NOT_IN_STATE);
+      }
+
+      try {
+        pgStream.flush();
+        processCopyResults(op, false); // collect any pending notifications without blocking
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when writing to copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -1025,17 +1484,75 @@ public class QueryExecutorImpl extends QueryExecutorBase {
    * @param block whether to block waiting for input
    * @throws SQLException on any failure
    */
-  synchronized void readFromCopy(CopyOperationImpl op, boolean block) throws SQLException {
-    if (!hasLock(op)) {
-      throw new PSQLException(GT.tr("Tried to read from inactive copy"),
-          PSQLState.OBJECT_NOT_IN_STATE);
+  void readFromCopy(CopyOperationImpl op, boolean block) throws SQLException {
+    lock.lock();
+    try {
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to read from inactive copy"),
+            PSQLState.OBJECT_NOT_IN_STATE);
+      }
+
+      try {
+        if (op instanceof CopyOutImpl && ((CopyOutImpl) op).pendingDataLength > 0) {
+          // rest of a message partly read into a ByteBuffer
+          CopyOutImpl copyOut = (CopyOutImpl) op;
+          byte[] buf = pgStream.receive(copyOut.pendingDataLength);
+          copyOut.pendingDataLength = 0;
+          copyOut.handleCopydata(buf);
+          return;
+        }
+        processCopyResults(op, block); // expect a call to handleCopydata() to store the data
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when reading from copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
+    } finally {
+      lock.unlock();
     }
+  }
 
+  /**
+   * Transfers data received on an active copy operation into a buffer. The payload of each
+   * CopyData message is read from the receive buffer of the stream directly into {@code dst}, what
+   * does not fit stays in the stream for the next call.
+   *
+   * @param op the copy operation presumably currently holding lock on this connection
+   * @param dst buffer to store the data in
+   * @return number of bytes transferred, -1 at the end of the copy
+   * @throws SQLException on any failure
+   */
+  int readFromCopy(CopyOutImpl op, ByteBuffer dst) throws SQLException {
+    lock.lock();
     try {
-      processCopyResults(op, block); // expect a call to handleCopydata() to store the data
-    } catch (IOException ioe) {
-      throw new PSQLException(GT.tr("Database connection failed when reading from copy"),
-          PSQLState.CONNECTION_FAILURE, ioe);
+      if (!hasLock(op)) {
+        throw new PSQLException(GT.tr("Tried to read from inactive copy"),
+            PSQLState.OBJECT_NOT_IN_STATE);
+      }
+      if (!dst.hasRemaining()) {
+        return 0;
+      }
+
+      try {
+        while (op.pendingDataLength == 0) {
+          op.receiveInPlace = true;
+          try {
+            processCopyResults(op, true);
+          } finally {
+            op.receiveInPlace = false;
+          }
+          if (!hasLock(op)) {
+            return -1;
+          }
+        }
+        int len = pgStream.receive(dst, op.pendingDataLength);
+        op.pendingDataLength -= len;
+        return len;
+      } catch (IOException ioe) {
+        throw new PSQLException(GT.tr("Database connection failed when reading from copy"),
+            PSQLState.CONNECTION_FAILURE, ioe);
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -1167,6 +1684,12 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           LOGGER.log(Level.FINEST, " <=BE CopyData");
 
           len = pgStream.receiveInteger4() - 4;
+          if (op instanceof CopyOutImpl && ((CopyOutImpl) op).receiveInPlace) {
+            // the payload is transferred by readFromCopy(CopyOutImpl, ByteBuffer)
+            ((CopyOutImpl) op).pendingDataLength = len;
+            endReceiving = true;
+            break;
+          }
           byte[] buf = pgStream.receive(len);
           if (op == null) {
             error = new PSQLException(GT.tr("Got CopyData without an active copy operation"),
@@ -1253,6 +1776,61 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     return op;
   }
 
+  /**
+   * Parses and describes the distinct statements of a batch that are not described yet, all of
+   * them before a single Sync. The executions are sent afterwards, when the results they return
+   * are known, so a batch of several statements needs two round trips rather than one for each
+   * statement.
+   *
+   * <p>Each statement is described with the parameters of its first execution. Batches of a
+   * single execution gain nothing from it. The automatic savepoint is set before the describe.</p>
+   */
+  private void describeBatch(Query[] queries, ParameterList[] parameterLists,
+      ResultHandler handler, int flags) throws IOException {
+    Set<SimpleQuery> described =
+        Collections.newSetFromMap(new IdentityHashMap<SimpleQuery, Boolean>());
+    int describeFlags = flags | QUERY_DESCRIBE_ONLY;
+    for (int i = 0; i < queries.length; ++i) {
+      V3ParameterList parameters = (V3ParameterList) parameterLists[i];
+      if (parameters == null) {
+        parameters = SimpleQuery.NO_PARAMETERS;
+      }
+      Query[] subqueries = queries[i].getSubqueries();
+      if (subqueries == null) {
+        describeOnce((SimpleQuery) queries[i], (SimpleParameterList) parameters, described,
+            describeFlags);
+      } else {
+        SimpleParameterList[] subparams = parameters.getSubparams();
+        for (int j = 0; j < subqueries.length; ++j) {
+          SimpleParameterList subparam =
+              subparams == null ? SimpleQuery.NO_PARAMETERS : subparams[j];
+          describeOnce((SimpleQuery) subqueries[j], subparam, described, describeFlags);
+        }
+      }
+    }
+    if (described.isEmpty()) {
+      return;
+    }
+
+    LOGGER.log(Level.FINEST, "  describing {0} statements of the batch", described.size());
+    sendSync();
+    // The rows of a describe carry no data, only errors and the BEGIN matter here
+    processResults(new ResultHandlerDelegate(handler) {
+      @Override
+      public void handleResultRows(Query fromQuery, Field[] fields, List<byte[][]> tuples,
+          ResultCursor cursor) {
+      }
+    }, describeFlags);
+  }
+
+  private void describeOnce(SimpleQuery query, SimpleParameterList parameters,
+      Set<SimpleQuery> described, int flags) throws IOException {
+    if (query.isStatementDescribed() || query.isEmpty() || !described.add(query)) {
+      return;
+    }
+    sendOneQuery(query, parameters, 0, 0, flags);
+  }
+
   /*
    * To prevent client/server protocol deadlocks, we try to manage the estimated recv buffer size
    * and force a sync +flush and process results if we think it might be getting too full.
@@ -1263,6 +1841,29 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       ResultHandler resultHandler,
       BatchResultHandler batchHandler,
       final int flags) throws IOException {
+    if (receiveWhileSending && !disallowBatching
+        && (flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) == 0) {
+      // The responses sent so far might fill the buffer while this query is sent
+      if (!pgStream.isReceiving()) {
+        if (estimatedReceiveBufferBytes >= MAX_BUFFERED_RECV_BYTES) {
+          LOGGER.log(Level.FINEST, "Receiving in a separate thread, receive buffer might be full");
+          pgStream.startReceiving(receiveWhileSendingLimit);
+        } else {
+          estimatedReceiveBufferBytes += estimateResponseSize((SimpleQuery) query);
+        }
+      } else if (pgStream.isReceiveLimitReached()) {
+        LOGGER.log(Level.FINEST, "Forcing Sync, responses received in a separate thread reached "
+            + "the limit");
+        sendSync();
+        processResults(resultHandler, flags);
+        estimatedReceiveBufferBytes = 0;
+        if (batchHandler != null) {
+          batchHandler.secureProgress();
+        }
+      }
+      return;
+    }
+
     // Assume all statements need at least this much reply buffer space,
     // plus params
     estimatedReceiveBufferBytes += NODATA_QUERY_RESPONSE_SIZE_BYTES;
@@ -1360,6 +1961,9 @@ public class QueryExecutorImpl extends QueryExecutorBase {
   private void sendSync() throws IOException {
     LOGGER.log(Level.FINEST, " FE=> Sync");
 
+    if (receiveWhileSending) {
+      pgStream.stopReceiving();
+    }
     pgStream.sendChar('S'); // Sync
     pgStream.sendInteger4(4); // Length
     pgStream.flush();
@@ -1502,6 +2106,10 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       query.resetNeedUpdateFieldFormats();
       query.setHasBinaryFields(false);
     }
+    if (binaryTransferAdaptive && !noBinaryTransfer && fields != null
+        && !isExecutePending(query)) {
+      fields = adaptFieldFormats(query, fields);
+    }
 
     // This is not the number of binary fields, but the total number
     // of fields if any of them are binary or zero if all of them
@@ -1591,6 +2199,58 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     return useBinaryForReceive(oid);
   }
 
+  private boolean isExecutePending(SimpleQuery query) {
+    for (ExecuteRequest request : pendingExecuteQueue) {
+      if (request.query == query) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Picks the result format of each column from the way result sets of earlier executions read it,
+   * see {@link PGProperty#BINARY_TRANSFER_ADAPTIVE}. A column that has only been read with
+   * getString is received as text, as converting a binary value to a string costs more than
+   * sending the text. Other columns keep binary if their type supports it.
+   *
+   * <p>The fields of the query are shared with the result sets created from it, so when a format
+   * changes the query gets new field instances. This is only done when no earlier execute of the
+   * same query is waiting for its results, as those results are read with the fields of the
+   * query.</p>
+   *
+   * @param query the query being bound
+   * @param fields the current fields of the query
+   * @return the fields to bind the query with
+   */
+  private Field[] adaptFieldFormats(SimpleQuery query, Field[] fields) {
+    Field[] adapted = null;
+    boolean hasBinaryFields = false;
+    for (int i = 0; i < fields.length; ++i) {
+      Field field = fields[i];
+      boolean binary = useBinary(field) && field.getReadUsage() != Field.READ_AS_TEXT;
+      int format = binary ? Field.BINARY_FORMAT : Field.TEXT_FORMAT;
+      hasBinaryFields |= binary;
+      if (field.getFormat() != format) {
+        if (adapted == null) {
+          adapted = fields.clone();
+        }
+        adapted[i] = field.withFormat(format);
+      }
+    }
+    if (adapted == null) {
+      return fields;
+    }
+    if (LOGGER.isLoggable(Level.FINEST)) {
+      LOGGER.log(Level.FINEST, "  adapted result formats of {0}: {1}",
+          new Object[]{query.getStatementName(), Arrays.toString(adapted)});
+    }
+    query.setFields(adapted);
+    query.clearNeedUpdateFieldFormats();
+    query.setHasBinaryFields(hasBinaryFields);
+    return adapted;
+  }
+
   private void sendDescribePortal(SimpleQuery query, Portal portal) throws IOException {
     //
     // Send Describe.
@@ -1932,7 +2592,28 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     }
   }
 
+  /**
+   * @return a list for the rows of a result, see {@link PGProperty#ROW_STORAGE}
+   */
+  private List<byte[][]> newTuples() {
+    return slabPool != null ? new SlabRows(slabPool) : new ArrayList<byte[][]>();
+  }
+
   protected void processResults(ResultHandler handler, int flags) throws IOException {
+    processResults(handler, flags, 0);
+  }
+
+  /**
+   * Processes backend messages until ReadyForQuery.
+   *
+   * @param handler handler to report results to
+   * @param flags execution flags of the query
+   * @param streamFetchSize when positive, stop after this many data rows and hand them to the
+   *     handler together with a {@link StreamingCursor} for the rest of the result
+   * @throws IOException if a data I/O error occurs
+   */
+  private void processResults(ResultHandler handler, int flags, int streamFetchSize)
+      throws IOException {
     boolean noResults = (flags & QueryExecutor.QUERY_NO_RESULTS) != 0;
     boolean bothRowsAndStatus = (flags & QueryExecutor.QUERY_BOTH_ROWS_AND_STATUS) != 0;
 
@@ -2054,7 +2735,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           if (fields != null && tuples == null) {
             // When no results expected, pretend an empty resultset was returned
             // Not sure if new ArrayList can be always replaced with emptyList
-            tuples = noResults ? Collections.<byte[][]>emptyList() : new ArrayList<byte[][]>();
+            tuples = noResults ? Collections.<byte[][]>emptyList() : newTuples();
           }
 
           handler.handleResultRows(currentQuery, fields, tuples, currentPortal);
@@ -2104,7 +2785,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           if (fields != null && tuples == null) {
             // When no results expected, pretend an empty resultset was returned
             // Not sure if new ArrayList can be always replaced with emptyList
-            tuples = noResults ? Collections.<byte[][]>emptyList() : new ArrayList<byte[][]>();
+            tuples = noResults ? Collections.<byte[][]>emptyList() : newTuples();
           }
 
           // If we received tuples we must know the structure of the
@@ -2141,9 +2822,17 @@ public class QueryExecutorImpl extends QueryExecutorBase {
         }
 
         case 'D': // Data Transfer (ongoing Execute response)
+          if (!noResults && tuples == null) {
+            tuples = newTuples();
+          }
           byte[][] tuple = null;
+          int tupleLength = -1;
           try {
-            tuple = pgStream.receiveTupleV3();
+            if (!noResults && tuples instanceof SlabRows) {
+              tupleLength = pgStream.receiveTupleV3((SlabRows) tuples);
+            } else {
+              tuple = pgStream.receiveTupleV3();
+            }
           } catch (OutOfMemoryError oome) {
             if (!noResults) {
               handler.handleError(
@@ -2152,18 +2841,25 @@ public class QueryExecutorImpl extends QueryExecutorBase {
             }
           }
 
-
-          if (!noResults) {
-            if (tuples == null) {
-              tuples = new ArrayList<byte[][]>();
-            }
+          if (!noResults && !(tuples instanceof SlabRows)) {
             tuples.add(tuple);
           }
 
+          if (streamFetchSize > 0 && tuples != null && tuples.size() >= streamFetchSize) {
+            // Hand over what we have so far, the rest of the result stays on the wire
+            // until the cursor is fetched from or the connection is needed elsewhere.
+            SimpleQuery currentQuery = pendingExecuteQueue.peekFirst().query;
+            Field[] currentFields = currentQuery.getFields();
+            activeStream = new StreamingCursor(currentQuery, currentFields, flags, streamFetchSize);
+            LOGGER.log(Level.FINEST, " FE: suspending result after {0} rows", tuples.size());
+            handler.handleResultRows(currentQuery, currentFields, tuples, activeStream);
+            return;
+          }
+
           if (LOGGER.isLoggable(Level.FINEST)) {
             int length;
             if (tuple == null) {
-              length = -1;
+              length = tupleLength;
             } else {
               length = 0;
               for (byte[] aTuple : tuple) {
@@ -2225,7 +2921,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
 
         case 'T': // Row Description (response to Describe)
           Field[] fields = receiveFields();
-          tuples = new ArrayList<byte[][]>();
+          tuples = newTuples();
 
           SimpleQuery query = pendingDescribePortalQueue.peekFirst();
           if (!pendingExecuteQueue.isEmpty() && !pendingExecuteQueue.peekFirst().asSimple) {
@@ -2255,8 +2951,10 @@ public class QueryExecutorImpl extends QueryExecutorBase {
             executeRequest.query.setFields(null);
 
             pendingDescribePortalQueue.removeFirst();
-            if (!pendingExecuteQueue.isEmpty()) {
-              if (getTransactionState() == TransactionState.IDLE) {
+            // The Sync of a pipelined query ends its results, the rest belongs to later queries
+            if (!pendingExecuteQueue.isEmpty()
+                && (executeRequest.query != sync || pipelinedQueries.isEmpty())) {
+              if (getLastTransactionState() == TransactionState.IDLE) {
                 handler.secureProgress();
               }
               // process subsequent results (e.g. for cases like batched execution of simple 'Q' queries)
@@ -2265,28 +2963,38 @@ public class QueryExecutorImpl extends QueryExecutorBase {
           }
           endQuery = true;
 
+          // Requests of pipelined queries sent after this Sync are still to be answered
+          PipelinedQuery later = new PipelinedQuery(null, 0);
+          for (PipelinedQuery pipelined : pipelinedQueries) {
+            later.add(pipelined);
+          }
+
           // Reset the statement name of Parses that failed.
-          while (!pendingParseQueue.isEmpty()) {
+          while (pendingParseQueue.size() > later.parses) {
             SimpleQuery failedQuery = pendingParseQueue.removeFirst();
             failedQuery.unprepare();
           }
 
-          pendingParseQueue.clear(); // No more ParseComplete messages expected.
           // Pending "describe" requests might be there in case of error
           // If that is the case, reset "described" status, so the statement is properly
           // described on next execution
-          while (!pendingDescribeStatementQueue.isEmpty()) {
+          while (pendingDescribeStatementQueue.size() > later.describeStatements) {
             DescribeRequest request = pendingDescribeStatementQueue.removeFirst();
             LOGGER.log(Level.FINEST, " FE marking setStatementDescribed(false) for query {0}", request.query);
             request.query.setStatementDescribed(false);
           }
-          while (!pendingDescribePortalQueue.isEmpty()) {
+          while (pendingDescribePortalQueue.size() > later.describePortals) {
             SimpleQuery describePortalQuery = pendingDescribePortalQueue.removeFirst();
             LOGGER.log(Level.FINEST, " FE marking setPortalDescribed(false) for query {0}", describePortalQuery);
             describePortalQuery.setPortalDescribed(false);
           }
-          pendingBindQueue.clear(); // No more BindComplete messages expected.
-          pendingExecuteQueue.clear(); // No more query executions expected.
+          // No more BindComplete messages and query executions expected.
+          while (pendingBindQueue.size() > later.binds) {
+            pendingBindQueue.removeFirst();
+          }
+          while (pendingExecuteQueue.size() > later.executes) {
+            pendingExecuteQueue.removeFirst();
+          }
           break;
 
         case 'G': // CopyInResponse
@@ -2346,31 +3054,68 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     pgStream.skip(l_len - 4);
   }
 
-  public synchronized void fetch(ResultCursor cursor, ResultHandler handler, int fetchSize)
+  public void fetch(ResultCursor cursor, ResultHandler handler, int fetchSize)
       throws SQLException {
-    waitOnLock();
-    final Portal portal = (Portal) cursor;
-
-    // Insert a ResultHandler that turns bare command statuses into empty datasets
-    // (if the fetch returns no rows, we see just a CommandStatus..)
-    final ResultHandler delegateHandler = handler;
-    handler = new ResultHandlerDelegate(delegateHandler) {
-      public void handleCommandStatus(String status, int updateCount, long insertOID) {
-        handleResultRows(portal.getQuery(), null, new ArrayList<byte[][]>(), null);
+    lock.lock();
+    try {
+      if (cursor instanceof StreamingCursor) {
+        fetchStreamed((StreamingCursor) cursor, handler, fetchSize);
+        return;
       }
-    };
+      waitOnLock();
+      final Portal portal = (Portal) cursor;
+
+      // Insert a ResultHandler that turns bare command statuses into empty datasets
+      // (if the fetch returns no rows, we see just a CommandStatus..)
+      final ResultHandler delegateHandler = handler;
+      handler = new ResultHandlerDelegate(delegateHandler) {
+        public void handleCommandStatus(String status, int updateCount, long insertOID) {
+          handleResultRows(portal.getQuery(), null, new ArrayList<byte[][]>(), null);
+        }
+      };
 
-    // Now actually run it.
+      // Now actually run it.
 
-    try {
-      processDeadParsedQueries();
-      processDeadPortals();
+      try {
+        processDeadParsedQueries();
+        processDeadPortals();
 
-      sendExecute(portal.getQuery(), portal, fetchSize);
-      sendSync();
+        sendExecute(portal.getQuery(), portal, fetchSize);
+        sendSync();
 
-      processResults(handler, 0);
-      estimatedReceiveBufferBytes = 0;
+        processResults(handler, 0);
+        estimatedReceiveBufferBytes = 0;
+      } catch (IOException e) {
+        abort();
+        handler.handleError(
+            new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+                PSQLState.CONNECTION_FAILURE, e));
+      }
+
+      handler.handleCompletion();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void fetchStreamed(StreamingCursor cursor, ResultHandler handler, int fetchSize)
+      throws SQLException {
+    if (cursor != activeStream) {
+      // The connection was needed for something else in the meantime,
+      // so the rest of the result has already been read into the cursor.
+      handler.handleResultRows(cursor.getQuery(), cursor.getFields(), cursor.takeReadAhead(),
+          null);
+      if (cursor.getReadAheadError() != null) {
+        handler.handleError(cursor.getReadAheadError());
+      }
+      handler.handleCompletion();
+      return;
+    }
+
+    activeStream = null;
+    try {
+      processResults(handler, cursor.getFlags(),
+          fetchSize > 0 ? fetchSize : cursor.getFetchSize());
     } catch (IOException e) {
       abort();
       handler.handleError(
@@ -2381,6 +3126,47 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     handler.handleCompletion();
   }
 
+  /**
+   * Reads the rest of a streamed result off the wire, so the connection can be used for the next
+   * operation. The rows are kept by the cursor for its result set, or discarded if the result set
+   * has been closed already.
+   */
+  private void finishActiveStream() throws PSQLException {
+    final StreamingCursor stream = activeStream;
+    if (stream == null) {
+      return;
+    }
+    activeStream = null;
+
+    final boolean discard = stream.isClosed();
+    LOGGER.log(Level.FINEST, " FE: finishing streamed result {0}, discard={1}",
+        new Object[]{stream, discard});
+    ResultHandler handler = new ResultHandlerBase() {
+      @Override
+      public void handleResultRows(Query fromQuery, Field[] fields, List<byte[][]> tuples,
+          ResultCursor cursor) {
+        if (!discard) {
+          stream.addReadAhead(tuples);
+          if (tuples instanceof SlabRows) {
+            // the read ahead holds copies of the rows
+            ((SlabRows) tuples).release();
+          }
+        }
+      }
+    };
+    try {
+      processResults(handler,
+          discard ? stream.getFlags() | QueryExecutor.QUERY_NO_RESULTS : stream.getFlags());
+    } catch (IOException e) {
+      abort();
+      throw new PSQLException(GT.tr("An I/O error occurred while sending to the backend."),
+          PSQLState.CONNECTION_FAILURE, e);
+    }
+    if (!discard) {
+      stream.setReadAheadError(handler.getException());
+    }
+  }
+
   /*
    * Receive the field descriptions from the back end.
    */
@@ -2496,6 +3282,7 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     if (pgStream.receiveInteger4() != 5) {
       throw new IOException("unexpected length of ReadyForQuery message");
     }
+    readyForQueryCount++;
 
     char tStatus = (char) pgStream.receiveChar();
     if (LOGGER.isLoggable(Level.FINEST)) {
@@ -2670,6 +3457,16 @@ public class QueryExecutorImpl extends QueryExecutorBase {
     return applicationName;
   }
 
+  @Override
+  public int getDeallocateEpoch() {
+    lock.lock();
+    try {
+      return deallocateEpoch;
+    } finally {
+      lock.unlock();
+    }
+  }
+
   @Override
   public ReplicationProtocol getReplicationProtocol() {
     return replicationProtocol;
@@ -2712,8 +3509,89 @@ public class QueryExecutorImpl extends QueryExecutorBase {
       new ArrayDeque<DescribeRequest>();
   private final Deque<SimpleQuery> pendingDescribePortalQueue = new ArrayDeque<SimpleQuery>();
 
+  /**
+   * Queries sent by {@link #executePipelined} whose results have not been read yet, oldest first.
+   */
+  private final Deque<PipelinedQuery> pipelinedQueries = new ArrayDeque<PipelinedQuery>();
+
+  /**
+   * Estimated size of the responses to {@link #pipelinedQueries}, see MAX_BUFFERED_RECV_BYTES.
+   */
+  private int pipelineReceiveBufferBytes;
+
+  /**
+   * Number of ReadyForQuery messages read, and its value when {@link #startAsyncReceive} was
+   * called, to tell how many of the responses received by an event loop are still unread. The
+   * input is pumped by a notification reader as well, but only an event loop sets the flag.
+   */
+  private long readyForQueryCount;
+  private long asyncReceiveBase;
+  private boolean eventLoopReceive;
+
+  /**
+   * A pipelined query and the number of entries it added to each of the pending queues. The
+   * entries end with those of its Sync, so on ReadyForQuery everything in front of the entries of
+   * later queries belongs to it.
+   */
+  private static final class PipelinedQuery {
+    final ResultHandler owner;
+    final int flags;
+    ResultHandler handler;
+    int parses;
+    int describeStatements;
+    int describePortals;
+    int binds;
+    int executes;
+
+    PipelinedQuery(ResultHandler owner, int flags) {
+      this.owner = owner;
+      this.handler = owner;
+      this.flags = flags;
+    }
+
+    void countFrom(QueryExecutorImpl executor, int sign) {
+      parses += sign * executor.pendingParseQueue.size();
+      describeStatements += sign * executor.pendingDescribeStatementQueue.size();
+      describePortals += sign * executor.pendingDescribePortalQueue.size();
+      binds += sign * executor.pendingBindQueue.size();
+      executes += sign * executor.pendingExecuteQueue.size();
+    }
+
+    void add(PipelinedQuery other) {
+      parses += other.parses;
+      describeStatements += other.describeStatements;
+      describePortals += other.describePortals;
+      binds += other.binds;
+      executes += other.executes;
+    }
+  }
+
   private long nextUniqueID = 1;
   private final boolean allowEncodingChanges;
+  private final boolean binaryTransferAdaptive;
+
+  /**
+   * Whether batches start a receiver thread instead of forcing a Sync when the receive buffer might
+   * be full, see {@link PGProperty#RECEIVE_WHILE_SENDING}.
+   */
+  private final boolean receiveWhileSending;
+
+  /**
+   * Bytes the receiver thread of {@link #receiveWhileSending} queues before a Sync is forced, see
+   * {@link PGProperty#RECEIVE_WHILE_SENDING_LIMIT}.
+   */
+  private final int receiveWhileSendingLimit;
+
+  /**
+   * Slabs that rows are received into, null unless {@link PGProperty#ROW_STORAGE} is slabs.
+   */
+  private final SlabPool slabPool;
+
+  /**
+   * Streamed result whose remaining rows have not been read from the backend yet, see
+   * {@link QueryExecutor#QUERY_STREAM_RESULTS}. It must be finished before anything else is sent.
+   */
+  private StreamingCursor activeStream;
 
 
   /**
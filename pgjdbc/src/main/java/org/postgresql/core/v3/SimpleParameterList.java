@@ -15,12 +15,14 @@ import org.postgresql.geometric.PGpoint;
 import org.postgresql.jdbc.UUIDArrayAssistant;
 import org.postgresql.util.ByteConverter;
 import org.postgresql.util.GT;
+import org.postgresql.util.PGbytea;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
 import org.postgresql.util.StreamWrapper;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.Arrays;
 
@@ -194,6 +196,13 @@ class SimpleParameterList implements V3ParameterList {
           double d = ByteConverter.float8((byte[]) paramValues[index], 0);
           return Double.toString(d);
 
+        case Oid.NUMERIC:
+          Number n = ByteConverter.numeric((byte[]) paramValues[index]);
+          if (n instanceof BigDecimal) {
+            return "'" + ((BigDecimal) n).toPlainString() + "'::numeric";
+          }
+          return "'" + n.toString() + "'::numeric";
+
         case Oid.UUID:
           String uuid =
               new UUIDArrayAssistant().buildElement((byte[]) paramValues[index], 0, 16).toString();
@@ -250,6 +259,53 @@ class SimpleParameterList implements V3ParameterList {
     }
   }
 
+  @Override
+  public String getTextValue(int index) throws SQLException {
+    --index;
+    Object value = paramValues[index];
+    if (value == null) {
+      throw new PSQLException(GT.tr("No value specified for parameter {0}.", index + 1),
+          PSQLState.INVALID_PARAMETER_VALUE);
+    } else if (value == NULL_OBJECT) {
+      return null;
+    } else if (value instanceof String) {
+      return (String) value;
+    }
+
+    if (value instanceof StreamWrapper) {
+      StreamWrapper wrapper = (StreamWrapper) value;
+      if (paramTypes[index] == Oid.BYTEA && wrapper.getBytes() != null) {
+        int offset = wrapper.getOffset();
+        return PGbytea.toPGString(
+            Arrays.copyOfRange(wrapper.getBytes(), offset, offset + wrapper.getLength()));
+      }
+    } else if ((flags[index] & BINARY) == BINARY) {
+      byte[] bytes = (byte[]) value;
+      switch (paramTypes[index]) {
+        case Oid.INT2:
+          return Short.toString(ByteConverter.int2(bytes, 0));
+        case Oid.INT4:
+          return Integer.toString(ByteConverter.int4(bytes, 0));
+        case Oid.INT8:
+          return Long.toString(ByteConverter.int8(bytes, 0));
+        case Oid.FLOAT4:
+          return Float.toString(ByteConverter.float4(bytes, 0));
+        case Oid.FLOAT8:
+          return Double.toString(ByteConverter.float8(bytes, 0));
+        case Oid.NUMERIC:
+          Number n = ByteConverter.numeric(bytes);
+          return n instanceof BigDecimal ? ((BigDecimal) n).toPlainString() : n.toString();
+        case Oid.UUID:
+          return new UUIDArrayAssistant().buildElement(bytes, 0, 16).toString();
+        case Oid.BYTEA:
+          return PGbytea.toPGString(bytes);
+      }
+    }
+    throw new PSQLException(
+        GT.tr("The value of parameter {0} cannot be converted to text.", index + 1),
+        PSQLState.INVALID_PARAMETER_TYPE);
+  }
+
   @Override
   public void checkAllParametersSet() throws SQLException {
     for (int i = 0; i < paramTypes.length; ++i) {
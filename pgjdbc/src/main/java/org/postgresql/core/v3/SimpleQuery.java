@@ -251,6 +251,14 @@ class SimpleQuery implements Query {
     needUpdateFieldFormats = fields != null;
   }
 
+  /**
+   * Marks the field formats as adjusted, for fields that were set with their formats already
+   * matching the connection configuration.
+   */
+  void clearNeedUpdateFieldFormats() {
+    needUpdateFieldFormats = false;
+  }
+
   public boolean hasBinaryFields() {
     return hasBinaryFields;
   }
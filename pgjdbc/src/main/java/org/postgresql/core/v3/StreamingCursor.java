@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core.v3;
+
+import org.postgresql.core.Field;
+import org.postgresql.core.ResultCursor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cursor over the part of a streamed result that has not been handed to the result set yet. See
+ * {@link org.postgresql.core.QueryExecutor#QUERY_STREAM_RESULTS}.
+ *
+ * <p>While the cursor is the executor's active stream the remaining rows are still on the wire. If
+ * the connection is needed for anything else before the result set is exhausted, the executor
+ * reads the rest of the result into this cursor (or discards it when the cursor has been
+ * closed).</p>
+ */
+class StreamingCursor implements ResultCursor {
+  private final SimpleQuery query;
+  private final Field[] fields;
+  private final int flags;
+  private final int fetchSize;
+
+  private volatile boolean closed;
+  private List<byte[][]> readAhead;
+  private SQLException readAheadError;
+
+  StreamingCursor(SimpleQuery query, Field[] fields, int flags, int fetchSize) {
+    this.query = query;
+    this.fields = fields;
+    this.flags = flags;
+    this.fetchSize = fetchSize;
+  }
+
+  public void close() {
+    closed = true;
+    readAhead = null;
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  SimpleQuery getQuery() {
+    return query;
+  }
+
+  Field[] getFields() {
+    return fields;
+  }
+
+  int getFlags() {
+    return flags;
+  }
+
+  /**
+   * @return number of rows to hand over per fetch when the result set does not ask for a specific
+   *     amount
+   */
+  int getFetchSize() {
+    return fetchSize;
+  }
+
+  void addReadAhead(List<byte[][]> tuples) {
+    if (tuples == null) {
+      return;
+    }
+    if (readAhead == null) {
+      readAhead = new ArrayList<byte[][]>(tuples);
+    } else {
+      readAhead.addAll(tuples);
+    }
+  }
+
+  List<byte[][]> takeReadAhead() {
+    List<byte[][]> tuples = readAhead;
+    readAhead = null;
+    return tuples == null ? new ArrayList<byte[][]>() : tuples;
+  }
+
+  void setReadAheadError(SQLException readAheadError) {
+    this.readAheadError = readAheadError;
+  }
+
+  SQLException getReadAheadError() {
+    return readAheadError;
+  }
+
+  public String toString() {
+    return "StreamingCursor(" + query + ")";
+  }
+}
@@ -290,6 +290,54 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     }
   }
 
+  /**
+   * @return initial size of the buffers of protocol messages
+   * @see PGProperty#STREAM_BUFFER_SIZE
+   */
+  public int getStreamBufferSize() {
+    return PGProperty.STREAM_BUFFER_SIZE.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param nbytes initial size of the buffers of protocol messages
+   * @see PGProperty#STREAM_BUFFER_SIZE
+   */
+  public void setStreamBufferSize(int nbytes) {
+    PGProperty.STREAM_BUFFER_SIZE.set(properties, nbytes);
+  }
+
+  /**
+   * @return largest size the buffers of protocol messages grow to
+   * @see PGProperty#STREAM_BUFFER_MAX_SIZE
+   */
+  public int getStreamBufferMaxSize() {
+    return PGProperty.STREAM_BUFFER_MAX_SIZE.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param nbytes largest size the buffers of protocol messages grow to
+   * @see PGProperty#STREAM_BUFFER_MAX_SIZE
+   */
+  public void setStreamBufferMaxSize(int nbytes) {
+    PGProperty.STREAM_BUFFER_MAX_SIZE.set(properties, nbytes);
+  }
+
+  /**
+   * @return whether messages are exchanged through a SocketChannel and direct buffers
+   * @see PGProperty#SOCKET_CHANNEL
+   */
+  public boolean getSocketChannel() {
+    return PGProperty.SOCKET_CHANNEL.getBoolean(properties);
+  }
+
+  /**
+   * @param enabled whether messages are exchanged through a SocketChannel and direct buffers
+   * @see PGProperty#SOCKET_CHANNEL
+   */
+  public void setSocketChannel(boolean enabled) {
+    PGProperty.SOCKET_CHANNEL.set(properties, enabled);
+  }
+
   /**
    * @return receive buffer size
    * @see PGProperty#RECEIVE_BUFFER_SIZE
@@ -418,6 +466,22 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     return PGProperty.DEFAULT_ROW_FETCH_SIZE.getIntNoCheck(properties);
   }
 
+  /**
+   * @param streamResults whether forward-only result sets are streamed from the connection
+   * @see PGProperty#STREAM_RESULTS
+   */
+  public void setStreamResults(boolean streamResults) {
+    PGProperty.STREAM_RESULTS.set(properties, streamResults);
+  }
+
+  /**
+   * @return whether forward-only result sets are streamed from the connection
+   * @see PGProperty#STREAM_RESULTS
+   */
+  public boolean getStreamResults() {
+    return PGProperty.STREAM_RESULTS.getBoolean(properties);
+  }
+
   /**
    * @param unknownLength unknown length
    * @see PGProperty#UNKNOWN_LENGTH
@@ -760,6 +824,22 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     return PGProperty.BINARY_TRANSFER_DISABLE.get(properties);
   }
 
+  /**
+   * @param enabled whether result formats follow the getters used to read the columns
+   * @see PGProperty#BINARY_TRANSFER_ADAPTIVE
+   */
+  public void setBinaryTransferAdaptive(boolean enabled) {
+    PGProperty.BINARY_TRANSFER_ADAPTIVE.set(properties, enabled);
+  }
+
+  /**
+   * @return whether result formats follow the getters used to read the columns
+   * @see PGProperty#BINARY_TRANSFER_ADAPTIVE
+   */
+  public boolean getBinaryTransferAdaptive() {
+    return PGProperty.BINARY_TRANSFER_ADAPTIVE.getBoolean(properties);
+  }
+
   /**
    * @return string type
    * @see PGProperty#STRING_TYPE
@@ -1308,6 +1388,135 @@ public abstract class BaseDataSource implements CommonDataSource, Referenceable
     PGProperty.REWRITE_BATCHED_INSERTS.set(properties, reWrite);
   }
 
+  /**
+   * @see PGProperty#COPY_BATCHED_INSERTS
+   * @return boolean indicating property is enabled or not.
+   */
+  public boolean getCopyBatchedInserts() {
+    return PGProperty.COPY_BATCHED_INSERTS.getBoolean(properties);
+  }
+
+  /**
+   * @see PGProperty#COPY_BATCHED_INSERTS
+   * @param copy boolean value to set the property in the properties collection
+   */
+  public void setCopyBatchedInserts(boolean copy) {
+    PGProperty.COPY_BATCHED_INSERTS.set(properties, copy);
+  }
+
+  /**
+   * @see PGProperty#SHARED_QUERY_CACHE
+   * @return boolean indicating property is enabled or not.
+   */
+  public boolean getSharedQueryCache() {
+    return PGProperty.SHARED_QUERY_CACHE.getBoolean(properties);
+  }
+
+  /**
+   * @see PGProperty#SHARED_QUERY_CACHE
+   * @param shared boolean value to set the property in the properties collection
+   */
+  public void setSharedQueryCache(boolean shared) {
+    PGProperty.SHARED_QUERY_CACHE.set(properties, shared);
+  }
+
+  /**
+   * @return statements to prepare when the connection is opened
+   * @see PGProperty#PREPARE_ON_CONNECT
+   */
+  public String getPrepareOnConnect() {
+    return PGProperty.PREPARE_ON_CONNECT.get(properties);
+  }
+
+  /**
+   * @param statements statements to prepare when the connection is opened, separated by semicolons
+   * @see PGProperty#PREPARE_ON_CONNECT
+   */
+  public void setPrepareOnConnect(String statements) {
+    PGProperty.PREPARE_ON_CONNECT.set(properties, statements);
+  }
+
+  /**
+   * @return number of statements learned from other connections to prepare
+   * @see PGProperty#PREPARE_ON_CONNECT_LEARNED
+   */
+  public int getPrepareOnConnectLearned() {
+    return PGProperty.PREPARE_ON_CONNECT_LEARNED.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param count number of statements learned from other connections to prepare
+   * @see PGProperty#PREPARE_ON_CONNECT_LEARNED
+   */
+  public void setPrepareOnConnectLearned(int count) {
+    PGProperty.PREPARE_ON_CONNECT_LEARNED.set(properties, count);
+  }
+
+  /**
+   * @return whether the responses to large batches are read in a separate thread while sending
+   * @see PGProperty#RECEIVE_WHILE_SENDING
+   */
+  public boolean getReceiveWhileSending() {
+    return PGProperty.RECEIVE_WHILE_SENDING.getBoolean(properties);
+  }
+
+  /**
+   * @param enabled whether the responses to large batches are read in a separate thread while
+   *     sending
+   * @see PGProperty#RECEIVE_WHILE_SENDING
+   */
+  public void setReceiveWhileSending(boolean enabled) {
+    PGProperty.RECEIVE_WHILE_SENDING.set(properties, enabled);
+  }
+
+  /**
+   * @return number of bytes of responses kept in memory while a batch is sent
+   * @see PGProperty#RECEIVE_WHILE_SENDING_LIMIT
+   */
+  public int getReceiveWhileSendingLimit() {
+    return PGProperty.RECEIVE_WHILE_SENDING_LIMIT.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param limit number of bytes of responses kept in memory while a batch is sent
+   * @see PGProperty#RECEIVE_WHILE_SENDING_LIMIT
+   */
+  public void setReceiveWhileSendingLimit(int limit) {
+    PGProperty.RECEIVE_WHILE_SENDING_LIMIT.set(properties, limit);
+  }
+
+  /**
+   * @return number of notifications that may wait for delivery to notification listeners
+   * @see PGProperty#NOTIFICATION_QUEUE_SIZE
+   */
+  public int getNotificationQueueSize() {
+    return PGProperty.NOTIFICATION_QUEUE_SIZE.getIntNoCheck(properties);
+  }
+
+  /**
+   * @param size number of notifications that may wait for delivery to notification listeners
+   * @see PGProperty#NOTIFICATION_QUEUE_SIZE
+   */
+  public void setNotificationQueueSize(int size) {
+    PGProperty.NOTIFICATION_QUEUE_SIZE.set(properties, size);
+  }
+
+  /**
+   * @return how result rows are kept, arrays or slabs
+   * @see PGProperty#ROW_STORAGE
+   */
+  public String getRowStorage() {
+    return PGProperty.ROW_STORAGE.get(properties);
+  }
+
+  /**
+   * @param rowStorage how result rows are kept, arrays or slabs
+   * @see PGProperty#ROW_STORAGE
+   */
+  public void setRowStorage(String rowStorage) {
+    PGProperty.ROW_STORAGE.set(properties, rowStorage);
+  }
+
   //#if mvn.project.property.postgresql.jdbc.spec >= "JDBC4.1"
   public java.util.logging.Logger getParentLogger() {
     return Logger.getLogger("org.postgresql");
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import org.postgresql.PGProperty;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.ParameterList;
+import org.postgresql.util.GT;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sends the rows of a batched {@code INSERT INTO table (columns) VALUES ($1, ...)} with
+ * {@code COPY table (columns) FROM STDIN} in text format, see
+ * {@link PGProperty#COPY_BATCHED_INSERTS}.
+ */
+class BatchedInsertCopy {
+  /**
+   * Number of characters collected before they are written to the copy operation.
+   */
+  private static final int WRITE_CHUNK_CHARS = 32 * 1024;
+
+  private final String copySql;
+  /**
+   * 1-based parameter index of each column.
+   */
+  private final int[] parameters;
+
+  private BatchedInsertCopy(String copySql, int[] parameters) {
+    this.copySql = copySql;
+    this.parameters = parameters;
+  }
+
+  /**
+   * Checks if the given statement can be sent as COPY.
+   *
+   * @param nativeSql native sql of the statement, with $n placeholders
+   * @return the COPY for the statement, or null if the statement is not a plain INSERT of a single
+   *     row of placeholders into an explicit column list
+   */
+  static BatchedInsertCopy parse(String nativeSql) {
+    return new InsertParser(nativeSql).parse();
+  }
+
+  /**
+   * Converts the batch to the text values of the COPY rows.
+   *
+   * @param batch parameters of the batch entries
+   * @return values of the rows, or null if some value cannot be sent as text
+   */
+  String[][] toRows(ParameterList[] batch) {
+    String[][] rows = new String[batch.length][];
+    try {
+      for (int i = 0; i < batch.length; i++) {
+        String[] row = new String[parameters.length];
+        for (int c = 0; c < parameters.length; c++) {
+          row[c] = batch[i].getTextValue(parameters[c]);
+        }
+        rows[i] = row;
+      }
+    } catch (SQLException e) {
+      // unset parameters or streams, the regular execution deals with both
+      return null;
+    }
+    return rows;
+  }
+
+  /**
+   * Sends the rows with COPY.
+   *
+   * @param connection connection to use
+   * @param rows values as returned by {@link #toRows(ParameterList[])}
+   * @return update counts of the batch entries
+   * @throws BatchUpdateException if COPY fails, in which case no row is inserted
+   */
+  int[] execute(BaseConnection connection, String[][] rows) throws SQLException {
+    CopyIn copyIn = null;
+    try {
+      copyIn = connection.getCopyAPI().copyIn(copySql);
+      StringBuilder chunk = new StringBuilder(WRITE_CHUNK_CHARS + 1024);
+      for (String[] row : rows) {
+        for (int c = 0; c < row.length; c++) {
+          if (c > 0) {
+            chunk.append('\t');
+          }
+          appendValue(chunk, row[c]);
+        }
+        chunk.append('\n');
+        if (chunk.length() >= WRITE_CHUNK_CHARS) {
+          write(connection, copyIn, chunk);
+        }
+      }
+      write(connection, copyIn, chunk);
+      copyIn.endCopy();
+    } catch (SQLException e) {
+      if (copyIn != null && copyIn.isActive()) {
+        try {
+          copyIn.cancelCopy();
+        } catch (SQLException ignore) {
+          // the original failure is more interesting
+        }
+      }
+      int[] updateCounts = new int[rows.length];
+      Arrays.fill(updateCounts, Statement.EXECUTE_FAILED);
+      BatchUpdateException batchException = new BatchUpdateException(
+          GT.tr("Batch executed as {0} was aborted: {1}  Call getNextException to see other errors in the batch.",
+              copySql, e.getMessage()),
+          e.getSQLState(), updateCounts);
+      batchException.initCause(e);
+      batchException.setNextException(e);
+      throw batchException;
+    }
+    int[] updateCounts = new int[rows.length];
+    Arrays.fill(updateCounts, 1);
+    return updateCounts;
+  }
+
+  private static void write(BaseConnection connection, CopyIn copyIn, StringBuilder chunk)
+      throws SQLException {
+    if (chunk.length() > 0) {
+      byte[] bytes = connection.encodeString(chunk.toString());
+      copyIn.writeToCopy(bytes, 0, bytes.length);
+      chunk.setLength(0);
+    }
+  }
+
+  /**
+   * Appends a value escaped for the text format of COPY.
+   */
+  private static void appendValue(StringBuilder sb, String value) {
+    if (value == null) {
+      sb.append("\\N");
+      return;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      switch (ch) {
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        default:
+          sb.append(ch);
+      }
+    }
+  }
+
+  /**
+   * Recognizes {@code INSERT INTO name (column, ...) VALUES ($n, ...)}, optionally followed by a
+   * semicolon. Anything else (comments, expressions, RETURNING, ON CONFLICT, several rows) is
+   * rejected, such statements are executed as usual.
+   */
+  private static class InsertParser {
+    private final String sql;
+    private int pos;
+
+    InsertParser(String sql) {
+      this.sql = sql;
+    }
+
+    BatchedInsertCopy parse() {
+      if (!keyword("insert") || !keyword("into")) {
+        return null;
+      }
+      String table = qualifiedName();
+      if (table == null || !symbol('(')) {
+        return null;
+      }
+      List<String> columns = new ArrayList<String>();
+      do {
+        String column = identifier();
+        if (column == null) {
+          return null;
+        }
+        columns.add(column);
+      } while (symbol(','));
+      if (!symbol(')') || !keyword("values") || !symbol('(')) {
+        return null;
+      }
+      int[] parameters = new int[columns.size()];
+      boolean[] used = new boolean[columns.size()];
+      for (int c = 0; c < parameters.length; c++) {
+        if (c > 0 && !symbol(',')) {
+          return null;
+        }
+        int parameter = placeholder();
+        if (parameter < 1 || parameter > parameters.length || used[parameter - 1]) {
+          return null;
+        }
+        used[parameter - 1] = true;
+        parameters[c] = parameter;
+      }
+      if (!symbol(')')) {
+        return null;
+      }
+      symbol(';');
+      skipSpaces();
+      if (pos != sql.length()) {
+        return null;
+      }
+
+      StringBuilder copySql = new StringBuilder("COPY ").append(table).append(" (");
+      for (int c = 0; c < columns.size(); c++) {
+        if (c > 0) {
+          copySql.append(", ");
+        }
+        copySql.append(columns.get(c));
+      }
+      copySql.append(") FROM STDIN");
+      return new BatchedInsertCopy(copySql.toString(), parameters);
+    }
+
+    private void skipSpaces() {
+      while (pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+        pos++;
+      }
+    }
+
+    private boolean symbol(char ch) {
+      skipSpaces();
+      if (pos < sql.length() && sql.charAt(pos) == ch) {
+        pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private boolean keyword(String word) {
+      skipSpaces();
+      int end = pos + word.length();
+      if (sql.regionMatches(true, pos, word, 0, word.length())
+          && (end == sql.length() || !isIdentifierPart(sql.charAt(end)))) {
+        pos = end;
+        return true;
+      }
+      return false;
+    }
+
+    private String qualifiedName() {
+      StringBuilder name = new StringBuilder();
+      do {
+        String part = identifier();
+        if (part == null) {
+          return null;
+        }
+        if (name.length() > 0) {
+          name.append('.');
+        }
+        name.append(part);
+      } while (symbol('.'));
+      return name.toString();
+    }
+
+    /**
+     * @return the identifier as written, quotes included, or null if there is none
+     */
+    private String identifier() {
+      skipSpaces();
+      int start = pos;
+      if (pos < sql.length() && sql.charAt(pos) == '"') {
+        pos++;
+        while (pos < sql.length()) {
+          if (sql.charAt(pos++) == '"') {
+            if (pos < sql.length() && sql.charAt(pos) == '"') {
+              pos++;
+            } else {
+              return sql.substring(start, pos);
+            }
+          }
+        }
+        return null;
+      }
+      if (pos < sql.length() && isIdentifierStart(sql.charAt(pos))) {
+        pos++;
+        while (pos < sql.length() && isIdentifierPart(sql.charAt(pos))) {
+          pos++;
+        }
+        return sql.substring(start, pos);
+      }
+      return null;
+    }
+
+    /**
+     * @return the number of a $n placeholder, or -1 if there is none
+     */
+    private int placeholder() {
+      skipSpaces();
+      if (pos >= sql.length() || sql.charAt(pos) != '$') {
+        return -1;
+      }
+      int start = ++pos;
+      while (pos < sql.length() && Character.isDigit(sql.charAt(pos))) {
+        pos++;
+      }
+      if (pos == start || pos - start > 9) {
+        return -1;
+      }
+      return Integer.parseInt(sql.substring(start, pos));
+    }
+
+    private static boolean isIdentifierStart(char ch) {
+      return Character.isLetter(ch) || ch == '_' || ch > 127;
+    }
+
+    private static boolean isIdentifierPart(char ch) {
+      return isIdentifierStart(ch) || Character.isDigit(ch) || ch == '$';
+    }
+  }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import org.postgresql.PGNotification;
+import org.postgresql.PGNotificationListener;
+import org.postgresql.PGProperty;
+import org.postgresql.core.NotificationQueue;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.util.GT;
+import org.postgresql.util.PSQLException;
+import org.postgresql.util.PSQLState;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pushes the notifications of a connection to its listeners, see
+ * {@link PgConnection#addNotificationListener(PGNotificationListener, String...)}.
+ *
+ * <p>A reader thread waits for data while the connection is idle and lets the connection process
+ * the notifications in it. Every notification the connection receives, also while other threads
+ * execute statements, is queued, and a second thread delivers what is queued in one batch. While
+ * {@link PGProperty#NOTIFICATION_QUEUE_SIZE} notifications are waiting, the reader stops reading,
+ * so the server keeps further notifications instead of the driver. Notifications that other
+ * threads receive meanwhile are not queued either, the connection keeps them until the queue is
+ * empty again.</p>
+ *
+ * <p>The lock of the connection is always taken before the lock of the dispatcher, as the
+ * connection queues notifications while it holds its own lock.</p>
+ */
+class NotificationDispatcher implements NotificationQueue {
+  private static final Logger LOGGER = Logger.getLogger(NotificationDispatcher.class.getName());
+
+  private final QueryExecutor queryExecutor;
+  private final int queueSize;
+  private final List<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition queued = lock.newCondition();
+  private final Condition drained = lock.newCondition();
+  private final ArrayDeque<PGNotification> queue = new ArrayDeque<PGNotification>();
+  private int inDelivery;
+
+  /**
+   * Whether listeners are registered. The threads end once it is false and they are done: the
+   * reader when its current read returns, the delivering thread when the queue is empty.
+   */
+  private boolean active;
+  private boolean receiving;
+  private boolean reading;
+  private boolean delivering;
+
+  /**
+   * Whether the connection keeps notifications as the queue was full, see
+   * {@link #offer(PGNotification[])}.
+   */
+  private boolean overflowed;
+
+  NotificationDispatcher(QueryExecutor queryExecutor, int queueSize) {
+    this.queryExecutor = queryExecutor;
+    this.queueSize = Math.max(1, queueSize);
+  }
+
+  void addListener(PGNotificationListener listener, String[] channels) throws SQLException {
+    ReentrantLock connectionLock = queryExecutor.getLock();
+    connectionLock.lock();
+    try {
+      lock.lock();
+      try {
+        if (!receiving) {
+          if (!queryExecutor.startNotificationReceive()) {
+            throw new PSQLException(
+                GT.tr("Notification listeners cannot be added while an event loop uses the "
+                    + "connection."),
+                PSQLState.OBJECT_NOT_IN_STATE);
+          }
+          receiving = true;
+        }
+        if (!reading) {
+          reading = true;
+          start(new Reader(), "PostgreSQL-JDBC-NotificationReader");
+        }
+        if (!delivering) {
+          delivering = true;
+          start(new Deliverer(), "PostgreSQL-JDBC-NotificationDispatcher");
+        }
+        registrations.add(new Registration(listener, channels));
+        active = true;
+        queryExecutor.setNotificationQueue(this);
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      connectionLock.unlock();
+    }
+  }
+
+  /**
+   * Removes a listener. Once none is left, the reader is woken up, or ends once its wait for data
+   * times out if the socket has no channel, and the connection reads the socket itself again.
+   */
+  void removeListener(PGNotificationListener listener) {
+    ReentrantLock connectionLock = queryExecutor.getLock();
+    connectionLock.lock();
+    try {
+      lock.lock();
+      try {
+        for (Registration registration : registrations) {
+          if (registration.listener == listener) {
+            registrations.remove(registration);
+          }
+        }
+        if (registrations.isEmpty() && active) {
+          queryExecutor.setNotificationQueue(null);
+          stopReceiving();
+          deactivate();
+        }
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      connectionLock.unlock();
+    }
+  }
+
+  /**
+   * Removes all listeners of a connection that is about to be closed. The lock of the connection
+   * is not taken, a thread might still hold it.
+   */
+  void close() {
+    lock.lock();
+    try {
+      registrations.clear();
+      deactivate();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void deactivate() {
+    active = false;
+    overflowed = false;
+    queued.signalAll();
+    drained.signalAll();
+  }
+
+  private static void start(Runnable task, String name) {
+    Thread thread = new Thread(task, name);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Queues the notifications the connection received as far as fewer than the queue size are
+   * waiting for delivery. Called with the lock of the connection held, so it never waits for the
+   * queue to drain. The connection keeps the others, and the delivering thread lets it offer them
+   * again once the queue is empty.
+   */
+  @Override
+  public int offer(PGNotification[] notifications) {
+    lock.lock();
+    try {
+      int taken = Math.min(notifications.length,
+          Math.max(0, queueSize - queue.size() - inDelivery));
+      for (int i = 0; i < taken; i++) {
+        queue.addLast(notifications[i]);
+      }
+      if (taken < notifications.length) {
+        overflowed = true;
+      }
+      if (taken > 0) {
+        queued.signal();
+      }
+      return taken;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Lets the connection offer the notifications it kept while the queue was full.
+   */
+  private void resume() {
+    ReentrantLock connectionLock = queryExecutor.getLock();
+    connectionLock.lock();
+    try {
+      lock.lock();
+      try {
+        if (active && overflowed) {
+          overflowed = false;
+          queryExecutor.setNotificationQueue(this);
+          drained.signalAll();
+        }
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      connectionLock.unlock();
+    }
+  }
+
+  /**
+   * Waits until fewer notifications than the queue size are waiting for delivery, and the
+   * connection keeps none.
+   *
+   * @return false if no listeners are left
+   */
+  private boolean awaitRoom() {
+    lock.lock();
+    try {
+      while (active && (overflowed || queue.size() + inDelivery >= queueSize)) {
+        drained.awaitUninterruptibly();
+      }
+      return active;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Ends reading unless a listener was added meanwhile.
+   *
+   * @param failed whether the connection failed, which ends reading in any case
+   * @return true if reading ended
+   */
+  private boolean stopReading(boolean failed) {
+    ReentrantLock connectionLock = queryExecutor.getLock();
+    connectionLock.lock();
+    try {
+      lock.lock();
+      try {
+        if (active && !failed) {
+          return false;
+        }
+        stopReceiving();
+        reading = false;
+        if (failed && active) {
+          queryExecutor.setNotificationQueue(null);
+          deactivate();
+        }
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    } finally {
+      connectionLock.unlock();
+    }
+  }
+
+  private void stopReceiving() {
+    if (receiving) {
+      queryExecutor.stopNotificationReceive();
+      receiving = false;
+    }
+  }
+
+  private class Reader implements Runnable {
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          if (!awaitRoom() && stopReading(false)) {
+            return;
+          }
+          int count = queryExecutor.receiveAsync(true);
+          if (count < 0) {
+            break;
+          }
+          if (count > 0) {
+            queryExecutor.processNotifies();
+          }
+        }
+      } catch (IOException e) {
+        failed(e);
+      } catch (SQLException e) {
+        failed(e);
+      }
+      stopReading(true);
+    }
+
+    private void failed(Exception e) {
+      boolean listening;
+      lock.lock();
+      try {
+        listening = active;
+      } finally {
+        lock.unlock();
+      }
+      if (listening && !queryExecutor.isClosed()) {
+        LOGGER.log(Level.WARNING, "Notifications cannot be received anymore", e);
+      }
+    }
+  }
+
+  private class Deliverer implements Runnable {
+    @Override
+    public void run() {
+      while (true) {
+        PGNotification[] batch = null;
+        lock.lock();
+        try {
+          inDelivery = 0;
+          drained.signalAll();
+          while (queue.isEmpty() && !overflowed) {
+            if (!active) {
+              delivering = false;
+              return;
+            }
+            queued.awaitUninterruptibly();
+          }
+          if (!queue.isEmpty()) {
+            batch = queue.toArray(new PGNotification[queue.size()]);
+            queue.clear();
+            inDelivery = batch.length;
+          }
+        } finally {
+          lock.unlock();
+        }
+        if (batch == null) {
+          resume();
+        } else {
+          deliver(batch);
+        }
+      }
+    }
+
+    private void deliver(PGNotification[] batch) {
+      for (Registration registration : registrations) {
+        PGNotification[] selected = registration.select(batch);
+        if (selected.length == 0) {
+          continue;
+        }
+        try {
+          registration.listener.onNotifications(selected);
+        } catch (RuntimeException e) {
+          LOGGER.log(Level.WARNING, "Notification listener failed", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * A listener and the channels it wants the notifications of, all if it names none.
+   */
+  private static class Registration {
+    final PGNotificationListener listener;
+    final Set<String> channels;
+
+    Registration(PGNotificationListener listener, String[] channels) {
+      this.listener = listener;
+      this.channels = channels == null || channels.length == 0 ? null
+          : new HashSet<String>(Arrays.asList(channels));
+    }
+
+    PGNotification[] select(PGNotification[] batch) {
+      if (channels == null) {
+        return batch;
+      }
+      List<PGNotification> selected = new ArrayList<PGNotification>(batch.length);
+      for (PGNotification notification : batch) {
+        if (channels.contains(notification.getName())) {
+          selected.add(notification);
+        }
+      }
+      return selected.toArray(new PGNotification[selected.size()]);
+    }
+  }
+}
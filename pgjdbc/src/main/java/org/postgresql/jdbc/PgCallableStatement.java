@@ -87,9 +87,12 @@ class PgCallableStatement extends PgPreparedStatement implements CallableStateme
     }
 
     ResultSet rs;
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       rs = result.getResultSet();
+    } finally {
+      lock.unlock();
     }
     if (!rs.next()) {
       throw new PSQLException(GT.tr("A CallableStatement was executed with nothing returned."),
@@ -149,8 +152,11 @@ class PgCallableStatement extends PgPreparedStatement implements CallableStateme
 
     }
     rs.close();
-    synchronized (this) {
+    lock.lock();
+    try {
       result = null;
+    } finally {
+      lock.unlock();
     }
     return false;
   }
@@ -7,6 +7,7 @@ package org.postgresql.jdbc;
 
 import org.postgresql.Driver;
 import org.postgresql.PGNotification;
+import org.postgresql.PGNotificationListener;
 import org.postgresql.PGProperty;
 import org.postgresql.copy.CopyManager;
 import org.postgresql.core.BaseConnection;
@@ -37,6 +38,7 @@ import org.postgresql.util.PGBinaryObject;
 import org.postgresql.util.PGobject;
 import org.postgresql.util.PSQLException;
 import org.postgresql.util.PSQLState;
+import org.postgresql.util.SegmentedCache;
 
 import java.io.IOException;
 import java.sql.Array;
@@ -71,6 +73,8 @@ import java.util.TimeZone;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -116,6 +120,20 @@ public class PgConnection implements BaseConnection {
   // Default forcebinary option.
   protected boolean forcebinary = false;
 
+  /**
+   * Whether forward-only result sets are streamed from the connection.
+   *
+   * @see PGProperty#STREAM_RESULTS
+   */
+  private final boolean streamResults;
+
+  /**
+   * Whether result sets record how their columns are read.
+   *
+   * @see PGProperty#BINARY_TRANSFER_ADAPTIVE
+   */
+  private final boolean binaryTransferAdaptive;
+
   private int rsHoldability = ResultSet.CLOSE_CURSORS_AT_COMMIT;
   private int savepointId = 0;
   // Connection's autocommit state.
@@ -128,6 +146,9 @@ public class PgConnection implements BaseConnection {
 
   // Current warnings; there might be more on queryExecutor too.
   private SQLWarning firstWarning = null;
+  // Guards firstWarning. Not the monitor of the connection, so that waiting for it does not pin
+  // a virtual thread.
+  private final ReentrantLock warningLock = new ReentrantLock();
 
   // Timer for scheduling TimerTasks for this connection.
   // Only instantiated if a task is actually scheduled.
@@ -140,7 +161,11 @@ public class PgConnection implements BaseConnection {
    */
   private final boolean replicationConnection;
 
-  private final LruCache<FieldMetadata.Key, FieldMetadata> fieldMetadataCache;
+  private final SegmentedCache<FieldMetadata.Key, FieldMetadata> fieldMetadataCache;
+
+  private StatementWarmup statementWarmup;
+
+  private final NotificationDispatcher notificationDispatcher;
 
   final CachedQuery borrowQuery(String sql) throws SQLException {
     return queryExecutor.borrowQuery(sql);
@@ -165,6 +190,13 @@ public class PgConnection implements BaseConnection {
     queryExecutor.releaseQuery(cachedQuery);
   }
 
+  /**
+   * @return the statements to prepare in advance, or null if there are none
+   */
+  StatementWarmup getStatementWarmup() {
+    return statementWarmup;
+  }
+
   @Override
   public void setFlushCacheOnDeallocate(boolean flushCacheOnDeallocate) {
     queryExecutor.setFlushCacheOnDeallocate(flushCacheOnDeallocate);
@@ -185,6 +217,8 @@ public class PgConnection implements BaseConnection {
     this.creatingURL = url;
 
     setDefaultFetchSize(PGProperty.DEFAULT_ROW_FETCH_SIZE.getInt(info));
+    this.streamResults = PGProperty.STREAM_RESULTS.getBoolean(info);
+    this.binaryTransferAdaptive = PGProperty.BINARY_TRANSFER_ADAPTIVE.getBoolean(info);
 
     setPrepareThreshold(PGProperty.PREPARE_THRESHOLD.getInt(info));
     if (prepareThreshold == -1) {
@@ -193,6 +227,8 @@ public class PgConnection implements BaseConnection {
 
     // Now make the initial connection and set up local state
     this.queryExecutor = ConnectionFactory.openConnection(hostSpecs, user, database, info);
+    notificationDispatcher = new NotificationDispatcher(queryExecutor,
+        PGProperty.NOTIFICATION_QUEUE_SIZE.getInt(info));
 
     // WARNING for unsupported servers (8.1 and lower are not supported)
     if (LOGGER.isLoggable(Level.WARNING) && !haveMinimumServerVersion(ServerVersion.v8_2)) {
@@ -284,12 +320,18 @@ public class PgConnection implements BaseConnection {
       this._clientInfo.put("ApplicationName", appName);
     }
 
-    fieldMetadataCache = new LruCache<FieldMetadata.Key, FieldMetadata>(
+    fieldMetadataCache = new SegmentedCache<FieldMetadata.Key, FieldMetadata>(
             Math.max(0, PGProperty.DATABASE_METADATA_CACHE_FIELDS.getInt(info)),
-            Math.max(0, PGProperty.DATABASE_METADATA_CACHE_FIELDS_MIB.getInt(info) * 1024 * 1024),
-        false);
+            Math.max(0, PGProperty.DATABASE_METADATA_CACHE_FIELDS_MIB.getInt(info) * 1024 * 1024));
 
     replicationConnection = PGProperty.REPLICATION.get(info) != null;
+
+    if (!replicationConnection) {
+      statementWarmup = StatementWarmup.create(hostSpecs, user, database, info);
+      if (statementWarmup != null) {
+        statementWarmup.prepare(this);
+      }
+    }
   }
 
   private static Set<Integer> getBinaryOids(Properties info) throws PSQLException {
@@ -303,6 +345,7 @@ public class PgConnection implements BaseConnection {
       binaryOids.add(Oid.INT8);
       binaryOids.add(Oid.FLOAT4);
       binaryOids.add(Oid.FLOAT8);
+      binaryOids.add(Oid.NUMERIC);
       binaryOids.add(Oid.TIME);
       binaryOids.add(Oid.DATE);
       binaryOids.add(Oid.TIMETZ);
@@ -397,12 +440,16 @@ public class PgConnection implements BaseConnection {
    */
   public void addWarning(SQLWarning warn) {
     // Add the warning to the chain
-    if (firstWarning != null) {
-      firstWarning.setNextWarning(warn);
-    } else {
-      firstWarning = warn;
+    warningLock.lock();
+    try {
+      if (firstWarning != null) {
+        firstWarning.setNextWarning(warn);
+      } else {
+        firstWarning = warn;
+      }
+    } finally {
+      warningLock.unlock();
     }
-
   }
 
   @Override
@@ -664,6 +711,7 @@ public class PgConnection implements BaseConnection {
       return;
     }
     releaseTimer();
+    notificationDispatcher.close();
     queryExecutor.close();
     openStackTrace = null;
   }
@@ -677,23 +725,33 @@ public class PgConnection implements BaseConnection {
   }
 
   @Override
-  public synchronized SQLWarning getWarnings() throws SQLException {
+  public SQLWarning getWarnings() throws SQLException {
     checkClosed();
     SQLWarning newWarnings = queryExecutor.getWarnings(); // NB: also clears them.
-    if (firstWarning == null) {
-      firstWarning = newWarnings;
-    } else {
-      firstWarning.setNextWarning(newWarnings); // Chain them on.
-    }
+    warningLock.lock();
+    try {
+      if (firstWarning == null) {
+        firstWarning = newWarnings;
+      } else {
+        firstWarning.setNextWarning(newWarnings); // Chain them on.
+      }
 
-    return firstWarning;
+      return firstWarning;
+    } finally {
+      warningLock.unlock();
+    }
   }
 
   @Override
-  public synchronized void clearWarnings() throws SQLException {
+  public void clearWarnings() throws SQLException {
     checkClosed();
     queryExecutor.getWarnings(); // Clear and discard.
-    firstWarning = null;
+    warningLock.lock();
+    try {
+      firstWarning = null;
+    } finally {
+      warningLock.unlock();
+    }
   }
 
 
@@ -1003,6 +1061,18 @@ public class PgConnection implements BaseConnection {
     return (notifications.length == 0 ? null : notifications);
   }
 
+  @Override
+  public void addNotificationListener(PGNotificationListener listener, String... channels)
+      throws SQLException {
+    checkClosed();
+    notificationDispatcher.addListener(listener, channels);
+  }
+
+  @Override
+  public void removeNotificationListener(PGNotificationListener listener) {
+    notificationDispatcher.removeListener(listener);
+  }
+
   /**
    * Handler for transaction queries.
    */
@@ -1043,6 +1113,10 @@ public class PgConnection implements BaseConnection {
     return forcebinary;
   }
 
+  public boolean getStreamResults() {
+    return streamResults;
+  }
+
   public void setForceBinary(boolean newValue) {
     this.forcebinary = newValue;
     LOGGER.log(Level.FINE, "  setForceBinary = {0}", newValue);
@@ -1074,10 +1148,27 @@ public class PgConnection implements BaseConnection {
     return copyManager;
   }
 
+  @Override
+  public Future<Boolean> executeAsync(PreparedStatement statement) throws SQLException {
+    checkClosed();
+    PgPreparedStatement ps = statement.isWrapperFor(PgPreparedStatement.class)
+        ? statement.unwrap(PgPreparedStatement.class) : null;
+    if (ps == null || ps instanceof CallableStatement || ps.getPGConnection() != this) {
+      throw new PSQLException(
+          GT.tr("Only prepared statements of this connection can be executed asynchronously."),
+          PSQLState.INVALID_PARAMETER_TYPE);
+    }
+    return ps.executeAsync();
+  }
+
   public boolean binaryTransferSend(int oid) {
     return queryExecutor.useBinaryForSend(oid);
   }
 
+  public boolean isBinaryTransferAdaptive() {
+    return binaryTransferAdaptive;
+  }
+
   public int getBackendPID() {
     return queryExecutor.getBackendPID();
   }
@@ -1151,7 +1242,13 @@ public class PgConnection implements BaseConnection {
   }
 
   @Override
+  @Deprecated
   public LruCache<FieldMetadata.Key, FieldMetadata> getFieldMetadataCache() {
+    return fieldMetadataCache.asLruCache();
+  }
+
+  @Override
+  public SegmentedCache<FieldMetadata.Key, FieldMetadata> getFieldMetadataSegmentedCache() {
     return fieldMetadataCache;
   }
 
@@ -142,15 +142,40 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
 
       execute(preparedQuery, preparedParameters, flags);
 
-      synchronized (this) {
+      lock.lock();
+      try {
         checkClosed();
         return (result != null && result.getResultSet() != null);
+      } finally {
+        lock.unlock();
       }
     } finally {
       defaultTimeZone = null;
     }
   }
 
+  /**
+   * Sends this statement with the current parameters without waiting for the results.
+   *
+   * @return handle of the execution
+   * @throws SQLException if the statement cannot be sent
+   * @see PgConnection#executeAsync(java.sql.PreparedStatement)
+   */
+  PipelinedExecution executeAsync() throws SQLException {
+    try {
+      checkClosed();
+
+      int flags = 0;
+      if (connection.getPreferQueryMode() == PreferQueryMode.SIMPLE) {
+        flags |= QueryExecutor.QUERY_EXECUTE_AS_SIMPLE;
+      }
+
+      return executeAsync(preparedQuery, preparedParameters, flags);
+    } finally {
+      defaultTimeZone = null;
+    }
+  }
+
   protected boolean isOneShotQuery(CachedQuery cachedQuery) {
     if (cachedQuery == null) {
       cachedQuery = preparedQuery;
@@ -305,6 +330,14 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
   }
 
   public void setBigDecimal(int parameterIndex, BigDecimal x) throws SQLException {
+    if (x != null && connection.binaryTransferSend(Oid.NUMERIC)) {
+      byte[] bytes = ByteConverter.numeric(x);
+      if (bytes != null) {
+        checkClosed();
+        bindBytes(parameterIndex, bytes, Oid.NUMERIC);
+        return;
+      }
+    }
     setNumber(parameterIndex, x);
   }
 
@@ -1525,6 +1558,10 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
   @Override
   public int[] executeBatch() throws SQLException {
     try {
+      int[] copyUpdateCounts = executeBatchAsCopy();
+      if (copyUpdateCounts != null) {
+        return copyUpdateCounts;
+      }
       // Note: in batch prepared statements batchStatements == 1, and batchParameters is equal
       // to the number of addBatch calls
       // batchParameters might be empty in case of empty batch
@@ -1541,6 +1578,45 @@ class PgPreparedStatement extends PgStatement implements PreparedStatement {
     }
   }
 
+  /**
+   * Sends the batch with COPY FROM STDIN if {@link org.postgresql.PGProperty#COPY_BATCHED_INSERTS}
+   * is enabled and this is a plain INSERT of a row of parameters.
+   *
+   * @return the update counts, or null if the batch has to be executed as usual
+   * @throws SQLException if COPY fails
+   */
+  private int[] executeBatchAsCopy() throws SQLException {
+    checkClosed();
+    if (batchParameters == null || batchParameters.size() < 2 || wantsGeneratedKeysAlways
+        || !connection.getQueryExecutor().isCopyBatchedInsertsEnabled()) {
+      return null;
+    }
+    BatchedInsertCopy copy = BatchedInsertCopy.parse(preparedQuery.query.getNativeSql());
+    if (copy == null) {
+      return null;
+    }
+    String[][] rows = copy.toRows(batchParameters.toArray(new ParameterList[0]));
+    if (rows == null) {
+      return null;
+    }
+
+    closeForNextExecution();
+    batchStatements.clear();
+    batchParameters.clear();
+    lock.lock();
+    try {
+      result = null;
+    } finally {
+      lock.unlock();
+    }
+    try {
+      startTimer();
+      return copy.execute(connection, rows);
+    } finally {
+      killTimerTask();
+    }
+  }
+
   private Calendar getDefaultCalendar() {
     TimestampUtils timestampUtils = connection.getTimestampUtils();
     if (timestampUtils.hasFastDefaultTimeZone()) {
@@ -15,6 +15,7 @@ import org.postgresql.core.Oid;
 import org.postgresql.core.Query;
 import org.postgresql.core.ResultCursor;
 import org.postgresql.core.ResultHandlerBase;
+import org.postgresql.core.SlabRows;
 import org.postgresql.core.TypeInfo;
 import org.postgresql.core.Utils;
 import org.postgresql.util.ByteConverter;
@@ -62,6 +63,7 @@ import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 //#endif
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -106,12 +108,31 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   protected int current_row = -1; // Index into 'rows' of our currrent row (0-based)
   protected int row_offset; // Offset of row 0 in the actual resultset
   protected byte[][] this_row; // copy of the current result row
+  /**
+   * Stands for {@link #this_row} while the current row is read in place from a slab of
+   * {@link SlabRows}, see {@link #value(int)}.
+   */
+  private static final byte[][] SLAB_ROW = new byte[0][];
+  private byte[] slab; // slab of the current row
+  private int[] slabOffsets; // offsets of the values of the current row in the slab
+  private int[] slabLengths; // lengths of the values of the current row, -1 for NULL
   protected SQLWarning warnings = null; // The warning chain
   /**
    * True if the last obtained column value was SQL NULL as specified by {@link #wasNull}. The value
    * is always updated by the {@link #checkResultSet} method.
    */
   protected boolean wasNullFlag = false;
+
+  /**
+   * Whether getters record on the fields how the columns are read, see
+   * {@link org.postgresql.PGProperty#BINARY_TRANSFER_ADAPTIVE}.
+   */
+  private final boolean recordReadUsage;
+  /**
+   * True while {@link #getString(int)} runs, so the getters it uses to convert binary values are
+   * recorded as text reads.
+   */
+  private boolean readingString;
   protected boolean onInsertRow = false;
   // are we on the insert row (for JDBC2 updatable resultsets)?
 
@@ -149,6 +170,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
     this.originalQuery = originalQuery;
     this.connection = (BaseConnection) statement.getConnection();
+    this.recordReadUsage = connection.isBinaryTransferAdaptive();
     this.statement = statement;
     this.fields = fields;
     this.rows = tuples;
@@ -223,7 +245,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
         if (type.equals("uuid")) {
           if (isBinary(columnIndex)) {
-            return getUUID(this_row[columnIndex - 1]);
+            return getUUID(value(columnIndex - 1));
           }
           return getUUID(getString(columnIndex));
         }
@@ -263,7 +285,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
         }
         if ("hstore".equals(type)) {
           if (isBinary(columnIndex)) {
-            return HStoreConverter.fromBytes(this_row[columnIndex - 1], connection.getEncoding());
+            return HStoreConverter.fromBytes(value(columnIndex - 1), connection.getEncoding());
           }
           return HStoreConverter.fromString(getString(columnIndex));
         }
@@ -386,7 +408,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
     int oid = fields[i - 1].getOID();
     if (isBinary(i)) {
-      return makeArray(oid, this_row[i - 1]);
+      return makeArray(oid, value(i - 1));
     }
     return makeArray(oid, getFixedString(i));
   }
@@ -480,7 +502,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int oid = fields[col].getOID();
       TimeZone tz = cal.getTimeZone();
       if (oid == Oid.DATE) {
-        return connection.getTimestampUtils().toDateBin(tz, this_row[col]);
+        return connection.getTimestampUtils().toDateBin(tz, value(col));
       } else if (oid == Oid.TIMESTAMP || oid == Oid.TIMESTAMPTZ) {
         // If backend provides just TIMESTAMP, we use "cal" timezone
         // If backend provides TIMESTAMPTZ, we ignore "cal" as we know true instant value
@@ -514,7 +536,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int oid = fields[col].getOID();
       TimeZone tz = cal.getTimeZone();
       if (oid == Oid.TIME || oid == Oid.TIMETZ) {
-        return connection.getTimestampUtils().toTimeBin(tz, this_row[col]);
+        return connection.getTimestampUtils().toTimeBin(tz, value(col));
       } else if (oid == Oid.TIMESTAMP || oid == Oid.TIMESTAMPTZ) {
         // If backend provides just TIMESTAMP, we use "cal" timezone
         // If backend provides TIMESTAMPTZ, we ignore "cal" as we know true instant value
@@ -550,7 +572,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int col = i - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.TIME) {
-        return connection.getTimestampUtils().toLocalTimeBin(this_row[col]);
+        return connection.getTimestampUtils().toLocalTimeBin(value(col));
       } else {
         throw new PSQLException(
             GT.tr("Cannot convert the column of type {0} to requested type {1}.",
@@ -581,7 +603,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       if (oid == Oid.TIMESTAMPTZ || oid == Oid.TIMESTAMP) {
         boolean hasTimeZone = oid == Oid.TIMESTAMPTZ;
         TimeZone tz = cal.getTimeZone();
-        return connection.getTimestampUtils().toTimestampBin(tz, this_row[col], hasTimeZone);
+        return connection.getTimestampUtils().toTimestampBin(tz, value(col), hasTimeZone);
       } else {
         // JDBC spec says getTimestamp of Time and Date must be supported
         long millis;
@@ -627,7 +649,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     }
     if (isBinary(i)) {
       TimeZone timeZone = getDefaultCalendar().getTimeZone();
-      return connection.getTimestampUtils().toLocalDateTimeBin(timeZone, this_row[col]);
+      return connection.getTimestampUtils().toLocalDateTimeBin(timeZone, value(col));
     }
 
     String string = getString(i);
@@ -804,6 +826,11 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       }
     }
 
+    // The slab of the current row is released by the fetch.
+    if (this_row == SLAB_ROW) {
+      this_row = rows.get(current_row);
+    }
+
     // Do the actual fetch.
     connection.getQueryExecutor().fetch(cursor, new CursorResultHandler(), fetchRows);
 
@@ -1770,6 +1797,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
     public void handleResultRows(Query fromQuery, Field[] fields, List<byte[][]> tuples,
         ResultCursor cursor) {
+      releaseRows();
       PgResultSet.this.rows = tuples;
       PgResultSet.this.cursor = cursor;
     }
@@ -1874,7 +1902,9 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   public void close() throws SQLException {
     try {
       // release resources held (memory for tuples)
+      releaseRows();
       rows = null;
+      this_row = null;
       if (cursor != null) {
         cursor.close();
         cursor = null;
@@ -1891,6 +1921,18 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
   public String getString(int columnIndex) throws SQLException {
     connection.getLogger().log(Level.FINEST, "  getString columnIndex: {0}", columnIndex);
+    if (!recordReadUsage || readingString) {
+      return getStringValue(columnIndex);
+    }
+    readingString = true;
+    try {
+      return getStringValue(columnIndex);
+    } finally {
+      readingString = false;
+    }
+  }
+
+  private String getStringValue(int columnIndex) throws SQLException {
     checkResultSet(columnIndex);
     if (wasNullFlag) {
       return null;
@@ -1899,6 +1941,12 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     // varchar in binary is same as text, other binary fields are converted to their text format
     if (isBinary(columnIndex) && getSQLType(columnIndex) != Types.VARCHAR) {
       Field field = fields[columnIndex - 1];
+      if (field.getOID() == Oid.NUMERIC) {
+        Number num = ByteConverter.numeric(value(columnIndex - 1));
+        // same as the text format: no exponent and all the digits of the display scale
+        return trimString(columnIndex, num instanceof BigDecimal
+            ? ((BigDecimal) num).toPlainString() : num.toString());
+      }
       Object obj = internalGetObject(columnIndex, field);
       if (obj == null) {
         // internalGetObject() knows jdbc-types and some extra like hstore. It does not know of
@@ -1923,7 +1971,9 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
     Encoding encoding = connection.getEncoding();
     try {
-      return trimString(columnIndex, encoding.decode(this_row[columnIndex - 1]));
+      int col = columnIndex - 1;
+      return trimString(columnIndex,
+          encoding.decode(valueArray(col), valueOffset(col), valueLength(col)));
     } catch (IOException ioe) {
       throw new PSQLException(
           GT.tr(
@@ -1964,12 +2014,11 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
     int col = columnIndex - 1;
     if (Oid.BOOL == fields[col].getOID()) {
-      final byte[] v = this_row[col];
-      return (1 == v.length) && (116 == v[0]); // 116 = 't'
+      return (1 == valueLength(col)) && (116 == valueArray(col)[valueOffset(col)]); // 116 = 't'
     }
 
     if (isBinary(columnIndex)) {
-      return BooleanTypeUtil.castToBoolean(readDoubleValue(this_row[col], fields[col].getOID(), "boolean"));
+      return BooleanTypeUtil.castToBoolean(readDoubleValue(value(col), fields[col].getOID(), "boolean"));
     }
 
     return BooleanTypeUtil.castToBoolean(getString(columnIndex));
@@ -1990,7 +2039,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int col = columnIndex - 1;
       // there is no Oid for byte so must always do conversion from
       // some other numeric type
-      return (byte) readLongValue(this_row[col], fields[col].getOID(), Byte.MIN_VALUE,
+      return (byte) readLongValue(value(col), fields[col].getOID(), Byte.MIN_VALUE,
           Byte.MAX_VALUE, "byte");
     }
 
@@ -2039,11 +2088,18 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.INT2) {
-        return ByteConverter.int2(this_row[col], 0);
+        return ByteConverter.int2(valueArray(col), valueOffset(col));
       }
-      return (short) readLongValue(this_row[col], oid, Short.MIN_VALUE, Short.MAX_VALUE, "short");
+      return (short) readLongValue(value(col), oid, Short.MIN_VALUE, Short.MAX_VALUE, "short");
     }
 
+    Encoding encoding = connection.getEncoding();
+    if (encoding.hasAsciiNumbers()) {
+      try {
+        return (short) getFastLong(columnIndex, Short.MIN_VALUE, Short.MAX_VALUE);
+      } catch (NumberFormatException ex) {
+      }
+    }
     return toShort(getFixedString(columnIndex));
   }
 
@@ -2058,15 +2114,15 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.INT4) {
-        return ByteConverter.int4(this_row[col], 0);
+        return ByteConverter.int4(valueArray(col), valueOffset(col));
       }
-      return (int) readLongValue(this_row[col], oid, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
+      return (int) readLongValue(value(col), oid, Integer.MIN_VALUE, Integer.MAX_VALUE, "int");
     }
 
     Encoding encoding = connection.getEncoding();
     if (encoding.hasAsciiNumbers()) {
       try {
-        return getFastInt(columnIndex);
+        return (int) getFastLong(columnIndex, Integer.MIN_VALUE, Integer.MAX_VALUE);
       } catch (NumberFormatException ex) {
       }
     }
@@ -2084,15 +2140,15 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.INT8) {
-        return ByteConverter.int8(this_row[col], 0);
+        return ByteConverter.int8(valueArray(col), valueOffset(col));
       }
-      return readLongValue(this_row[col], oid, Long.MIN_VALUE, Long.MAX_VALUE, "long");
+      return readLongValue(value(col), oid, Long.MIN_VALUE, Long.MAX_VALUE, "long");
     }
 
     Encoding encoding = connection.getEncoding();
     if (encoding.hasAsciiNumbers()) {
       try {
-        return getFastLong(columnIndex);
+        return getFastLong(columnIndex, Long.MIN_VALUE, Long.MAX_VALUE);
       } catch (NumberFormatException ex) {
       }
     }
@@ -2122,103 +2178,173 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
    * checkResultSet and handle null values prior to calling this function.
    *
    * @param columnIndex The column to parse.
+   * @param minValue smallest value the caller accepts
+   * @param maxValue largest value the caller accepts
    * @return The parsed number.
    * @throws SQLException If an error occurs while fetching column.
    * @throws NumberFormatException If the number is invalid or the out of range for fast parsing.
-   *         The value must then be parsed by {@link #toLong(String)}.
+   *         The value must then be parsed by {@link #toLong(String)}, {@link #toInt(String)} or
+   *         {@link #toShort(String)}.
    */
-  private long getFastLong(int columnIndex) throws SQLException, NumberFormatException {
+  private long getFastLong(int columnIndex, long minValue, long maxValue)
+      throws SQLException, NumberFormatException {
 
-    byte[] bytes = this_row[columnIndex - 1];
+    int col = columnIndex - 1;
+    byte[] bytes = valueArray(col);
+    int length = valueLength(col);
 
-    if (bytes.length == 0) {
+    if (length == 0 || length > 20) {
       throw FAST_NUMBER_FAILED;
     }
 
-    long val = 0;
-    int start;
+    int start = valueOffset(col);
+    int end = start + length;
     boolean neg;
-    if (bytes[0] == '-') {
+    if (bytes[start] == '-') {
       neg = true;
-      start = 1;
-      if (bytes.length == 1 || bytes.length > 19) {
+      start++;
+      if (length == 1) {
         throw FAST_NUMBER_FAILED;
       }
     } else {
-      start = 0;
       neg = false;
-      if (bytes.length > 18) {
-        throw FAST_NUMBER_FAILED;
-      }
     }
 
-    while (start < bytes.length) {
+    // Accumulate negatively like Long.parseLong does, so Long.MIN_VALUE does not overflow
+    long val = 0;
+    while (start < end) {
       byte b = bytes[start++];
       if (b < '0' || b > '9') {
         throw FAST_NUMBER_FAILED;
       }
-
-      val *= 10;
-      val += b - '0';
+      int digit = b - '0';
+      if (val < Long.MIN_VALUE / 10 || val * 10 < Long.MIN_VALUE + digit) {
+        throw FAST_NUMBER_FAILED;
+      }
+      val = val * 10 - digit;
     }
 
-    if (neg) {
+    if (!neg) {
+      if (val == Long.MIN_VALUE) {
+        throw FAST_NUMBER_FAILED;
+      }
       val = -val;
     }
+    if (val < minValue || val > maxValue) {
+      throw FAST_NUMBER_FAILED;
+    }
 
     return val;
   }
 
   /**
-   * Optimised byte[] to number parser. This code does not handle null values, so the caller must do
-   * checkResultSet and handle null values prior to calling this function.
+   * Powers of ten that are exact as double.
+   */
+  private static final double[] DOUBLE_POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+      1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  /**
+   * Powers of ten that are exact as float.
+   */
+  private static final float[] FLOAT_POWERS_OF_TEN = {
+      1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+  /**
+   * Optimised byte[] to floating point parser. This code does not handle null values, so the caller
+   * must do checkResultSet and handle null values prior to calling this function.
+   *
+   * <p>Only values whose digits and power of ten are both exact in the target type are parsed, as
+   * then a single multiplication or division is correctly rounded and gives the same result as
+   * {@link Double#parseDouble(String)} or {@link Float#parseFloat(String)}. That covers what
+   * the backend sends for typical float and numeric values.</p>
    *
    * @param columnIndex The column to parse.
-   * @return The parsed number.
+   * @param toFloat whether the value is parsed as float rather than double
+   * @return The parsed number, for floats the result can be cast back to float without loss.
    * @throws SQLException If an error occurs while fetching column.
-   * @throws NumberFormatException If the number is invalid or the out of range for fast parsing.
-   *         The value must then be parsed by {@link #toInt(String)}.
+   * @throws NumberFormatException If the number is invalid or too precise for fast parsing. The
+   *         value must then be parsed by {@link #toDouble(String)} or {@link #toFloat(String)}.
    */
-  private int getFastInt(int columnIndex) throws SQLException, NumberFormatException {
+  private double getFastDouble(int columnIndex, boolean toFloat)
+      throws SQLException, NumberFormatException {
+
+    int col = columnIndex - 1;
+    byte[] bytes = valueArray(col);
+    int pos = valueOffset(col);
+    int end = pos + valueLength(col);
 
-    byte[] bytes = this_row[columnIndex - 1];
+    long maxMantissa = toFloat ? 1L << 24 : 1L << 53;
+    int maxExponent = toFloat ? FLOAT_POWERS_OF_TEN.length - 1 : DOUBLE_POWERS_OF_TEN.length - 1;
 
-    if (bytes.length == 0) {
+    boolean neg = pos < end && bytes[pos] == '-';
+    if (neg) {
+      pos++;
+    }
+
+    long mantissa = 0;
+    int exponent = 0;
+    boolean hasDigits = false;
+    boolean hasPeriod = false;
+    for (; pos < end; pos++) {
+      byte b = bytes[pos];
+      if (b >= '0' && b <= '9') {
+        mantissa = mantissa * 10 + (b - '0');
+        if (mantissa > maxMantissa) {
+          throw FAST_NUMBER_FAILED;
+        }
+        if (hasPeriod) {
+          exponent--;
+        }
+        hasDigits = true;
+      } else if (b == '.' && !hasPeriod) {
+        hasPeriod = true;
+      } else {
+        break;
+      }
+    }
+    if (!hasDigits) {
       throw FAST_NUMBER_FAILED;
     }
 
-    int val = 0;
-    int start;
-    boolean neg;
-    if (bytes[0] == '-') {
-      neg = true;
-      start = 1;
-      if (bytes.length == 1 || bytes.length > 10) {
+    if (pos < end) {
+      // exponent, e.g. 1.5e+30
+      byte b = bytes[pos++];
+      if ((b != 'e' && b != 'E') || pos == end) {
         throw FAST_NUMBER_FAILED;
       }
-    } else {
-      start = 0;
-      neg = false;
-      if (bytes.length > 9) {
-        throw FAST_NUMBER_FAILED;
+      boolean negExponent = bytes[pos] == '-';
+      if (negExponent || bytes[pos] == '+') {
+        pos++;
       }
-    }
-
-    while (start < bytes.length) {
-      byte b = bytes[start++];
-      if (b < '0' || b > '9') {
+      if (pos == end || end - pos > 3) {
         throw FAST_NUMBER_FAILED;
       }
-
-      val *= 10;
-      val += b - '0';
+      int e = 0;
+      for (; pos < end; pos++) {
+        b = bytes[pos];
+        if (b < '0' || b > '9') {
+          throw FAST_NUMBER_FAILED;
+        }
+        e = e * 10 + (b - '0');
+      }
+      exponent += negExponent ? -e : e;
     }
 
-    if (neg) {
-      val = -val;
+    if (exponent > maxExponent || exponent < -maxExponent) {
+      throw FAST_NUMBER_FAILED;
     }
 
-    return val;
+    if (toFloat) {
+      float val = exponent >= 0
+          ? (float) mantissa * FLOAT_POWERS_OF_TEN[exponent]
+          : (float) mantissa / FLOAT_POWERS_OF_TEN[-exponent];
+      return neg ? -val : val;
+    }
+    double val = exponent >= 0
+        ? (double) mantissa * DOUBLE_POWERS_OF_TEN[exponent]
+        : (double) mantissa / DOUBLE_POWERS_OF_TEN[-exponent];
+    return neg ? -val : val;
   }
 
   /**
@@ -2233,36 +2359,46 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
    */
   private BigDecimal getFastBigDecimal(int columnIndex) throws SQLException, NumberFormatException {
 
-    byte[] bytes = this_row[columnIndex - 1];
+    int col = columnIndex - 1;
+    byte[] bytes = valueArray(col);
+    int length = valueLength(col);
 
-    if (bytes.length == 0) {
+    if (length == 0) {
       throw FAST_NUMBER_FAILED;
     }
 
     int scale = 0;
     long val = 0;
-    int start;
+    int offset = valueOffset(col);
+    int start = offset;
+    int end = offset + length;
     boolean neg;
-    if (bytes[0] == '-') {
+    if (bytes[start] == '-') {
       neg = true;
-      start = 1;
-      if (bytes.length == 1 || bytes.length > 19) {
+      start++;
+      if (length == 1) {
         throw FAST_NUMBER_FAILED;
       }
     } else {
-      start = 0;
       neg = false;
-      if (bytes.length > 18) {
-        throw FAST_NUMBER_FAILED;
+    }
+
+    if (end - start > 18) {
+      // Too many digits for a long. BigDecimal can still parse the characters without a String,
+      // it throws NumberFormatException for anything the regular path has to deal with.
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) bytes[offset + i];
       }
+      return new BigDecimal(chars);
     }
 
     int periodsSeen = 0;
-    while (start < bytes.length) {
+    while (start < end) {
       byte b = bytes[start++];
       if (b < '0' || b > '9') {
         if (b == '.') {
-          scale = bytes.length - start;
+          scale = end - start;
           periodsSeen++;
           continue;
         } else {
@@ -2273,7 +2409,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       val += b - '0';
     }
 
-    int numNonSignChars = neg ? bytes.length - 1 : bytes.length;
+    int numNonSignChars = neg ? length - 1 : length;
     if (periodsSeen > 1 || periodsSeen == numNonSignChars) {
       throw FAST_NUMBER_FAILED;
     }
@@ -2296,11 +2432,18 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.FLOAT4) {
-        return ByteConverter.float4(this_row[col], 0);
+        return ByteConverter.float4(valueArray(col), valueOffset(col));
       }
-      return (float) readDoubleValue(this_row[col], oid, "float");
+      return (float) readDoubleValue(value(col), oid, "float");
     }
 
+    Encoding encoding = connection.getEncoding();
+    if (encoding.hasAsciiNumbers()) {
+      try {
+        return (float) getFastDouble(columnIndex, true);
+      } catch (NumberFormatException ex) {
+      }
+    }
     return toFloat(getFixedString(columnIndex));
   }
 
@@ -2315,11 +2458,18 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       int col = columnIndex - 1;
       int oid = fields[col].getOID();
       if (oid == Oid.FLOAT8) {
-        return ByteConverter.float8(this_row[col], 0);
+        return ByteConverter.float8(valueArray(col), valueOffset(col));
       }
-      return readDoubleValue(this_row[col], oid, "double");
+      return readDoubleValue(value(col), oid, "double");
     }
 
+    Encoding encoding = connection.getEncoding();
+    if (encoding.hasAsciiNumbers()) {
+      try {
+        return getFastDouble(columnIndex, false);
+      } catch (NumberFormatException ex) {
+      }
+    }
     return toDouble(getFixedString(columnIndex));
   }
 
@@ -2331,6 +2481,14 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     }
 
     if (isBinary(columnIndex)) {
+      if (fields[columnIndex - 1].getOID() == Oid.NUMERIC) {
+        Number num = ByteConverter.numeric(value(columnIndex - 1));
+        if (!(num instanceof BigDecimal)) {
+          throw new PSQLException(GT.tr("Bad value for type {0} : {1}", "BigDecimal", num),
+              PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+        }
+        return scaleBigDecimal((BigDecimal) num, scale);
+      }
       int sqlType = getSQLType(columnIndex);
       if (sqlType != Types.NUMERIC && sqlType != Types.DECIMAL) {
         Object obj = internalGetObject(columnIndex, fields[columnIndex - 1]);
@@ -2377,12 +2535,12 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
 
     if (isBinary(columnIndex)) {
       // If the data is already binary then just return it
-      return this_row[columnIndex - 1];
+      return value(columnIndex - 1);
     }
     if (fields[columnIndex - 1].getOID() == Oid.BYTEA) {
-      return trimBytes(columnIndex, PGbytea.toBytes(this_row[columnIndex - 1]));
+      return trimBytes(columnIndex, PGbytea.toBytes(value(columnIndex - 1)));
     } else {
-      return trimBytes(columnIndex, this_row[columnIndex - 1]);
+      return trimBytes(columnIndex, value(columnIndex - 1));
     }
   }
 
@@ -2575,7 +2733,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     }
 
     if (isBinary(columnIndex)) {
-      return connection.getObject(getPGType(columnIndex), null, this_row[columnIndex - 1]);
+      return connection.getObject(getPGType(columnIndex), null, value(columnIndex - 1));
     }
     return connection.getObject(getPGType(columnIndex), getString(columnIndex), null);
   }
@@ -2773,7 +2931,10 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
           PSQLState.INVALID_CURSOR_STATE);
     }
     checkColumnIndex(column);
-    wasNullFlag = (this_row[column - 1] == null);
+    wasNullFlag = valueLength(column - 1) < 0;
+    if (recordReadUsage) {
+      fields[column - 1].addReadUsage(readingString ? Field.READ_AS_TEXT : Field.READ_AS_VALUE);
+    }
   }
 
   /**
@@ -2939,6 +3100,19 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
   }
 
   private void initRowBuffer() {
+    if (rows instanceof SlabRows && resultsetconcurrency != ResultSet.CONCUR_UPDATABLE) {
+      SlabRows slabRows = (SlabRows) rows;
+      if (slabOffsets == null) {
+        slabOffsets = new int[fields.length];
+        slabLengths = new int[fields.length];
+      }
+      if (slabRows.locate(current_row, slabOffsets, slabLengths)) {
+        slab = slabRows.getSlab(current_row);
+        this_row = SLAB_ROW;
+        rowBuffer = null;
+        return;
+      }
+    }
     this_row = rows.get(current_row);
     // We only need a copy of the current row if we're going to
     // modify it via an updatable resultset.
@@ -2950,6 +3124,55 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     }
   }
 
+  /**
+   * Returns a value of the current row. Values of a row that is read from a slab are copied out of
+   * it, the getters for the common types read them in place through {@link #valueArray(int)}.
+   *
+   * @param col the column, starting from 0
+   * @return the value, null for NULL
+   */
+  private byte[] value(int col) {
+    if (this_row != SLAB_ROW) {
+      return this_row[col];
+    }
+    int length = slabLengths[col];
+    if (length < 0) {
+      return null;
+    }
+    int offset = slabOffsets[col];
+    return Arrays.copyOfRange(slab, offset, offset + length);
+  }
+
+  /**
+   * @param col the column, starting from 0
+   * @return the array that keeps the value of the current row at {@link #valueOffset(int)}
+   */
+  private byte[] valueArray(int col) {
+    return this_row == SLAB_ROW ? slab : this_row[col];
+  }
+
+  private int valueOffset(int col) {
+    return this_row == SLAB_ROW ? slabOffsets[col] : 0;
+  }
+
+  /**
+   * @param col the column, starting from 0
+   * @return the length of the value of the current row, -1 for NULL
+   */
+  private int valueLength(int col) {
+    if (this_row == SLAB_ROW) {
+      return slabLengths[col];
+    }
+    byte[] value = this_row[col];
+    return value == null ? -1 : value.length;
+  }
+
+  private void releaseRows() {
+    if (rows instanceof SlabRows) {
+      ((SlabRows) rows).release();
+    }
+  }
+
   private boolean isColumnTrimmable(int columnIndex) throws SQLException {
     switch (getSQLType(columnIndex)) {
       case Types.CHAR:
@@ -3008,6 +3231,8 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
         return ByteConverter.float4(bytes, 0);
       case Oid.FLOAT8:
         return ByteConverter.float8(bytes, 0);
+      case Oid.NUMERIC:
+        return ByteConverter.numeric(bytes).doubleValue();
     }
     throw new PSQLException(GT.tr("Cannot convert the column of type {0} to requested type {1}.",
         Oid.toString(oid), targetType), PSQLState.DATA_TYPE_MISMATCH);
@@ -3052,6 +3277,15 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
       case Oid.FLOAT8:
         val = (long) ByteConverter.float8(bytes, 0);
         break;
+      case Oid.NUMERIC:
+        Number num = ByteConverter.numeric(bytes);
+        BigInteger i = num instanceof BigDecimal ? ((BigDecimal) num).toBigInteger() : null;
+        if (i == null || i.bitLength() > 63) {
+          throw new PSQLException(GT.tr("Bad value for type {0} : {1}", targetType, num),
+              PSQLState.NUMERIC_VALUE_OUT_OF_RANGE);
+        }
+        val = i.longValue();
+        break;
       default:
         throw new PSQLException(
             GT.tr("Cannot convert the column of type {0} to requested type {1}.",
@@ -3424,7 +3658,7 @@ public class PgResultSet implements ResultSet, org.postgresql.PGRefCursorResultS
     } else if (PGobject.class.isAssignableFrom(type)) {
       Object object;
       if (isBinary(columnIndex)) {
-        object = connection.getObject(getPGType(columnIndex), null, this_row[columnIndex - 1]);
+        object = connection.getObject(getPGType(columnIndex), null, value(columnIndex - 1));
       } else {
         object = connection.getObject(getPGType(columnIndex), getString(columnIndex), null);
       }
@@ -181,7 +181,7 @@ public class PgResultSetMetaData implements ResultSetMetaData, PGResultSetMetaDa
       return;
     }
 
-    if (populateFieldsWithMetadata(connection.getFieldMetadataCache())) {
+    if (populateFieldsWithMetadata(connection.getFieldMetadataSegmentedCache())) {
       return;
     }
 
@@ -260,7 +260,7 @@ public class PgResultSetMetaData implements ResultSetMetaData, PGResultSetMetaDa
       JdbcBlackHole.close(stmt);
     }
     populateFieldsWithMetadata(md);
-    connection.getFieldMetadataCache().putAll(md);
+    connection.getFieldMetadataSegmentedCache().putAll(md);
   }
 
   public String getBaseSchemaName(int column) throws SQLException {
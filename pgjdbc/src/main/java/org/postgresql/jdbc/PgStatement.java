@@ -28,8 +28,11 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class PgStatement implements Statement, BaseStatement {
   private static final String[] NO_RETURNING_COLUMNS = new String[0];
@@ -42,6 +45,23 @@ public class PgStatement implements Statement, BaseStatement {
   // only for testing purposes. even single shot statements will use binary transfers
   private boolean forceBinaryTransfers = DEFAULT_FORCE_BINARY_TRANSFERS;
 
+  /**
+   * Number of rows handed over per chunk when results are streamed and no fetch size is set.
+   */
+  private static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
+
+  /**
+   * Stream forward-only result sets instead of reading them completely.
+   *
+   * @see org.postgresql.PGProperty#STREAM_RESULTS
+   */
+  private final boolean streamResults;
+
+  /**
+   * Statements to prepare after the prepared statements of the connection were discarded.
+   */
+  private final StatementWarmup statementWarmup;
+
   protected ArrayList<Query> batchStatements = null;
   protected ArrayList<ParameterList> batchParameters = null;
   protected final int resultsettype; // the resultset type to return (ResultSet.TYPE_xxx)
@@ -80,6 +100,19 @@ public class PgStatement implements Statement, BaseStatement {
   private static final AtomicReferenceFieldUpdater<PgStatement, StatementCancelState> STATE_UPDATER =
       AtomicReferenceFieldUpdater.newUpdater(PgStatement.class, StatementCancelState.class, "statementState");
 
+  /**
+   * Held by {@link #cancel()} while it cancels the query, so {@link #killTimerTask()} waits for it
+   * instead of spinning.
+   */
+  private final ReentrantLock cancelLock = new ReentrantLock();
+  private final Condition cancelled = cancelLock.newCondition();
+
+  /**
+   * Guards the results of the statement. Locks are used instead of monitors, as reading the
+   * results of a pipelined execution or closing result sets can block on the socket.
+   */
+  final ReentrantLock lock = new ReentrantLock();
+
   /**
    * Does the caller of execute/executeUpdate want generated keys for this execution? This is set by
    * Statement methods that have generated keys arguments and cleared after execution is complete.
@@ -132,6 +165,11 @@ public class PgStatement implements Statement, BaseStatement {
    */
   protected ResultWrapper generatedKeys = null;
 
+  /**
+   * Execution sent by {@link #executeAsync} whose results have not been read yet.
+   */
+  private PipelinedExecution pipelinedExecution;
+
   protected int m_prepareThreshold; // Reuse threshold to enable use of PREPARE
 
   protected int maxfieldSize = 0;
@@ -140,6 +178,8 @@ public class PgStatement implements Statement, BaseStatement {
       throws SQLException {
     this.connection = c;
     forceBinaryTransfers |= c.getForceBinary();
+    streamResults = c.getStreamResults();
+    statementWarmup = c.getStatementWarmup();
     resultsettype = rsType;
     concurrency = rsConcurrency;
     setFetchSize(c.getDefaultFetchSize());
@@ -229,7 +269,8 @@ public class PgStatement implements Statement, BaseStatement {
   }
 
   protected java.sql.ResultSet getSingleResultSet() throws SQLException {
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       if (result.getNext() != null) {
         throw new PSQLException(GT.tr("Multiple ResultSets were returned by the query."),
@@ -237,6 +278,8 @@ public class PgStatement implements Statement, BaseStatement {
       }
 
       return result.getResultSet();
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -246,7 +289,8 @@ public class PgStatement implements Statement, BaseStatement {
   }
 
   protected int getNoResultUpdateCount() throws SQLException {
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       ResultWrapper iter = result;
       while (iter != null) {
@@ -259,6 +303,8 @@ public class PgStatement implements Statement, BaseStatement {
       }
 
       return getUpdateCount();
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -305,9 +351,12 @@ public class PgStatement implements Statement, BaseStatement {
       flags |= QueryExecutor.QUERY_EXECUTE_AS_SIMPLE;
     }
     execute(simpleQuery, null, flags);
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       return (result != null && result.getResultSet() != null);
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -318,11 +367,28 @@ public class PgStatement implements Statement, BaseStatement {
   }
 
   protected void closeForNextExecution() throws SQLException {
+    // Results of a pipelined execution become the results to close
+    PipelinedExecution pending;
+    lock.lock();
+    try {
+      pending = pipelinedExecution;
+    } finally {
+      lock.unlock();
+    }
+    if (pending != null) {
+      try {
+        pending.await();
+      } catch (SQLException e) {
+        // reported through the handle returned by executeAsync
+      }
+    }
+
     // Every statement execution clears any previous warnings.
     clearWarnings();
 
     // Close any existing resultsets associated with this statement.
-    synchronized (this) {
+    lock.lock();
+    try {
       while (firstUnclosedResult != null) {
         ResultSet rs = firstUnclosedResult.getResultSet();
         if (rs != null) {
@@ -338,6 +404,8 @@ public class PgStatement implements Statement, BaseStatement {
         }
         generatedKeys = null;
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -378,13 +446,51 @@ public class PgStatement implements Statement, BaseStatement {
   private void executeInternal(CachedQuery cachedQuery, ParameterList queryParameters, int flags)
       throws SQLException {
     closeForNextExecution();
+    if (statementWarmup != null) {
+      statementWarmup.prepare(connection);
+    }
 
-    // Enable cursor-based resultset if possible.
-    if (fetchSize > 0 && !wantsScrollableResultSet() && !connection.getAutoCommit()
+    // Enable streamed or cursor-based resultset if possible.
+    int executeFetchSize = fetchSize;
+    if (streamResults && !wantsScrollableResultSet()) {
+      flags |= QueryExecutor.QUERY_STREAM_RESULTS;
+      if (executeFetchSize == 0) {
+        executeFetchSize = DEFAULT_STREAM_FETCH_SIZE;
+      }
+    } else if (fetchSize > 0 && !wantsScrollableResultSet() && !connection.getAutoCommit()
         && !wantsHoldableResultSet()) {
       flags |= QueryExecutor.QUERY_FORWARD_CURSOR;
     }
 
+    flags = executeFlags(cachedQuery, flags);
+    if (statementWarmup != null && (flags & QueryExecutor.QUERY_ONESHOT) == 0
+        && cachedQuery.getExecuteCount() == m_prepareThreshold) {
+      statementWarmup.learn(cachedQuery, queryParameters);
+    }
+    Query queryToExecute = cachedQuery.query;
+    describeForBinaryTransfer(queryToExecute, queryParameters, flags);
+
+    StatementResultHandler handler = new StatementResultHandler();
+    lock.lock();
+    try {
+      result = null;
+    } finally {
+      lock.unlock();
+    }
+    try {
+      startTimer();
+      connection.getQueryExecutor().execute(queryToExecute, queryParameters, handler, maxrows,
+          executeFetchSize, flags);
+    } finally {
+      killTimerTask();
+    }
+    setResults(handler);
+  }
+
+  /**
+   * Adds the flags that follow from the statement and connection settings.
+   */
+  private int executeFlags(CachedQuery cachedQuery, int flags) throws SQLException {
     if (wantsGeneratedKeysOnce || wantsGeneratedKeysAlways) {
       flags |= QueryExecutor.QUERY_BOTH_ROWS_AND_STATUS;
 
@@ -411,12 +517,14 @@ public class PgStatement implements Statement, BaseStatement {
       flags |= QueryExecutor.QUERY_NO_BINARY_TRANSFER;
     }
 
-    Query queryToExecute = cachedQuery.query;
-
-    if (queryToExecute.isEmpty()) {
+    if (cachedQuery.query.isEmpty()) {
       flags |= QueryExecutor.QUERY_SUPPRESS_BEGIN;
     }
+    return flags;
+  }
 
+  private void describeForBinaryTransfer(Query queryToExecute, ParameterList queryParameters,
+      int flags) throws SQLException {
     if (!queryToExecute.isStatementDescribed() && forceBinaryTransfers
         && (flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) == 0) {
       // Simple 'Q' execution does not need to know parameter types
@@ -431,19 +539,11 @@ public class PgStatement implements Statement, BaseStatement {
         result2.getResultSet().close();
       }
     }
+  }
 
-    StatementResultHandler handler = new StatementResultHandler();
-    synchronized (this) {
-      result = null;
-    }
+  private void setResults(StatementResultHandler handler) throws SQLException {
+    lock.lock();
     try {
-      startTimer();
-      connection.getQueryExecutor().execute(queryToExecute, queryParameters, handler, maxrows,
-          fetchSize, flags);
-    } finally {
-      killTimerTask();
-    }
-    synchronized (this) {
       checkClosed();
       result = firstUnclosedResult = handler.getResults();
 
@@ -455,6 +555,114 @@ public class PgStatement implements Statement, BaseStatement {
           wantsGeneratedKeysOnce = false;
         }
       }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sends the query without waiting for its results, see {@link PgConnection#executeAsync}.
+   * Queries that cannot be pipelined are executed right away.
+   *
+   * @param cachedQuery the query to execute
+   * @param queryParameters the parameters of the query
+   * @param flags QueryExecutor flags
+   * @return handle of the execution
+   * @throws SQLException if the query cannot be sent
+   */
+  protected final PipelinedExecution executeAsync(CachedQuery cachedQuery,
+      ParameterList queryParameters, int flags) throws SQLException {
+    closeForNextExecution();
+
+    flags = executeFlags(cachedQuery, flags);
+    Query queryToExecute = cachedQuery.query;
+    describeForBinaryTransfer(queryToExecute, queryParameters, flags);
+
+    StatementResultHandler handler = new StatementResultHandler();
+    lock.lock();
+    try {
+      result = null;
+    } finally {
+      lock.unlock();
+    }
+    QueryExecutor executor = connection.getQueryExecutor();
+    if (executor.executePipelined(queryToExecute, queryParameters, handler, maxrows, flags)) {
+      PipelinedExecution execution = new PipelinedExecution(this, handler);
+      lock.lock();
+      try {
+        pipelinedExecution = execution;
+      } finally {
+        lock.unlock();
+      }
+      return execution;
+    }
+
+    try {
+      try {
+        startTimer();
+        executor.execute(queryToExecute, queryParameters, handler, maxrows, 0, flags);
+      } finally {
+        killTimerTask();
+      }
+      setResults(handler);
+      lock.lock();
+      try {
+        return new PipelinedExecution(result != null && result.getResultSet() != null);
+      } finally {
+        lock.unlock();
+      }
+    } catch (SQLException e) {
+      return new PipelinedExecution(e);
+    }
+  }
+
+  /**
+   * Reads the results of a pipelined execution of this statement and makes them the current
+   * results.
+   *
+   * @param handler the handler the query was sent with
+   * @return true if the first result is a ResultSet
+   * @throws SQLException if the execution failed
+   */
+  boolean finishExecution(StatementResultHandler handler) throws SQLException {
+    connection.getQueryExecutor().awaitPipelined(handler);
+    return completeExecution(handler);
+  }
+
+  /**
+   * Same as {@link #finishExecution(StatementResultHandler)}, but gives up once the timeout
+   * elapsed, see {@link QueryExecutor#awaitPipelined(org.postgresql.core.ResultHandler, long)}.
+   *
+   * @param handler the handler the query was sent with
+   * @param timeoutNanos how long to wait at most
+   * @return true if the first result is a ResultSet, null if the timeout elapsed
+   * @throws SQLException if the execution failed
+   * @throws InterruptedException if interrupted while waiting for the connection
+   */
+  Boolean finishExecution(StatementResultHandler handler, long timeoutNanos)
+      throws SQLException, InterruptedException {
+    if (!connection.getQueryExecutor().awaitPipelined(handler, timeoutNanos)) {
+      return null;
+    }
+    return completeExecution(handler);
+  }
+
+  private boolean completeExecution(StatementResultHandler handler) throws SQLException {
+    lock.lock();
+    try {
+      if (pipelinedExecution != null && pipelinedExecution.isFor(handler)) {
+        pipelinedExecution = null;
+      }
+    } finally {
+      lock.unlock();
+    }
+    handler.handleCompletion();
+    setResults(handler);
+    lock.lock();
+    try {
+      return result != null && result.getResultSet() != null;
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -466,18 +674,22 @@ public class PgStatement implements Statement, BaseStatement {
   private volatile boolean isClosed = false;
 
   public int getUpdateCount() throws SQLException {
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       if (result == null || result.getResultSet() != null) {
         return -1;
       }
 
       return result.getUpdateCount();
+    } finally {
+      lock.unlock();
     }
   }
 
   public boolean getMoreResults() throws SQLException {
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       if (result == null) {
         return false;
@@ -494,6 +706,8 @@ public class PgStatement implements Statement, BaseStatement {
       }
 
       return (result != null && result.getResultSet() != null);
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -610,7 +824,8 @@ public class PgStatement implements Statement, BaseStatement {
   }
 
   public java.sql.ResultSet getResultSet() throws SQLException {
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
 
       if (result == null) {
@@ -618,6 +833,8 @@ public class PgStatement implements Statement, BaseStatement {
       }
 
       return result.getResultSet();
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -629,11 +846,14 @@ public class PgStatement implements Statement, BaseStatement {
    */
   public final void close() throws SQLException {
     // closing an already closed Statement is a no-op.
-    synchronized (this) {
+    lock.lock();
+    try {
       if (isClosed) {
         return;
       }
       isClosed = true;
+    } finally {
+      lock.unlock();
     }
 
     cancel();
@@ -657,12 +877,15 @@ public class PgStatement implements Statement, BaseStatement {
    */
 
   public long getLastOID() throws SQLException {
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       if (result == null) {
         return 0;
       }
       return result.getInsertOID();
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -747,10 +970,6 @@ public class PgStatement implements Statement, BaseStatement {
 
     int flags = 0;
 
-    // Force a Describe before any execution? We need to do this if we're going
-    // to send anything dependent on the Describe results, e.g. binary parameters.
-    boolean preDescribe = false;
-
     if (wantsGeneratedKeysAlways) {
       /*
        * This batch will return generated keys, tell the executor to expect result rows. We also
@@ -784,18 +1003,11 @@ public class PgStatement implements Statement, BaseStatement {
         || isOneShotQuery(null)) {
       flags |= QueryExecutor.QUERY_ONESHOT;
     } else {
-      // If a batch requests generated keys and isn't already described,
-      // force a Describe of the query before proceeding. That way we can
-      // determine the appropriate size of each batch by estimating the
-      // maximum data returned. Without that, we don't know how many queries
-      // we'll be able to queue up before we risk a deadlock.
+      // The query executor describes the statements of the batch that are not described yet
+      // in one round trip before it sends the executions. That way it can determine the
+      // appropriate size of each batch by estimating the maximum data returned. Without that,
+      // we don't know how many queries we'll be able to queue up before we risk a deadlock.
       // (see v3.QueryExecutorImpl's MAX_BUFFERED_RECV_BYTES)
-
-      // SameQueryAhead is just a quick way to issue pre-describe for batch execution
-      // TODO: It should be reworked into "pre-describe if query has unknown parameter
-      // types and same query is ahead".
-      preDescribe = (wantsGeneratedKeysAlways || sameQueryAhead)
-          && !queries[0].isStatementDescribed();
       /*
        * It's also necessary to force a Describe on the first execution of the new statement, even
        * though we already described it, to work around bug #267.
@@ -810,7 +1022,7 @@ public class PgStatement implements Statement, BaseStatement {
     BatchResultHandler handler;
     handler = createBatchHandler(queries, parameterLists);
 
-    if ((preDescribe || forceBinaryTransfers)
+    if (forceBinaryTransfers && (flags & QueryExecutor.QUERY_ONESHOT) != 0
         && (flags & QueryExecutor.QUERY_EXECUTE_AS_SIMPLE) == 0) {
       // Do a client-server round trip, parsing and describing the query so we
       // can determine its result types for use in binary parameters, batch sizing,
@@ -831,8 +1043,11 @@ public class PgStatement implements Statement, BaseStatement {
       }
     }
 
-    synchronized (this) {
+    lock.lock();
+    try {
       result = null;
+    } finally {
+      lock.unlock();
     }
 
     try {
@@ -842,11 +1057,14 @@ public class PgStatement implements Statement, BaseStatement {
     } finally {
       killTimerTask();
       // There might be some rows generated even in case of failures
-      synchronized (this) {
+      lock.lock();
+      try {
         checkClosed();
         if (wantsGeneratedKeysAlways) {
           generatedKeys = new ResultWrapper(handler.getGeneratedKeys());
         }
+      } finally {
+        lock.unlock();
       }
     }
 
@@ -862,14 +1080,14 @@ public class PgStatement implements Statement, BaseStatement {
       // Not in query, there's nothing to cancel
       return;
     }
-    // Synchronize on connection to avoid spinning in killTimerTask
-    synchronized (connection) {
-      try {
-        connection.cancelQuery();
-      } finally {
-        STATE_UPDATER.set(this, StatementCancelState.CANCELLED);
-        connection.notifyAll(); // wake-up killTimerTask
-      }
+    // Hold the lock to avoid spinning in killTimerTask
+    cancelLock.lock();
+    try {
+      connection.cancelQuery();
+    } finally {
+      STATE_UPDATER.set(this, StatementCancelState.CANCELLED);
+      cancelled.signalAll(); // wake-up killTimerTask
+      cancelLock.unlock();
     }
   }
 
@@ -911,7 +1129,7 @@ public class PgStatement implements Statement, BaseStatement {
     fetchSize = rows;
   }
 
-  private void startTimer() {
+  void startTimer() {
     /*
      * there shouldn't be any previous timer active, but better safe than sorry.
      */
@@ -962,7 +1180,7 @@ public class PgStatement implements Statement, BaseStatement {
     return true;
   }
 
-  private void killTimerTask() {
+  void killTimerTask() {
     boolean timerTaskIsClear = cleanupTimer();
     // The order is important here: in case we need to wait for the cancel task, the state must be
     // kept StatementCancelState.IN_QUERY, so cancelTask would be able to cancel the query.
@@ -976,19 +1194,22 @@ public class PgStatement implements Statement, BaseStatement {
     // "timeout error"
     // We wait till state becomes "cancelled"
     boolean interrupted = false;
-    synchronized (connection) {
-      // state check is performed under synchronized so it detects "cancelled" state faster
-      // In other words, it prevents unnecessary ".wait()" call
+    cancelLock.lock();
+    try {
+      // state check is performed under the lock so it detects "cancelled" state faster
+      // In other words, it prevents unnecessary ".await()" call
       while (!STATE_UPDATER.compareAndSet(this, StatementCancelState.CANCELLED, StatementCancelState.IDLE)) {
         try {
-          // Note: wait timeout here is irrelevant since synchronized(connection) would block until
-          // .cancel finishes
-          connection.wait(10);
+          // Note: wait timeout here is irrelevant since the lock would block until .cancel
+          // finishes
+          cancelled.await(10, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) { // NOSONAR
           // Either re-interrupt this method or rethrow the "InterruptedException"
           interrupted = true;
         }
       }
+    } finally {
+      cancelLock.unlock();
     }
     if (interrupted) {
       Thread.currentThread().interrupt();
@@ -1073,7 +1294,8 @@ public class PgStatement implements Statement, BaseStatement {
       return;
     }
 
-    synchronized (this) {
+    lock.lock();
+    try {
       ResultWrapper result = firstUnclosedResult;
       while (result != null) {
         if (result.getResultSet() != null && !result.getResultSet().isClosed()) {
@@ -1081,6 +1303,8 @@ public class PgStatement implements Statement, BaseStatement {
         }
         result = result.getNext();
       }
+    } finally {
+      lock.unlock();
     }
 
     // prevent all ResultSet.close arising from Statement.close to loop here
@@ -1094,7 +1318,8 @@ public class PgStatement implements Statement, BaseStatement {
   }
 
   public boolean getMoreResults(int current) throws SQLException {
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       // CLOSE_CURRENT_RESULT
       if (current == Statement.CLOSE_CURRENT_RESULT && result != null
@@ -1120,17 +1345,22 @@ public class PgStatement implements Statement, BaseStatement {
 
       // Done.
       return (result != null && result.getResultSet() != null);
+    } finally {
+      lock.unlock();
     }
   }
 
   public ResultSet getGeneratedKeys() throws SQLException {
-    synchronized (this) {
+    lock.lock();
+    try {
       checkClosed();
       if (generatedKeys == null || generatedKeys.getResultSet() == null) {
         return createDriverResultSet(new Field[0], new ArrayList<byte[][]>());
       }
 
       return generatedKeys.getResultSet();
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Handle of a statement execution started with {@link PgConnection#executeAsync}. The results are
+ * read from the connection by the thread that calls {@link #get()}, when the statement is executed
+ * again, or before the connection is used for anything else.
+ *
+ * <p>The value is the same as the one of {@link java.sql.PreparedStatement#execute()}: true if
+ * the first result is a ResultSet. The results themselves are available from the statement once
+ * the execution is done.</p>
+ */
+class PipelinedExecution implements Future<Boolean> {
+  private final PgStatement statement;
+  private final PgStatement.StatementResultHandler handler;
+  private final ReentrantLock lock = new ReentrantLock();
+  private Boolean hasResultSet;
+  private SQLException error;
+
+  PipelinedExecution(PgStatement statement, PgStatement.StatementResultHandler handler) {
+    this.statement = statement;
+    this.handler = handler;
+  }
+
+  PipelinedExecution(boolean hasResultSet) {
+    this(null, null);
+    this.hasResultSet = hasResultSet;
+  }
+
+  PipelinedExecution(SQLException error) {
+    this(null, null);
+    this.error = error;
+  }
+
+  boolean isFor(PgStatement.StatementResultHandler handler) {
+    return this.handler == handler;
+  }
+
+  /**
+   * Reads the results if that has not been done yet.
+   *
+   * @return true if the first result is a ResultSet
+   * @throws SQLException if the execution failed
+   */
+  boolean await() throws SQLException {
+    lock.lock();
+    try {
+      if (error != null) {
+        throw error;
+      }
+      if (hasResultSet == null) {
+        try {
+          hasResultSet = statement.finishExecution(handler);
+        } catch (SQLException e) {
+          error = e;
+          throw e;
+        }
+      }
+      return hasResultSet;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Pipelined queries cannot be taken back once sent, use {@link java.sql.Statement#cancel()} to
+   * cancel the running query.
+   *
+   * @return false
+   */
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return false;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return false;
+  }
+
+  /**
+   * @return true once the results have been handed to the statement
+   */
+  @Override
+  public boolean isDone() {
+    lock.lock();
+    try {
+      return hasResultSet != null || error != null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Boolean get() throws ExecutionException {
+    try {
+      return await();
+    } catch (SQLException e) {
+      throw new ExecutionException(e);
+    }
+  }
+
+  /**
+   * Reads the results like {@link #get()}, but gives up once the timeout elapsed. The timeout
+   * bounds the wait for the connection and for each response to begin arriving, a response that
+   * is arriving is read to its end. Results of statements sent earlier are read as well.
+   */
+  @Override
+  public Boolean get(long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    if (!lock.tryLock(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    try {
+      if (hasResultSet == null && error == null) {
+        try {
+          hasResultSet = statement.finishExecution(handler, deadline - System.nanoTime());
+        } catch (SQLException e) {
+          error = e;
+        }
+        if (hasResultSet == null && error == null) {
+          throw new TimeoutException();
+        }
+      }
+      if (error != null) {
+        throw new ExecutionException(error);
+      }
+      return hasResultSet;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.CachedQuery;
+import org.postgresql.core.Oid;
+import org.postgresql.core.ParameterList;
+import org.postgresql.core.Parser;
+import org.postgresql.core.Query;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.core.ResultHandlerBase;
+import org.postgresql.core.TransactionState;
+import org.postgresql.util.HostSpec;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prepares statements on the server before their first execution, see
+ * {@link PGProperty#PREPARE_ON_CONNECT} and {@link PGProperty#PREPARE_ON_CONNECT_LEARNED}. The
+ * statements are parsed and described in one round trip when the connection is opened and again
+ * after its server-prepared statements were discarded, for instance by {@code DISCARD ALL} of a
+ * connection pool.
+ *
+ * <p>Statements of {@link PGProperty#PREPARE_ON_CONNECT} are prepared with unspecified parameter
+ * types. Learned statements are prepared with the parameter types they were executed with.</p>
+ */
+class StatementWarmup {
+  private static final Logger LOGGER = Logger.getLogger(StatementWarmup.class.getName());
+
+  /**
+   * Maximum number of learned statements that are kept for each database and user.
+   */
+  private static final int MAX_LEARNED = 256;
+
+  private static final ConcurrentMap<String, LearnedStatements> LEARNED =
+      new ConcurrentHashMap<String, LearnedStatements>();
+
+  private final String statements;
+  private final int learnedCount;
+  private final LearnedStatements learned;
+  private final ReentrantLock lock = new ReentrantLock();
+  private int preparedEpoch = Integer.MIN_VALUE;
+
+  private StatementWarmup(String statements, int learnedCount, LearnedStatements learned) {
+    this.statements = statements;
+    this.learnedCount = learnedCount;
+    this.learned = learned;
+  }
+
+  /**
+   * @return the warm-up configured by the properties, or null if there is nothing to prepare
+   */
+  static StatementWarmup create(HostSpec[] hostSpecs, String user, String database,
+      Properties info) throws SQLException {
+    String statements = PGProperty.PREPARE_ON_CONNECT.get(info);
+    int learnedCount = Math.min(MAX_LEARNED, PGProperty.PREPARE_ON_CONNECT_LEARNED.getInt(info));
+    if ((statements == null || statements.trim().isEmpty()) && learnedCount <= 0) {
+      return null;
+    }
+    LearnedStatements learned = null;
+    if (learnedCount > 0) {
+      String target = user + '@' + Arrays.toString(hostSpecs) + '/' + database;
+      learned = LEARNED.get(target);
+      if (learned == null) {
+        LEARNED.putIfAbsent(target, new LearnedStatements());
+        learned = LEARNED.get(target);
+      }
+    }
+    return new StatementWarmup(statements, learnedCount, learned);
+  }
+
+  /**
+   * Remembers a statement that is executed as a server-prepared statement for the first time, so
+   * that connections opened later prepare it in advance.
+   *
+   * @param cachedQuery the statement
+   * @param parameters its parameters, only their types are kept
+   */
+  void learn(CachedQuery cachedQuery, ParameterList parameters) {
+    if (learned != null) {
+      learned.add(cachedQuery.key, parameters == null ? null : parameters.getTypeOIDs());
+    }
+  }
+
+  /**
+   * Prepares the statements unless that was done already since the prepared statements of the
+   * connection were last discarded. Nothing is done inside of a transaction, as a failure would
+   * abort it. Failures are logged and otherwise ignored.
+   *
+   * @param connection the connection to prepare the statements on
+   */
+  void prepare(BaseConnection connection) {
+    lock.lock();
+    try {
+      QueryExecutor queryExecutor = connection.getQueryExecutor();
+      int epoch = queryExecutor.getDeallocateEpoch();
+      int prepareThreshold = connection.getPrepareThreshold();
+      if (epoch == preparedEpoch || prepareThreshold == 0
+          || queryExecutor.getTransactionState() != TransactionState.IDLE) {
+        return;
+      }
+      preparedEpoch = epoch;
+
+      Map<Object, int[]> keys = new LinkedHashMap<Object, int[]>();
+      if (statements != null) {
+        for (String sql : Parser.splitStatements(statements,
+            queryExecutor.getStandardConformingStrings())) {
+          keys.put(sql, null);
+        }
+      }
+      if (learned != null) {
+        for (Map.Entry<Object, int[]> entry : learned.getRecent(learnedCount)) {
+          if (!keys.containsKey(entry.getKey())) {
+            keys.put(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+
+      List<CachedQuery> cachedQueries = new ArrayList<CachedQuery>(keys.size());
+      try {
+        List<Query> queries = new ArrayList<Query>(keys.size());
+        List<ParameterList> parameterLists = new ArrayList<ParameterList>(keys.size());
+        for (Map.Entry<Object, int[]> entry : keys.entrySet()) {
+          CachedQuery cachedQuery = queryExecutor.borrowQueryByKey(entry.getKey());
+          cachedQueries.add(cachedQuery);
+          if (cachedQuery.query.isEmpty()) {
+            continue;
+          }
+          ParameterList parameters = cachedQuery.query.createParameterList();
+          int[] types = entry.getValue();
+          if (types != null && types.length == parameters.getParameterCount()) {
+            for (int i = 0; i < types.length; i++) {
+              if (types[i] != Oid.UNSPECIFIED) {
+                parameters.setNull(i + 1, types[i]);
+              }
+            }
+          }
+          queries.add(cachedQuery.query);
+          parameterLists.add(parameters);
+          // The statement is server-prepared, so use it as such from the first execution
+          if (prepareThreshold > 0 && cachedQuery.getExecuteCount() < prepareThreshold) {
+            cachedQuery.increaseExecuteCount(prepareThreshold - cachedQuery.getExecuteCount());
+          }
+        }
+        if (queries.isEmpty()) {
+          return;
+        }
+        LOGGER.log(Level.FINE, "  preparing {0} statements", queries.size());
+        queryExecutor.prepareQueries(queries.toArray(new Query[0]),
+            parameterLists.toArray(new ParameterList[0]), new ResultHandlerBase());
+      } catch (SQLException e) {
+        LOGGER.log(Level.WARNING, "Unable to prepare the statements of the connection", e);
+      } finally {
+        for (CachedQuery cachedQuery : cachedQueries) {
+          queryExecutor.releaseQuery(cachedQuery);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Statements server-prepared by the connections to one database as one user, and the parameter
+   * types they were prepared with, least recently prepared first.
+   */
+  private static class LearnedStatements {
+    private final Map<Object, int[]> statements =
+        new LinkedHashMap<Object, int[]>(16, 0.75f, false) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Object, int[]> eldest) {
+            return size() > MAX_LEARNED;
+          }
+        };
+
+    synchronized void add(Object key, int[] types) {
+      // Move the statement to the end
+      statements.remove(key);
+      statements.put(key, types == null ? null : types.clone());
+    }
+
+    synchronized List<Map.Entry<Object, int[]>> getRecent(int count) {
+      List<Map.Entry<Object, int[]>> entries =
+          new ArrayList<Map.Entry<Object, int[]>>(statements.entrySet());
+      return new ArrayList<Map.Entry<Object, int[]>>(
+          entries.subList(Math.max(0, entries.size() - count), entries.size()));
+    }
+  }
+}
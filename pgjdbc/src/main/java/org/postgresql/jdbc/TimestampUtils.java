@@ -20,7 +20,9 @@ import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
 //#if mvn.project.property.postgresql.jdbc.spec >= "JDBC4.2"
+import java.time.DateTimeException;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -30,16 +32,24 @@ import java.time.ZonedDateTime;
 import java.time.chrono.IsoEra;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
 //#endif
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.SimpleTimeZone;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 /**
  * Misc utils for handling time and date values.
+ *
+ * <p>Instances are shared by all statements and result sets of a connection and may be used from
+ * several threads at once. They hold no locks: scratch calendars and buffers are confined to the
+ * calling thread and the caches are either immutable snapshots or concurrent maps.</p>
  */
 public class TimestampUtils {
   /**
@@ -59,10 +69,35 @@ public class TimestampUtils {
   private static final LocalDateTime MAX_LOCAL_DATETIME = LocalDateTime.MAX.minus(Duration.ofMillis(500));
   //#endif
 
+  /**
+   * Values from this point on (1900-01-01 UTC) are converted with plain arithmetic. Earlier ones go
+   * through {@link GregorianCalendar} that switches to the Julian calendar before 1582 and to local
+   * mean time before the zones were standardized.
+   */
+  private static final long FAST_PATH_MIN_MILLIS = -2208988800000L;
+  private static final long NO_CACHED_OFFSET = Long.MIN_VALUE;
+  private static final int MAX_FIXED_OFFSET_ZONES = 256;
+
   private static final Field DEFAULT_TIME_ZONE_FIELD;
 
-  private TimeZone prevDefaultZoneFieldValue;
-  private TimeZone defaultTimeZoneCache;
+  /**
+   * Zones for the numeric offsets that appear in timestamptz, timetz and user supplied values.
+   */
+  private static final ConcurrentMap<Integer, TimeZone> FIXED_OFFSET_ZONES =
+      new ConcurrentHashMap<Integer, TimeZone>();
+
+  private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<Scratch>() {
+    @Override
+    protected Scratch initialValue() {
+      return new Scratch();
+    }
+  };
+
+  private volatile DefaultTimeZoneCache defaultTimeZoneCache;
+
+  //#if mvn.project.property.postgresql.jdbc.spec >= "JDBC4.2"
+  private volatile OffsetInterval offsetInterval;
+  //#endif
 
   static {
     // The expected maximum value is 60 (seconds), so 64 is used "just in case"
@@ -114,16 +149,8 @@ public class TimestampUtils {
     DEFAULT_TIME_ZONE_FIELD = tzField;
   }
 
-  private final StringBuilder sbuf = new StringBuilder();
-
-  // This calendar is used when user provides calendar in setX(, Calendar) method.
-  // It ensures calendar is Gregorian.
-  private final Calendar calendarWithUserTz = new GregorianCalendar();
   private final TimeZone utcTz = TimeZone.getTimeZone("UTC");
 
-  private Calendar calCache;
-  private int calCacheZone;
-
   /**
    * True if the backend uses doubles for time values. False if long is used.
    */
@@ -135,10 +162,38 @@ public class TimestampUtils {
     this.timeZoneProvider = timeZoneProvider;
   }
 
-  private Calendar getCalendar(int sign, int hr, int min, int sec) {
+  /**
+   * Per-thread scratch objects. A conversion fully initializes them before use, so they carry no
+   * state from one call to the next.
+   */
+  private static final class Scratch {
+    // This calendar is used when user provides calendar in setX(, Calendar) method.
+    // It ensures calendar is Gregorian.
+    final Calendar calendar = new GregorianCalendar();
+    final StringBuilder sb = new StringBuilder();
+  }
+
+  private static final class DefaultTimeZoneCache {
+    final TimeZone fieldValue;
+    final TimeZone timeZone;
+
+    DefaultTimeZoneCache(TimeZone fieldValue, TimeZone timeZone) {
+      this.fieldValue = fieldValue;
+      this.timeZone = timeZone;
+    }
+  }
+
+  private static StringBuilder getStringBuilder() {
+    StringBuilder sb = SCRATCH.get().sb;
+    sb.setLength(0);
+    return sb;
+  }
+
+  private static TimeZone getFixedOffsetZone(int sign, int hr, int min, int sec) {
     int rawOffset = sign * (((hr * 60 + min) * 60 + sec) * 1000);
-    if (calCache != null && calCacheZone == rawOffset) {
-      return calCache;
+    TimeZone cached = FIXED_OFFSET_ZONES.get(rawOffset);
+    if (cached != null) {
+      return cached;
     }
 
     StringBuilder zoneID = new StringBuilder("GMT");
@@ -157,9 +212,11 @@ public class TimestampUtils {
     zoneID.append(sec);
 
     TimeZone syntheticTZ = new SimpleTimeZone(rawOffset, zoneID.toString());
-    calCache = new GregorianCalendar(syntheticTZ);
-    calCacheZone = rawOffset;
-    return calCache;
+    if (FIXED_OFFSET_ZONES.size() >= MAX_FIXED_OFFSET_ZONES) {
+      return syntheticTZ;
+    }
+    TimeZone prev = FIXED_OFFSET_ZONES.putIfAbsent(rawOffset, syntheticTZ);
+    return prev != null ? prev : syntheticTZ;
   }
 
   private static class ParsedTimestamp {
@@ -175,7 +232,7 @@ public class TimestampUtils {
     int second = 0;
     int nanos = 0;
 
-    Calendar tz = null;
+    TimeZone tz = null;
   }
 
   private static class ParsedBinaryTimestamp {
@@ -333,9 +390,8 @@ public class TimestampUtils {
         }
 
         // Setting offset does not seem to work correctly in all
-        // cases.. So get a fresh calendar for a synthetic timezone
-        // instead
-        result.tz = getCalendar(tzsign, tzhr, tzmin, tzsec);
+        // cases.. So use a synthetic timezone instead
+        result.tz = getFixedOffsetZone(tzsign, tzhr, tzmin, tzsec);
 
         start = skipWhitespace(s, start); // Skip trailing whitespace
       }
@@ -377,7 +433,7 @@ public class TimestampUtils {
    * @return null if s is null or a timestamp of the parsed string s.
    * @throws SQLException if there is a problem parsing s.
    */
-  public synchronized Timestamp toTimestamp(Calendar cal, String s) throws SQLException {
+  public Timestamp toTimestamp(Calendar cal, String s) throws SQLException {
     if (s == null) {
       return null;
     }
@@ -394,17 +450,30 @@ public class TimestampUtils {
     }
 
     ParsedTimestamp ts = parseBackendTimestamp(s);
-    Calendar useCal = ts.tz != null ? ts.tz : setupCalendar(cal);
-    useCal.set(Calendar.ERA, ts.era);
-    useCal.set(Calendar.YEAR, ts.year);
-    useCal.set(Calendar.MONTH, ts.month - 1);
-    useCal.set(Calendar.DAY_OF_MONTH, ts.day);
-    useCal.set(Calendar.HOUR_OF_DAY, ts.hour);
-    useCal.set(Calendar.MINUTE, ts.minute);
-    useCal.set(Calendar.SECOND, ts.second);
-    useCal.set(Calendar.MILLISECOND, 0);
+    long millis;
+    if (ts.era == GregorianCalendar.AD && ts.year >= 1900 && ts.month >= 1 && ts.month <= 12) {
+      // Out of range days and times roll over just like they do with a lenient Calendar
+      long localMillis = ((daysFromCivil(ts.year, ts.month, 1) + ts.day - 1) * 86400L
+          + ts.hour * 3600L + ts.minute * 60L + ts.second) * 1000L;
+      if (ts.tz != null) {
+        millis = localMillis - ts.tz.getRawOffset();
+      } else {
+        millis = guessTimestamp(localMillis, cal == null ? null : cal.getTimeZone());
+      }
+    } else {
+      Calendar useCal = ts.tz != null ? getSharedCalendar(ts.tz) : setupCalendar(cal);
+      useCal.set(Calendar.ERA, ts.era);
+      useCal.set(Calendar.YEAR, ts.year);
+      useCal.set(Calendar.MONTH, ts.month - 1);
+      useCal.set(Calendar.DAY_OF_MONTH, ts.day);
+      useCal.set(Calendar.HOUR_OF_DAY, ts.hour);
+      useCal.set(Calendar.MINUTE, ts.minute);
+      useCal.set(Calendar.SECOND, ts.second);
+      useCal.set(Calendar.MILLISECOND, 0);
+      millis = useCal.getTimeInMillis();
+    }
 
-    Timestamp result = new Timestamp(useCal.getTimeInMillis());
+    Timestamp result = new Timestamp(millis);
     result.setNanos(ts.nanos);
     return result;
   }
@@ -472,13 +541,13 @@ public class TimestampUtils {
   }
   //#endif
 
-  public synchronized Time toTime(Calendar cal, String s) throws SQLException {
+  public Time toTime(Calendar cal, String s) throws SQLException {
     // 1) Parse backend string
     if (s == null) {
       return null;
     }
     ParsedTimestamp ts = parseBackendTimestamp(s);
-    Calendar useCal = ts.tz != null ? ts.tz : setupCalendar(cal);
+    Calendar useCal = ts.tz != null ? getSharedCalendar(ts.tz) : setupCalendar(cal);
     if (ts.tz == null) {
       // When no time zone provided (e.g. time or timestamp)
       // We get the year-month-day from the string, then truncate the day to 1970-01-01
@@ -515,7 +584,7 @@ public class TimestampUtils {
     return convertToTime(timeMillis, useCal == null ? null : useCal.getTimeZone());
   }
 
-  public synchronized Date toDate(Calendar cal, String s) throws SQLException {
+  public Date toDate(Calendar cal, String s) throws SQLException {
     // 1) Parse backend string
     Timestamp timestamp = toTimestamp(cal, s);
 
@@ -534,7 +603,9 @@ public class TimestampUtils {
   }
 
   /**
-   * Get a shared calendar, applying the supplied time zone or the default time zone if null.
+   * Get a shared calendar, applying the supplied time zone or the default time zone if null. The
+   * calendar belongs to the calling thread and is reused by the next conversion made on it, so it
+   * must not be kept.
    *
    * @param timeZone time zone to be set for the calendar
    * @return The shared calendar.
@@ -543,7 +614,7 @@ public class TimestampUtils {
     if (timeZone == null) {
       timeZone = getDefaultTz();
     }
-    Calendar tmp = calendarWithUserTz;
+    Calendar tmp = SCRATCH.get().calendar;
     tmp.setTimeZone(timeZone);
     return tmp;
   }
@@ -558,11 +629,11 @@ public class TimestampUtils {
     return nanos % 1000 > 499;
   }
 
-  public synchronized String toString(Calendar cal, Timestamp x) {
+  public String toString(Calendar cal, Timestamp x) {
     return toString(cal, x, true);
   }
 
-  public synchronized String toString(Calendar cal, Timestamp x,
+  public String toString(Calendar cal, Timestamp x,
       boolean withTimeZone) {
     if (x.getTime() == PGStatement.DATE_POSITIVE_INFINITY) {
       return "infinity";
@@ -570,7 +641,6 @@ public class TimestampUtils {
       return "-infinity";
     }
 
-    cal = setupCalendar(cal);
     long timeMillis = x.getTime();
 
     // Round to microseconds
@@ -584,26 +654,40 @@ public class TimestampUtils {
       // a little bit saner for debugging reasons
       nanos += 1000 - nanos % 1000;
     }
-    cal.setTimeInMillis(timeMillis);
 
-    sbuf.setLength(0);
+    StringBuilder sb = getStringBuilder();
+    if (timeMillis >= FAST_PATH_MIN_MILLIS) {
+      TimeZone tz = cal == null ? getDefaultTz() : cal.getTimeZone();
+      int offset = tz.getOffset(timeMillis);
+      long localMillis = timeMillis + offset;
+      appendDate(sb, floorDiv(localMillis, ONEDAY));
+      sb.append(' ');
+      appendTime(sb, (int) floorMod(localMillis, ONEDAY), nanos);
+      if (withTimeZone) {
+        appendTimeZone(sb, offset / 1000);
+      }
+      return sb.toString();
+    }
+
+    cal = setupCalendar(cal);
+    cal.setTimeInMillis(timeMillis);
 
-    appendDate(sbuf, cal);
-    sbuf.append(' ');
-    appendTime(sbuf, cal, nanos);
+    appendDate(sb, cal);
+    sb.append(' ');
+    appendTime(sb, cal, nanos);
     if (withTimeZone) {
-      appendTimeZone(sbuf, cal);
+      appendTimeZone(sb, cal);
     }
-    appendEra(sbuf, cal);
+    appendEra(sb, cal);
 
-    return sbuf.toString();
+    return sb.toString();
   }
 
-  public synchronized String toString(Calendar cal, Date x) {
+  public String toString(Calendar cal, Date x) {
     return toString(cal, x, true);
   }
 
-  public synchronized String toString(Calendar cal, Date x,
+  public String toString(Calendar cal, Date x,
       boolean withTimeZone) {
     if (x.getTime() == PGStatement.DATE_POSITIVE_INFINITY) {
       return "infinity";
@@ -611,40 +695,63 @@ public class TimestampUtils {
       return "-infinity";
     }
 
+    StringBuilder sb = getStringBuilder();
+    long timeMillis = x.getTime();
+    if (timeMillis >= FAST_PATH_MIN_MILLIS) {
+      TimeZone tz = cal == null ? getDefaultTz() : cal.getTimeZone();
+      int offset = tz.getOffset(timeMillis);
+      appendDate(sb, floorDiv(timeMillis + offset, ONEDAY));
+      if (withTimeZone) {
+        sb.append(' ');
+        appendTimeZone(sb, offset / 1000);
+      }
+      return sb.toString();
+    }
+
     cal = setupCalendar(cal);
     cal.setTime(x);
 
-    sbuf.setLength(0);
-
-    appendDate(sbuf, cal);
-    appendEra(sbuf, cal);
+    appendDate(sb, cal);
+    appendEra(sb, cal);
     if (withTimeZone) {
-      sbuf.append(' ');
-      appendTimeZone(sbuf, cal);
+      sb.append(' ');
+      appendTimeZone(sb, cal);
     }
 
-    return sbuf.toString();
+    return sb.toString();
   }
 
-  public synchronized String toString(Calendar cal, Time x) {
+  public String toString(Calendar cal, Time x) {
     return toString(cal, x, true);
   }
 
-  public synchronized String toString(Calendar cal, Time x,
+  public String toString(Calendar cal, Time x,
       boolean withTimeZone) {
+    StringBuilder sb = getStringBuilder();
+    long timeMillis = x.getTime();
+    if (timeMillis >= FAST_PATH_MIN_MILLIS) {
+      TimeZone tz = cal == null ? getDefaultTz() : cal.getTimeZone();
+      int offset = tz.getOffset(timeMillis);
+      int millisOfDay = (int) floorMod(timeMillis + offset, ONEDAY);
+      appendTime(sb, millisOfDay, millisOfDay % 1000 * 1000000);
+      // The 'time' parser for <= 7.3 doesn't like timezones.
+      if (withTimeZone) {
+        appendTimeZone(sb, offset / 1000);
+      }
+      return sb.toString();
+    }
+
     cal = setupCalendar(cal);
     cal.setTime(x);
 
-    sbuf.setLength(0);
-
-    appendTime(sbuf, cal, cal.get(Calendar.MILLISECOND) * 1000000);
+    appendTime(sb, cal, cal.get(Calendar.MILLISECOND) * 1000000);
 
     // The 'time' parser for <= 7.3 doesn't like timezones.
     if (withTimeZone) {
-      appendTimeZone(sbuf, cal);
+      appendTimeZone(sb, cal);
     }
 
-    return sbuf.toString();
+    return sb.toString();
   }
 
   private static void appendDate(StringBuilder sb, Calendar cal) {
@@ -654,6 +761,23 @@ public class TimestampUtils {
     appendDate(sb, l_year, l_month, l_day);
   }
 
+  /**
+   * Appends the proleptic Gregorian date of the given day since 1970-01-01.
+   */
+  private static void appendDate(StringBuilder sb, long epochDay) {
+    // See daysFromCivil for the algorithm, this is its inverse
+    long z = epochDay + 719468;
+    long era = floorDiv(z, 146097);
+    int doe = (int) (z - era * 146097);
+    int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+    int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+    int mp = (5 * doy + 2) / 153;
+    int day = doy - (153 * mp + 2) / 5 + 1;
+    int month = mp < 10 ? mp + 3 : mp - 9;
+    int year = (int) (era * 400 + yoe) + (month <= 2 ? 1 : 0);
+    appendDate(sb, year, month, day);
+  }
+
   private static void appendDate(StringBuilder sb, int year, int month, int day) {
     // always use at least four digits for the year so very
     // early years, like 2, don't get misinterpreted
@@ -678,6 +802,11 @@ public class TimestampUtils {
     appendTime(sb, hours, minutes, seconds, nanos);
   }
 
+  private static void appendTime(StringBuilder sb, int millisOfDay, int nanos) {
+    int seconds = millisOfDay / 1000;
+    appendTime(sb, seconds / 3600, seconds / 60 % 60, seconds % 60, nanos);
+  }
+
   /**
    * Appends time part to the {@code StringBuilder} in PostgreSQL-compatible format.
    * The function truncates {@param nanos} to microseconds. The value is expected to be rounded
@@ -756,24 +885,22 @@ public class TimestampUtils {
   }
 
   //#if mvn.project.property.postgresql.jdbc.spec >= "JDBC4.2"
-  public synchronized String toString(LocalDate localDate) {
+  public String toString(LocalDate localDate) {
     if (LocalDate.MAX.equals(localDate)) {
       return "infinity";
     } else if (LocalDate.MIN.equals(localDate)) {
       return "-infinity";
     }
 
-    sbuf.setLength(0);
+    StringBuilder sb = getStringBuilder();
 
-    appendDate(sbuf, localDate);
-    appendEra(sbuf, localDate);
+    appendDate(sb, localDate);
+    appendEra(sb, localDate);
 
-    return sbuf.toString();
+    return sb.toString();
   }
 
-  public synchronized String toString(LocalTime localTime) {
-
-    sbuf.setLength(0);
+  public String toString(LocalTime localTime) {
 
     if (localTime.isAfter(MAX_TIME)) {
       return "24:00:00";
@@ -785,20 +912,21 @@ public class TimestampUtils {
       // it relies on the fact that appendTime just truncates 000..999 nanosecond part
       localTime = localTime.plus(ONE_MICROSECOND);
     }
-    appendTime(sbuf, localTime);
+    StringBuilder sb = getStringBuilder();
+    appendTime(sb, localTime);
 
-    return sbuf.toString();
+    return sb.toString();
   }
 
 
-  public synchronized String toString(OffsetDateTime offsetDateTime) {
+  public String toString(OffsetDateTime offsetDateTime) {
     if (offsetDateTime.isAfter(MAX_OFFSET_DATETIME)) {
       return "infinity";
     } else if (OffsetDateTime.MIN.equals(offsetDateTime)) {
       return "-infinity";
     }
 
-    sbuf.setLength(0);
+    StringBuilder sb = getStringBuilder();
 
     int nano = offsetDateTime.getNano();
     if (nanosExceed499(nano)) {
@@ -808,13 +936,13 @@ public class TimestampUtils {
     }
     LocalDateTime localDateTime = offsetDateTime.toLocalDateTime();
     LocalDate localDate = localDateTime.toLocalDate();
-    appendDate(sbuf, localDate);
-    sbuf.append(' ');
-    appendTime(sbuf, localDateTime.toLocalTime());
-    appendTimeZone(sbuf, offsetDateTime.getOffset());
-    appendEra(sbuf, localDate);
+    appendDate(sb, localDate);
+    sb.append(' ');
+    appendTime(sb, localDateTime.toLocalTime());
+    appendTimeZone(sb, offsetDateTime.getOffset());
+    appendEra(sb, localDate);
 
-    return sbuf.toString();
+    return sb.toString();
   }
 
   /**
@@ -823,7 +951,7 @@ public class TimestampUtils {
    * @param localDateTime The local date to format as a String
    * @return The formatted local date
    */
-  public synchronized String toString(LocalDateTime localDateTime) {
+  public String toString(LocalDateTime localDateTime) {
     if (localDateTime.isAfter(MAX_LOCAL_DATETIME)) {
       return "infinity";
     } else if (LocalDateTime.MIN.equals(localDateTime)) {
@@ -901,6 +1029,32 @@ public class TimestampUtils {
     return '\0';
   }
 
+  /**
+   * Returns the number of days from 1970-01-01 to the given proleptic Gregorian date. This is the
+   * well known "days from civil" algorithm: years start on March 1st, so the leap day is the last
+   * day of the year and 400 year eras have a fixed length.
+   */
+  private static long daysFromCivil(int year, int month, int day) {
+    long y = month <= 2 ? year - 1 : year;
+    long era = floorDiv(y, 400);
+    int yoe = (int) (y - era * 400);
+    int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+    return era * 146097 + doe - 719468;
+  }
+
+  private static long floorDiv(long x, long y) {
+    long q = x / y;
+    if ((x % y != 0) && ((x ^ y) < 0)) {
+      q--;
+    }
+    return q;
+  }
+
+  private static long floorMod(long x, long y) {
+    return x - floorDiv(x, y) * y;
+  }
+
   /**
    * Returns the SQL Date object matching the given bytes with {@link Oid#DATE}.
    *
@@ -939,17 +1093,18 @@ public class TimestampUtils {
     if (DEFAULT_TIME_ZONE_FIELD != null) {
       try {
         TimeZone defaultTimeZone = (TimeZone) DEFAULT_TIME_ZONE_FIELD.get(null);
-        if (defaultTimeZone == prevDefaultZoneFieldValue) {
-          return defaultTimeZoneCache;
+        DefaultTimeZoneCache cache = defaultTimeZoneCache;
+        if (cache != null && cache.fieldValue == defaultTimeZone) {
+          return cache.timeZone;
         }
-        prevDefaultZoneFieldValue = defaultTimeZone;
+        TimeZone tz = TimeZone.getDefault();
+        defaultTimeZoneCache = new DefaultTimeZoneCache(defaultTimeZone, tz);
+        return tz;
       } catch (Exception e) {
         // If this were to fail, fallback on slow method.
       }
     }
-    TimeZone tz = TimeZone.getDefault();
-    defaultTimeZoneCache = tz;
-    return tz;
+    return TimeZone.getDefault();
   }
 
   public boolean hasFastDefaultTimeZone() {
@@ -1186,12 +1341,16 @@ public class TimestampUtils {
       // For well-known non-DST time zones, just subtract offset
       return millis - tz.getRawOffset();
     }
+    long cached = toInstantWithCachedOffset(millis, tz);
+    if (cached != NO_CACHED_OFFSET) {
+      return cached;
+    }
     // For all the other time zones, enjoy debugging Calendar API
     // Here we do a straight-forward implementation that splits original timestamp into pieces and
     // composes it back.
     // Note: cal.setTimeZone alone is not sufficient as it would alter hour (it will try to keep the
     // same time instant value)
-    Calendar cal = calendarWithUserTz;
+    Calendar cal = SCRATCH.get().calendar;
     cal.setTimeZone(utcTz);
     cal.setTimeInMillis(millis);
     int era = cal.get(Calendar.ERA);
@@ -1214,6 +1373,109 @@ public class TimestampUtils {
     return cal.getTimeInMillis();
   }
 
+  /**
+   * Resolves local time {@code localMillis} in {@code tz} with the offset of the last interval
+   * between two transitions of the zone that was looked up. Consecutive values of a column tend to
+   * fall in the same interval, so in the common case this is a subtraction.
+   *
+   * @param localMillis local time rendered as UTC, as in {@link #guessTimestamp(long, TimeZone)}
+   * @param tz time zone of the local time
+   * @return the point in time, or {@link #NO_CACHED_OFFSET} if the value is too close to a
+   *     transition (or too old) to be resolved without {@link Calendar}
+   */
+  private long toInstantWithCachedOffset(long localMillis, TimeZone tz) {
+    //#if mvn.project.property.postgresql.jdbc.spec >= "JDBC4.2"
+    if (localMillis >= FAST_PATH_MIN_MILLIS) {
+      OffsetInterval interval = offsetInterval;
+      if (interval == null || interval.timeZone != tz) {
+        interval = new OffsetInterval(tz, toZoneRules(tz));
+        offsetInterval = interval;
+      }
+      if (interval.rules != null) {
+        long millis = localMillis - interval.offsetMillis;
+        if (!interval.contains(millis)) {
+          interval = interval.around(localMillis - tz.getOffset(localMillis));
+          offsetInterval = interval;
+          millis = localMillis - interval.offsetMillis;
+        }
+        if (interval.contains(millis)) {
+          return millis;
+        }
+      }
+    }
+    //#endif
+    return NO_CACHED_OFFSET;
+  }
+
+  //#if mvn.project.property.postgresql.jdbc.spec >= "JDBC4.2"
+  /**
+   * Returns the rules of a zone from the time zone database, or null for custom {@link TimeZone}
+   * implementations as their transitions can't be trusted to match {@link ZoneRules}.
+   */
+  private static ZoneRules toZoneRules(TimeZone tz) {
+    try {
+      if (tz.equals(TimeZone.getTimeZone(tz.getID()))) {
+        return tz.toZoneId().getRules();
+      }
+    } catch (DateTimeException e) {
+      // Unknown to java.time
+    }
+    return null;
+  }
+
+  /**
+   * Part of the time line where a zone has a constant offset. The interval ends a day away from the
+   * surrounding transitions, so every local time inside it maps to exactly one point in time.
+   */
+  private static final class OffsetInterval {
+    final TimeZone timeZone;
+    final ZoneRules rules;
+    final long startMillis;
+    final long endMillis;
+    final int offsetMillis;
+
+    OffsetInterval(TimeZone timeZone, ZoneRules rules) {
+      this(timeZone, rules, 0, 0, 0);
+    }
+
+    private OffsetInterval(TimeZone timeZone, ZoneRules rules, long startMillis, long endMillis,
+        int offsetMillis) {
+      this.timeZone = timeZone;
+      this.rules = rules;
+      this.startMillis = startMillis;
+      this.endMillis = endMillis;
+      this.offsetMillis = offsetMillis;
+    }
+
+    boolean contains(long millis) {
+      return millis >= startMillis && millis < endMillis;
+    }
+
+    OffsetInterval around(long millis) {
+      Instant instant = Instant.ofEpochMilli(millis);
+      ZoneOffset offset = rules.getOffset(instant);
+      ZoneOffsetTransition previous = rules.previousTransition(instant);
+      ZoneOffsetTransition next = rules.nextTransition(instant);
+      int offsetMillis = offset.getTotalSeconds() * 1000;
+      // The interval is only used if TimeZone agrees with ZoneRules about it. They may disagree in
+      // early history (local mean time), and millis may be exactly at a transition.
+      if (previous == null || !previous.getOffsetAfter().equals(offset) || !agrees(previous)
+          || next != null && !agrees(next)) {
+        return new OffsetInterval(timeZone, rules);
+      }
+      long start = previous.toEpochSecond() * 1000 + ONEDAY;
+      long end = next == null ? Long.MAX_VALUE : next.toEpochSecond() * 1000 - ONEDAY;
+      return new OffsetInterval(timeZone, rules, start, end, offsetMillis);
+    }
+
+    private boolean agrees(ZoneOffsetTransition transition) {
+      long millis = transition.toEpochSecond() * 1000;
+      return timeZone.getOffset(millis - 1) == transition.getOffsetBefore().getTotalSeconds() * 1000
+          && timeZone.getOffset(millis) == transition.getOffsetAfter().getTotalSeconds() * 1000;
+    }
+  }
+  //#endif
+
   private static boolean isSimpleTimeZone(String id) {
     return id.startsWith("GMT") || id.startsWith("UTC");
   }
@@ -1251,7 +1513,12 @@ public class TimestampUtils {
       // Now we have brand-new 7 Jan 00:00 GMT+02:00
       return new Date(millis);
     }
-    Calendar cal = calendarWithUserTz;
+    if (millis >= FAST_PATH_MIN_MILLIS) {
+      // Local midnight of the day, resolved the same way as a value without time zone
+      long localMillis = millis + tz.getOffset(millis);
+      return new Date(guessTimestamp(floorDiv(localMillis, ONEDAY) * ONEDAY, tz));
+    }
+    Calendar cal = SCRATCH.get().calendar;
     cal.setTimeZone(tz);
     cal.setTimeInMillis(millis);
     cal.set(Calendar.HOUR_OF_DAY, 0);
@@ -1288,7 +1555,7 @@ public class TimestampUtils {
       // Now we have brand-new 1970 1 Jan 15:40 GMT+02:00
       return new Time(millis);
     }
-    Calendar cal = calendarWithUserTz;
+    Calendar cal = SCRATCH.get().calendar;
     cal.setTimeZone(tz);
     cal.setTimeInMillis(millis);
     cal.set(Calendar.ERA, GregorianCalendar.AD);
@@ -1310,8 +1577,7 @@ public class TimestampUtils {
   public String timeToString(java.util.Date time, boolean withTimeZone) {
     Calendar cal = null;
     if (withTimeZone) {
-      cal = calendarWithUserTz;
-      cal.setTimeZone(timeZoneProvider.get());
+      cal = getSharedCalendar(timeZoneProvider.get());
     }
     if (time instanceof Timestamp) {
       return toString(cal, (Timestamp) time, withTimeZone);
@@ -1398,6 +1664,51 @@ public class TimestampUtils {
     ByteConverter.int4(bytes, 0, (int) (secs / 86400));
   }
 
+  /**
+   * Converts the SQL Timestamp to binary representation for {@link Oid#TIMESTAMP} or
+   * {@link Oid#TIMESTAMPTZ}. See {@link #toTimestampBin} for the reverse operation.
+   *
+   * @param tz The timezone of the local time written for {@link Oid#TIMESTAMP}, null for the
+   *        default timezone. Ignored if timestamptz is true.
+   * @param bytes The 8 byte target of the binary encoded timestamp value.
+   * @param value value
+   * @param timestamptz True if the binary is in GMT.
+   */
+  public void toBinTimestamp(TimeZone tz, byte[] bytes, Timestamp value, boolean timestamptz) {
+    long millis = value.getTime();
+    if (millis == PGStatement.DATE_POSITIVE_INFINITY
+        || millis == PGStatement.DATE_NEGATIVE_INFINITY) {
+      boolean positive = millis == PGStatement.DATE_POSITIVE_INFINITY;
+      if (usesDouble) {
+        ByteConverter.float8(bytes, 0,
+            positive ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY);
+      } else {
+        ByteConverter.int8(bytes, 0, positive ? Long.MAX_VALUE : Long.MIN_VALUE);
+      }
+      return;
+    }
+
+    if (!timestamptz) {
+      if (tz == null) {
+        tz = getDefaultTz();
+      }
+      millis += tz.getOffset(millis);
+    }
+
+    long secs = millis / 1000;
+    if (millis % 1000 < 0) {
+      secs--;
+    }
+    // getNanos includes the milliseconds
+    int micros = value.getNanos() / 1000;
+    secs = toPgSecs(secs);
+    if (usesDouble) {
+      ByteConverter.float8(bytes, 0, secs + micros / 1000000.0);
+    } else {
+      ByteConverter.int8(bytes, 0, secs * 1000000 + micros);
+    }
+  }
+
   /**
    * Converts backend's TimeZone parameter to java format.
    * Notable difference: backend's gmt-3 is GMT+03 in Java.
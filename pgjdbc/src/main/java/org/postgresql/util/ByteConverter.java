@@ -5,6 +5,9 @@
 
 package org.postgresql.util;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
 /**
  * Helper methods to parse java base types from byte arrays.
  *
@@ -12,6 +15,29 @@ package org.postgresql.util;
  */
 public class ByteConverter {
 
+  private static final int NBASE = 10000;
+  private static final int DEC_DIGITS = 4;
+  private static final short NUMERIC_POS = 0x0000;
+  private static final short NUMERIC_NEG = 0x4000;
+  private static final short NUMERIC_NAN = (short) 0xC000;
+  private static final short NUMERIC_PINF = (short) 0xD000;
+  private static final short NUMERIC_NINF = (short) 0xF000;
+  private static final int NUMERIC_DSCALE_MASK = 0x3FFF;
+
+  private static final long[] LONG_POWERS_OF_TEN = new long[19];
+  private static final BigInteger[] BIG_NBASE_POWERS = new BigInteger[5];
+
+  static {
+    long power = 1;
+    for (int i = 0; i < LONG_POWERS_OF_TEN.length; i++) {
+      LONG_POWERS_OF_TEN[i] = power;
+      power *= 10;
+    }
+    for (int i = 0; i < BIG_NBASE_POWERS.length; i++) {
+      BIG_NBASE_POWERS[i] = BigInteger.valueOf(LONG_POWERS_OF_TEN[i * DEC_DIGITS]);
+    }
+  }
+
   private ByteConverter() {
     // prevent instantiation of static helper class
   }
@@ -175,4 +201,169 @@ public class ByteConverter {
   public static void float8(byte[] target, int idx, double value) {
     int8(target, idx, Double.doubleToRawLongBits(value));
   }
+
+  /**
+   * Parses a numeric value from the byte array, see {@code numeric_recv} in the backend. The
+   * value is a list of base 10000 digits with the weight of the first digit, a sign and the display
+   * scale.
+   *
+   * @param bytes The byte array to parse.
+   * @return a {@link BigDecimal} with the display scale of the value, or {@link Double#NaN},
+   *     {@link Double#POSITIVE_INFINITY} or {@link Double#NEGATIVE_INFINITY} for the special
+   *     values that BigDecimal can't represent.
+   */
+  public static Number numeric(byte[] bytes) {
+    return numeric(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Parses a numeric value from the byte array, see {@link #numeric(byte[])}.
+   *
+   * @param bytes The byte array to parse.
+   * @param pos The starting index of the parse in the byte array.
+   * @param numBytes Number of bytes of the value.
+   * @return parsed value.
+   * @throws IllegalArgumentException if the bytes are not a valid numeric value.
+   */
+  public static Number numeric(byte[] bytes, int pos, int numBytes) {
+    if (numBytes < 8) {
+      throw new IllegalArgumentException("number of bytes should be at least 8");
+    }
+    int len = int2(bytes, pos);
+    short weight = int2(bytes, pos + 2);
+    short sign = int2(bytes, pos + 4);
+    int scale = int2(bytes, pos + 6) & NUMERIC_DSCALE_MASK;
+
+    if (numBytes != len * 2 + 8) {
+      throw new IllegalArgumentException("invalid length of bytes \"numeric\" value");
+    }
+    if (sign == NUMERIC_NAN) {
+      return Double.NaN;
+    } else if (sign == NUMERIC_PINF) {
+      return Double.POSITIVE_INFINITY;
+    } else if (sign == NUMERIC_NINF) {
+      return Double.NEGATIVE_INFINITY;
+    } else if (sign != NUMERIC_POS && sign != NUMERIC_NEG) {
+      throw new IllegalArgumentException("invalid sign in \"numeric\" value");
+    }
+
+    // The value is digits * 10^(4 * (weight + 1 - len)), but we want it as unscaled * 10^-scale.
+    // Groups past the display scale are zero, skip them.
+    int shift = DEC_DIGITS * (weight + 1 - len) + scale;
+    while (shift <= -DEC_DIGITS && len > 0) {
+      len--;
+      shift += DEC_DIGITS;
+    }
+    if (len == 0) {
+      return BigDecimal.valueOf(0, scale);
+    }
+    int idx = pos + 8;
+
+    if (len <= 4) {
+      long unscaled = 0;
+      for (int i = 0; i < len; i++) {
+        unscaled = unscaled * NBASE + int2(bytes, idx + 2 * i);
+      }
+      if (shift < 0) {
+        unscaled /= LONG_POWERS_OF_TEN[-shift];
+        shift = 0;
+      } else if (shift > 0 && shift < LONG_POWERS_OF_TEN.length
+          && unscaled <= Long.MAX_VALUE / LONG_POWERS_OF_TEN[shift]) {
+        unscaled *= LONG_POWERS_OF_TEN[shift];
+        shift = 0;
+      }
+      if (shift == 0) {
+        return BigDecimal.valueOf(sign == NUMERIC_NEG ? -unscaled : unscaled, scale);
+      }
+    }
+
+    // Too large for a long, combine up to 4 digits (16 decimal digits) at a time
+    BigInteger unscaled = BigInteger.ZERO;
+    for (int i = 0; i < len; ) {
+      int count = Math.min(4, len - i);
+      long chunk = 0;
+      for (int j = 0; j < count; j++, i++) {
+        chunk = chunk * NBASE + int2(bytes, idx + 2 * i);
+      }
+      unscaled = unscaled.multiply(BIG_NBASE_POWERS[count]).add(BigInteger.valueOf(chunk));
+    }
+    if (shift < 0) {
+      unscaled = unscaled.divide(BigInteger.TEN.pow(-shift));
+    } else if (shift > 0) {
+      unscaled = unscaled.multiply(BigInteger.TEN.pow(shift));
+    }
+    return new BigDecimal(sign == NUMERIC_NEG ? unscaled.negate() : unscaled, scale);
+  }
+
+  /**
+   * Converts a {@link BigDecimal} to the binary representation of numeric, see
+   * {@link #numeric(byte[])}.
+   *
+   * @param nbr The value to convert.
+   * @return the binary value, or null if the value is out of the range numeric can represent.
+   */
+  public static byte[] numeric(BigDecimal nbr) {
+    int scale = nbr.scale();
+    BigInteger unscaled = nbr.unscaledValue().abs();
+    if (scale < 0) {
+      unscaled = unscaled.multiply(BigInteger.TEN.pow(-scale));
+      scale = 0;
+    }
+    if (scale > NUMERIC_DSCALE_MASK) {
+      return null;
+    }
+
+    // Align the decimal point on a digit boundary, so the lowest digit has weight -alignedScale/4
+    int alignedScale = (scale + DEC_DIGITS - 1) / DEC_DIGITS * DEC_DIGITS;
+    if (alignedScale != scale) {
+      unscaled = unscaled.multiply(BigInteger.valueOf(LONG_POWERS_OF_TEN[alignedScale - scale]));
+    }
+
+    // Digits, least significant first
+    short[] digits = new short[unscaled.bitLength() / 13 + 5];
+    int count = 0;
+    if (unscaled.bitLength() < 63) {
+      long value = unscaled.longValue();
+      while (value != 0) {
+        digits[count++] = (short) (value % NBASE);
+        value /= NBASE;
+      }
+    } else {
+      BigInteger chunkBase = BIG_NBASE_POWERS[4];
+      while (unscaled.signum() != 0) {
+        BigInteger[] qr = unscaled.divideAndRemainder(chunkBase);
+        unscaled = qr[0];
+        long chunk = qr[1].longValue();
+        for (int i = 0; i < 4; i++) {
+          digits[count++] = (short) (chunk % NBASE);
+          chunk /= NBASE;
+        }
+      }
+      while (count > 0 && digits[count - 1] == 0) {
+        count--;
+      }
+    }
+
+    int low = 0;
+    while (low < count && digits[low] == 0) {
+      low++;
+    }
+    int ndigits = count - low;
+    int weight = ndigits == 0 ? 0 : count - 1 - alignedScale / DEC_DIGITS;
+    if (weight > Short.MAX_VALUE || weight < Short.MIN_VALUE) {
+      return null;
+    }
+
+    byte[] bytes = new byte[8 + 2 * ndigits];
+    int2(bytes, 0, ndigits);
+    int2(bytes, 2, weight);
+    int2(bytes, 4, nbr.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS);
+    int2(bytes, 6, scale);
+    int idx = 8;
+    for (int i = count - 1; i >= low; i--) {
+      int2(bytes, idx, digits[i]);
+      idx += 2;
+    }
+    return bytes;
+  }
 }
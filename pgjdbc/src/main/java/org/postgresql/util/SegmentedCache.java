@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.util;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches values in a few independently locked segments, so threads working with different keys do
+ * not wait for each other. Each segment keeps its entries in a probation and a protected area, both
+ * in least-recently-accessed order: entries start in probation and move to the protected area when
+ * they are accessed again (segmented LRU).
+ *
+ * <p>When a segment is full, a new entry is only kept if its key was accessed more often than the
+ * key of the entry it would replace, as estimated by a small frequency sketch whose counts are
+ * halved now and then (TinyLFU admission). A stream of keys that are used once therefore does not
+ * push out the keys that are used over and over, which plain LRU does as soon as the number of
+ * distinct keys exceeds the capacity.</p>
+ *
+ * <p>The size limits are split evenly between the segments, a value that needs more than half of
+ * the bytes of its segment is not cached. The cache offers the same operations as {@link LruCache}
+ * and counts hits, misses and evictions.</p>
+ *
+ * @param <Key> type of the keys
+ * @param <Value> type of the cached values
+ */
+public class SegmentedCache<Key, Value extends CanEstimateSize> implements Gettable<Key, Value> {
+  private static final int MAX_SEGMENTS = 4;
+  private static final int MIN_SEGMENT_ENTRIES = 32;
+
+  private final List<Segment> segments;
+  private final int segmentMask;
+  private final LruCache.CreateAction<Key, Value> createAction;
+  private final LruCache.EvictAction<Value> onEvict;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private volatile LruCache<Key, Value> lruView;
+
+  @SuppressWarnings("unchecked")
+  public SegmentedCache(int maxSizeEntries, long maxSizeBytes) {
+    this(maxSizeEntries, maxSizeBytes, LruCache.NOOP_CREATE_ACTION, LruCache.NOOP_EVICT_ACTION);
+  }
+
+  public SegmentedCache(int maxSizeEntries, long maxSizeBytes,
+      LruCache.CreateAction<Key, Value> createAction, LruCache.EvictAction<Value> onEvict) {
+    this.createAction = createAction;
+    this.onEvict = onEvict;
+    int count = 1;
+    while (count < MAX_SEGMENTS && maxSizeEntries / (count * 2) >= MIN_SEGMENT_ENTRIES) {
+      count *= 2;
+    }
+    segmentMask = count - 1;
+    segments = new ArrayList<Segment>(count);
+    for (int i = 0; i < count; i++) {
+      segments.add(new Segment((maxSizeEntries + count - 1) / count, maxSizeBytes / count));
+    }
+  }
+
+  /**
+   * Returns an entry from the cache.
+   *
+   * @param key cache key
+   * @return entry from cache or null if cache does not contain given key.
+   */
+  @Override
+  public Value get(Key key) {
+    int hash = hash(key);
+    Value value = segmentFor(hash).get(key, hash);
+    (value == null ? misses : hits).incrementAndGet();
+    return value;
+  }
+
+  /**
+   * Borrows an entry from the cache, it is removed until it is returned with {@link #put}.
+   *
+   * @param key cache key
+   * @return entry from cache or newly created entry if cache does not contain given key.
+   * @throws SQLException if entry creation fails
+   */
+  public Value borrow(Key key) throws SQLException {
+    int hash = hash(key);
+    Value value = segmentFor(hash).remove(key, hash);
+    if (value != null) {
+      hits.incrementAndGet();
+      return value;
+    }
+    misses.incrementAndGet();
+    return createAction.create(key);
+  }
+
+  /**
+   * Returns given value to the cache. The value is evicted right away if its segment is full of
+   * entries that are used more often.
+   *
+   * @param key key
+   * @param value value
+   */
+  public void put(Key key, Value value) {
+    int hash = hash(key);
+    List<Value> evicted = segmentFor(hash).put(key, hash, value);
+    if (evicted != null) {
+      for (Value e : evicted) {
+        evictValue(e);
+      }
+    }
+  }
+
+  /**
+   * Puts all the values from the given map into the cache.
+   *
+   * @param m The map containing entries to put into the cache
+   */
+  public void putAll(Map<Key, Value> m) {
+    for (Map.Entry<Key, Value> entry : m.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * @return number of entries in the cache
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.probation.size() + segment.protectedArea.size();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return number of {@link #get} and {@link #borrow} calls that found an entry
+   */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of {@link #get} and {@link #borrow} calls that found no entry
+   */
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return number of entries evicted to respect the size limits, including entries that were not
+   *     admitted
+   */
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  /**
+   * Returns a view of this cache for code written against {@link LruCache}. Its operations
+   * forward to this cache, so the entries and size limits are the ones of this cache.
+   *
+   * @return an LruCache that forwards to this cache
+   */
+  public LruCache<Key, Value> asLruCache() {
+    LruCache<Key, Value> view = lruView;
+    if (view == null) {
+      view = new LruCache<Key, Value>(0, 0, false) {
+        @Override
+        public Value get(Key key) {
+          return SegmentedCache.this.get(key);
+        }
+
+        @Override
+        public Value borrow(Key key) throws SQLException {
+          return SegmentedCache.this.borrow(key);
+        }
+
+        @Override
+        public void put(Key key, Value value) {
+          SegmentedCache.this.put(key, value);
+        }
+
+        @Override
+        public void putAll(Map<Key, Value> m) {
+          SegmentedCache.this.putAll(m);
+        }
+      };
+      lruView = view;
+    }
+    return view;
+  }
+
+  private void evictValue(Value value) {
+    try {
+      onEvict.evict(value);
+    } catch (SQLException e) {
+      /* ignore */
+    }
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments.get((hash >>> 24) & segmentMask);
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private final class Segment {
+    final int maxEntries;
+    final long maxBytes;
+    final int maxProtected;
+    final LinkedHashMap<Key, Value> probation = new LinkedHashMap<Key, Value>(16, 0.75f, true);
+    final LinkedHashMap<Key, Value> protectedArea = new LinkedHashMap<Key, Value>(16, 0.75f, true);
+    final FrequencySketch sketch;
+    long currentSize;
+
+    Segment(int maxEntries, long maxBytes) {
+      this.maxEntries = maxEntries;
+      this.maxBytes = maxBytes;
+      this.maxProtected = maxEntries - Math.max(1, maxEntries / 5);
+      this.sketch = new FrequencySketch(maxEntries);
+    }
+
+    synchronized Value get(Key key, int hash) {
+      sketch.increment(hash);
+      Value value = protectedArea.get(key);
+      if (value == null) {
+        value = probation.remove(key);
+        if (value != null) {
+          protect(key, value);
+        }
+      }
+      return value;
+    }
+
+    synchronized Value remove(Key key, int hash) {
+      sketch.increment(hash);
+      Value value = protectedArea.remove(key);
+      if (value == null) {
+        value = probation.remove(key);
+      }
+      if (value != null) {
+        currentSize -= value.getSize();
+      }
+      return value;
+    }
+
+    /**
+     * @return values the caller has to evict, null if none
+     */
+    synchronized List<Value> put(Key key, int hash, Value value) {
+      List<Value> evicted = null;
+      long valueSize = value.getSize();
+      if (maxBytes == 0 || maxEntries == 0 || valueSize * 2 > maxBytes) {
+        // Just destroy the value if cache is disabled or if entry would consume more than a half of
+        // the segment
+        evictions.incrementAndGet();
+        return singleton(value);
+      }
+      Value prev = protectedArea.remove(key);
+      if (prev == null) {
+        prev = probation.remove(key);
+      }
+      if (prev != null) {
+        // This should be a rare case
+        currentSize -= prev.getSize();
+        if (prev != value) {
+          evicted = singleton(prev);
+        }
+      }
+      if (sketch.frequency(hash) > 1) {
+        // borrowed entries are removed while in use, so a key seen before is returned to the
+        // protected area
+        protect(key, value);
+      } else {
+        probation.put(key, value);
+      }
+      currentSize += valueSize;
+
+      int candidateFrequency = -1;
+      while (probation.size() + protectedArea.size() > maxEntries || currentSize > maxBytes) {
+        Map.Entry<Key, Value> victim = eldestExcept(probation, key);
+        if (victim == null) {
+          victim = eldestExcept(protectedArea, key);
+        }
+        if (victim == null) {
+          break;
+        }
+        if (candidateFrequency < 0) {
+          candidateFrequency = sketch.frequency(hash);
+        }
+        // the new entry is only admitted if it is used more often than the one it replaces
+        boolean admit = candidateFrequency > sketch.frequency(hash(victim.getKey()));
+        Key evictKey = admit ? victim.getKey() : key;
+        Value evictValue = probation.remove(evictKey);
+        if (evictValue == null) {
+          evictValue = protectedArea.remove(evictKey);
+        }
+        currentSize -= evictValue.getSize();
+        evictions.incrementAndGet();
+        if (evicted == null) {
+          evicted = new ArrayList<Value>(2);
+        }
+        evicted.add(evictValue);
+        if (!admit) {
+          break;
+        }
+      }
+      return evicted;
+    }
+
+    private void protect(Key key, Value value) {
+      protectedArea.put(key, value);
+      while (protectedArea.size() > maxProtected) {
+        Map.Entry<Key, Value> eldest = protectedArea.entrySet().iterator().next();
+        protectedArea.remove(eldest.getKey());
+        probation.put(eldest.getKey(), eldest.getValue());
+      }
+    }
+
+    private Map.Entry<Key, Value> eldestExcept(LinkedHashMap<Key, Value> map, Key key) {
+      Iterator<Map.Entry<Key, Value>> it = map.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<Key, Value> entry = it.next();
+        if (!entry.getKey().equals(key)) {
+          return entry;
+        }
+      }
+      return null;
+    }
+
+    private List<Value> singleton(Value value) {
+      List<Value> list = new ArrayList<Value>(2);
+      list.add(value);
+      return list;
+    }
+  }
+
+  /**
+   * Count-min sketch of 4-bit counters that estimates how often a key was accessed recently. All
+   * counts are halved once the number of increments reaches ten times the capacity, so keys that
+   * are no longer used lose their weight.
+   */
+  static final class FrequencySketch {
+    private static final int[] SEEDS = {0x97cb3127, 0xb4b82e9d, 0x61c8864f, 0x2545f491};
+    private static final int MAX_COUNT = 15;
+
+    private final byte[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int entries) {
+      int size = 16;
+      while (size < entries * 4 && size < (1 << 24)) {
+        size <<= 1;
+      }
+      table = new byte[size];
+      mask = size - 1;
+      sampleSize = 10 * Math.max(entries, 1);
+    }
+
+    int frequency(int hash) {
+      int min = MAX_COUNT;
+      for (int seed : SEEDS) {
+        min = Math.min(min, table[index(hash, seed)]);
+      }
+      return min;
+    }
+
+    void increment(int hash) {
+      // conservative update: only the counters that hold the estimate are raised
+      int min = frequency(hash);
+      if (min == MAX_COUNT) {
+        return;
+      }
+      for (int seed : SEEDS) {
+        int index = index(hash, seed);
+        if (table[index] == min) {
+          table[index]++;
+        }
+      }
+      if (++additions >= sampleSize) {
+        for (int i = 0; i < table.length; i++) {
+          table[i] >>= 1;
+        }
+        additions /= 2;
+      }
+    }
+
+    private int index(int hash, int seed) {
+      int h = (hash ^ seed) * 0x85ebca6b;
+      h ^= h >>> 16;
+      h *= 0xc2b2ae35;
+      return (h ^ (h >>> 16)) & mask;
+    }
+  }
+}
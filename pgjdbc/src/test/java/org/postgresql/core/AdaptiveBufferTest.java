@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers of {@link PGStream} that follow the traffic, see {@link AdaptiveBufferSize}.
+ */
+public class AdaptiveBufferTest {
+  private static byte[] bytes(int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) i;
+    }
+    return data;
+  }
+
+  @Test
+  public void testSizeGrowsAndShrinks() {
+    AdaptiveBufferSize size = new AdaptiveBufferSize(8192, 32768);
+    for (int i = 0; i < 100; i++) {
+      size.record(size.get());
+    }
+    assertEquals(32768, size.get());
+    for (int i = 0; i < 1000; i++) {
+      size.record(100);
+    }
+    assertEquals(8192, size.get());
+  }
+
+  @Test
+  public void testMixedUsesKeepSize() {
+    AdaptiveBufferSize size = new AdaptiveBufferSize(8192, 32768);
+    for (int i = 0; i < 100; i++) {
+      size.record(i % 2 == 0 ? 8192 : 100);
+    }
+    assertEquals(8192, size.get());
+  }
+
+  @Test
+  public void testInputBufferGrowsWithBulkData() throws IOException {
+    byte[] data = bytes(1 << 20);
+    VisibleBufferedInputStream in =
+        new VisibleBufferedInputStream(new ByteArrayInputStream(data), 8192, 65536);
+    for (int i = 0; i < data.length; i++) {
+      assertEquals(data[i] & 0xFF, in.read());
+    }
+    assertEquals(-1, in.read());
+    assertEquals(65536, in.getBuffer().length);
+  }
+
+  @Test
+  public void testInputBufferIsTrimmedAfterLargeMessage() throws IOException {
+    byte[] data = bytes(100000);
+    // one read per call, so the adaptive size does not grow
+    VisibleBufferedInputStream in =
+        new VisibleBufferedInputStream(new TrickleInputStream(data, 100), 8192, 8192);
+    assertTrue(in.ensureBytes(50000));
+    assertTrue(in.getBuffer().length >= 50000);
+    in.skip(50000);
+    assertEquals(50000 & 0xFF, in.read());
+    assertEquals(8192, in.getBuffer().length);
+  }
+
+  @Test
+  public void testOutputBufferGrowsWithBatches() throws IOException {
+    final List<Integer> writes = new ArrayList<Integer>();
+    ByteArrayOutputStream sink = new ByteArrayOutputStream() {
+      @Override
+      public synchronized void write(byte[] b, int off, int len) {
+        writes.add(len);
+        super.write(b, off, len);
+      }
+    };
+    AdaptiveBufferedOutputStream out = new AdaptiveBufferedOutputStream(sink, 8192, 65536);
+    byte[] message = bytes(100);
+    for (int batch = 0; batch < 20; batch++) {
+      writes.clear();
+      for (int i = 0; i < 400; i++) {
+        out.write(message, 0, message.length);
+      }
+      out.flush();
+    }
+    // 40000 bytes per flush go out with one write once the buffer has grown
+    assertEquals(1, writes.size());
+    assertEquals(800000, sink.size());
+  }
+
+  @Test
+  public void testOutputWritesLargeArraysDirectly() throws IOException {
+    ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    OutputStream out = new AdaptiveBufferedOutputStream(sink, 8192, 8192);
+    byte[] small = bytes(10);
+    byte[] large = bytes(100000);
+    out.write(small);
+    out.write(large);
+    out.write(7);
+    out.flush();
+    byte[] expected = new byte[small.length + large.length + 1];
+    System.arraycopy(small, 0, expected, 0, small.length);
+    System.arraycopy(large, 0, expected, small.length, large.length);
+    expected[expected.length - 1] = 7;
+    assertArrayEquals(expected, sink.toByteArray());
+  }
+
+  /**
+   * Returns at most a few bytes per read, like a slow network.
+   */
+  private static class TrickleInputStream extends InputStream {
+    private final ByteArrayInputStream in;
+    private final int chunk;
+
+    TrickleInputStream(byte[] data, int chunk) {
+      this.in = new ByteArrayInputStream(data);
+      this.chunk = chunk;
+    }
+
+    @Override
+    public int read() {
+      return in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      return in.read(b, off, Math.min(len, chunk));
+    }
+  }
+}
@@ -13,6 +13,7 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -216,4 +217,13 @@ public class ParserTest {
     Assert.assertEquals(34, command.getBatchRewriteValuesBraceOpenPosition());
     Assert.assertEquals(56, command.getBatchRewriteValuesBraceClosePosition());
   }
+
+  @Test
+  public void splitStatements() {
+    String sql = " select ';' from t where a = ?;\n"
+        + "select \"a;b\" -- c;d\n from t;; select $x$;$x$, f(';') /* ; */ ";
+    Assert.assertEquals(Arrays.asList("select ';' from t where a = ?",
+        "select \"a;b\" -- c;d\n from t", "select $x$;$x$, f(';') /* ; */"),
+        Parser.splitStatements(sql, true));
+  }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Tests {@link SlabRows} and {@link SlabPool}.
+ */
+public class SlabRowsTest {
+  private final SlabPool pool = new SlabPool(64, 2);
+
+  private static byte[] payload(byte[][] tuple) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeShort(tuple.length);
+    for (byte[] value : tuple) {
+      if (value == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(value.length);
+        out.write(value);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void add(SlabRows rows, byte[][] tuple) throws IOException {
+    byte[] payload = payload(tuple);
+    int offset = rows.addRow(payload.length);
+    System.arraycopy(payload, 0, rows.getSlab(rows.size() - 1), offset, payload.length);
+  }
+
+  private static void assertTuple(byte[][] expected, byte[][] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertArrayEquals(expected[i], actual[i]);
+    }
+  }
+
+  @Test
+  public void testRowsShareSlabs() throws IOException {
+    SlabRows rows = new SlabRows(pool);
+    byte[][] a = {"a".getBytes("UTF-8"), null, new byte[0]};
+    byte[][] b = {"bb".getBytes("UTF-8"), "ccc".getBytes("UTF-8"), null};
+    for (int i = 0; i < 6; i++) {
+      add(rows, i % 2 == 0 ? a : b);
+    }
+    assertEquals(6, rows.size());
+    // a slab of 64 bytes has room for the first rows only
+    assertSame(rows.getSlab(0), rows.getSlab(1));
+    assertNotSame(rows.getSlab(0), rows.getSlab(5));
+    for (int i = 0; i < 6; i++) {
+      assertTuple(i % 2 == 0 ? a : b, rows.get(i));
+    }
+
+    int[] offsets = new int[3];
+    int[] lengths = new int[3];
+    assertTrue(rows.locate(1, offsets, lengths));
+    assertEquals(2, lengths[0]);
+    assertEquals('b', rows.getSlab(1)[offsets[0]]);
+    assertEquals(3, lengths[1]);
+    assertEquals(-1, lengths[2]);
+    assertFalse(rows.locate(1, new int[2], new int[2]));
+  }
+
+  @Test
+  public void testRowLargerThanASlab() throws IOException {
+    SlabRows rows = new SlabRows(pool);
+    byte[][] big = {new byte[100]};
+    add(rows, big);
+    assertEquals(106, rows.getSlab(0).length);
+    assertTuple(big, rows.get(0));
+    rows.release();
+    assertEquals(0, pool.getIdleCount());
+  }
+
+  @Test
+  public void testTuplesAreKeptAsTheyAre() throws IOException {
+    SlabRows rows = new SlabRows(pool);
+    byte[][] a = {"a".getBytes("UTF-8")};
+    byte[][] b = {"b".getBytes("UTF-8")};
+    byte[][] c = {"c".getBytes("UTF-8")};
+    add(rows, a);
+    add(rows, b);
+    rows.add(0, c);
+    assertSame(c, rows.get(0));
+    assertNull(rows.getSlab(0));
+    assertFalse(rows.locate(0, new int[1], new int[1]));
+    assertTuple(a, rows.get(1));
+
+    assertTuple(a, rows.set(1, b));
+    assertSame(b, rows.get(1));
+    assertTuple(c, rows.remove(0));
+    assertEquals(2, rows.size());
+    assertSame(b, rows.get(0));
+    assertTuple(b, rows.get(1));
+  }
+
+  @Test
+  public void testReleaseReturnsSlabsToThePool() throws IOException {
+    SlabRows rows = new SlabRows(pool);
+    for (int i = 0; i < 12; i++) {
+      add(rows, new byte[][]{new byte[10]});
+    }
+    byte[] first = rows.getSlab(0);
+    rows.release();
+    assertEquals(0, rows.size());
+    // only as many as the pool keeps
+    assertEquals(2, pool.getIdleCount());
+
+    SlabRows next = new SlabRows(pool);
+    add(next, new byte[][]{new byte[10]});
+    assertEquals(1, pool.getIdleCount());
+    assertTrue(next.getSlab(0) == first || pool.take() == first);
+  }
+}
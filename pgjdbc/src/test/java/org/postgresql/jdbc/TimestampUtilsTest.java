@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import org.postgresql.core.Provider;
+
+import org.junit.Test;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks the arithmetic conversions of {@link TimestampUtils} against {@link GregorianCalendar} and
+ * that a single instance can be used from several threads.
+ */
+public class TimestampUtilsTest {
+  private static final String[] ZONES = {
+      "Europe/Moscow", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata", "UTC",
+      "America/Sao_Paulo"};
+
+  private final TimestampUtils timestampUtils = new TimestampUtils(false,
+      new Provider<TimeZone>() {
+        @Override
+        public TimeZone get() {
+          return TimeZone.getTimeZone("UTC");
+        }
+      });
+
+  private static String format(String pattern, TimeZone tz, long millis) {
+    SimpleDateFormat format = new SimpleDateFormat(pattern);
+    format.setCalendar(new GregorianCalendar(tz));
+    return format.format(new java.util.Date(millis));
+  }
+
+  private static long expectedMillis(TimeZone tz, int year, int month, int day, int hour,
+      int minute, int second) {
+    Calendar cal = new GregorianCalendar(tz);
+    cal.clear();
+    cal.set(year, month - 1, day, hour, minute, second);
+    return cal.getTimeInMillis();
+  }
+
+  @Test
+  public void testToTimestampAroundTransitions() throws Exception {
+    for (String zone : ZONES) {
+      TimeZone tz = TimeZone.getTimeZone(zone);
+      Calendar cal = new GregorianCalendar(tz);
+      for (int year : new int[]{1900, 1921, 1970, 1999, 2000, 2011, 2014, 2018, 2037, 2100}) {
+        for (int month = 1; month <= 12; month++) {
+          for (int day = 1; day <= 31; day += 3) {
+            for (int hour = 0; hour < 24; hour++) {
+              String value = String.format("%04d-%02d-%02d %02d:30:15", year, month, day, hour);
+              assertEquals(zone + " " + value,
+                  expectedMillis(tz, year, month, day, hour, 30, 15),
+                  timestampUtils.toTimestamp(cal, value).getTime());
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testToTimestampWithOffset() throws Exception {
+    Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("Europe/Moscow"));
+    assertEquals(expectedMillis(TimeZone.getTimeZone("GMT+05:30"), 2018, 3, 25, 2, 30, 0),
+        timestampUtils.toTimestamp(cal, "2018-03-25 02:30:00+05:30").getTime());
+    assertEquals(expectedMillis(TimeZone.getTimeZone("GMT-03"), 1969, 12, 31, 23, 0, 0),
+        timestampUtils.toTimestamp(cal, "1969-12-31 23:00:00-03").getTime());
+    Timestamp ts = timestampUtils.toTimestamp(null, "2018-02-30 24:00:00.123456+00");
+    assertEquals(expectedMillis(TimeZone.getTimeZone("UTC"), 2018, 3, 3, 0, 0, 0) + 123,
+        ts.getTime());
+    assertEquals(123456000, ts.getNanos());
+  }
+
+  @Test
+  public void testToStringMatchesCalendar() throws Exception {
+    Random random = new Random(42);
+    for (String zone : ZONES) {
+      TimeZone tz = TimeZone.getTimeZone(zone);
+      Calendar cal = new GregorianCalendar(tz);
+      for (int i = 0; i < 2000; i++) {
+        // 1850 to 2150, so the Calendar path is exercised as well
+        long millis = -3786825600000L + (long) (random.nextDouble() * 9467280000000L);
+        millis -= millis % 1000;
+        Timestamp ts = new Timestamp(millis);
+        assertEquals(zone + " " + millis, format("yyyy-MM-dd HH:mm:ss", tz, millis),
+            timestampUtils.toString(cal, ts, false));
+        assertEquals(zone + " " + millis, format("yyyy-MM-dd", tz, millis),
+            timestampUtils.toString(cal, new Date(millis), false));
+      }
+    }
+  }
+
+  @Test
+  public void testToStringWithTimeZone() throws Exception {
+    Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("Asia/Kolkata"));
+    Timestamp ts = new Timestamp(expectedMillis(TimeZone.getTimeZone("UTC"), 2018, 6, 1, 0, 0, 0));
+    ts.setNanos(120000000);
+    assertEquals("2018-06-01 05:30:00.12+05:30", timestampUtils.toString(cal, ts));
+    ts = new Timestamp(expectedMillis(TimeZone.getTimeZone("UTC"), 1960, 1, 1, 0, 0, 0));
+    assertEquals("1959-12-31 19:00:00-05",
+        timestampUtils.toString(new GregorianCalendar(TimeZone.getTimeZone("America/New_York")),
+            ts));
+  }
+
+  @Test
+  public void testConvertToDate() throws Exception {
+    for (String zone : ZONES) {
+      TimeZone tz = TimeZone.getTimeZone(zone);
+      for (int day = 0; day < 365 * 4; day += 5) {
+        long millis = expectedMillis(tz, 2010, 1, 1 + day, 13, 0, 0);
+        Calendar cal = new GregorianCalendar(tz);
+        cal.setTimeInMillis(millis);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        assertEquals(zone + " " + millis, cal.getTimeInMillis(),
+            timestampUtils.convertToDate(millis, tz).getTime());
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentUse() throws Exception {
+    final int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < threads; t++) {
+        final TimeZone tz = TimeZone.getTimeZone(ZONES[t]);
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            Calendar cal = new GregorianCalendar(tz);
+            for (int i = 0; i < 20000; i++) {
+              int year = 1950 + i % 100;
+              int month = 1 + i % 12;
+              int day = 1 + i % 28;
+              int hour = i % 24;
+              String value = String.format("%04d-%02d-%02d %02d:11:12", year, month, day, hour);
+              long millis = expectedMillis(tz, year, month, day, hour, 11, 12);
+              assertEquals(value, millis, timestampUtils.toTimestamp(cal, value).getTime());
+              assertEquals(value, format("yyyy-MM-dd HH:mm:ss", tz, millis),
+                  timestampUtils.toString(cal, new Timestamp(millis), false));
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
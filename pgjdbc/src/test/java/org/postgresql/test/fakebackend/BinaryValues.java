@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.fakebackend;
+
+import org.postgresql.core.Oid;
+import org.postgresql.util.ByteConverter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Conversions between the text and binary wire formats of the types the driver transfers in
+ * binary by default.
+ */
+class BinaryValues {
+  private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+  private static final DateTimeFormatter TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+      .appendPattern("yyyy-MM-dd HH:mm:ss")
+      .optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).optionalEnd()
+      .toFormatter();
+  private static final DateTimeFormatter TIMESTAMPTZ_FORMAT = new DateTimeFormatterBuilder()
+      .append(TIMESTAMP_FORMAT)
+      .appendOffset("+HH:MM", "+00:00")
+      .toFormatter();
+
+  private BinaryValues() {
+  }
+
+  static String text(byte[] value) {
+    return new String(value, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param oid column type
+   * @param value value in text format
+   * @return value in binary format
+   * @throws IllegalArgumentException if the type has no binary conversion here
+   */
+  static byte[] encode(int oid, String value) {
+    byte[] bytes;
+    switch (oid) {
+      case Oid.BOOL:
+        return new byte[]{(byte) (value.startsWith("t") ? 1 : 0)};
+      case Oid.INT2:
+        bytes = new byte[2];
+        ByteConverter.int2(bytes, 0, Short.parseShort(value));
+        return bytes;
+      case Oid.INT4:
+      case Oid.OID:
+        bytes = new byte[4];
+        ByteConverter.int4(bytes, 0, (int) Long.parseLong(value));
+        return bytes;
+      case Oid.INT8:
+        bytes = new byte[8];
+        ByteConverter.int8(bytes, 0, Long.parseLong(value));
+        return bytes;
+      case Oid.FLOAT4:
+        bytes = new byte[4];
+        ByteConverter.float4(bytes, 0, Float.parseFloat(value));
+        return bytes;
+      case Oid.FLOAT8:
+        bytes = new byte[8];
+        ByteConverter.float8(bytes, 0, Double.parseDouble(value));
+        return bytes;
+      case Oid.NUMERIC:
+        if (value.equals("NaN")) {
+          bytes = new byte[8];
+          ByteConverter.int2(bytes, 4, 0xC000);
+          return bytes;
+        }
+        return ByteConverter.numeric(new BigDecimal(value));
+      case Oid.TEXT:
+      case Oid.VARCHAR:
+      case Oid.BPCHAR:
+      case Oid.NAME:
+      case Oid.UNSPECIFIED:
+      case Oid.JSON:
+        return value.getBytes(StandardCharsets.UTF_8);
+      case Oid.BYTEA:
+        return value.startsWith("\\x") ? fromHex(value.substring(2))
+            : value.getBytes(StandardCharsets.UTF_8);
+      case Oid.DATE:
+        bytes = new byte[4];
+        ByteConverter.int4(bytes, 0,
+            (int) ChronoUnit.DAYS.between(PG_EPOCH.toLocalDate(), LocalDate.parse(value)));
+        return bytes;
+      case Oid.TIME:
+        bytes = new byte[8];
+        ByteConverter.int8(bytes, 0, LocalTime.parse(value).toNanoOfDay() / 1000);
+        return bytes;
+      case Oid.TIMESTAMP:
+        bytes = new byte[8];
+        ByteConverter.int8(bytes, 0, ChronoUnit.MICROS.between(PG_EPOCH,
+            LocalDateTime.parse(value, TIMESTAMP_FORMAT)));
+        return bytes;
+      case Oid.TIMESTAMPTZ:
+        bytes = new byte[8];
+        OffsetDateTime odt = OffsetDateTime.parse(normalizeOffset(value), TIMESTAMPTZ_FORMAT);
+        ByteConverter.int8(bytes, 0, ChronoUnit.MICROS.between(PG_EPOCH,
+            odt.withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime()));
+        return bytes;
+      case Oid.UUID:
+        UUID uuid = UUID.fromString(value);
+        bytes = new byte[16];
+        ByteConverter.int8(bytes, 0, uuid.getMostSignificantBits());
+        ByteConverter.int8(bytes, 8, uuid.getLeastSignificantBits());
+        return bytes;
+      default:
+        throw new IllegalArgumentException(
+            "The fake backend cannot send oid " + oid + " in binary format");
+    }
+  }
+
+  /**
+   * @param oid parameter type
+   * @param value value in binary format
+   * @return value in text format, hex encoded when the type is not known here
+   */
+  static String decode(int oid, byte[] value) {
+    switch (oid) {
+      case Oid.BOOL:
+        return value[0] != 0 ? "t" : "f";
+      case Oid.INT2:
+        return Short.toString(ByteConverter.int2(value, 0));
+      case Oid.INT4:
+      case Oid.OID:
+        return Integer.toString(ByteConverter.int4(value, 0));
+      case Oid.INT8:
+        return Long.toString(ByteConverter.int8(value, 0));
+      case Oid.FLOAT4:
+        return Float.toString(ByteConverter.float4(value, 0));
+      case Oid.FLOAT8:
+        return Double.toString(ByteConverter.float8(value, 0));
+      case Oid.NUMERIC:
+        Number number = ByteConverter.numeric(value);
+        return number instanceof BigDecimal ? ((BigDecimal) number).toPlainString()
+            : number.toString();
+      case Oid.TEXT:
+      case Oid.VARCHAR:
+      case Oid.BPCHAR:
+      case Oid.NAME:
+      case Oid.UNSPECIFIED:
+      case Oid.JSON:
+        return text(value);
+      default:
+        return "\\x" + toHex(value);
+    }
+  }
+
+  private static String normalizeOffset(String value) {
+    // PostgreSQL prints +03 for whole hour offsets
+    int sign = Math.max(value.lastIndexOf('+'), value.lastIndexOf('-'));
+    if (sign > 10 && value.indexOf(':', sign) < 0) {
+      return value + ":00";
+    }
+    return value;
+  }
+
+  private static byte[] fromHex(String hex) {
+    byte[] bytes = new byte[hex.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+    }
+    return bytes;
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Counts the rows of data in COPY binary format.
+   *
+   * @param data signature, header and rows
+   * @return number of rows before the trailer
+   */
+  static long countCopyRows(byte[] data) {
+    // signature and flags
+    int pos = 15;
+    pos += 4 + ByteConverter.int4(data, pos);
+    long rows = 0;
+    while (pos < data.length) {
+      int fields = ByteConverter.int2(data, pos);
+      pos += 2;
+      if (fields == -1) {
+        break;
+      }
+      for (int i = 0; i < fields; i++) {
+        int length = ByteConverter.int4(data, pos);
+        pos += 4 + Math.max(length, 0);
+      }
+      rows++;
+    }
+    return rows;
+  }
+}
@@ -0,0 +1,885 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.fakebackend;
+
+import org.postgresql.core.Oid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process server that speaks enough of the v3 protocol for the driver to run against it:
+ * trust startup, simple Query, Parse/Bind/Describe/Execute/Close/Sync with portal suspension,
+ * COPY IN/OUT, and the CopyBoth mode of replication connections. What each statement returns is
+ * decided by a {@link Handler}, usually a {@link FakeScript}.
+ *
+ * <p>The backend listens on an ephemeral loopback port; connect with {@link #getURL()}, or route
+ * any URL to it through {@link FakeBackendSocketFactory}. As no real server is involved, it can be
+ * used to measure driver side throughput and allocation per row, and to test protocol handling
+ * without a database.</p>
+ */
+public class FakeBackend implements Closeable {
+  /**
+   * Decides what a statement returns. Called on the session thread of the connection.
+   */
+  public interface Handler {
+    /**
+     * @param query the statement; when it is only described the parameters are not bound yet and
+     *     the result is used for its row description alone
+     * @return what to answer
+     * @throws IOException to terminate the session
+     */
+    FakeResult execute(FakeQuery query) throws IOException;
+  }
+
+  private static final int PROTOCOL_V3 = 196608;
+  private static final int SSL_REQUEST_CODE = 80877103;
+  private static final int CANCEL_REQUEST_CODE = 80877102;
+
+  private final Handler handler;
+  private final ServerSocket serverSocket;
+  private final Map<String, String> parameterStatus = new LinkedHashMap<String, String>();
+  private final Set<Socket> sockets =
+      Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+  private final Set<Session> sessions =
+      Collections.newSetFromMap(new ConcurrentHashMap<Session, Boolean>());
+
+  private final AtomicInteger connections = new AtomicInteger();
+  private final AtomicInteger cancelRequests = new AtomicInteger();
+  private final AtomicLong messagesReceived = new AtomicLong();
+  private final AtomicLong syncsReceived = new AtomicLong();
+  private final AtomicLong bytesReceived = new AtomicLong();
+  private final AtomicLong rowsSent = new AtomicLong();
+
+  public FakeBackend(Handler handler) throws IOException {
+    this.handler = handler;
+    parameterStatus.put("server_version", "10.5");
+    parameterStatus.put("server_version_num", "100005");
+    parameterStatus.put("server_encoding", "UTF8");
+    parameterStatus.put("client_encoding", "UTF8");
+    parameterStatus.put("DateStyle", "ISO, MDY");
+    parameterStatus.put("integer_datetimes", "on");
+    parameterStatus.put("standard_conforming_strings", "on");
+    parameterStatus.put("TimeZone", "UTC");
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+    Thread acceptor = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        acceptLoop();
+      }
+    }, "FakeBackend acceptor " + getPort());
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Changes a ParameterStatus value reported to connections opened afterwards.
+   *
+   * @param name parameter name, for instance {@code server_version}
+   * @param value parameter value
+   */
+  public synchronized void setParameterStatus(String name, String value) {
+    parameterStatus.put(name, value);
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public String getURL() {
+    return "jdbc:postgresql://127.0.0.1:" + getPort() + "/fake?sslmode=disable";
+  }
+
+  public int getConnectionCount() {
+    return connections.get();
+  }
+
+  public int getCancelRequestCount() {
+    return cancelRequests.get();
+  }
+
+  public long getMessagesReceived() {
+    return messagesReceived.get();
+  }
+
+  /**
+   * @return number of Sync messages received, that is round trips of the extended protocol
+   */
+  public long getSyncsReceived() {
+    return syncsReceived.get();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  public long getRowsSent() {
+    return rowsSent.get();
+  }
+
+  /**
+   * Sends a NotificationResponse to every connection, as {@code NOTIFY} in another session would.
+   * Connections that execute a statement receive it after the current message was answered.
+   *
+   * @param channel name of the channel
+   * @param payload payload of the notification
+   */
+  public void sendNotification(String channel, String payload) {
+    for (Session session : sessions) {
+      try {
+        session.notification(channel, payload);
+      } catch (IOException e) {
+        // the client went away
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    for (Socket socket : sockets) {
+      socket.close();
+    }
+  }
+
+  private void acceptLoop() {
+    while (!serverSocket.isClosed()) {
+      final Socket socket;
+      try {
+        socket = serverSocket.accept();
+      } catch (IOException e) {
+        return;
+      }
+      sockets.add(socket);
+      Thread session = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            new Session(socket).run();
+          } catch (IOException e) {
+            // client went away
+          } finally {
+            sockets.remove(socket);
+            try {
+              socket.close();
+            } catch (IOException e) {
+              // ignore
+            }
+          }
+        }
+      }, "FakeBackend session " + socket.getPort());
+      session.setDaemon(true);
+      session.start();
+    }
+  }
+
+  private static final class Statement {
+    final String sql;
+    final int[] parameterOids;
+
+    Statement(String sql, int[] parameterOids) {
+      this.sql = sql;
+      this.parameterOids = parameterOids;
+    }
+  }
+
+  private static final class Portal {
+    final FakeQuery query;
+    final int[] resultFormats;
+    FakeResult result;
+    int nextRow;
+
+    Portal(FakeQuery query, int[] resultFormats) {
+      this.query = query;
+      this.resultFormats = resultFormats;
+    }
+  }
+
+  private final class Session {
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final DataOutputStream msg = new DataOutputStream(body);
+
+    private final Map<String, Statement> statements = new HashMap<String, Statement>();
+    private final Map<String, Portal> portals = new HashMap<String, Portal>();
+    private char transactionStatus = 'I';
+    private boolean skipUntilSync;
+
+    Session(Socket socket) throws IOException {
+      socket.setTcpNoDelay(true);
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 8192));
+      out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 8192));
+    }
+
+    void run() throws IOException {
+      if (!startup()) {
+        return;
+      }
+      sessions.add(this);
+      try {
+        while (true) {
+          int type = in.read();
+          if (type == -1 || type == 'X') {
+            return;
+          }
+          byte[] payload = receive();
+          synchronized (this) {
+            if (!skipUntilSync || type == 'S') {
+              handle(type, new Payload(payload));
+            }
+          }
+        }
+      } finally {
+        sessions.remove(this);
+      }
+    }
+
+    private void handle(int type, Payload p) throws IOException {
+      switch (type) {
+        case 'Q':
+          simpleQuery(p.string());
+          break;
+        case 'P':
+          parse(p);
+          break;
+        case 'B':
+          bind(p);
+          break;
+        case 'D':
+          describe(p);
+          break;
+        case 'E':
+          execute(p);
+          break;
+        case 'C':
+          closeObject(p);
+          break;
+        case 'H':
+          out.flush();
+          break;
+        case 'S':
+          syncsReceived.incrementAndGet();
+          skipUntilSync = false;
+          readyForQuery();
+          out.flush();
+          break;
+        case 'd':
+        case 'c':
+        case 'f':
+          // copy messages outside of COPY are ignored, as the server does
+          break;
+        default:
+          error("08P01", "Unexpected frontend message " + (char) type);
+          skipUntilSync = true;
+          break;
+      }
+    }
+
+    private byte[] receive() throws IOException {
+      int len = in.readInt();
+      byte[] payload = new byte[len - 4];
+      in.readFully(payload);
+      messagesReceived.incrementAndGet();
+      bytesReceived.addAndGet(len + 1);
+      return payload;
+    }
+
+    private boolean startup() throws IOException {
+      while (true) {
+        int len = in.readInt();
+        int code = in.readInt();
+        in.readFully(new byte[len - 8]);
+        bytesReceived.addAndGet(len);
+        if (code == SSL_REQUEST_CODE) {
+          out.writeByte('N');
+          out.flush();
+        } else if (code == CANCEL_REQUEST_CODE) {
+          cancelRequests.incrementAndGet();
+          return false;
+        } else if (code != PROTOCOL_V3) {
+          error("08P01", "Unsupported protocol " + (code >> 16) + "." + (code & 0xFFFF));
+          out.flush();
+          return false;
+        } else {
+          break;
+        }
+      }
+      connections.incrementAndGet();
+
+      begin();
+      msg.writeInt(0);
+      end('R');
+      synchronized (FakeBackend.this) {
+        for (Map.Entry<String, String> entry : parameterStatus.entrySet()) {
+          begin();
+          cstring(entry.getKey());
+          cstring(entry.getValue());
+          end('S');
+        }
+      }
+      begin();
+      msg.writeInt(connections.get());
+      msg.writeInt(0x5eed);
+      end('K');
+      readyForQuery();
+      out.flush();
+      return true;
+    }
+
+    private void simpleQuery(String sql) throws IOException {
+      List<String> parts = split(sql);
+      if (parts.isEmpty()) {
+        begin();
+        end('I');
+      }
+      for (String part : parts) {
+        FakeResult result =
+            handle(new FakeQuery(part, new int[0], new byte[0][], new boolean[0], null));
+        boolean ok;
+        switch (result.kind) {
+          case ROWS:
+            rowDescription(result, null);
+            ok = dataRows(result, null, 0, result.rows.size());
+            if (ok) {
+              commandComplete(result.tag);
+            }
+            break;
+          case COPY_IN:
+            ok = copyIn(result, isBinaryCopy(part));
+            break;
+          case COPY_OUT:
+            ok = copyOut(result, isBinaryCopy(part));
+            break;
+          case COPY_BOTH:
+            ok = copyBoth(result);
+            break;
+          default:
+            ok = complete(result);
+            break;
+        }
+        if (!ok) {
+          break;
+        }
+      }
+      readyForQuery();
+      out.flush();
+    }
+
+    private void parse(Payload p) throws IOException {
+      String name = p.string();
+      String sql = p.string();
+      int[] oids = new int[p.int2()];
+      for (int i = 0; i < oids.length; i++) {
+        oids[i] = p.int4();
+      }
+      if (!name.isEmpty() && statements.containsKey(name)) {
+        fail("42P05", "prepared statement \"" + name + "\" already exists");
+        return;
+      }
+      statements.put(name, new Statement(sql, oids));
+      begin();
+      end('1');
+    }
+
+    private void bind(Payload p) throws IOException {
+      String portalName = p.string();
+      String statementName = p.string();
+      int[] parameterFormats = formats(p);
+      byte[][] values = new byte[p.int2()][];
+      boolean[] binary = new boolean[values.length];
+      for (int i = 0; i < values.length; i++) {
+        int len = p.int4();
+        values[i] = len == -1 ? null : p.bytes(len);
+        binary[i] = format(parameterFormats, i) == 1;
+      }
+      int[] resultFormats = formats(p);
+
+      Statement statement = statements.get(statementName);
+      if (statement == null) {
+        fail("26000", "prepared statement \"" + statementName + "\" does not exist");
+        return;
+      }
+      int[] oids = new int[values.length];
+      System.arraycopy(statement.parameterOids, 0, oids, 0,
+          Math.min(oids.length, statement.parameterOids.length));
+      FakeQuery query = new FakeQuery(statement.sql, oids, values, binary, resultFormats);
+      portals.put(portalName, new Portal(query, resultFormats));
+      begin();
+      end('2');
+    }
+
+    private void describe(Payload p) throws IOException {
+      char kind = (char) p.byte1();
+      String name = p.string();
+      FakeResult result;
+      int[] resultFormats = null;
+      if (kind == 'S') {
+        Statement statement = statements.get(name);
+        if (statement == null) {
+          fail("26000", "prepared statement \"" + name + "\" does not exist");
+          return;
+        }
+        result = handle(new FakeQuery(statement.sql, statement.parameterOids, null, null, null));
+        if (result.kind == FakeResult.Kind.ERROR) {
+          fail(result.sqlState, result.message);
+          return;
+        }
+        begin();
+        msg.writeShort(statement.parameterOids.length);
+        for (int oid : statement.parameterOids) {
+          msg.writeInt(oid == 0 ? Oid.TEXT : oid);
+        }
+        end('t');
+      } else {
+        Portal portal = portals.get(name);
+        if (portal == null) {
+          fail("34000", "portal \"" + name + "\" does not exist");
+          return;
+        }
+        result = result(portal);
+        if (result.kind == FakeResult.Kind.ERROR) {
+          fail(result.sqlState, result.message);
+          return;
+        }
+        resultFormats = portal.resultFormats;
+      }
+      if (result.kind == FakeResult.Kind.ROWS) {
+        rowDescription(result, resultFormats);
+      } else {
+        begin();
+        end('n');
+      }
+    }
+
+    private void execute(Payload p) throws IOException {
+      String name = p.string();
+      int maxRows = p.int4();
+      Portal portal = portals.get(name);
+      if (portal == null) {
+        fail("34000", "portal \"" + name + "\" does not exist");
+        return;
+      }
+      FakeResult result = result(portal);
+      switch (result.kind) {
+        case ROWS: {
+          int end = result.rows.size();
+          if (maxRows > 0) {
+            end = Math.min(end, portal.nextRow + maxRows);
+          }
+          if (!dataRows(result, portal.resultFormats, portal.nextRow, end)) {
+            skipUntilSync = true;
+            return;
+          }
+          int sent = end - portal.nextRow;
+          portal.nextRow = end;
+          if (end < result.rows.size()) {
+            begin();
+            end('s');
+          } else {
+            commandComplete("SELECT " + sent);
+          }
+          break;
+        }
+        case COPY_IN:
+        case COPY_OUT:
+        case COPY_BOTH:
+          fail("0A000", "COPY is only supported by the fake backend in simple query mode");
+          break;
+        default:
+          if (!complete(result)) {
+            skipUntilSync = true;
+          }
+          break;
+      }
+    }
+
+    private void closeObject(Payload p) throws IOException {
+      char kind = (char) p.byte1();
+      String name = p.string();
+      if (kind == 'S') {
+        statements.remove(name);
+      } else {
+        portals.remove(name);
+      }
+      begin();
+      end('3');
+    }
+
+    private FakeResult result(Portal portal) throws IOException {
+      if (portal.result == null) {
+        portal.result = handle(portal.query);
+      }
+      return portal.result;
+    }
+
+    private FakeResult handle(FakeQuery query) throws IOException {
+      if (transactionStatus == 'E' && !query.getSql().trim().toUpperCase(Locale.ROOT)
+          .startsWith("ROLLBACK")) {
+        return FakeResult.error("25P02",
+            "current transaction is aborted, commands ignored until end of transaction block");
+      }
+      try {
+        return handler.execute(query);
+      } catch (RuntimeException e) {
+        return FakeResult.error("XX000", String.valueOf(e));
+      }
+    }
+
+    /**
+     * Completes a statement without rows.
+     *
+     * @return false if an error was reported
+     */
+    private boolean complete(FakeResult result) throws IOException {
+      if (result.kind == FakeResult.Kind.ERROR) {
+        error(result.sqlState, result.message);
+        return false;
+      }
+      commandComplete(result.tag);
+      return true;
+    }
+
+    private void commandComplete(String tag) throws IOException {
+      String command = tag.toUpperCase(Locale.ROOT);
+      if (command.startsWith("BEGIN") || command.startsWith("START")) {
+        transactionStatus = 'T';
+      } else if (command.startsWith("COMMIT") || command.startsWith("ROLLBACK")
+          || command.startsWith("PREPARE TRANSACTION")) {
+        transactionStatus = 'I';
+      }
+      begin();
+      cstring(tag);
+      end('C');
+    }
+
+    private void rowDescription(FakeResult result, int[] resultFormats) throws IOException {
+      begin();
+      msg.writeShort(result.columnNames.length);
+      for (int i = 0; i < result.columnNames.length; i++) {
+        cstring(result.columnNames[i]);
+        msg.writeInt(0);
+        msg.writeShort(0);
+        msg.writeInt(result.columnOids[i]);
+        msg.writeShort(-1);
+        msg.writeInt(-1);
+        msg.writeShort(format(resultFormats, i));
+      }
+      end('T');
+    }
+
+    /**
+     * @return false if a value could not be encoded, the error has been reported then
+     */
+    private boolean dataRows(FakeResult result, int[] resultFormats, int from, int to)
+        throws IOException {
+      for (int r = from; r < to; r++) {
+        String[] row = result.rows.get(r);
+        begin();
+        msg.writeShort(row.length);
+        for (int i = 0; i < row.length; i++) {
+          if (row[i] == null) {
+            msg.writeInt(-1);
+            continue;
+          }
+          byte[] value;
+          if (format(resultFormats, i) == 1) {
+            try {
+              value = BinaryValues.encode(result.columnOids[i], row[i]);
+            } catch (RuntimeException e) {
+              body.reset();
+              error("XX000", String.valueOf(e));
+              return false;
+            }
+          } else {
+            value = row[i].getBytes(StandardCharsets.UTF_8);
+          }
+          msg.writeInt(value.length);
+          msg.write(value);
+        }
+        end('D');
+        rowsSent.incrementAndGet();
+      }
+      return true;
+    }
+
+    private boolean copyIn(FakeResult result, boolean binary) throws IOException {
+      begin();
+      msg.writeByte(binary ? 1 : 0);
+      msg.writeShort(0);
+      end('G');
+      out.flush();
+
+      long rows = 0;
+      ByteArrayOutputStream binaryData = new ByteArrayOutputStream();
+      while (true) {
+        int type = in.read();
+        if (type == -1) {
+          throw new EOFException();
+        }
+        byte[] payload = receive();
+        switch (type) {
+          case 'd':
+            try {
+              result.copyInSink.write(payload);
+            } catch (IOException e) {
+              error("22P04", e.getMessage());
+              return false;
+            }
+            if (binary) {
+              binaryData.write(payload);
+            } else {
+              for (byte b : payload) {
+                if (b == '\n') {
+                  rows++;
+                }
+              }
+            }
+            break;
+          case 'c':
+            if (binary) {
+              rows = BinaryValues.countCopyRows(binaryData.toByteArray());
+            }
+            commandComplete("COPY " + rows);
+            return true;
+          case 'f':
+            error("57014", "COPY from stdin failed: " + new Payload(payload).string());
+            return false;
+          case 'H':
+          case 'S':
+            break;
+          default:
+            error("08P01", "Unexpected message during COPY IN: " + (char) type);
+            return false;
+        }
+      }
+    }
+
+    private boolean copyOut(FakeResult result, boolean binary) throws IOException {
+      begin();
+      msg.writeByte(binary ? 1 : 0);
+      msg.writeShort(0);
+      end('H');
+      for (byte[] chunk : result.copyOutChunks) {
+        begin();
+        msg.write(chunk);
+        end('d');
+      }
+      begin();
+      end('c');
+      commandComplete(result.tag);
+      return true;
+    }
+
+    private boolean copyBoth(FakeResult result) throws IOException {
+      begin();
+      msg.writeByte(0);
+      msg.writeShort(0);
+      end('W');
+      for (byte[] message : result.copyOutChunks) {
+        begin();
+        msg.write(message);
+        end('d');
+      }
+      out.flush();
+
+      while (true) {
+        int type = in.read();
+        if (type == -1) {
+          throw new EOFException();
+        }
+        byte[] payload = receive();
+        switch (type) {
+          case 'd':
+            result.copyInSink.write(payload);
+            break;
+          case 'c':
+            begin();
+            end('c');
+            commandComplete(result.tag);
+            return true;
+          case 'f':
+            error("57014", "COPY failed: " + new Payload(payload).string());
+            return false;
+          case 'H':
+          case 'S':
+            out.flush();
+            break;
+          default:
+            error("08P01", "Unexpected message during COPY BOTH: " + (char) type);
+            return false;
+        }
+      }
+    }
+
+    private void fail(String sqlState, String message) throws IOException {
+      error(sqlState, message);
+      skipUntilSync = true;
+    }
+
+    private void error(String sqlState, String message) throws IOException {
+      if (transactionStatus == 'T') {
+        transactionStatus = 'E';
+      }
+      begin();
+      msg.writeByte('S');
+      cstring("ERROR");
+      msg.writeByte('V');
+      cstring("ERROR");
+      msg.writeByte('C');
+      cstring(sqlState);
+      msg.writeByte('M');
+      cstring(message);
+      msg.writeByte(0);
+      end('E');
+    }
+
+    synchronized void notification(String channel, String payload) throws IOException {
+      begin();
+      msg.writeInt(0x5eed);
+      cstring(channel);
+      cstring(payload);
+      end('A');
+      out.flush();
+    }
+
+    private void readyForQuery() throws IOException {
+      begin();
+      msg.writeByte(transactionStatus);
+      end('Z');
+    }
+
+    private void begin() {
+      body.reset();
+    }
+
+    private void end(char type) throws IOException {
+      out.writeByte(type);
+      out.writeInt(body.size() + 4);
+      body.writeTo(out);
+    }
+
+    private void cstring(String value) throws IOException {
+      msg.write(value.getBytes(StandardCharsets.UTF_8));
+      msg.writeByte(0);
+    }
+  }
+
+  private static int[] formats(Payload p) throws EOFException {
+    int[] formats = new int[p.int2()];
+    for (int i = 0; i < formats.length; i++) {
+      formats[i] = p.int2();
+    }
+    return formats;
+  }
+
+  /**
+   * Applies the format code rules of Bind: none means text, a single one applies to all.
+   */
+  static int format(int[] formats, int index) {
+    if (formats == null || formats.length == 0) {
+      return 0;
+    }
+    return formats.length == 1 ? formats[0] : formats[index];
+  }
+
+  /**
+   * Splits a simple query string into statements at semicolons outside of quotes.
+   */
+  private static boolean isBinaryCopy(String sql) {
+    return sql.toLowerCase(Locale.ROOT).matches("(?s).*\\bbinary\\b.*");
+  }
+
+  private static List<String> split(String sql) {
+    List<String> parts = new ArrayList<String>();
+    boolean inSingle = false;
+    boolean inDouble = false;
+    int start = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'' && !inDouble) {
+        inSingle = !inSingle;
+      } else if (c == '"' && !inSingle) {
+        inDouble = !inDouble;
+      } else if (c == ';' && !inSingle && !inDouble) {
+        addPart(parts, sql.substring(start, i));
+        start = i + 1;
+      }
+    }
+    addPart(parts, sql.substring(start));
+    return parts;
+  }
+
+  private static void addPart(List<String> parts, String part) {
+    if (!part.trim().isEmpty()) {
+      parts.add(part);
+    }
+  }
+
+  private static final class Payload {
+    private final byte[] bytes;
+    private int pos;
+
+    Payload(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    int byte1() throws EOFException {
+      if (pos >= bytes.length) {
+        throw new EOFException();
+      }
+      return bytes[pos++] & 0xFF;
+    }
+
+    int int2() throws EOFException {
+      return (short) (byte1() << 8 | byte1());
+    }
+
+    int int4() throws EOFException {
+      return byte1() << 24 | byte1() << 16 | byte1() << 8 | byte1();
+    }
+
+    byte[] bytes(int len) throws EOFException {
+      if (pos + len > bytes.length) {
+        throw new EOFException();
+      }
+      byte[] value = new byte[len];
+      System.arraycopy(bytes, pos, value, 0, len);
+      pos += len;
+      return value;
+    }
+
+    String string() throws EOFException {
+      int start = pos;
+      while (byte1() != 0) {
+        // scan to the terminator
+      }
+      return new String(bytes, start, pos - 1 - start, StandardCharsets.UTF_8);
+    }
+  }
+}
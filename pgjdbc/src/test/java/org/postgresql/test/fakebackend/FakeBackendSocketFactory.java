@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.fakebackend;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+
+import javax.net.SocketFactory;
+
+/**
+ * Connects every socket to a {@link FakeBackend}, whatever host the URL names. Use it with
+ * {@code socketFactory=org.postgresql.test.fakebackend.FakeBackendSocketFactory} and
+ * {@code socketFactoryArg=<FakeBackend.getPort()>}.
+ */
+public class FakeBackendSocketFactory extends SocketFactory {
+  private final int port;
+
+  public FakeBackendSocketFactory(String port) {
+    this.port = Integer.parseInt(port);
+  }
+
+  @Override
+  public Socket createSocket() {
+    return new Socket() {
+      @Override
+      public void connect(SocketAddress endpoint, int timeout) throws IOException {
+        super.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), timeout);
+      }
+    };
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    return connected();
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+      throws IOException {
+    return connected();
+  }
+
+  @Override
+  public Socket createSocket(InetAddress host, int port) throws IOException {
+    return connected();
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+      int localPort) throws IOException {
+    return connected();
+  }
+
+  private Socket connected() throws IOException {
+    Socket socket = createSocket();
+    socket.connect(null, 0);
+    return socket;
+  }
+}
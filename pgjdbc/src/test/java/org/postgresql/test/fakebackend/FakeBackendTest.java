@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.fakebackend;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+
+import org.postgresql.replication.LogSequenceNumber;
+import org.postgresql.replication.PGReplicationStream;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Runs the driver against {@link FakeBackend}, no database needed.
+ */
+public class FakeBackendTest extends FakeBackendTestBase {
+  private static FakeResult numbers(int count) {
+    List<String[]> rows = new ArrayList<String[]>();
+    for (int i = 0; i < count; i++) {
+      rows.add(new String[]{Integer.toString(i), "row " + i, "2018-07-14 12:34:56.789"});
+    }
+    return FakeResult.rows(new String[]{"id", "name", "created"},
+        new int[]{Oid.INT4, Oid.TEXT, Oid.TIMESTAMP}, rows);
+  }
+
+  private static void assertNumbers(ResultSet rs, int count) throws SQLException {
+    for (int i = 0; i < count; i++) {
+      assertTrue(rs.next());
+      assertEquals(i, rs.getInt(1));
+      assertEquals("row " + i, rs.getString(2));
+      assertEquals(Timestamp.valueOf("2018-07-14 12:34:56.789"), rs.getTimestamp(3));
+    }
+    assertFalse(rs.next());
+  }
+
+  @Test
+  public void testSimpleAndExtendedQuery() throws SQLException {
+    script.on("^select .* from numbers", numbers(3));
+    Connection con = connect(new Properties());
+    try {
+      Statement stmt = con.createStatement();
+      assertNumbers(stmt.executeQuery("select * from numbers"), 3);
+      assertEquals(0, stmt.executeUpdate("set search_path = fake"));
+
+      PreparedStatement ps = con.prepareStatement("select * from numbers where id < ?");
+      ps.setInt(1, 10);
+      assertNumbers(ps.executeQuery(), 3);
+    } finally {
+      con.close();
+    }
+    assertEquals(1, backend.getConnectionCount());
+    assertEquals(2, script.getExecutions("^select .* from numbers"));
+  }
+
+  @Test
+  public void testBinaryTransferAndParameters() throws SQLException {
+    final List<String> seen = new ArrayList<String>();
+    script.on("^select .* from numbers", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        if (query.isBound()) {
+          seen.add(query.getParameter(0) + "/" + query.getParameter(1));
+        }
+        return numbers(5);
+      }
+    });
+    Properties props = new Properties();
+    // server prepare from the first execution, so results come in binary
+    PGProperty.PREPARE_THRESHOLD.set(props, -1);
+    Connection con = connect(props);
+    try {
+      PreparedStatement ps =
+          con.prepareStatement("select * from numbers where id < ? and name <> ?");
+      for (int i = 0; i < 3; i++) {
+        ps.setInt(1, 42 + i);
+        ps.setString(2, "x");
+        assertNumbers(ps.executeQuery(), 5);
+      }
+    } finally {
+      con.close();
+    }
+    assertEquals(Arrays.asList("42/x", "43/x", "44/x"), seen);
+  }
+
+  @Test
+  public void testFetchSizeUsesPortalSuspension() throws SQLException {
+    script.on("^select .* from numbers", numbers(25));
+    Connection con = connect(new Properties());
+    try {
+      con.setAutoCommit(false);
+      PreparedStatement ps = con.prepareStatement("select * from numbers");
+      ps.setFetchSize(4);
+      assertNumbers(ps.executeQuery(), 25);
+      con.commit();
+    } finally {
+      con.close();
+    }
+    assertEquals(25, backend.getRowsSent());
+  }
+
+  @Test
+  public void testErrorKeepsConnectionUsable() throws SQLException {
+    script.on("^select .* from missing",
+        FakeResult.error("42P01", "relation \"missing\" does not exist"));
+    script.on("^select .* from numbers", numbers(1));
+    Connection con = connect(new Properties());
+    try {
+      Statement stmt = con.createStatement();
+      try {
+        stmt.executeQuery("select * from missing");
+        fail("the fake backend reports an error for this query");
+      } catch (SQLException e) {
+        assertEquals("42P01", e.getSQLState());
+      }
+      assertNumbers(stmt.executeQuery("select * from numbers"), 1);
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testCopy() throws SQLException, IOException {
+    ByteArrayOutputStream copied = new ByteArrayOutputStream();
+    script.on("^copy .* from stdin", FakeResult.copyIn(copied));
+    script.on("^copy .* to stdout", FakeResult.copyOut(Arrays.asList(
+        "1\ta\n".getBytes(StandardCharsets.UTF_8), "2\tb\n".getBytes(StandardCharsets.UTF_8))));
+    Connection con = connect(new Properties());
+    try {
+      PGConnection pgCon = con.unwrap(PGConnection.class);
+      byte[] data = "1\ta\n2\tb\n3\tc\n".getBytes(StandardCharsets.UTF_8);
+      long rows = pgCon.getCopyAPI().copyIn("copy t from stdin", new ByteArrayInputStream(data));
+      assertEquals(3, rows);
+      assertEquals("1\ta\n2\tb\n3\tc\n", new String(copied.toByteArray(), StandardCharsets.UTF_8));
+
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      assertEquals(2, pgCon.getCopyAPI().copyOut("copy t to stdout", out));
+      assertEquals("1\ta\n2\tb\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testSocketFactory() throws SQLException {
+    script.on("^select .* from numbers", numbers(2));
+    Properties props = new Properties();
+    PGProperty.USER.set(props, "fake");
+    PGProperty.SOCKET_FACTORY.set(props, FakeBackendSocketFactory.class.getName());
+    PGProperty.SOCKET_FACTORY_ARG.set(props, Integer.toString(backend.getPort()));
+    PGProperty.SSL_MODE.set(props, "disable");
+    Connection con = DriverManager.getConnection("jdbc:postgresql://db.invalid/fake", props);
+    try {
+      assertNumbers(con.createStatement().executeQuery("select * from numbers"), 2);
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testLogicalReplication() throws SQLException {
+    ByteArrayOutputStream status = new ByteArrayOutputStream();
+    script.on("^START_REPLICATION SLOT fake LOGICAL", FakeResult.copyBoth(Arrays.asList(
+        FakeResult.xLogData(0x100, "BEGIN 1".getBytes(StandardCharsets.UTF_8)),
+        FakeResult.xLogData(0x200, "COMMIT 1".getBytes(StandardCharsets.UTF_8))), status));
+    Properties props = new Properties();
+    PGProperty.REPLICATION.set(props, "database");
+    PGProperty.ASSUME_MIN_SERVER_VERSION.set(props, "9.4");
+    PGProperty.PREFER_QUERY_MODE.set(props, "simple");
+    Connection con = connect(props);
+    PGReplicationStream stream = con.unwrap(PGConnection.class).getReplicationAPI()
+        .replicationStream()
+        .logical()
+        .withSlotName("fake")
+        .withStartPosition(LogSequenceNumber.valueOf(0x100))
+        .start();
+    assertEquals("BEGIN 1", text(stream.read()));
+    assertEquals(LogSequenceNumber.valueOf(0x100), stream.getLastReceiveLSN());
+    assertEquals("COMMIT 1", text(stream.read()));
+    assertEquals(LogSequenceNumber.valueOf(0x200), stream.getLastReceiveLSN());
+    stream.close();
+    // the driver reports its position when the stream starts
+    assertEquals('r', status.toByteArray()[0]);
+    assertTrue(con.isValid(5));
+  }
+
+  private static String text(ByteBuffer buffer) {
+    return new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+        buffer.remaining(), StandardCharsets.UTF_8);
+  }
+}
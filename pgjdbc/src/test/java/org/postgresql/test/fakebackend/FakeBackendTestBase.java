@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.fakebackend;
+
+import org.postgresql.PGProperty;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Starts a {@link FakeBackend} that answers through {@link #script} before each test, and closes
+ * it and the connections opened by {@link #connect(Properties)} afterwards.
+ */
+public abstract class FakeBackendTestBase {
+  protected FakeScript script;
+  protected FakeBackend backend;
+  private final List<Connection> connections = new ArrayList<Connection>();
+
+  @Before
+  public void startBackend() throws Exception {
+    script = new FakeScript();
+    backend = new FakeBackend(createHandler(script));
+  }
+
+  @After
+  public void stopBackend() throws Exception {
+    try {
+      for (Connection con : connections) {
+        con.close();
+      }
+    } finally {
+      backend.close();
+    }
+  }
+
+  /**
+   * Override to look at or answer statements before the script does.
+   *
+   * @param script the script of the test
+   * @return what the backend answers statements with
+   */
+  protected FakeBackend.Handler createHandler(FakeScript script) {
+    return script;
+  }
+
+  /**
+   * Opens a connection to the backend, which is closed after the test unless the test does.
+   *
+   * @param props connection properties, the user is set
+   * @return the connection
+   * @throws SQLException if the connection fails
+   */
+  protected Connection connect(Properties props) throws SQLException {
+    Properties connectProps = new Properties();
+    connectProps.putAll(props);
+    PGProperty.USER.set(connectProps, "fake");
+    Connection con = DriverManager.getConnection(backend.getURL(), connectProps);
+    connections.add(con);
+    return con;
+  }
+
+  protected Connection connect() throws SQLException {
+    return connect(new Properties());
+  }
+}
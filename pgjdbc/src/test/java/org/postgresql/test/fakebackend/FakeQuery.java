@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.fakebackend;
+
+/**
+ * A statement as received by {@link FakeBackend}, with the bound parameter values if any.
+ */
+public final class FakeQuery {
+  private final String sql;
+  private final int[] parameterOids;
+  private final byte[][] parameters;
+  private final boolean[] binaryParameters;
+  private final int[] resultFormats;
+
+  FakeQuery(String sql, int[] parameterOids, byte[][] parameters, boolean[] binaryParameters,
+      int[] resultFormats) {
+    this.sql = sql;
+    this.parameterOids = parameterOids;
+    this.parameters = parameters;
+    this.binaryParameters = binaryParameters;
+    this.resultFormats = resultFormats;
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * @return false when the statement is only being described, so no parameter values exist yet
+   */
+  public boolean isBound() {
+    return parameters != null;
+  }
+
+  public int getParameterCount() {
+    return parameterOids.length;
+  }
+
+  /**
+   * @param index zero based parameter index
+   * @return the type the driver sent for the parameter, 0 when unspecified
+   */
+  public int getParameterOid(int index) {
+    return parameterOids[index];
+  }
+
+  /**
+   * @param index zero based parameter index
+   * @return raw parameter bytes, {@code null} for SQL NULL
+   */
+  public byte[] getParameterBytes(int index) {
+    return parameters[index];
+  }
+
+  public boolean isBinaryParameter(int index) {
+    return binaryParameters[index];
+  }
+
+  /**
+   * @param column zero based result column index
+   * @return true if Bind asked for the column in binary format
+   */
+  public boolean isBinaryResult(int column) {
+    return FakeBackend.format(resultFormats, column) == 1;
+  }
+
+  /**
+   * @param index zero based parameter index
+   * @return parameter value in text form, binary values of the common scalar types are converted
+   */
+  public String getParameter(int index) {
+    byte[] value = parameters[index];
+    if (value == null) {
+      return null;
+    }
+    if (!binaryParameters[index]) {
+      return BinaryValues.text(value);
+    }
+    return BinaryValues.decode(parameterOids[index], value);
+  }
+
+  @Override
+  public String toString() {
+    return sql;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.fakebackend;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What {@link FakeBackend} answers to a single statement.
+ */
+public final class FakeResult {
+  enum Kind {
+    COMMAND, ROWS, ERROR, COPY_IN, COPY_OUT, COPY_BOTH
+  }
+
+  final Kind kind;
+  final String tag;
+  final String[] columnNames;
+  final int[] columnOids;
+  final List<String[]> rows;
+  final String sqlState;
+  final String message;
+  final OutputStream copyInSink;
+  final List<byte[]> copyOutChunks;
+
+  private FakeResult(Kind kind, String tag, String[] columnNames, int[] columnOids,
+      List<String[]> rows, String sqlState, String message, OutputStream copyInSink,
+      List<byte[]> copyOutChunks) {
+    this.kind = kind;
+    this.tag = tag;
+    this.columnNames = columnNames;
+    this.columnOids = columnOids;
+    this.rows = rows;
+    this.sqlState = sqlState;
+    this.message = message;
+    this.copyInSink = copyInSink;
+    this.copyOutChunks = copyOutChunks;
+  }
+
+  /**
+   * @param tag command tag to report, for instance {@code "INSERT 0 1"}
+   * @return result of a statement that returns no rows
+   */
+  public static FakeResult command(String tag) {
+    return new FakeResult(Kind.COMMAND, tag, null, null, null, null, null, null, null);
+  }
+
+  /**
+   * Rows are given in text form. When the driver asks for binary transfer the backend converts
+   * values of the common scalar types; other types must then be excluded from binary transfer.
+   *
+   * @param columnNames column labels
+   * @param columnOids column type oids, see {@link org.postgresql.core.Oid}
+   * @param rows row values in text format, {@code null} for SQL NULL
+   * @return result of a query
+   */
+  public static FakeResult rows(String[] columnNames, int[] columnOids, List<String[]> rows) {
+    if (columnNames.length != columnOids.length) {
+      throw new IllegalArgumentException("Column names and oids must have the same length");
+    }
+    return new FakeResult(Kind.ROWS, "SELECT " + rows.size(), columnNames, columnOids,
+        Collections.unmodifiableList(new ArrayList<String[]>(rows)), null, null, null, null);
+  }
+
+  /**
+   * @param sqlState SQLSTATE to report
+   * @param message error message
+   * @return result of a failing statement
+   */
+  public static FakeResult error(String sqlState, String message) {
+    return new FakeResult(Kind.ERROR, null, null, null, null, sqlState, message, null, null);
+  }
+
+  /**
+   * Answers {@code COPY ... FROM STDIN}. The backend reports one row per newline received.
+   *
+   * @param sink receives the CopyData payloads as they arrive, an {@code IOException} thrown by
+   *     it fails the copy with its message
+   * @return result of a COPY IN statement
+   */
+  public static FakeResult copyIn(OutputStream sink) {
+    return new FakeResult(Kind.COPY_IN, null, null, null, null, null, null, sink, null);
+  }
+
+  /**
+   * Answers {@code COPY ... TO STDOUT}, one CopyData message per chunk.
+   *
+   * @param chunks CopyData payloads to send
+   * @return result of a COPY OUT statement
+   */
+  public static FakeResult copyOut(List<byte[]> chunks) {
+    return new FakeResult(Kind.COPY_OUT, "COPY " + chunks.size(), null, null, null, null, null,
+        null, new ArrayList<byte[]>(chunks));
+  }
+
+  /**
+   * Answers {@code START_REPLICATION}, one CopyData message per message, then waits for the
+   * driver to end the copy.
+   *
+   * @param messages CopyData payloads to send, see {@link #xLogData(long, byte[])}
+   * @param statusSink receives the CopyData payloads of the driver, its status updates
+   * @return result of a START_REPLICATION statement
+   */
+  public static FakeResult copyBoth(List<byte[]> messages, OutputStream statusSink) {
+    return new FakeResult(Kind.COPY_BOTH, "START_REPLICATION", null, null, null, null, null,
+        statusSink, new ArrayList<byte[]>(messages));
+  }
+
+  /**
+   * @param startLsn WAL position the data starts at
+   * @param data WAL data, for logical replication the output of the plugin
+   * @return payload of an XLogData message for {@link #copyBoth(List, OutputStream)}
+   */
+  public static byte[] xLogData(long startLsn, byte[] data) {
+    ByteBuffer message = ByteBuffer.allocate(25 + data.length);
+    message.put((byte) 'w');
+    message.putLong(startLsn);
+    message.putLong(startLsn + data.length);
+    message.putLong(0);
+    message.put(data);
+    return message.array();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.fakebackend;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * {@link FakeBackend.Handler} that answers statements matching a regular expression with a fixed
+ * result or a nested handler. Rules are tried in the order they were added. A statement no rule
+ * matches completes with its first keyword as the command tag, so {@code BEGIN}, {@code SET} and
+ * the like just work.
+ */
+public class FakeScript implements FakeBackend.Handler {
+  private static final class Rule {
+    final Pattern pattern;
+    final FakeBackend.Handler handler;
+    final AtomicInteger executions = new AtomicInteger();
+
+    Rule(Pattern pattern, FakeBackend.Handler handler) {
+      this.pattern = pattern;
+      this.handler = handler;
+    }
+  }
+
+  private final List<Rule> rules = new CopyOnWriteArrayList<Rule>();
+
+  /**
+   * @param regex case insensitive expression searched for in the statement text
+   * @param result what matching statements return
+   * @return this script
+   */
+  public FakeScript on(String regex, final FakeResult result) {
+    return on(regex, new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        return result;
+      }
+    });
+  }
+
+  /**
+   * @param regex case insensitive expression searched for in the statement text
+   * @param handler computes the result of matching statements
+   * @return this script
+   */
+  public FakeScript on(String regex, FakeBackend.Handler handler) {
+    rules.add(new Rule(Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL),
+        handler));
+    return this;
+  }
+
+  /**
+   * @param regex expression passed to {@link #on}
+   * @return how many bound statements matched the rule, describe requests are not counted
+   */
+  public int getExecutions(String regex) {
+    int count = 0;
+    for (Rule rule : rules) {
+      if (rule.pattern.pattern().equals(regex)) {
+        count += rule.executions.get();
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public FakeResult execute(FakeQuery query) throws IOException {
+    for (Rule rule : rules) {
+      if (rule.pattern.matcher(query.getSql()).find()) {
+        if (query.isBound()) {
+          rule.executions.incrementAndGet();
+        }
+        return rule.handler.execute(query);
+      }
+    }
+    String sql = query.getSql().trim();
+    int end = 0;
+    while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+      end++;
+    }
+    String command = sql.substring(0, end).toUpperCase(Locale.ROOT);
+    if (command.equals("SELECT")) {
+      return FakeResult.command("SELECT 0");
+    }
+    if (command.equals("INSERT")) {
+      return FakeResult.command("INSERT 0 1");
+    }
+    return FakeResult.command(command);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Result formats chosen by {@link PGProperty#BINARY_TRANSFER_ADAPTIVE} from the getters used.
+ */
+public class AdaptiveBinaryTransferTest extends FakeBackendTestBase {
+  private final List<String> formats = new ArrayList<String>();
+  private Connection con;
+
+  private void connect(boolean adaptive) throws Exception {
+    script.on("^select", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        if (query.isBound()) {
+          formats.add((query.isBinaryResult(0) ? "B" : "T")
+              + (query.isBinaryResult(1) ? "B" : "T"));
+        }
+        return FakeResult.rows(new String[]{"a", "b"}, new int[]{Oid.INT4, Oid.INT8},
+            Collections.singletonList(new String[]{"42", "-7"}));
+      }
+    });
+    Properties props = new Properties();
+    PGProperty.PREPARE_THRESHOLD.set(props, -1);
+    PGProperty.BINARY_TRANSFER_ADAPTIVE.set(props, adaptive);
+    con = connect(props);
+  }
+
+  private ResultSet next(PreparedStatement ps) throws SQLException {
+    ResultSet rs = ps.executeQuery();
+    assertTrue(rs.next());
+    return rs;
+  }
+
+  @Test
+  public void testStringColumnSwitchesToText() throws Exception {
+    connect(true);
+    PreparedStatement ps = con.prepareStatement("select a, b");
+    for (int i = 0; i < 3; i++) {
+      ResultSet rs = next(ps);
+      assertEquals("42", rs.getString(1));
+      assertEquals(-7L, rs.getLong(2));
+      rs.close();
+    }
+    assertEquals("BB", formats.get(0));
+    assertEquals("TB", formats.get(1));
+    assertEquals("TB", formats.get(2));
+  }
+
+  @Test
+  public void testTypedReadSwitchesBackToBinary() throws Exception {
+    connect(true);
+    PreparedStatement ps = con.prepareStatement("select a, b");
+    ResultSet rs = next(ps);
+    assertEquals("42", rs.getString(1));
+    assertEquals("-7", rs.getString(2));
+    rs = next(ps);
+    assertEquals(42, rs.getInt(1));
+    assertEquals("-7", rs.getString(2));
+    rs = next(ps);
+    assertEquals(42, rs.getInt(1));
+    assertEquals(-7L, rs.getLong(2));
+    next(ps);
+    assertEquals(formats.toString(), "BB", formats.get(0));
+    assertEquals(formats.toString(), "TT", formats.get(1));
+    assertEquals(formats.toString(), "BT", formats.get(2));
+    assertEquals(formats.toString(), "BB", formats.get(3));
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    connect(false);
+    PreparedStatement ps = con.prepareStatement("select a, b");
+    for (int i = 0; i < 3; i++) {
+      ResultSet rs = next(ps);
+      assertEquals("42", rs.getString(1));
+      assertEquals("-7", rs.getString(2));
+    }
+    assertEquals("[BB, BB, BB]", formats.toString());
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.PGAsyncCopyOutputStream;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.util.PSQLException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * {@link PGAsyncCopyOutputStream} against the fake backend and a stub copy operation.
+ */
+public class AsyncCopyOutputStreamTest extends FakeBackendTestBase {
+  private final List<Integer> messageSizes = Collections.synchronizedList(new ArrayList<Integer>());
+  private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+  private Connection con;
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^copy t from stdin", FakeResult.copyIn(new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public synchronized void write(byte[] b, int off, int len) throws IOException {
+        messageSizes.add(len);
+        copied.write(b, off, len);
+      }
+    }));
+    script.on("^copy rejected from stdin", FakeResult.copyIn(new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("invalid input syntax for type integer");
+      }
+    }));
+    con = connect();
+  }
+
+  @Test
+  public void testWritesAreCoalesced() throws Exception {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    PGAsyncCopyOutputStream out = new PGAsyncCopyOutputStream(
+        con.unwrap(PGConnection.class).getCopyAPI().copyIn("copy t from stdin"), 1000, 2);
+    for (int i = 0; i < 3000; i++) {
+      byte[] row = (i + "\trow\n").getBytes(StandardCharsets.UTF_8);
+      out.write(row);
+      expected.write(row);
+    }
+    assertEquals(3000, out.endCopy());
+    assertArrayEquals(expected.toByteArray(), copied.toByteArray());
+    for (int i = 0; i < messageSizes.size() - 1; i++) {
+      assertEquals(1000, (int) messageSizes.get(i));
+    }
+  }
+
+  @Test
+  public void testErrorBeforeEnd() throws Exception {
+    PGAsyncCopyOutputStream out =
+        new PGAsyncCopyOutputStream(con.unwrap(PGConnection.class), "copy rejected from stdin");
+    byte[] row = "1\tx\n".getBytes(StandardCharsets.UTF_8);
+    long deadline = System.currentTimeMillis() + 10000;
+    try {
+      while (System.currentTimeMillis() < deadline) {
+        out.write(row);
+      }
+      fail("the rejected data should fail a write");
+    } catch (IOException e) {
+      assertEquals("22P04", ((SQLException) e.getCause()).getSQLState());
+    }
+    assertFalse(out.isActive());
+    try {
+      out.endCopy();
+      fail("the failed copy cannot end successfully");
+    } catch (PSQLException e) {
+      assertEquals("22P04", e.getSQLState());
+    }
+    con.createStatement().execute("select 1");
+  }
+
+  @Test
+  public void testProducerWaitsForFullFrames() throws Exception {
+    final CountDownLatch sending = new CountDownLatch(1);
+    final StubCopyIn op = new StubCopyIn(sending);
+    final PGAsyncCopyOutputStream out = new PGAsyncCopyOutputStream(op, 10, 2);
+    final byte[] data = new byte[100];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    Thread producer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          out.write(data);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    producer.start();
+    producer.join(500);
+    // one frame is being sent, two wait and one is full: the rest of the data waits
+    assertTrue(producer.isAlive());
+    assertEquals(20, out.getPendingBytes());
+    sending.countDown();
+    producer.join();
+    out.close();
+    assertArrayEquals(data, op.received.toByteArray());
+    assertEquals(1, op.ended);
+  }
+
+  private static boolean writerRunning() {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("PostgreSQL-JDBC-CopyWriter") && thread.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void awaitWriterEnd() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (writerRunning()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("the writer thread should end once it has sent the data");
+      }
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  public void testWriterEndsWhenIdle() throws Exception {
+    PGAsyncCopyOutputStream out = new PGAsyncCopyOutputStream(
+        con.unwrap(PGConnection.class).getCopyAPI().copyIn("copy t from stdin"), 100, 2);
+    assertFalse(writerRunning());
+    byte[] row = "1\trow\n".getBytes(StandardCharsets.UTF_8);
+    out.write(row);
+    out.flush();
+    awaitWriterEnd();
+    // the flush reached the backend without a close
+    long deadline = System.currentTimeMillis() + 10000;
+    while (copied.size() < row.length && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(row.length, copied.size());
+
+    out.write(row);
+    out.flush();
+    awaitWriterEnd();
+    // a stream that is never closed does not keep a thread
+    con.close();
+    assertFalse(writerRunning());
+  }
+
+  private static class StubCopyIn implements CopyIn {
+    final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    final CountDownLatch sending;
+    volatile int ended;
+
+    StubCopyIn(CountDownLatch sending) {
+      this.sending = sending;
+    }
+
+    @Override
+    public void writeToCopy(byte[] buf, int off, int siz) throws SQLException {
+      try {
+        sending.await();
+      } catch (InterruptedException e) {
+        throw new SQLException(e);
+      }
+      synchronized (received) {
+        received.write(buf, off, siz);
+      }
+    }
+
+    @Override
+    public void flushCopy() {
+    }
+
+    @Override
+    public long endCopy() {
+      ended++;
+      return 1;
+    }
+
+    @Override
+    public int getFieldCount() {
+      return 0;
+    }
+
+    @Override
+    public int getFormat() {
+      return 0;
+    }
+
+    @Override
+    public int getFieldFormat(int field) {
+      return 0;
+    }
+
+    @Override
+    public boolean isActive() {
+      return ended == 0;
+    }
+
+    @Override
+    public void cancelCopy() {
+    }
+
+    @Override
+    public long getHandledRowCount() {
+      return ended;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.jdbc.AutoSave;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.test.fakebackend.FakeScript;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The statements of a batch are described in one round trip before the executions are sent.
+ */
+public class BatchDescribeTest extends FakeBackendTestBase {
+  private final List<String> events = new CopyOnWriteArrayList<String>();
+  private Connection con;
+
+  @Override
+  protected FakeBackend.Handler createHandler(final FakeScript script) {
+    return new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) throws IOException {
+        if (query.getSql().startsWith("insert")) {
+          events.add((query.isBound() ? "execute " : "describe ") + query.getSql());
+        } else if (query.getSql().startsWith("SAVEPOINT")) {
+          events.add(query.getSql());
+        }
+        return script.execute(query);
+      }
+    };
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^insert into a", FakeResult.command("INSERT 0 1"));
+    script.on("^insert into missing",
+        FakeResult.error("42P01", "relation \"missing\" does not exist"));
+    script.on("^SAVEPOINT", FakeResult.command("SAVEPOINT"));
+    script.on("^ROLLBACK", FakeResult.command("ROLLBACK"));
+    con = connect(AutoSave.NEVER);
+  }
+
+  private Connection connect(AutoSave autoSave) throws Exception {
+    Properties props = new Properties();
+    PGProperty.AUTOSAVE.set(props, autoSave.value());
+    return connect(props);
+  }
+
+  private int[] executeBatch(String sql, int parameters, int rows) throws Exception {
+    PreparedStatement ps = con.prepareStatement(sql);
+    try {
+      for (int i = 0; i < rows; i++) {
+        for (int j = 1; j <= parameters; j++) {
+          ps.setInt(j, i);
+        }
+        ps.addBatch();
+      }
+      return ps.executeBatch();
+    } finally {
+      ps.close();
+    }
+  }
+
+  @Test
+  public void testStatementsAreDescribedBeforeExecutions() throws Exception {
+    long syncs = backend.getSyncsReceived();
+    assertArrayEquals(new int[]{1, 1, 1}, executeBatch("insert into a values (?)", 1, 3));
+    assertEquals(2, backend.getSyncsReceived() - syncs);
+    assertEquals(Arrays.asList(
+        "describe insert into a values ($1)",
+        "execute insert into a values ($1)",
+        "execute insert into a values ($1)",
+        "execute insert into a values ($1)"), events);
+  }
+
+  @Test
+  public void testSingleExecutionIsNotDescribedFirst() throws Exception {
+    long syncs = backend.getSyncsReceived();
+    assertArrayEquals(new int[]{1}, executeBatch("insert into a values (?)", 1, 1));
+    assertEquals(1, backend.getSyncsReceived() - syncs);
+    assertEquals(Arrays.asList("execute insert into a values ($1)"), events);
+  }
+
+  @Test
+  public void testDescribedStatementsAreNotDescribedAgain() throws Exception {
+    executeBatch("insert into a values (?)", 1, 2);
+    events.clear();
+    long syncs = backend.getSyncsReceived();
+    executeBatch("insert into a values (?)", 1, 2);
+    assertEquals(1, backend.getSyncsReceived() - syncs);
+    assertEquals(Arrays.asList(
+        "execute insert into a values ($1)",
+        "execute insert into a values ($1)"), events);
+  }
+
+  @Test
+  public void testTransactionIsBegunWithDescribe() throws Exception {
+    con.setAutoCommit(false);
+    long syncs = backend.getSyncsReceived();
+    assertArrayEquals(new int[]{1, 1}, executeBatch("insert into a values (?)", 1, 2));
+    assertEquals(2, backend.getSyncsReceived() - syncs);
+    con.commit();
+  }
+
+  @Test
+  public void testDescribeFailure() throws Exception {
+    try {
+      executeBatch("insert into missing values (?)", 1, 2);
+      fail("describing a statement on a missing table should fail");
+    } catch (BatchUpdateException e) {
+      assertEquals("42P01", e.getSQLState());
+      assertArrayEquals(new int[]{Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED},
+          e.getUpdateCounts());
+    }
+    assertEquals(Arrays.asList("describe insert into missing values ($1)"), events);
+  }
+
+  @Test
+  public void testSavepointPrecedesFailingStatement() throws Exception {
+    con.close();
+    con = connect(AutoSave.ALWAYS);
+    con.setAutoCommit(false);
+    try {
+      executeBatch("insert into missing values (?)", 1, 2);
+      fail("inserting into a missing table should fail");
+    } catch (BatchUpdateException e) {
+      assertEquals("42P01", e.getSQLState());
+    }
+    assertEquals(Arrays.asList(
+        "SAVEPOINT PGJDBC_AUTOSAVE",
+        "describe insert into missing values ($1)"), events);
+    con.rollback();
+  }
+
+  @Test
+  public void testGeneratedKeysAreDescribedWithAutosave() throws Exception {
+    con.close();
+    con = connect(AutoSave.CONSERVATIVE);
+    con.setAutoCommit(false);
+    PreparedStatement ps =
+        con.prepareStatement("insert into a values (?)", Statement.RETURN_GENERATED_KEYS);
+    try {
+      for (int i = 0; i < 3; i++) {
+        ps.setInt(1, i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    } finally {
+      ps.close();
+    }
+    String sql = "insert into a values ($1)\nRETURNING *";
+    assertEquals(Arrays.asList("describe " + sql, "execute " + sql, "execute " + sql,
+        "execute " + sql), events);
+    con.commit();
+  }
+}
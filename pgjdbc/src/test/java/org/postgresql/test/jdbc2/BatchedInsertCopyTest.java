@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Properties;
+
+/**
+ * Batches sent as COPY by {@link PGProperty#COPY_BATCHED_INSERTS}.
+ */
+public class BatchedInsertCopyTest extends FakeBackendTestBase {
+  private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+  private Connection con;
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^COPY t \\(a, \"B c\"\\) FROM STDIN$", FakeResult.copyIn(copied));
+    script.on("^COPY broken", FakeResult.error("42P01", "relation \"broken\" does not exist"));
+    script.on("^insert", FakeResult.command("INSERT 0 1"));
+    Properties props = new Properties();
+    PGProperty.COPY_BATCHED_INSERTS.set(props, true);
+    con = connect(props);
+  }
+
+  private String copiedText() {
+    return new String(copied.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testRowsAreCopied() throws Exception {
+    PreparedStatement ps = con.prepareStatement("INSERT INTO t (a, \"B c\") VALUES (?, ?)");
+    ps.setInt(1, 1);
+    ps.setString(2, "tab\there\\");
+    ps.addBatch();
+    ps.setBigDecimal(1, new BigDecimal("2.50"));
+    ps.setNull(2, Types.VARCHAR);
+    ps.addBatch();
+    ps.setLong(1, 3);
+    ps.setString(2, "line\nbreak");
+    ps.addBatch();
+    assertArrayEquals(new int[]{1, 1, 1}, ps.executeBatch());
+    assertEquals("1\ttab\\there\\\\\n2.50\t\\N\n3\tline\\nbreak\n", copiedText());
+    assertEquals(0, script.getExecutions("^insert"));
+  }
+
+  @Test
+  public void testOtherStatementsAreNotCopied() throws Exception {
+    String[] statements = {
+        "insert into t (a, \"B c\") values (?, ?) returning a",
+        "insert into t (a, \"B c\") values (?, ?) on conflict do nothing",
+        "insert into t (a, \"B c\") values (?, lower(?))",
+        "insert into t values (?, ?)",
+    };
+    for (String sql : statements) {
+      PreparedStatement ps = con.prepareStatement(sql);
+      for (int i = 0; i < 2; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, "v");
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      ps.close();
+    }
+    assertEquals(8, script.getExecutions("^insert"));
+    assertEquals("", copiedText());
+  }
+
+  @Test
+  public void testStreamsAreNotCopied() throws Exception {
+    PreparedStatement ps = con.prepareStatement("insert into t (a, \"B c\") values (?, ?)");
+    for (int i = 0; i < 2; i++) {
+      ps.setInt(1, i);
+      ps.setBinaryStream(2, new ByteArrayInputStream(new byte[]{1, 2}), 2);
+      ps.addBatch();
+    }
+    assertArrayEquals(new int[]{1, 1}, ps.executeBatch());
+    assertEquals(2, script.getExecutions("^insert"));
+    assertEquals("", copiedText());
+  }
+
+  @Test
+  public void testCopyFailure() throws Exception {
+    PreparedStatement ps = con.prepareStatement("insert into broken (a) values (?)");
+    for (int i = 0; i < 2; i++) {
+      ps.setInt(1, i);
+      ps.addBatch();
+    }
+    try {
+      ps.executeBatch();
+      fail("COPY into a missing table should fail");
+    } catch (BatchUpdateException e) {
+      assertEquals("42P01", e.getSQLState());
+      assertArrayEquals(new int[]{Statement.EXECUTE_FAILED, Statement.EXECUTE_FAILED},
+          e.getUpdateCounts());
+    }
+    assertEquals(0, script.getExecutions("^insert"));
+  }
+}
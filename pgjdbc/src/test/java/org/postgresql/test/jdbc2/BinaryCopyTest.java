@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.BinaryCopyReader;
+import org.postgresql.copy.BinaryCopyWriter;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link BinaryCopyWriter} and {@link BinaryCopyReader} against the fake backend. The rows written
+ * are sent back by the COPY TO STDOUT in chunks of a few bytes.
+ */
+public class BinaryCopyTest extends FakeBackendTestBase {
+  private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+  private Connection con;
+  private CopyManager copyManager;
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^copy t from stdin", FakeResult.copyIn(copied));
+    con = connect();
+    copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+  }
+
+  private BinaryCopyReader readBack(int chunkSize) throws SQLException {
+    byte[] data = copied.toByteArray();
+    List<byte[]> chunks = new ArrayList<byte[]>();
+    for (int i = 0; i < data.length; i += chunkSize) {
+      chunks.add(Arrays.copyOfRange(data, i, Math.min(data.length, i + chunkSize)));
+    }
+    script.on("^copy t to stdout", FakeResult.copyOut(chunks));
+    return copyManager.copyOutBinary("copy t to stdout (format binary)");
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Timestamp ts = Timestamp.valueOf("2018-09-01 12:34:56.789012");
+    BinaryCopyWriter writer = copyManager.copyInBinary("copy t from stdin (format binary)", 16);
+    writer.writeInt(1).writeLong(-2L).writeText("zwölf").writeNumeric(new BigDecimal("-12.50"))
+        .writeTimestamptz(ts).writeBoolean(true).writeDouble(0.5).endRow();
+    writer.writeShort((short) 7).writeNull().writeNull().writeNull().writeNull()
+        .writeBoolean(false).writeFloat(1.5f).endRow();
+    assertEquals(2, writer.endCopy());
+
+    BinaryCopyReader reader = readBack(5);
+    assertTrue(reader.nextRow());
+    assertEquals(7, reader.getFieldCount());
+    assertEquals(1, reader.getInt(1));
+    assertEquals(-2L, reader.getLong(2));
+    assertEquals("zwölf", reader.getString(3));
+    assertEquals(new BigDecimal("-12.50"), reader.getBigDecimal(4));
+    assertEquals(ts, reader.getTimestamptz(5));
+    assertTrue(reader.getBoolean(6));
+    assertEquals(0.5, reader.getDouble(7), 0);
+
+    assertTrue(reader.nextRow());
+    assertEquals(7, reader.getShort(1));
+    assertEquals(7L, reader.getLong(1));
+    assertTrue(reader.isNull(2));
+    assertEquals(0L, reader.getLong(2));
+    assertNull(reader.getString(3));
+    assertNull(reader.getBigDecimal(4));
+    assertNull(reader.getTimestamp(5));
+    assertFalse(reader.getBoolean(6));
+    assertEquals(1.5, reader.getDouble(7), 0);
+
+    assertFalse(reader.nextRow());
+    assertFalse(reader.nextRow());
+  }
+
+  @Test
+  public void testTimestampWithoutTimeZone() throws Exception {
+    Timestamp ts = Timestamp.valueOf("1999-12-31 23:59:59.5");
+    BinaryCopyWriter writer = copyManager.copyInBinary("copy t from stdin (format binary)");
+    writer.writeTimestamp(ts).endRow();
+    writer.endCopy();
+    BinaryCopyReader reader = readBack(1000);
+    assertTrue(reader.nextRow());
+    assertEquals(ts, reader.getTimestamp(1));
+  }
+
+  @Test
+  public void testRowLargerThanBuffers() throws Exception {
+    byte[] big = new byte[20000];
+    for (int i = 0; i < big.length; i++) {
+      big[i] = (byte) i;
+    }
+    BinaryCopyWriter writer = copyManager.copyInBinary("copy t from stdin (format binary)", 1024);
+    for (int i = 0; i < 3; i++) {
+      writer.writeInt(i).writeBytes(big).endRow();
+    }
+    assertEquals(3, writer.endCopy());
+
+    BinaryCopyReader reader = readBack(3000);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(reader.nextRow());
+      assertEquals(i, reader.getInt(1));
+      assertArrayEquals(big, reader.getBytes(2));
+    }
+    assertFalse(reader.nextRow());
+  }
+
+  @Test
+  public void testWrongSize() throws Exception {
+    BinaryCopyWriter writer = copyManager.copyInBinary("copy t from stdin (format binary)");
+    writer.writeLong(1).endRow();
+    writer.endCopy();
+    BinaryCopyReader reader = readBack(100);
+    assertTrue(reader.nextRow());
+    try {
+      reader.getInt(1);
+      fail("an int8 field cannot be read as int4");
+    } catch (SQLException e) {
+      assertEquals(1L, reader.getLong(1));
+    }
+    assertFalse(reader.nextRow());
+  }
+
+  @Test
+  public void testNumericOutOfRange() throws Exception {
+    BinaryCopyWriter writer = copyManager.copyInBinary("copy t from stdin (format binary)");
+    try {
+      writer.writeNumeric(new BigDecimal(BigInteger.ONE, 20000));
+      fail("numeric cannot represent a scale of 20000");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.INVALID_PARAMETER_VALUE.getState(), e.getSQLState());
+    }
+    // nothing was written for the rejected value
+    writer.writeNumeric(new BigDecimal("1.5")).endRow();
+    assertEquals(1, writer.endCopy());
+    BinaryCopyReader reader = readBack(100);
+    assertTrue(reader.nextRow());
+    assertEquals(new BigDecimal("1.5"), reader.getBigDecimal(1));
+    assertFalse(reader.nextRow());
+  }
+
+  @Test
+  public void testTextCopyIsRejected() throws Exception {
+    try {
+      copyManager.copyInBinary("copy t from stdin");
+      fail("a text COPY cannot be written in binary");
+    } catch (SQLException e) {
+      // the COPY is cancelled, the connection stays usable
+    }
+    copyManager.copyIn("copy t from stdin").endCopy();
+  }
+}
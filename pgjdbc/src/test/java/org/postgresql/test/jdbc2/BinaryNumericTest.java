@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Binary transfer of numeric values, checked against what the text format gives.
+ */
+public class BinaryNumericTest extends FakeBackendTestBase {
+  private static final String[] VALUES = {
+      "0", "1.50", "-12345678.9", "0.0000001", "100000000.00", "12.7", "-2147483648",
+      "123456789012345678901234567890.123456789"};
+
+  private Connection con;
+
+  @Before
+  public void setUp() throws Exception {
+    Properties props = new Properties();
+    // server prepare from the first execution, so results come in binary
+    PGProperty.PREPARE_THRESHOLD.set(props, -1);
+    con = connect(props);
+  }
+
+  private ResultSet select(String... values) throws SQLException {
+    List<String[]> rows = new ArrayList<String[]>();
+    for (String value : values) {
+      rows.add(new String[]{value});
+    }
+    script.on("select", FakeResult.rows(new String[]{"value"}, new int[]{Oid.NUMERIC}, rows));
+    return con.prepareStatement("select value").executeQuery();
+  }
+
+  @Test
+  public void testGetters() throws SQLException {
+    ResultSet rs = select(VALUES);
+    for (String value : VALUES) {
+      assertTrue(rs.next());
+      BigDecimal expected = new BigDecimal(value);
+      assertEquals(value, rs.getString(1));
+      assertEquals(expected, rs.getBigDecimal(1));
+      assertEquals(expected, rs.getObject(1));
+      assertEquals(expected.setScale(2, BigDecimal.ROUND_HALF_UP),
+          rs.getBigDecimal(1).setScale(2, BigDecimal.ROUND_HALF_UP));
+      assertEquals(Double.parseDouble(value), rs.getDouble(1), 0.0);
+      if (expected.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) < 0) {
+        assertEquals(expected.longValue(), rs.getLong(1));
+      } else {
+        try {
+          rs.getLong(1);
+          fail("getLong should fail for " + value);
+        } catch (SQLException e) {
+          // expected
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testNaN() throws SQLException {
+    ResultSet rs = select("NaN");
+    assertTrue(rs.next());
+    assertEquals("NaN", rs.getString(1));
+    assertTrue(Double.isNaN(rs.getDouble(1)));
+    try {
+      rs.getBigDecimal(1);
+      fail("NaN is not a BigDecimal");
+    } catch (SQLException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSetBigDecimalSendsBinary() throws SQLException {
+    final List<String> seen = new ArrayList<String>();
+    script.on("^insert", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        if (query.isBound()) {
+          assertEquals(Oid.NUMERIC, query.getParameterOid(0));
+          assertTrue(query.isBinaryParameter(0));
+          seen.add(query.getParameter(0));
+        }
+        return FakeResult.command("INSERT 0 1");
+      }
+    });
+    PreparedStatement ps = con.prepareStatement("insert into t values (?)");
+    for (String value : VALUES) {
+      ps.setBigDecimal(1, new BigDecimal(value));
+      ps.executeUpdate();
+    }
+    List<String> expected = new ArrayList<String>();
+    for (String value : VALUES) {
+      expected.add(value);
+    }
+    assertEquals(expected, seen);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The lock of a connection and the cancellation of statements, which use
+ * {@link java.util.concurrent.locks} instead of monitors.
+ */
+public class ConnectionLockTest extends FakeBackendTestBase {
+  private Connection con;
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^select 1", FakeResult.rows(new String[]{"a"}, new int[]{Oid.INT4},
+        Collections.singletonList(new String[]{"1"})));
+    script.on("^select pg_sleep", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        try {
+          Thread.sleep(1500);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return FakeResult.command("SELECT 0");
+      }
+    });
+    con = connect();
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  private Future<Integer> selectOne() {
+    return executor.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        ResultSet rs = con.createStatement().executeQuery("select 1");
+        rs.next();
+        return rs.getInt(1);
+      }
+    });
+  }
+
+  @Test
+  public void testStatementWaitsForLockOfConnection() throws Exception {
+    ReentrantLock lock = con.unwrap(BaseConnection.class).getQueryExecutor().getLock();
+    Future<Integer> result;
+    lock.lock();
+    try {
+      result = selectOne();
+      Thread.sleep(200);
+      assertFalse(result.isDone());
+    } finally {
+      lock.unlock();
+    }
+    assertEquals(1, (int) result.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testQueryTimeoutCancelsStatement() throws Exception {
+    Statement stmt = con.createStatement();
+    stmt.setQueryTimeout(1);
+    // The fake backend ignores the cancel request, so the statement completes and has to wait
+    // until the cancel is done
+    stmt.execute("select pg_sleep(2)");
+    assertEquals(1, backend.getCancelRequestCount());
+    assertEquals(1, (int) selectOne().get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCancelFromAnotherThread() throws Exception {
+    final Statement stmt = con.createStatement();
+    Future<Boolean> result = executor.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() throws Exception {
+        return stmt.execute("select pg_sleep(2)");
+      }
+    });
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (backend.getCancelRequestCount() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(100);
+      stmt.cancel();
+    }
+    assertFalse(result.get(10, TimeUnit.SECONDS));
+    assertTrue(backend.getCancelRequestCount() >= 1);
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+import org.postgresql.copy.PGCopyInputStream;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * COPY TO STDOUT into buffers and channels, against the fake backend.
+ */
+public class CopyOutBufferTest extends FakeBackendTestBase {
+  private final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+  private Connection con;
+  private CopyManager copyManager;
+
+  @Before
+  public void setUp() throws Exception {
+    List<byte[]> chunks = new ArrayList<byte[]>();
+    for (int i = 0; i < 200; i++) {
+      byte[] chunk = (i + "\tsome text of row " + i + "\n").getBytes(StandardCharsets.UTF_8);
+      chunks.add(chunk);
+      expected.write(chunk);
+    }
+    chunks.add(new byte[0]);
+    script.on("^copy t to stdout", FakeResult.copyOut(chunks));
+    con = connect();
+    copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+  }
+
+  @Test
+  public void testSmallBuffer() throws Exception {
+    CopyOut cp = copyManager.copyOut("copy t to stdout");
+    ByteArrayOutputStream received = new ByteArrayOutputStream();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(7);
+    int len;
+    while ((len = cp.readFromCopy(buffer)) >= 0) {
+      assertTrue(len > 0);
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        received.write(buffer.get());
+      }
+      buffer.clear();
+    }
+    assertArrayEquals(expected.toByteArray(), received.toByteArray());
+    assertEquals(201, cp.getHandledRowCount());
+    assertSelectWorks();
+  }
+
+  @Test
+  public void testMixedReads() throws Exception {
+    CopyOut cp = copyManager.copyOut("copy t to stdout");
+    ByteBuffer buffer = ByteBuffer.allocate(3);
+    assertEquals(3, cp.readFromCopy(buffer));
+    assertEquals("0\ts", new String(buffer.array(), StandardCharsets.UTF_8));
+    assertEquals("ome text of row 0\n", new String(cp.readFromCopy(), StandardCharsets.UTF_8));
+    assertEquals("1\tsome text of row 1\n", new String(cp.readFromCopy(), StandardCharsets.UTF_8));
+    buffer.clear();
+    assertEquals(3, cp.readFromCopy(buffer));
+    int length = 3;
+    byte[] data;
+    while ((data = cp.readFromCopy()) != null) {
+      length += data.length;
+    }
+    assertEquals(expected.size(), length + 21 + 21);
+    assertSelectWorks();
+  }
+
+  @Test
+  public void testCancelWithinMessage() throws Exception {
+    CopyOut cp = copyManager.copyOut("copy t to stdout");
+    assertEquals(3, cp.readFromCopy(ByteBuffer.allocate(3)));
+    cp.cancelCopy();
+    // the fake backend ignores the cancel request, the rest of the copy is skipped as results of
+    // the next statement and must start at a message boundary
+    con.createStatement().execute("select 1");
+  }
+
+  @Test
+  public void testChannel() throws Exception {
+    ByteArrayOutputStream received = new ByteArrayOutputStream();
+    assertEquals(201, copyManager.copyOut("copy t to stdout", Channels.newChannel(received)));
+    assertArrayEquals(expected.toByteArray(), received.toByteArray());
+    assertSelectWorks();
+  }
+
+  @Test
+  public void testOutputStream() throws Exception {
+    ByteArrayOutputStream received = new ByteArrayOutputStream();
+    assertEquals(201, copyManager.copyOut("copy t to stdout", received));
+    assertArrayEquals(expected.toByteArray(), received.toByteArray());
+  }
+
+  @Test
+  public void testOutputStreamReceivesEachMessage() throws Exception {
+    final List<String> writes = new ArrayList<String>();
+    copyManager.copyOut("copy t to stdout", new OutputStream() {
+      @Override
+      public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        if (len > 0) {
+          writes.add(new String(b, off, len, StandardCharsets.UTF_8));
+        }
+      }
+    });
+    assertEquals(200, writes.size());
+    assertEquals("0\tsome text of row 0\n", writes.get(0));
+    assertEquals("199\tsome text of row 199\n", writes.get(199));
+  }
+
+  @Test
+  public void testCopyInputStream() throws Exception {
+    PGCopyInputStream in = new PGCopyInputStream(copyManager.copyOut("copy t to stdout"));
+    assertEquals('0', in.read());
+    ByteBuffer buffer = ByteBuffer.allocate(expected.size());
+    buffer.put((byte) '0');
+    while (buffer.hasRemaining()) {
+      assertTrue(in.readFromCopy(buffer) > 0);
+    }
+    assertEquals(-1, in.readFromCopy(ByteBuffer.allocate(1)));
+    assertArrayEquals(expected.toByteArray(), buffer.array());
+    in.close();
+  }
+
+  private void assertSelectWorks() throws Exception {
+    script.on("^select 1", FakeResult.rows(new String[]{"x"}, new int[]{23},
+        Collections.singletonList(new String[]{"1"})));
+    ResultSet rs = con.createStatement().executeQuery("select 1");
+    assertTrue(rs.next());
+    assertEquals(1, rs.getInt(1));
+    rs.close();
+  }
+}
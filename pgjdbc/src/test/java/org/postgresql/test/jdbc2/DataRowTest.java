@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * DataRow messages are read from the receive buffer in one pass when they fit, and column by
+ * column when they do not, or into slabs with {@link PGProperty#ROW_STORAGE}.
+ */
+public class DataRowTest extends FakeBackendTestBase {
+  private Connection con;
+
+  @Before
+  public void setUp() throws Exception {
+    con = connect("arrays");
+  }
+
+  private Connection connect(String rowStorage) throws Exception {
+    Properties props = new Properties();
+    PGProperty.ROW_STORAGE.set(props, rowStorage);
+    return connect(props);
+  }
+
+  private static String repeat(char c, int count) {
+    char[] chars = new char[count];
+    Arrays.fill(chars, c);
+    return new String(chars);
+  }
+
+  private ResultSet select(List<String[]> rows) throws Exception {
+    script.on("^select", FakeResult.rows(new String[]{"a", "b", "c", "d"},
+        new int[]{Oid.VARCHAR, Oid.VARCHAR, Oid.VARCHAR, Oid.BYTEA}, rows));
+    return con.createStatement().executeQuery("select a, b, c, d");
+  }
+
+  private static void assertRow(ResultSet rs, String[] row) throws Exception {
+    assertTrue(rs.next());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(row[i], rs.getString(i + 1));
+      assertEquals(row[i] == null, rs.wasNull());
+    }
+    byte[] bytes = rs.getBytes(4);
+    if (row[3] == null) {
+      assertNull(bytes);
+    } else {
+      assertArrayEquals(new byte[0], bytes);
+    }
+  }
+
+  @Test
+  public void testEmptyNullAndNonEmptyColumns() throws Exception {
+    List<String[]> rows = new ArrayList<String[]>();
+    rows.add(new String[]{"abc", "", null, ""});
+    rows.add(new String[]{"", null, "xyz", null});
+    rows.add(new String[]{null, "", "", ""});
+    rows.add(new String[]{"", "", "", ""});
+    rows.add(new String[]{null, null, null, null});
+    ResultSet rs = select(rows);
+    for (String[] row : rows) {
+      assertRow(rs, row);
+    }
+    assertFalse(rs.next());
+  }
+
+  @Test
+  public void testRowsCrossingTheBuffer() throws Exception {
+    List<String[]> rows = new ArrayList<String[]>();
+    for (int i = 0; i < 2000; i++) {
+      rows.add(new String[]{Integer.toString(i), i % 3 == 0 ? "" : repeat('x', i % 50),
+          i % 5 == 0 ? null : "row " + i, i % 2 == 0 ? null : ""});
+    }
+    ResultSet rs = select(rows);
+    for (String[] row : rows) {
+      assertRow(rs, row);
+    }
+    assertFalse(rs.next());
+  }
+
+  @Test
+  public void testRowLargerThanTheBuffer() throws Exception {
+    List<String[]> rows = new ArrayList<String[]>();
+    rows.add(new String[]{"small", "", null, ""});
+    rows.add(new String[]{repeat('y', 200000), "", null, null});
+    rows.add(new String[]{"", repeat('z', 100000), "after", ""});
+    ResultSet rs = select(rows);
+    for (String[] row : rows) {
+      assertRow(rs, row);
+    }
+    assertFalse(rs.next());
+  }
+
+  @Test
+  public void testSlabRows() throws Exception {
+    con.close();
+    con = connect("slabs");
+    List<String[]> rows = new ArrayList<String[]>();
+    for (int i = 0; i < 3000; i++) {
+      rows.add(new String[]{Integer.toString(i), i % 3 == 0 ? "" : repeat('x', i % 50),
+          i % 5 == 0 ? null : "row " + i, i % 2 == 0 ? null : ""});
+    }
+    // larger than a slab
+    rows.add(new String[]{repeat('y', 100000), "", null, null});
+    rows.add(new String[]{"after", "", null, ""});
+    for (int round = 0; round < 2; round++) {
+      // the second round reuses the slabs released by the first
+      ResultSet rs = select(rows);
+      for (String[] row : rows) {
+        assertRow(rs, row);
+      }
+      assertFalse(rs.next());
+      rs.close();
+    }
+  }
+
+  @Test
+  public void testSlabRowsNumbers() throws Exception {
+    con.close();
+    con = connect("slabs");
+    List<String[]> rows = new ArrayList<String[]>();
+    rows.add(new String[]{"42", "-9000000000", "1.5", "t"});
+    rows.add(new String[]{"-7", "0", "12345678901234567890.25", "f"});
+    rows.add(new String[]{null, null, null, null});
+    script.on("^select", FakeResult.rows(new String[]{"i", "l", "n", "b"},
+        new int[]{Oid.INT4, Oid.INT8, Oid.NUMERIC, Oid.BOOL}, rows));
+    ResultSet rs = con.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE,
+        ResultSet.CONCUR_READ_ONLY).executeQuery("select i, l, n, b");
+    assertTrue(rs.next());
+    assertEquals(42, rs.getInt(1));
+    assertEquals(-9000000000L, rs.getLong(2));
+    assertEquals(1.5, rs.getDouble(3), 0);
+    assertEquals(new BigDecimal("1.5"), rs.getBigDecimal(3));
+    assertTrue(rs.getBoolean(4));
+    assertTrue(rs.next());
+    assertEquals(-7, rs.getInt(1));
+    assertEquals(0, rs.getLong(2));
+    assertEquals(new BigDecimal("12345678901234567890.25"), rs.getBigDecimal(3));
+    assertFalse(rs.getBoolean(4));
+    assertEquals(Integer.valueOf(-7), rs.getObject(1));
+    assertTrue(rs.next());
+    assertEquals(0, rs.getInt(1));
+    assertTrue(rs.wasNull());
+    assertNull(rs.getBigDecimal(3));
+    assertFalse(rs.next());
+    assertTrue(rs.first());
+    assertEquals(42, rs.getInt(1));
+    assertEquals("1.5", rs.getString(3));
+  }
+}
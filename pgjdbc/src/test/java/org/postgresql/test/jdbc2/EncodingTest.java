@@ -7,15 +7,24 @@ package org.postgresql.test.jdbc2;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import org.postgresql.core.Encoding;
 
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Tests for the Encoding class.
@@ -55,4 +64,76 @@ public class EncodingTest {
     assertEquals(98, reader.read());
     assertEquals(-1, reader.read());
   }
+
+  @Test
+  public void testUTF8Decode() throws Exception {
+    Encoding encoding = Encoding.getJVMEncoding("UTF-8");
+    String[] values = {"", "plain ascii", "caf\u00e9", "\u0430\u0431\u0432 abc",
+        "ab\u20ac", "\ud83d\ude00 smiley", "mixed \u00e9\u20ac\ud83d\ude00 end"};
+    for (String value : values) {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      assertEquals(value, encoding.decode(bytes));
+
+      // decode a slice, as the driver does with its receive buffer
+      byte[] padded = new byte[bytes.length + 4];
+      padded[0] = 'x';
+      padded[1] = (byte) 0xff;
+      System.arraycopy(bytes, 0, padded, 2, bytes.length);
+      padded[padded.length - 2] = (byte) 0xc3;
+      padded[padded.length - 1] = 'y';
+      assertEquals(value, encoding.decode(padded, 2, bytes.length));
+    }
+  }
+
+  @Test
+  public void testUTF8DecodeRejectsIllegalSequences() throws Exception {
+    Encoding encoding = Encoding.getJVMEncoding("UTF-8");
+    byte[][] illegal = {
+        {'a', (byte) 0x80},
+        {'a', (byte) 0xc3},
+        {(byte) 0xc0, (byte) 0x80},
+        {(byte) 0xed, (byte) 0xa0, (byte) 0x80},
+        {(byte) 0xf8, (byte) 0x80, (byte) 0x80, (byte) 0x80},
+    };
+    for (byte[] bytes : illegal) {
+      try {
+        encoding.decode(bytes);
+        fail("Illegal UTF-8 sequence should be rejected");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testUTF8DecodeConcurrently() throws Exception {
+    final Encoding encoding = Encoding.getJVMEncoding("UTF-8");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (int t = 0; t < 4; t++) {
+        final String value = "thread " + t + " \u00e9\u0430\u20ac ";
+        results.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 2000; i++) {
+              sb.append(value);
+              String expected = sb.toString();
+              assertEquals(expected, encoding.decode(expected.getBytes(StandardCharsets.UTF_8)));
+              if (sb.length() > 5000) {
+                sb.setLength(0);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
 }
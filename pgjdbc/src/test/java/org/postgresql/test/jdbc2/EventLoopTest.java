@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGEventLoop;
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.util.PSQLState;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statements executed on many connections by the threads of a {@link PGEventLoop}.
+ */
+public class EventLoopTest extends FakeBackendTestBase {
+  private final List<String> results = new CopyOnWriteArrayList<String>();
+  private final List<String> threads = new CopyOnWriteArrayList<String>();
+  private PGEventLoop loop;
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^select id", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        String id = query.getParameterCount() > 0 ? query.getParameter(0) : "0";
+        return FakeResult.rows(new String[]{"id"}, new int[]{Oid.INT4},
+            Collections.singletonList(new String[]{id}));
+      }
+    });
+    script.on("^select pg_sleep", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        if (query.isBound()) {
+          try {
+            Thread.sleep(500);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return FakeResult.rows(new String[]{"pg_sleep"}, new int[]{Oid.INT4},
+            Collections.singletonList(new String[]{"1"}));
+      }
+    });
+    script.on("^select missing", FakeResult.error("42703", "column \"missing\" does not exist"));
+    loop = new PGEventLoop(2);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    loop.close();
+  }
+
+  private Connection connect(boolean socketChannel) throws SQLException {
+    Properties props = new Properties();
+    PGProperty.SOCKET_CHANNEL.set(props, socketChannel);
+    return connect(props);
+  }
+
+  private class Recorder implements PGEventLoop.Callback {
+    private final CountDownLatch latch;
+
+    Recorder(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void onResult(PreparedStatement statement, boolean hasResultSet) {
+      threads.add(Thread.currentThread().getName());
+      try {
+        ResultSet rs = statement.getResultSet();
+        rs.next();
+        results.add(rs.getString(1));
+      } catch (SQLException e) {
+        results.add(e.getSQLState());
+      }
+      latch.countDown();
+    }
+
+    @Override
+    public void onError(PreparedStatement statement, SQLException error) {
+      threads.add(Thread.currentThread().getName());
+      results.add(error.getSQLState());
+      latch.countDown();
+    }
+  }
+
+  @Test
+  public void testManyConnectionsWaitAtOnce() throws Exception {
+    List<Connection> connections = new ArrayList<Connection>();
+    try {
+      for (int i = 0; i < 50; i++) {
+        connections.add(connect(true));
+      }
+      CountDownLatch latch = new CountDownLatch(connections.size());
+      long start = System.nanoTime();
+      for (Connection con : connections) {
+        PreparedStatement ps = con.prepareStatement("select pg_sleep(?)");
+        ps.setDouble(1, 0.5);
+        loop.execute(ps, new Recorder(latch));
+      }
+      assertTrue(latch.await(20, TimeUnit.SECONDS));
+      // Executed one after another the statements would take 25 seconds
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+      assertEquals(Collections.nCopies(50, "1"), results);
+      for (String thread : threads) {
+        assertTrue(thread, thread.startsWith("PostgreSQL-JDBC-EventLoop-"));
+      }
+    } finally {
+      for (Connection con : connections) {
+        con.close();
+      }
+    }
+  }
+
+  @Test
+  public void testExecutionsOfOneConnectionCompleteInOrder() throws Exception {
+    Connection con = connect(true);
+    try {
+      CountDownLatch latch = new CountDownLatch(100);
+      List<String> expected = new ArrayList<String>();
+      for (int i = 0; i < 100; i++) {
+        PreparedStatement ps = con.prepareStatement("select id from numbers where id = ?");
+        ps.setInt(1, i);
+        loop.execute(ps, new Recorder(latch));
+        expected.add(Integer.toString(i));
+      }
+      assertTrue(latch.await(20, TimeUnit.SECONDS));
+      assertEquals(expected, results);
+
+      // The connection reads the socket itself again
+      ResultSet rs = con.createStatement().executeQuery("select id");
+      assertTrue(rs.next());
+      assertEquals(0, rs.getInt(1));
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testCallbackExecutesNextStatement() throws Exception {
+    Connection con = connect(true);
+    try {
+      final PreparedStatement ps = con.prepareStatement("select id from numbers where id = ?");
+      final CountDownLatch latch = new CountDownLatch(20);
+      final Recorder recorder = new Recorder(latch);
+      ps.setInt(1, 0);
+      loop.execute(ps, new PGEventLoop.Callback() {
+        private int next = 1;
+
+        @Override
+        public void onResult(PreparedStatement statement, boolean hasResultSet) {
+          recorder.onResult(statement, hasResultSet);
+          if (next < 20) {
+            try {
+              ps.setInt(1, next++);
+              loop.execute(ps, this);
+            } catch (SQLException e) {
+              recorder.onError(statement, e);
+            }
+          }
+        }
+
+        @Override
+        public void onError(PreparedStatement statement, SQLException error) {
+          recorder.onError(statement, error);
+        }
+      });
+      assertTrue(latch.await(20, TimeUnit.SECONDS));
+      assertEquals(20, results.size());
+      assertEquals("19", results.get(19));
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testCallbacksAreCalledByExecutor() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable task) {
+        return new Thread(task, "callbacks");
+      }
+    });
+    PGEventLoop executorLoop = new PGEventLoop(1, executor);
+    Connection con = connect(true);
+    try {
+      CountDownLatch latch = new CountDownLatch(10);
+      for (int i = 0; i < 10; i++) {
+        PreparedStatement ps = con.prepareStatement("select id from numbers where id = ?");
+        ps.setInt(1, i);
+        executorLoop.execute(ps, new Recorder(latch));
+      }
+      assertTrue(latch.await(20, TimeUnit.SECONDS));
+      assertEquals(10, results.size());
+      assertEquals(Collections.nCopies(10, "callbacks"), threads);
+    } finally {
+      executorLoop.close();
+      executor.shutdown();
+      con.close();
+    }
+  }
+
+  @Test
+  public void testErrorIsPassedToCallback() throws Exception {
+    Connection con = connect(true);
+    try {
+      CountDownLatch latch = new CountDownLatch(2);
+      loop.execute(con.prepareStatement("select missing from numbers"), new Recorder(latch));
+      PreparedStatement ps = con.prepareStatement("select id from numbers where id = ?");
+      ps.setInt(1, 7);
+      loop.execute(ps, new Recorder(latch));
+      assertTrue(latch.await(20, TimeUnit.SECONDS));
+      assertEquals(Arrays.asList("42703", "7"), results);
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testFutureCanBeAwaited() throws Exception {
+    Connection con = connect(true);
+    try {
+      PreparedStatement ps = con.prepareStatement("select pg_sleep(?)");
+      ps.setDouble(1, 0.5);
+      CountDownLatch latch = new CountDownLatch(1);
+      assertTrue(loop.execute(ps, new Recorder(latch)).get());
+      assertTrue(latch.await(20, TimeUnit.SECONDS));
+      assertEquals(Collections.singletonList("1"), results);
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testConnectionNeedsSocketChannel() throws Exception {
+    Connection con = connect(false);
+    try {
+      loop.execute(con.prepareStatement("select id"), new Recorder(new CountDownLatch(1)));
+      fail("a connection without socketChannel cannot be used by an event loop");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.OBJECT_NOT_IN_STATE.getState(), e.getSQLState());
+    } finally {
+      con.close();
+    }
+  }
+}
@@ -5,19 +5,25 @@
 
 package org.postgresql.test.jdbc2;
 
+import org.postgresql.core.AdaptiveBufferTest;
 import org.postgresql.core.CommandCompleteParserNegativeTest;
 import org.postgresql.core.CommandCompleteParserTest;
 import org.postgresql.core.OidToStringTest;
 import org.postgresql.core.OidValueOfTest;
 import org.postgresql.core.ParserTest;
 import org.postgresql.core.ReturningParserTest;
+import org.postgresql.core.SlabRowsTest;
 import org.postgresql.core.v3.V3ParameterListTests;
 import org.postgresql.jdbc.DeepBatchedInsertStatementTest;
 import org.postgresql.jdbc.PrimitiveArraySupportTest;
+import org.postgresql.jdbc.TimestampUtilsTest;
 import org.postgresql.test.core.JavaVersionTest;
 import org.postgresql.test.core.NativeQueryBindLengthTest;
+import org.postgresql.test.fakebackend.FakeBackendTest;
+import org.postgresql.test.util.ByteConverterTest;
 import org.postgresql.test.util.ExpressionPropertiesTest;
 import org.postgresql.test.util.LruCacheTest;
+import org.postgresql.test.util.SegmentedCacheTest;
 import org.postgresql.test.util.ServerVersionParseTest;
 import org.postgresql.test.util.ServerVersionTest;
 import org.postgresql.util.ReaderInputStreamTest;
@@ -32,6 +38,26 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
         ANTTest.class,
         JavaVersionTest.class,
+        FakeBackendTest.class,
+        DataRowTest.class,
+        TextNumberParsingTest.class,
+        ByteConverterTest.class,
+        BinaryNumericTest.class,
+        AdaptiveBinaryTransferTest.class,
+        PipelinedExecutionTest.class,
+        BatchedInsertCopyTest.class,
+        BinaryCopyTest.class,
+        ParallelCopyLoaderTest.class,
+        CopyOutBufferTest.class,
+        AsyncCopyOutputStreamTest.class,
+        SharedQueryCacheTest.class,
+        StatementWarmupTest.class,
+        BatchDescribeTest.class,
+        ReceiveWhileSendingTest.class,
+        SocketChannelTest.class,
+        EventLoopTest.class,
+        ConnectionLockTest.class,
+        NotificationListenerTest.class,
 
         DriverTest.class,
         ConnectionTest.class,
@@ -44,6 +70,7 @@ import org.junit.runners.Suite;
         ColumnSanitiserDisabledTest.class,
         ColumnSanitiserEnabledTest.class,
         LruCacheTest.class,
+        SegmentedCacheTest.class,
         ReaderInputStreamTest.class,
         ServerVersionParseTest.class,
         ServerVersionTest.class,
@@ -69,6 +96,7 @@ import org.junit.runners.Suite;
         StringTypeUnspecifiedArrayTest.class,
         ArrayTest.class,
         PrimitiveArraySupportTest.class,
+        TimestampUtilsTest.class,
         RefCursorTest.class,
 
         DateTest.class,
@@ -79,6 +107,8 @@ import org.junit.runners.Suite;
         PGTimestampTest.class,
         TimezoneCachingTest.class,
         ParserTest.class,
+        AdaptiveBufferTest.class,
+        SlabRowsTest.class,
         ReturningParserTest.class,
         CommandCompleteParserTest.class,
         CommandCompleteParserNegativeTest.class,
@@ -112,6 +142,7 @@ import org.junit.runners.Suite;
 
         CallableStmtTest.class,
         CursorFetchTest.class,
+        StreamResultsTest.class,
         ConcurrentStatementFetch.class,
         ServerCursorTest.class,
 
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGEventLoop;
+import org.postgresql.PGNotification;
+import org.postgresql.PGNotificationListener;
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifications pushed to the listeners of a connection instead of being polled.
+ */
+public class NotificationListenerTest extends FakeBackendTestBase {
+  private Connection con;
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^select id", FakeResult.rows(new String[]{"id"}, new int[]{Oid.INT4},
+        Collections.singletonList(new String[]{"1"})));
+    script.on("^notify", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        if (query.isBound()) {
+          backend.sendNotification("jobs", "from query");
+        }
+        return FakeResult.command("NOTIFY");
+      }
+    });
+    con = connect(false, 10000);
+  }
+
+  private Connection connect(boolean socketChannel, int queueSize) throws SQLException {
+    Properties props = new Properties();
+    PGProperty.SOCKET_CHANNEL.set(props, socketChannel);
+    PGProperty.NOTIFICATION_QUEUE_SIZE.set(props, queueSize);
+    return connect(props);
+  }
+
+  private static class Recorder implements PGNotificationListener {
+    final List<String> received = new CopyOnWriteArrayList<String>();
+    final List<String> threads = new CopyOnWriteArrayList<String>();
+    final CountDownLatch latch;
+
+    Recorder(int expected) {
+      latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void onNotifications(PGNotification[] notifications) {
+      threads.add(Thread.currentThread().getName());
+      for (PGNotification notification : notifications) {
+        received.add(notification.getName() + ":" + notification.getParameter());
+        latch.countDown();
+      }
+    }
+
+    void await() throws InterruptedException {
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+  }
+
+  private void assertPushed(Connection con) throws Exception {
+    Recorder recorder = new Recorder(3);
+    con.unwrap(PGConnection.class).addNotificationListener(recorder);
+    backend.sendNotification("jobs", "1");
+    backend.sendNotification("jobs", "2");
+    backend.sendNotification("events", "3");
+    recorder.await();
+    assertEquals(Arrays.asList("jobs:1", "jobs:2", "events:3"), recorder.received);
+    for (String thread : recorder.threads) {
+      assertEquals("PostgreSQL-JDBC-NotificationDispatcher", thread);
+    }
+  }
+
+  @Test
+  public void testNotificationsArePushed() throws Exception {
+    assertPushed(con);
+  }
+
+  @Test
+  public void testNotificationsArePushedWithSocketChannel() throws Exception {
+    Connection channelCon = connect(true, 10000);
+    try {
+      assertPushed(channelCon);
+    } finally {
+      channelCon.close();
+    }
+  }
+
+  @Test
+  public void testChannelsAreFiltered() throws Exception {
+    Recorder jobs = new Recorder(2);
+    Recorder all = new Recorder(3);
+    PGConnection pgCon = con.unwrap(PGConnection.class);
+    pgCon.addNotificationListener(jobs, "jobs", "other");
+    pgCon.addNotificationListener(all);
+    backend.sendNotification("jobs", "1");
+    backend.sendNotification("events", "2");
+    backend.sendNotification("jobs", "3");
+    all.await();
+    jobs.await();
+    assertEquals(Arrays.asList("jobs:1", "jobs:3"), jobs.received);
+    assertEquals(Arrays.asList("jobs:1", "events:2", "jobs:3"), all.received);
+  }
+
+  @Test
+  public void testConnectionIsUsableWhileListening() throws Exception {
+    Recorder recorder = new Recorder(10);
+    con.unwrap(PGConnection.class).addNotificationListener(recorder);
+    Statement stmt = con.createStatement();
+    for (int i = 0; i < 10; i++) {
+      // The notification arrives in the middle of the response
+      stmt.execute("notify jobs");
+      ResultSet rs = stmt.executeQuery("select id");
+      assertTrue(rs.next());
+      assertEquals(1, rs.getInt(1));
+    }
+    recorder.await();
+    assertEquals(Collections.nCopies(10, "jobs:from query"), recorder.received);
+  }
+
+  @Test
+  public void testRemovedListenerRestoresPolling() throws Exception {
+    PGConnection pgCon = con.unwrap(PGConnection.class);
+    Recorder recorder = new Recorder(1);
+    pgCon.addNotificationListener(recorder);
+    backend.sendNotification("jobs", "1");
+    recorder.await();
+    pgCon.removeNotificationListener(recorder);
+
+    backend.sendNotification("jobs", "2");
+    List<String> polled = new ArrayList<String>();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (polled.isEmpty() && System.nanoTime() < deadline) {
+      PGNotification[] notifications = pgCon.getNotifications(100);
+      if (notifications != null) {
+        for (PGNotification notification : notifications) {
+          polled.add(notification.getName() + ":" + notification.getParameter());
+        }
+      }
+    }
+    assertEquals(Collections.singletonList("jobs:2"), polled);
+    assertEquals(Collections.singletonList("jobs:1"), recorder.received);
+
+    // The connection reads the socket itself again
+    ResultSet rs = con.createStatement().executeQuery("select id");
+    assertTrue(rs.next());
+  }
+
+  @Test
+  public void testSlowListenerReceivesAllInOrder() throws Exception {
+    Connection smallQueueCon = connect(false, 2);
+    try {
+      final CountDownLatch release = new CountDownLatch(1);
+      final Recorder recorder = new Recorder(50);
+      smallQueueCon.unwrap(PGConnection.class).addNotificationListener(
+          new PGNotificationListener() {
+            @Override
+            public void onNotifications(PGNotification[] notifications) {
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              recorder.onNotifications(notifications);
+            }
+          });
+      List<String> expected = new ArrayList<String>();
+      for (int i = 0; i < 50; i++) {
+        backend.sendNotification("jobs", Integer.toString(i));
+        expected.add("jobs:" + i);
+      }
+      Thread.sleep(200);
+      release.countDown();
+      recorder.await();
+      assertEquals(expected, recorder.received);
+    } finally {
+      smallQueueCon.close();
+    }
+  }
+
+  @Test
+  public void testNotificationsReceivedByQueriesAreBounded() throws Exception {
+    Connection smallQueueCon = connect(false, 2);
+    try {
+      final CountDownLatch release = new CountDownLatch(1);
+      final List<Integer> batches = new CopyOnWriteArrayList<Integer>();
+      final Recorder recorder = new Recorder(20);
+      smallQueueCon.unwrap(PGConnection.class).addNotificationListener(
+          new PGNotificationListener() {
+            @Override
+            public void onNotifications(PGNotification[] notifications) {
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              batches.add(notifications.length);
+              recorder.onNotifications(notifications);
+            }
+          });
+      Statement stmt = smallQueueCon.createStatement();
+      for (int i = 0; i < 20; i++) {
+        stmt.execute("notify jobs");
+      }
+      release.countDown();
+      recorder.await();
+      assertEquals(Collections.nCopies(20, "jobs:from query"), recorder.received);
+      for (int batch : batches) {
+        assertTrue("batch of " + batch, batch <= 2);
+      }
+    } finally {
+      smallQueueCon.close();
+    }
+  }
+
+  private static boolean readerEnds() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      boolean alive = false;
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+        alive |= thread.getName().equals("PostgreSQL-JDBC-NotificationReader");
+      }
+      if (!alive) {
+        return true;
+      }
+      Thread.sleep(10);
+    }
+    return false;
+  }
+
+  private void assertReaderEndsOnRemove(Connection con) throws Exception {
+    PGConnection pgCon = con.unwrap(PGConnection.class);
+    Recorder recorder = new Recorder(1);
+    pgCon.addNotificationListener(recorder);
+    backend.sendNotification("jobs", "1");
+    recorder.await();
+    pgCon.removeNotificationListener(recorder);
+    assertTrue(readerEnds());
+    ResultSet rs = con.createStatement().executeQuery("select id");
+    assertTrue(rs.next());
+  }
+
+  @Test
+  public void testReaderEndsWhenLastListenerIsRemoved() throws Exception {
+    assertReaderEndsOnRemove(con);
+  }
+
+  @Test
+  public void testReaderEndsWhenLastListenerIsRemovedWithSocketChannel() throws Exception {
+    Connection channelCon = connect(true, 10000);
+    try {
+      assertReaderEndsOnRemove(channelCon);
+    } finally {
+      channelCon.close();
+    }
+  }
+
+  @Test
+  public void testEventLoopCannotUseListeningConnection() throws Exception {
+    Connection channelCon = connect(true, 10000);
+    PGEventLoop loop = new PGEventLoop(1);
+    try {
+      channelCon.unwrap(PGConnection.class).addNotificationListener(new Recorder(1));
+      try {
+        loop.execute(channelCon.prepareStatement("select id"), null);
+        fail("an event loop cannot use a connection with notification listeners");
+      } catch (SQLException e) {
+        assertEquals(PSQLState.OBJECT_NOT_IN_STATE.getState(), e.getSQLState());
+      }
+    } finally {
+      loop.close();
+      channelCon.close();
+    }
+  }
+}
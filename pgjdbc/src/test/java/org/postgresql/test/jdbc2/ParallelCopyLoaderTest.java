@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.copy.ParallelCopyLoader;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.postgresql.ds.common.BaseDataSource;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.test.fakebackend.FakeScript;
+import org.postgresql.util.ByteConverter;
+import org.postgresql.xa.PGXADataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ParallelCopyLoader} against the fake backend, which keeps the data received by each
+ * connection apart.
+ */
+public class ParallelCopyLoaderTest {
+  private final Map<Thread, ByteArrayOutputStream> received =
+      new HashMap<Thread, ByteArrayOutputStream>();
+  private FakeScript script;
+  private FakeBackend backend;
+
+  @Before
+  public void setUp() throws Exception {
+    script = new FakeScript();
+    script.on("^copy t from stdin", FakeResult.copyIn(new OutputStream() {
+      @Override
+      public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        synchronized (received) {
+          ByteArrayOutputStream out = received.get(Thread.currentThread());
+          if (out == null) {
+            out = new ByteArrayOutputStream();
+            received.put(Thread.currentThread(), out);
+          }
+          out.write(b, off, len);
+        }
+      }
+    }));
+    script.on("^copy broken", FakeResult.error("42P01", "relation \"broken\" does not exist"));
+    script.on("^PREPARE TRANSACTION", FakeResult.command("PREPARE TRANSACTION"));
+    script.on("^COMMIT PREPARED", FakeResult.command("COMMIT PREPARED"));
+    script.on("^COMMIT", FakeResult.command("COMMIT"));
+    script.on("^ROLLBACK", FakeResult.command("ROLLBACK"));
+    backend = new FakeBackend(script);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    backend.close();
+  }
+
+  private <T extends BaseDataSource> T dataSource(T ds) {
+    ds.setUrl(backend.getURL());
+    ds.setUser("fake");
+    return ds;
+  }
+
+  private List<byte[]> receivedData() {
+    synchronized (received) {
+      List<byte[]> data = new ArrayList<byte[]>();
+      for (ByteArrayOutputStream out : received.values()) {
+        data.add(out.toByteArray());
+      }
+      return data;
+    }
+  }
+
+  @Test
+  public void testTextRowsAreNotCut() throws Exception {
+    StringBuilder input = new StringBuilder();
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 5000; i++) {
+      String line = i + "\tvalue " + i;
+      expected.add(line);
+      input.append(line).append('\n');
+    }
+    ParallelCopyLoader loader =
+        new ParallelCopyLoader(dataSource(new PGSimpleDataSource()), "copy t from stdin");
+    loader.setConnections(3);
+    loader.setChunkSize(100);
+    long rows = loader.load(
+        new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)));
+    assertEquals(5000, rows);
+
+    List<String> copied = new ArrayList<String>();
+    List<byte[]> data = receivedData();
+    for (byte[] connectionData : data) {
+      String text = new String(connectionData, StandardCharsets.UTF_8);
+      assertTrue(text.endsWith("\n"));
+      copied.addAll(Arrays.asList(text.split("\n")));
+    }
+    Collections.sort(expected);
+    Collections.sort(copied);
+    assertEquals(expected, copied);
+    assertEquals(3, script.getExecutions("^COMMIT"));
+  }
+
+  @Test
+  public void testTextEscapedLineEnds() throws Exception {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      // a backslash before a line end makes it part of the value, a double one does not
+      input.append(i).append("\tmulti\\\nline\t").append(i).append("\\\\\n");
+    }
+    ParallelCopyLoader loader =
+        new ParallelCopyLoader(dataSource(new PGSimpleDataSource()), "copy t from stdin");
+    loader.setConnections(2);
+    loader.setChunkSize(64);
+    loader.load(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)));
+
+    int rows = 0;
+    for (byte[] connectionData : receivedData()) {
+      String text = new String(connectionData, StandardCharsets.UTF_8);
+      for (String row : text.split("\\\\\\\\\n")) {
+        assertTrue(row, row.matches("(?s)[0-9]+\tmulti\\\\\nline\t[0-9]+"));
+        rows++;
+      }
+    }
+    assertEquals(1000, rows);
+  }
+
+  @Test
+  public void testCsvQuotedLineEnds() throws Exception {
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      input.append(i).append(",\"multi\nline \"\"").append(i).append("\"\"\"\n");
+    }
+    ParallelCopyLoader loader =
+        new ParallelCopyLoader(dataSource(new PGSimpleDataSource()), "copy t from stdin csv");
+    loader.setFormat(ParallelCopyLoader.Format.CSV);
+    loader.setConnections(2);
+    loader.setChunkSize(64);
+    loader.load(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)));
+
+    int records = 0;
+    for (byte[] connectionData : receivedData()) {
+      String text = new String(connectionData, StandardCharsets.UTF_8);
+      for (String record : text.split("\"\n")) {
+        assertTrue(record, record.matches("(?s)[0-9]+,\"multi\nline \"\"[0-9]+\"\""));
+        records++;
+      }
+    }
+    assertEquals(1000, records);
+  }
+
+  @Test
+  public void testBinary() throws Exception {
+    ByteArrayOutputStream input = new ByteArrayOutputStream();
+    input.write("PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1));
+    input.write(new byte[8]);
+    byte[] row = new byte[2 + 4 + 8 + 4];
+    for (int i = 0; i < 2000; i++) {
+      ByteConverter.int2(row, 0, 2);
+      ByteConverter.int4(row, 2, 8);
+      ByteConverter.int8(row, 6, i);
+      ByteConverter.int4(row, 14, -1);
+      input.write(row);
+    }
+    input.write(new byte[]{-1, -1});
+
+    ParallelCopyLoader loader = new ParallelCopyLoader(dataSource(new PGSimpleDataSource()),
+        "copy t from stdin (format binary)");
+    loader.setFormat(ParallelCopyLoader.Format.BINARY);
+    loader.setConnections(4);
+    loader.setChunkSize(50);
+    assertEquals(2000, loader.load(new ByteArrayInputStream(input.toByteArray())));
+    for (byte[] connectionData : receivedData()) {
+      assertEquals('P', connectionData[0]);
+      assertEquals(0, (connectionData.length - 19 - 2) % row.length);
+      assertEquals(-1, ByteConverter.int2(connectionData, connectionData.length - 2));
+    }
+  }
+
+  @Test
+  public void testTwoPhaseCommit() throws Exception {
+    ParallelCopyLoader loader =
+        new ParallelCopyLoader(dataSource(new PGXADataSource()), "copy t from stdin");
+    loader.setConnections(3);
+    assertEquals(2,
+        loader.load(new ByteArrayInputStream("1\n2\n".getBytes(StandardCharsets.UTF_8))));
+    assertEquals(3, script.getExecutions("^PREPARE TRANSACTION"));
+    assertEquals(3, script.getExecutions("^COMMIT PREPARED"));
+  }
+
+  @Test
+  public void testFailureRollsBack() throws Exception {
+    ParallelCopyLoader loader =
+        new ParallelCopyLoader(dataSource(new PGSimpleDataSource()), "copy broken from stdin");
+    loader.setConnections(2);
+    try {
+      loader.load(new ByteArrayInputStream("1\n2\n".getBytes(StandardCharsets.UTF_8)));
+      fail("COPY into a missing table should fail");
+    } catch (SQLException e) {
+      assertEquals("42P01", e.getSQLState());
+    }
+    assertEquals(0, script.getExecutions("^COMMIT"));
+  }
+
+  @Test
+  public void testInputFailureRollsBack() throws Exception {
+    ParallelCopyLoader loader =
+        new ParallelCopyLoader(dataSource(new PGSimpleDataSource()), "copy t from stdin");
+    loader.setConnections(2);
+    try {
+      loader.load(new InputStream() {
+        private int calls;
+
+        @Override
+        public int read() throws IOException {
+          if (calls++ > 10) {
+            throw new IOException("disk failure");
+          }
+          return '\n';
+        }
+      });
+      fail("the input failure should be reported");
+    } catch (IOException e) {
+      assertEquals("disk failure", e.getMessage());
+    }
+    assertEquals(0, script.getExecutions("^COMMIT"));
+  }
+
+  @Test
+  public void testInputRuntimeExceptionRollsBack() throws Exception {
+    ParallelCopyLoader loader =
+        new ParallelCopyLoader(dataSource(new PGSimpleDataSource()), "copy t from stdin");
+    loader.setConnections(2);
+    try {
+      loader.load(new InputStream() {
+        private int calls;
+
+        @Override
+        public int read() {
+          if (calls++ > 10) {
+            throw new IllegalStateException("stream closed");
+          }
+          return '\n';
+        }
+      });
+      fail("the input failure should be reported");
+    } catch (IllegalStateException e) {
+      assertEquals("stream closed", e.getMessage());
+    }
+    assertEquals(0, script.getExecutions("^COMMIT"));
+    assertEquals(2, script.getExecutions("^ROLLBACK"));
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link PGConnection#executeAsync(PreparedStatement)} against the fake backend.
+ */
+public class PipelinedExecutionTest extends FakeBackendTestBase {
+  private Connection con;
+  private PGConnection pgConnection;
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^select", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        String value;
+        if (query.getParameterCount() == 0) {
+          // simple query mode inlines the parameter
+          value = query.getSql().replaceAll("[^0-9]", "");
+        } else {
+          value = query.isBound() ? query.getParameter(0) : "0";
+        }
+        return FakeResult.rows(new String[]{"value"}, new int[]{Oid.INT4},
+            Collections.singletonList(new String[]{value}));
+      }
+    });
+    script.on("^update", FakeResult.command("UPDATE 3"));
+    script.on("^fail", FakeResult.error("22012", "division by zero"));
+    script.on("^BEGIN", FakeResult.command("BEGIN"));
+    script.on("^COMMIT", FakeResult.command("COMMIT"));
+    script.on("^slow", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        if (query.isBound()) {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        return FakeResult.command("SELECT 0");
+      }
+    });
+    con = connect();
+    pgConnection = con.unwrap(PGConnection.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    release.countDown();
+  }
+
+  private PreparedStatement select(int value) throws SQLException {
+    PreparedStatement ps = con.prepareStatement("select ?");
+    ps.setInt(1, value);
+    return ps;
+  }
+
+  private static int value(PreparedStatement ps) throws SQLException {
+    ResultSet rs = ps.getResultSet();
+    assertTrue(rs.next());
+    return rs.getInt(1);
+  }
+
+  private void awaitExecutions(String regex, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (script.getExecutions(regex) < count) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("backend executed " + script.getExecutions(regex) + " of " + count + " statements");
+      }
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  public void testStatementsRunBeforeResultsAreRead() throws Exception {
+    List<PreparedStatement> statements = new ArrayList<PreparedStatement>();
+    List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+    for (int i = 0; i < 5; i++) {
+      PreparedStatement ps = select(i);
+      statements.add(ps);
+      futures.add(pgConnection.executeAsync(ps));
+    }
+    // all of them reach the backend without the driver waiting for a result
+    awaitExecutions("^select", 5);
+    assertFalse(futures.get(0).isDone());
+
+    // reading the last result reads the earlier ones as well
+    assertTrue(futures.get(4).get());
+    for (int i = 0; i < 5; i++) {
+      assertTrue(futures.get(i).get());
+      assertTrue(futures.get(i).isDone());
+      assertEquals(i, value(statements.get(i)));
+    }
+  }
+
+  @Test
+  public void testFailureDoesNotAffectOtherStatements() throws Exception {
+    PreparedStatement first = select(1);
+    PreparedStatement failing = con.prepareStatement("fail");
+    PreparedStatement update = con.prepareStatement("update t set x = 1");
+    Future<Boolean> firstResult = pgConnection.executeAsync(first);
+    Future<Boolean> failingResult = pgConnection.executeAsync(failing);
+    Future<Boolean> updateResult = pgConnection.executeAsync(update);
+
+    assertFalse(updateResult.get());
+    assertEquals(3, update.getUpdateCount());
+    assertTrue(firstResult.get());
+    assertEquals(1, value(first));
+    try {
+      failingResult.get();
+      fail("the failing statement should report its error");
+    } catch (ExecutionException e) {
+      assertEquals("22012", ((SQLException) e.getCause()).getSQLState());
+    }
+  }
+
+  /**
+   * With autocommit off the statements share a transaction, which the failure aborts.
+   */
+  @Test
+  public void testFailureAbortsLaterStatementsInTransaction() throws Exception {
+    con.setAutoCommit(false);
+    PreparedStatement first = select(1);
+    Future<Boolean> firstResult = pgConnection.executeAsync(first);
+    Future<Boolean> failingResult = pgConnection.executeAsync(con.prepareStatement("fail"));
+    Future<Boolean> updateResult =
+        pgConnection.executeAsync(con.prepareStatement("update t set x = 1"));
+
+    assertTrue(firstResult.get());
+    assertEquals(1, value(first));
+    try {
+      failingResult.get();
+      fail("the failing statement should report its error");
+    } catch (ExecutionException e) {
+      assertEquals("22012", ((SQLException) e.getCause()).getSQLState());
+    }
+    try {
+      updateResult.get();
+      fail("the transaction was aborted by the failing statement");
+    } catch (ExecutionException e) {
+      assertEquals("25P02", ((SQLException) e.getCause()).getSQLState());
+    }
+    con.rollback();
+    PreparedStatement after = select(2);
+    assertTrue(pgConnection.executeAsync(after).get());
+    assertEquals(2, value(after));
+    con.rollback();
+  }
+
+  /**
+   * The BEGIN is sent with the first pipelined statement, so the transaction is only known to be
+   * open once its results are read.
+   */
+  @Test
+  public void testCommitReadsPendingResults() throws Exception {
+    con.setAutoCommit(false);
+    PreparedStatement ps = select(4);
+    Future<Boolean> result = pgConnection.executeAsync(ps);
+    con.commit();
+    assertEquals(1, script.getExecutions("^COMMIT"));
+    assertTrue(result.get());
+    assertEquals(4, value(ps));
+  }
+
+  @Test
+  public void testTimedGet() throws Exception {
+    Future<Boolean> slow = pgConnection.executeAsync(con.prepareStatement("slow"));
+    PreparedStatement after = select(5);
+    Future<Boolean> afterResult = pgConnection.executeAsync(after);
+    long start = System.nanoTime();
+    try {
+      afterResult.get(100, TimeUnit.MILLISECONDS);
+      fail("the backend has not answered yet");
+    } catch (TimeoutException e) {
+      // expected
+    }
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertFalse(slow.isDone());
+    assertFalse(afterResult.isDone());
+
+    release.countDown();
+    assertTrue(afterResult.get(10, TimeUnit.SECONDS));
+    assertEquals(5, value(after));
+    assertFalse(slow.get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testOtherUseOfConnectionReadsPendingResults() throws Exception {
+    PreparedStatement pipelined = select(7);
+    Future<Boolean> result = pgConnection.executeAsync(pipelined);
+    ResultSet rs = con.createStatement().executeQuery("select 5");
+    assertTrue(rs.next());
+    assertTrue(result.get());
+    assertEquals(7, value(pipelined));
+  }
+
+  @Test
+  public void testReexecutingStatement() throws Exception {
+    PreparedStatement ps = select(1);
+    Future<Boolean> first = pgConnection.executeAsync(ps);
+    ps.setInt(1, 2);
+    Future<Boolean> second = pgConnection.executeAsync(ps);
+    assertTrue(first.isDone());
+    assertTrue(first.get());
+    assertTrue(second.get());
+    assertEquals(2, value(ps));
+  }
+
+  @Test
+  public void testSingleBeginInTransaction() throws Exception {
+    con.setAutoCommit(false);
+    List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+    for (int i = 0; i < 3; i++) {
+      futures.add(pgConnection.executeAsync(select(i)));
+    }
+    for (Future<Boolean> future : futures) {
+      assertTrue(future.get());
+    }
+    assertEquals(1, script.getExecutions("^BEGIN"));
+    con.rollback();
+  }
+
+  @Test
+  public void testSimpleQueryModeRunsAtOnce() throws Exception {
+    con.close();
+    Properties props = new Properties();
+    PGProperty.PREFER_QUERY_MODE.set(props, "simple");
+    con = connect(props);
+    PreparedStatement ps = select(3);
+    Future<Boolean> result = con.unwrap(PGConnection.class).executeAsync(ps);
+    assertTrue(result.isDone());
+    assertTrue(result.get());
+    assertEquals(3, value(ps));
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+/**
+ * Batches sent while the responses are read in a separate thread, see
+ * {@link PGProperty#RECEIVE_WHILE_SENDING}.
+ */
+public class ReceiveWhileSendingTest extends FakeBackendTestBase {
+  private static final String INSERT = "insert into t (a) values (?)";
+
+  private String value;
+
+  @Before
+  public void setUp() throws Exception {
+    char[] chars = new char[8192];
+    Arrays.fill(chars, 'x');
+    value = new String(chars);
+    // The text column makes the size of the rows unbounded
+    script.on("^insert into t", FakeResult.rows(new String[]{"a"}, new int[]{Oid.TEXT},
+        Collections.singletonList(new String[]{value})));
+  }
+
+  private Connection connect(boolean receiveWhileSending) throws SQLException {
+    return connect(receiveWhileSending, 16 * 1024 * 1024);
+  }
+
+  private Connection connect(boolean receiveWhileSending, int limit) throws SQLException {
+    Properties props = new Properties();
+    PGProperty.RECEIVE_WHILE_SENDING.set(props, receiveWhileSending);
+    PGProperty.RECEIVE_WHILE_SENDING_LIMIT.set(props, limit);
+    return connect(props);
+  }
+
+  private int insertReturning(Connection con, int rows) throws SQLException {
+    PreparedStatement ps = con.prepareStatement(INSERT, new String[]{"a"});
+    try {
+      for (int i = 0; i < rows; i++) {
+        ps.setString(1, value);
+        ps.addBatch();
+      }
+      int[] counts = ps.executeBatch();
+      assertEquals(rows, counts.length);
+      ResultSet keys = ps.getGeneratedKeys();
+      int count = 0;
+      while (keys.next()) {
+        assertEquals(value, keys.getString(1));
+        count++;
+      }
+      return count;
+    } finally {
+      ps.close();
+    }
+  }
+
+  @Test
+  public void testUnboundedResultsForceSyncs() throws Exception {
+    Connection con = connect(false);
+    try {
+      long syncs = backend.getSyncsReceived();
+      assertEquals(10, insertReturning(con, 10));
+      assertEquals(12, backend.getSyncsReceived() - syncs);
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testBatchIsSentWithoutSyncs() throws Exception {
+    Connection con = connect(true);
+    try {
+      long syncs = backend.getSyncsReceived();
+      assertEquals(10, insertReturning(con, 10));
+      // one Sync for describing the statement, one for the executions
+      assertEquals(2, backend.getSyncsReceived() - syncs);
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testResponsesLargerThanSocketBuffers() throws Exception {
+    Connection con = connect(true);
+    try {
+      // 8 MiB are sent and received, more than the buffers of the sockets hold
+      assertEquals(1024, insertReturning(con, 1024));
+      assertEquals(1, insertReturning(con, 1));
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testLimitForcesSyncs() throws Exception {
+    Connection con = connect(true, 256 * 1024);
+    try {
+      long syncs = backend.getSyncsReceived();
+      // 8 MiB of responses do not fit the limit, they are read in between
+      assertEquals(1024, insertReturning(con, 1024));
+      assertTrue(backend.getSyncsReceived() - syncs > 2);
+      assertEquals(1, insertReturning(con, 1));
+    } finally {
+      con.close();
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.CachedQuery;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Parse results shared between connections by {@link PGProperty#SHARED_QUERY_CACHE}.
+ */
+public class SharedQueryCacheTest extends FakeBackendTestBase {
+  private static final String SQL = "update shared_cache set a = ? where b = ?";
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^update shared_cache", FakeResult.command("UPDATE 1"));
+  }
+
+  private Connection connect(boolean shared) throws SQLException {
+    Properties props = new Properties();
+    PGProperty.SHARED_QUERY_CACHE.set(props, shared);
+    return connect(props);
+  }
+
+  private static String nativeSql(Connection con, String sql) throws SQLException {
+    QueryExecutor queryExecutor = con.unwrap(BaseConnection.class).getQueryExecutor();
+    CachedQuery cachedQuery = queryExecutor.borrowQuery(sql);
+    try {
+      return cachedQuery.query.getNativeSql();
+    } finally {
+      queryExecutor.releaseQuery(cachedQuery);
+    }
+  }
+
+  @Test
+  public void testParseResultIsShared() throws Exception {
+    Connection con1 = connect(true);
+    Connection con2 = connect(true);
+    try {
+      String sql1 = nativeSql(con1, SQL);
+      String sql2 = nativeSql(con2, SQL);
+      assertEquals("update shared_cache set a = $1 where b = $2", sql1);
+      assertSame(sql1, sql2);
+    } finally {
+      con1.close();
+      con2.close();
+    }
+  }
+
+  @Test
+  public void testParseResultIsNotSharedByDefault() throws Exception {
+    Connection con1 = connect(false);
+    Connection con2 = connect(false);
+    try {
+      String sql1 = nativeSql(con1, SQL);
+      String sql2 = nativeSql(con2, SQL);
+      assertEquals(sql1, sql2);
+      assertNotSame(sql1, sql2);
+    } finally {
+      con1.close();
+      con2.close();
+    }
+  }
+
+  @Test
+  public void testServerPreparedStatementsStayPerConnection() throws Exception {
+    Connection con1 = connect(true);
+    Connection con2 = connect(true);
+    try {
+      // past prepareThreshold both connections prepare the shared query on their own
+      for (int i = 0; i < 10; i++) {
+        for (Connection con : new Connection[]{con1, con2}) {
+          PreparedStatement ps = con.prepareStatement(SQL);
+          ps.setInt(1, i);
+          ps.setInt(2, i);
+          assertEquals(1, ps.executeUpdate());
+          ps.close();
+        }
+      }
+      assertEquals(20, script.getExecutions("^update shared_cache"));
+    } finally {
+      con1.close();
+      con2.close();
+    }
+  }
+}
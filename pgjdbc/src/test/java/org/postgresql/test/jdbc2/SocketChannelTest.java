@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.util.PSQLState;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Connections that exchange messages through a SocketChannel, see
+ * {@link PGProperty#SOCKET_CHANNEL}.
+ */
+public class SocketChannelTest extends FakeBackendTestBase {
+  private final AtomicReference<byte[]> received = new AtomicReference<byte[]>();
+
+  @Before
+  public void setUp() throws Exception {
+    List<String[]> rows = new ArrayList<String[]>();
+    for (int i = 0; i < 20000; i++) {
+      rows.add(new String[]{Integer.toString(i), "row " + i});
+    }
+    script.on("^select id, name from numbers", FakeResult.rows(new String[]{"id", "name"},
+        new int[]{Oid.INT4, Oid.TEXT}, rows));
+    script.on("^insert into blobs", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        if (query.isBound()) {
+          received.set(query.getParameterBytes(0));
+        }
+        return FakeResult.command("INSERT 0 1");
+      }
+    });
+    script.on("^select pg_sleep", new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) {
+        try {
+          Thread.sleep(3000);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return FakeResult.command("SELECT 0");
+      }
+    });
+  }
+
+  @Override
+  protected Connection connect(Properties props) throws SQLException {
+    PGProperty.SOCKET_CHANNEL.set(props, true);
+    return super.connect(props);
+  }
+
+  @Test
+  public void testManyRows() throws Exception {
+    Connection con = connect(new Properties());
+    try {
+      PreparedStatement ps = con.prepareStatement("select id, name from numbers where id < ?");
+      ps.setInt(1, 20000);
+      ResultSet rs = ps.executeQuery();
+      for (int i = 0; i < 20000; i++) {
+        assertTrue(rs.next());
+        assertEquals(i, rs.getInt(1));
+        assertEquals("row " + i, rs.getString(2));
+      }
+      assertFalse(rs.next());
+      ps.close();
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testLargeParameters() throws Exception {
+    byte[] value = new byte[300000];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = (byte) i;
+    }
+    Connection con = connect(new Properties());
+    try {
+      PreparedStatement ps = con.prepareStatement("insert into blobs (b) values (?)");
+      for (int i = 0; i < 20; i++) {
+        ps.setBytes(1, value);
+        ps.addBatch();
+      }
+      assertEquals(20, ps.executeBatch().length);
+      ps.close();
+    } finally {
+      con.close();
+    }
+    assertArrayEquals(value, received.get());
+  }
+
+  @Test
+  public void testSocketTimeout() throws Exception {
+    Properties props = new Properties();
+    PGProperty.SOCKET_TIMEOUT.set(props, 1);
+    Connection con = connect(props);
+    try {
+      con.createStatement().execute("select pg_sleep(3)");
+      fail("the statement should time out");
+    } catch (SQLException e) {
+      assertEquals(PSQLState.CONNECTION_FAILURE.getState(), e.getSQLState());
+    } finally {
+      con.close();
+    }
+  }
+}
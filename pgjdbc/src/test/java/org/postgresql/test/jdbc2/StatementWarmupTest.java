@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.PGProperty;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.core.CachedQuery;
+import org.postgresql.core.QueryExecutor;
+import org.postgresql.test.fakebackend.FakeBackend;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeQuery;
+import org.postgresql.test.fakebackend.FakeResult;
+import org.postgresql.test.fakebackend.FakeScript;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Statements prepared in advance by {@link PGProperty#PREPARE_ON_CONNECT} and
+ * {@link PGProperty#PREPARE_ON_CONNECT_LEARNED}.
+ */
+public class StatementWarmupTest extends FakeBackendTestBase {
+  private static final String SELECT = "select a from t where b = ?";
+  private static final String UPDATE = "update t set a = 1 where b = ?";
+
+  private final ConcurrentMap<String, AtomicInteger> describes =
+      new ConcurrentHashMap<String, AtomicInteger>();
+
+  @Override
+  protected FakeBackend.Handler createHandler(final FakeScript script) {
+    return new FakeBackend.Handler() {
+      @Override
+      public FakeResult execute(FakeQuery query) throws IOException {
+        if (!query.isBound()) {
+          describes.putIfAbsent(query.getSql(), new AtomicInteger());
+          describes.get(query.getSql()).incrementAndGet();
+        }
+        return script.execute(query);
+      }
+    };
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    script.on("^select a from t", FakeResult.rows(new String[]{"a"}, new int[]{23},
+        Collections.singletonList(new String[]{"1"})));
+    script.on("^update t", FakeResult.command("UPDATE 1"));
+    script.on("^update missing", FakeResult.error("42P01", "relation \"missing\" does not exist"));
+    script.on("^DISCARD ALL", FakeResult.command("DISCARD ALL"));
+  }
+
+  private Connection connect(String statements, int learned) throws SQLException {
+    Properties props = new Properties();
+    PGProperty.PREPARE_ON_CONNECT.set(props, statements);
+    PGProperty.PREPARE_ON_CONNECT_LEARNED.set(props, learned);
+    return connect(props);
+  }
+
+  private int describes(String nativeSql) {
+    AtomicInteger count = describes.get(nativeSql);
+    return count == null ? 0 : count.get();
+  }
+
+  private static int executeCount(Connection con, String sql) throws SQLException {
+    QueryExecutor queryExecutor = con.unwrap(BaseConnection.class).getQueryExecutor();
+    CachedQuery cachedQuery = queryExecutor.borrowQuery(sql);
+    try {
+      return cachedQuery.getExecuteCount();
+    } finally {
+      queryExecutor.releaseQuery(cachedQuery);
+    }
+  }
+
+  @Test
+  public void testStatementsArePreparedOnConnect() throws Exception {
+    Connection con = connect(SELECT + "; " + UPDATE + ";", 0);
+    try {
+      assertEquals(1, describes("select a from t where b = $1"));
+      assertEquals(1, describes("update t set a = 1 where b = $1"));
+      int threshold = con.unwrap(BaseConnection.class).getPrepareThreshold();
+      assertTrue(executeCount(con, SELECT) >= threshold);
+
+      PreparedStatement ps = con.prepareStatement(UPDATE);
+      ps.setInt(1, 1);
+      assertEquals(1, ps.executeUpdate());
+      ps.close();
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testStatementsArePreparedAgainAfterDiscardAll() throws Exception {
+    Connection con = connect(SELECT, 0);
+    try {
+      Statement stmt = con.createStatement();
+      stmt.execute("DISCARD ALL");
+      assertEquals(1, describes("select a from t where b = $1"));
+      stmt.execute("DISCARD ALL");
+      assertEquals(2, describes("select a from t where b = $1"));
+      stmt.close();
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testFailureDoesNotBreakConnection() throws Exception {
+    Connection con = connect("update missing set a = 1; " + SELECT, 0);
+    try {
+      PreparedStatement ps = con.prepareStatement(SELECT);
+      ps.setInt(1, 1);
+      assertTrue(ps.executeQuery().next());
+      ps.close();
+    } finally {
+      con.close();
+    }
+  }
+
+  @Test
+  public void testLearnedStatementsArePrepared() throws Exception {
+    Connection con1 = connect(null, 10);
+    try {
+      PreparedStatement ps = con1.prepareStatement(UPDATE);
+      int threshold = con1.unwrap(BaseConnection.class).getPrepareThreshold();
+      for (int i = 0; i < threshold; i++) {
+        ps.setInt(1, i);
+        ps.executeUpdate();
+      }
+      ps.close();
+    } finally {
+      con1.close();
+    }
+
+    int before = describes("update t set a = 1 where b = $1");
+    Connection con2 = connect(null, 10);
+    try {
+      assertEquals(before + 1, describes("update t set a = 1 where b = $1"));
+      int threshold = con2.unwrap(BaseConnection.class).getPrepareThreshold();
+      assertTrue(executeCount(con2, UPDATE) >= threshold);
+    } finally {
+      con2.close();
+    }
+  }
+}
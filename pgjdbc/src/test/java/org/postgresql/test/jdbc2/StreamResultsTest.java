@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.PGProperty;
+import org.postgresql.test.TestUtil;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Properties;
+
+/*
+ * Tests for streamResults=true.
+ */
+@RunWith(Parameterized.class)
+public class StreamResultsTest extends BaseTest4 {
+
+  public StreamResultsTest(BinaryMode binaryMode) {
+    setBinaryMode(binaryMode);
+  }
+
+  @Parameterized.Parameters(name = "binary = {0}")
+  public static Iterable<Object[]> data() {
+    Collection<Object[]> ids = new ArrayList<Object[]>();
+    for (BinaryMode binaryMode : BinaryMode.values()) {
+      ids.add(new Object[]{binaryMode});
+    }
+    return ids;
+  }
+
+  @Override
+  protected void updateProperties(Properties props) {
+    super.updateProperties(props);
+    PGProperty.STREAM_RESULTS.set(props, true);
+  }
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    TestUtil.createTable(con, "test_stream", "value integer");
+    PreparedStatement stmt = con.prepareStatement(
+        "insert into test_stream(value) select generate_series(0, 99)");
+    stmt.executeUpdate();
+    stmt.close();
+  }
+
+  @Override
+  public void tearDown() throws SQLException {
+    TestUtil.dropTable(con, "test_stream");
+    super.tearDown();
+  }
+
+  @Test
+  public void testFetchSizes() throws Exception {
+    PreparedStatement stmt = con.prepareStatement("select value from test_stream order by value");
+    int[] testSizes = {0, 1, 49, 50, 51, 99, 100, 101};
+    for (int testSize : testSizes) {
+      stmt.setFetchSize(testSize);
+      ResultSet rs = stmt.executeQuery();
+      int count = 0;
+      while (rs.next()) {
+        assertEquals("query value error with fetch size " + testSize, count, rs.getInt(1));
+        ++count;
+      }
+      assertEquals("total query size error with fetch size " + testSize, 100, count);
+      rs.close();
+    }
+  }
+
+  @Test
+  public void testMaxRows() throws Exception {
+    PreparedStatement stmt = con.prepareStatement("select value from test_stream order by value");
+    stmt.setFetchSize(10);
+    stmt.setMaxRows(25);
+    ResultSet rs = stmt.executeQuery();
+    int count = 0;
+    while (rs.next()) {
+      assertEquals(count, rs.getInt(1));
+      ++count;
+    }
+    assertEquals(25, count);
+  }
+
+  /**
+   * Using the connection while a result is only partially read must read the rest of it, so both
+   * the other statement and the result set keep working.
+   */
+  @Test
+  public void testInterleavedStatements() throws Exception {
+    Statement stmt = con.createStatement();
+    stmt.setFetchSize(10);
+    ResultSet rs = stmt.executeQuery("select value from test_stream order by value");
+    assertTrue(rs.next());
+    assertEquals(0, rs.getInt(1));
+
+    Statement other = con.createStatement();
+    ResultSet otherRs = other.executeQuery("select count(*) from test_stream");
+    assertTrue(otherRs.next());
+    assertEquals(100, otherRs.getInt(1));
+    otherRs.close();
+    other.close();
+
+    int count = 1;
+    while (rs.next()) {
+      assertEquals(count, rs.getInt(1));
+      ++count;
+    }
+    assertEquals(100, count);
+  }
+
+  @Test
+  public void testCloseBeforeEnd() throws Exception {
+    Statement stmt = con.createStatement();
+    stmt.setFetchSize(5);
+    ResultSet rs = stmt.executeQuery("select value from test_stream order by value");
+    assertTrue(rs.next());
+    rs.close();
+
+    rs = stmt.executeQuery("select 42");
+    assertTrue(rs.next());
+    assertEquals(42, rs.getInt(1));
+    assertFalse(rs.next());
+  }
+
+  @Test
+  public void testErrorAfterFirstChunk() throws Exception {
+    Statement stmt = con.createStatement();
+    stmt.setFetchSize(10);
+    ResultSet rs = stmt.executeQuery(
+        "select 1 / (50 - value) from test_stream order by value");
+    try {
+      while (rs.next()) {
+        rs.getInt(1);
+      }
+      fail("Division by zero should have been reported by ResultSet.next()");
+    } catch (SQLException e) {
+      // expected
+    }
+
+    rs = stmt.executeQuery("select 1");
+    assertTrue(rs.next());
+  }
+
+  /**
+   * The BEGIN of a transaction is sent along with its first statement, so committing while the
+   * streamed result of that statement is only partially read must still commit.
+   */
+  @Test
+  public void testCommitAfterStreamedQuery() throws Exception {
+    con.setAutoCommit(false);
+    Statement stmt = con.createStatement();
+    stmt.setFetchSize(10);
+    ResultSet rs = stmt.executeQuery("with ins as (insert into test_stream(value) "
+        + "select generate_series(100, 149) returning value) select value from ins");
+    assertTrue(rs.next());
+    con.commit();
+    con.setAutoCommit(true);
+
+    Connection other = TestUtil.openDB();
+    try {
+      ResultSet otherRs = other.createStatement().executeQuery("select count(*) from test_stream");
+      assertTrue(otherRs.next());
+      assertEquals(150, otherRs.getInt(1));
+    } finally {
+      other.close();
+    }
+  }
+}
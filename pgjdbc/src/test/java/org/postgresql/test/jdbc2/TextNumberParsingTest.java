@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.jdbc2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.postgresql.core.Oid;
+import org.postgresql.test.fakebackend.FakeBackendTestBase;
+import org.postgresql.test.fakebackend.FakeResult;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Numeric getters on text format values must give the same results as parsing the string value.
+ */
+public class TextNumberParsingTest extends FakeBackendTestBase {
+  private Connection con;
+
+  @Before
+  public void setUp() throws Exception {
+    con = connect();
+  }
+
+  private ResultSet select(int oid, List<String> values) throws SQLException {
+    List<String[]> rows = new ArrayList<String[]>();
+    for (String value : values) {
+      rows.add(new String[]{value});
+    }
+    script.on("select", FakeResult.rows(new String[]{"value"}, new int[]{oid}, rows));
+    Statement stmt = con.createStatement();
+    return stmt.executeQuery("select value");
+  }
+
+  @Test
+  public void testIntegers() throws SQLException {
+    List<String> values = new ArrayList<String>();
+    for (long value : new long[]{0, 1, -1, 9, 10, 32767, -32768, 32768, 999999999, 2147483647,
+        -2147483648, 2147483648L, -2147483649L, 99999999999L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+      values.add(Long.toString(value));
+    }
+    values.add("9223372036854775808");
+    values.add("-9223372036854775809");
+    values.add("99999999999999999999");
+    values.add("007");
+    values.add(" 12 ");
+    values.add("12.7");
+    values.add("-");
+    ResultSet rs = select(Oid.INT8, values);
+    for (String value : values) {
+      assertTrue(rs.next());
+      assertSameLong(value, rs, Short.MIN_VALUE, Short.MAX_VALUE);
+      assertSameLong(value, rs, Integer.MIN_VALUE, Integer.MAX_VALUE);
+      assertSameLong(value, rs, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+  }
+
+  private static void assertSameLong(String value, ResultSet rs, long min, long max) {
+    Long expected;
+    try {
+      BigDecimal parsed = new BigDecimal(value.trim());
+      long longValue = parsed.toBigInteger().longValue();
+      boolean inRange = parsed.toBigInteger().bitLength() < 64 && longValue >= min
+          && longValue <= max;
+      expected = inRange ? longValue : null;
+    } catch (NumberFormatException e) {
+      expected = null;
+    }
+    try {
+      long actual;
+      if (max == Short.MAX_VALUE) {
+        actual = rs.getShort(1);
+      } else if (max == Integer.MAX_VALUE) {
+        actual = rs.getInt(1);
+      } else {
+        actual = rs.getLong(1);
+      }
+      assertEquals(value + " in [" + min + ", " + max + "]", expected, Long.valueOf(actual));
+    } catch (SQLException e) {
+      if (expected != null) {
+        throw new AssertionError(value + " in [" + min + ", " + max + "]: " + e);
+      }
+    }
+  }
+
+  @Test
+  public void testFloatingPoint() throws SQLException {
+    Random random = new Random(42);
+    List<String> values = new ArrayList<String>();
+    for (int i = 0; i < 5000; i++) {
+      double value;
+      switch (i % 4) {
+        case 0:
+          value = random.nextDouble();
+          break;
+        case 1:
+          value = (random.nextInt(2000000) - 1000000) / 100.0;
+          break;
+        case 2:
+          value = random.nextGaussian() * Math.pow(10, random.nextInt(60) - 30);
+          break;
+        default:
+          value = random.nextFloat() * 1000;
+      }
+      // Backend style exponent, e.g. 1.5e+30
+      values.add(Double.toString(value).replace("E", "e+").replace("e+-", "e-"));
+      values.add(Float.toString((float) value).replace("E", "e+").replace("e+-", "e-"));
+    }
+    values.add("0");
+    values.add("-0");
+    values.add("1.");
+    values.add(".5");
+    values.add("123456789012345678");
+    values.add("NaN");
+    values.add("Infinity");
+    values.add("-Infinity");
+    values.add("3.4028235e+38");
+    values.add("1e-45");
+    ResultSet rs = select(Oid.FLOAT8, values);
+    for (String value : values) {
+      assertTrue(rs.next());
+      assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+          Double.doubleToLongBits(rs.getDouble(1)));
+      assertEquals(value, Float.floatToIntBits(Float.parseFloat(value)),
+          Float.floatToIntBits(rs.getFloat(1)));
+    }
+  }
+
+  @Test
+  public void testBadFloatingPoint() throws SQLException {
+    List<String> values = new ArrayList<String>();
+    values.add("1e");
+    values.add("1.2.3");
+    values.add("e5");
+    values.add("-");
+    ResultSet rs = select(Oid.FLOAT8, values);
+    for (String value : values) {
+      assertTrue(rs.next());
+      try {
+        rs.getDouble(1);
+        fail("getDouble should fail for " + value);
+      } catch (SQLException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testBigDecimal() throws SQLException {
+    List<String> values = new ArrayList<String>();
+    values.add("0");
+    values.add("-1.50");
+    values.add("123456789012345678");
+    values.add("1234567890123456789");
+    values.add("-12345678901234567890.123456789");
+    values.add("0.000000000000000000000001");
+    values.add("99999999999999999999999999999999999999");
+    ResultSet rs = select(Oid.NUMERIC, values);
+    for (String value : values) {
+      assertTrue(rs.next());
+      BigDecimal actual = rs.getBigDecimal(1);
+      assertEquals(value, new BigDecimal(value), actual);
+      assertEquals(value, new BigDecimal(value).scale(), actual.scale());
+    }
+  }
+}
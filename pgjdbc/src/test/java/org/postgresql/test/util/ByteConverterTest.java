@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.postgresql.util.ByteConverter;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+public class ByteConverterTest {
+
+  /**
+   * Builds a binary numeric the way the backend sends it.
+   */
+  private static byte[] numeric(int weight, int sign, int dscale, int... digits) {
+    byte[] bytes = new byte[8 + 2 * digits.length];
+    ByteConverter.int2(bytes, 0, digits.length);
+    ByteConverter.int2(bytes, 2, weight);
+    ByteConverter.int2(bytes, 4, sign);
+    ByteConverter.int2(bytes, 6, dscale);
+    for (int i = 0; i < digits.length; i++) {
+      ByteConverter.int2(bytes, 8 + 2 * i, digits[i]);
+    }
+    return bytes;
+  }
+
+  private static void assertNumeric(String value, byte[] bytes) {
+    BigDecimal expected = new BigDecimal(value);
+    assertArrayEquals(value, bytes, ByteConverter.numeric(expected));
+    BigDecimal actual = (BigDecimal) ByteConverter.numeric(bytes);
+    assertEquals(value, expected, actual);
+    assertEquals(value, value, actual.toPlainString());
+  }
+
+  @Test
+  public void testNumericBackendFormat() {
+    assertNumeric("0", numeric(0, 0, 0));
+    assertNumeric("0.000", numeric(0, 0, 3));
+    assertNumeric("1.50", numeric(0, 0, 2, 1, 5000));
+    assertNumeric("-12345678.9", numeric(1, 0x4000, 1, 1234, 5678, 9000));
+    assertNumeric("0.0001", numeric(-1, 0, 4, 1));
+    assertNumeric("0.00001", numeric(-2, 0, 5, 1000));
+    assertNumeric("10000", numeric(1, 0, 0, 1));
+    assertNumeric("100000000.00", numeric(2, 0, 2, 1));
+    assertNumeric("9223372036854775808", numeric(4, 0, 0, 922, 3372, 368, 5477, 5808));
+  }
+
+  @Test
+  public void testNumericSpecialValues() {
+    assertEquals(Double.NaN, ByteConverter.numeric(numeric(0, 0xC000, 0)));
+    assertEquals(Double.POSITIVE_INFINITY, ByteConverter.numeric(numeric(0, 0xD000, 0)));
+    assertEquals(Double.NEGATIVE_INFINITY, ByteConverter.numeric(numeric(0, 0xF000, 0)));
+  }
+
+  @Test
+  public void testNumericNegativeScale() {
+    BigDecimal value = new BigDecimal("1E+3");
+    assertArrayEquals(numeric(0, 0, 0, 1000), ByteConverter.numeric(value));
+    assertEquals(new BigDecimal("1000"), ByteConverter.numeric(ByteConverter.numeric(value)));
+  }
+
+  @Test
+  public void testNumericOutOfRange() {
+    assertNull(ByteConverter.numeric(new BigDecimal("1E-20000")));
+    assertNull(ByteConverter.numeric(new BigDecimal("1E+200000")));
+  }
+
+  @Test
+  public void testNumericRoundTrip() {
+    Random random = new Random(42);
+    for (int i = 0; i < 20000; i++) {
+      BigInteger unscaled = new BigInteger(1 + random.nextInt(i % 10 == 0 ? 400 : 70), random);
+      if (random.nextBoolean()) {
+        unscaled = unscaled.negate();
+      }
+      BigDecimal value = new BigDecimal(unscaled, random.nextInt(40));
+      assertEquals(value.toPlainString(), value,
+          ByteConverter.numeric(ByteConverter.numeric(value)));
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2018, PostgreSQL Global Development Group
+ * See the LICENSE file in the project root for more information.
+ */
+
+package org.postgresql.test.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.postgresql.util.CanEstimateSize;
+import org.postgresql.util.LruCache;
+import org.postgresql.util.SegmentedCache;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link SegmentedCache}.
+ */
+public class SegmentedCacheTest {
+
+  private static class Entry implements CanEstimateSize {
+    private final int id;
+    private final long size;
+
+    Entry(int id, long size) {
+      this.id = id;
+      this.size = size;
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    public String toString() {
+      return "Entry{" + "id=" + id + '}';
+    }
+  }
+
+  private final AtomicInteger created = new AtomicInteger();
+  private final List<Entry> evicted = Collections.synchronizedList(new ArrayList<Entry>());
+
+  private SegmentedCache<Integer, Entry> newCache(int entries, long bytes) {
+    return new SegmentedCache<Integer, Entry>(entries, bytes,
+        new LruCache.CreateAction<Integer, Entry>() {
+          @Override
+          public Entry create(Integer key) throws SQLException {
+            created.incrementAndGet();
+            return new Entry(key, 10);
+          }
+        }, new LruCache.EvictAction<Entry>() {
+          @Override
+          public void evict(Entry entry) throws SQLException {
+            evicted.add(entry);
+          }
+        });
+  }
+
+  private static Entry use(SegmentedCache<Integer, Entry> cache, int key) throws SQLException {
+    Entry entry = cache.borrow(key);
+    cache.put(key, entry);
+    return entry;
+  }
+
+  @Test
+  public void testBorrowAndCounters() throws SQLException {
+    SegmentedCache<Integer, Entry> cache = newCache(4, 1000);
+    Entry a = use(cache, 1);
+    assertSame(a, use(cache, 1));
+    assertSame(a, cache.get(1));
+    assertNull(cache.get(2));
+    assertEquals(2, cache.getHitCount());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testLruCacheViewForwards() throws SQLException {
+    SegmentedCache<Integer, Entry> cache = newCache(4, 1000);
+    LruCache<Integer, Entry> view = cache.asLruCache();
+    assertSame(view, cache.asLruCache());
+    Entry a = view.borrow(1);
+    view.put(1, a);
+    assertSame(a, cache.get(1));
+    assertSame(a, view.get(1));
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  public void testKeyUsedOnceIsNotAdmitted() throws SQLException {
+    SegmentedCache<Integer, Entry> cache = newCache(4, 1000);
+    for (int key = 1; key <= 4; key++) {
+      use(cache, key);
+    }
+    Entry e = use(cache, 5);
+    assertEquals(Collections.singletonList(e), evicted);
+    assertEquals(4, cache.size());
+
+    // the second use makes 5 more frequent than the least recently used entry
+    evicted.clear();
+    use(cache, 5);
+    assertEquals(1, evicted.size());
+    assertEquals(1, evicted.get(0).id);
+    assertEquals(2, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testOneOffKeysDoNotFlushFrequentKeys() throws SQLException {
+    SegmentedCache<Integer, Entry> cache = newCache(64, 1 << 20);
+    // each frequent key comes back after 96 other uses, plain LRU of 64 entries would never hit
+    int oneOff = 1000;
+    for (int round = 0; round < 50; round++) {
+      long hits = cache.getHitCount();
+      for (int key = 0; key < 32; key++) {
+        use(cache, key);
+        use(cache, oneOff++);
+        use(cache, oneOff++);
+      }
+      if (round >= 10) {
+        assertTrue("round " + round, cache.getHitCount() - hits >= 28);
+      }
+    }
+  }
+
+  @Test
+  public void testLargeValueIsNotCached() throws SQLException {
+    SegmentedCache<Integer, Entry> cache = newCache(4, 1000);
+    Entry big = new Entry(1, 501);
+    cache.put(1, big);
+    assertEquals(Collections.singletonList(big), evicted);
+    assertNull(cache.get(1));
+  }
+
+  @Test
+  public void testDuplicateKey() throws SQLException {
+    SegmentedCache<Integer, Entry> cache = newCache(4, 1000);
+    Entry a = use(cache, 1);
+    Entry b = new Entry(1, 10);
+    cache.put(1, b);
+    assertEquals(Collections.singletonList(a), evicted);
+    assertSame(b, cache.get(1));
+  }
+
+  @Test
+  public void testConcurrentUse() throws Exception {
+    final SegmentedCache<Integer, Entry> cache = newCache(256, 1 << 20);
+    Thread[] threads = new Thread[8];
+    final AtomicInteger failures = new AtomicInteger();
+    for (int i = 0; i < threads.length; i++) {
+      final Random random = new Random(i);
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < 20000; j++) {
+              // a skewed distribution: small keys are used much more often
+              int key = (int) Math.abs(random.nextGaussian() * 200);
+              use(cache, key);
+            }
+          } catch (Throwable t) {
+            failures.incrementAndGet();
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, failures.get());
+    assertTrue(cache.size() <= 256);
+    // every value created was either kept or evicted
+    assertEquals(created.get(), cache.size() + evicted.size());
+    assertTrue(cache.getHitCount() > cache.getMissCount());
+  }
+}